@@ -0,0 +1,160 @@
+package org.arjun.bench;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.parser.WarmUp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Java sources fed to the benchmarks, selected by the {@code input} parameter:
+ * <ul>
+ *     <li>{@code samples} - every file of src/test/resources/samples (packaged as the warm-up corpus)</li>
+ *     <li>{@code synthetic-small} / {@code synthetic-large} - generated classes of roughly 1k and 20k lines</li>
+ *     <li>{@code synthetic-expressions} - generated methods made of long concatenations and arithmetic chains</li>
+ *     <li>{@code synthetic-long-expressions} - a concatenation, an arithmetic and a boolean chain of 10k terms each</li>
+ *     <li>any single sample file name, e.g. {@code -p input=Class2.java}</li>
+ * </ul>
+ */
+final class BenchmarkInputs {
+    static final String SAMPLES = "samples";
+    static final String SYNTHETIC_SMALL = "synthetic-small";
+    static final String SYNTHETIC_LARGE = "synthetic-large";
+    static final String SYNTHETIC_EXPRESSIONS = "synthetic-expressions";
+    static final String SYNTHETIC_LONG_EXPRESSIONS = "synthetic-long-expressions";
+
+    private BenchmarkInputs() {}
+
+    static List<String> load(String input) throws IOException {
+        switch (input) {
+            case SAMPLES:
+                List<String> sources = new ArrayList<>();
+                for (String name : WarmUp.corpus()) {
+                    sources.add(sample(name));
+                }
+                if (sources.isEmpty()) {
+                    throw new IllegalStateException("sample corpus is not on the classpath");
+                }
+                return sources;
+            case SYNTHETIC_SMALL:
+                return Collections.singletonList(synthetic(40));
+            case SYNTHETIC_LARGE:
+                return Collections.singletonList(synthetic(800));
+            case SYNTHETIC_EXPRESSIONS:
+                return Collections.singletonList(syntheticExpressions(200, 60));
+            case SYNTHETIC_LONG_EXPRESSIONS:
+                return Collections.singletonList(syntheticLongExpressions(10_000));
+            default:
+                return Collections.singletonList(sample(input));
+        }
+    }
+
+    private static String sample(String name) throws IOException {
+        try (InputStream source = BenchmarkInputs.class.getResourceAsStream(WarmUp.CORPUS_DIR + name)) {
+            if (source == null) {
+                throw new IllegalArgumentException("unknown benchmark input: " + name);
+            }
+            return CharStreams.fromStream(source, StandardCharsets.UTF_8).toString();
+        }
+    }
+
+    /** A single class with {@code methods} methods mixing the constructs the translator supports. */
+    static String synthetic(int methods) {
+        StringBuilder code = new StringBuilder();
+        code.append("import java.util.List;\n\n");
+        code.append("public class Synthetic {\n");
+        code.append("    private int total = 0;\n");
+        code.append("    private String name = \"synthetic\";\n\n");
+        for (int m = 0; m < methods; m++) {
+            code.append("    public int method").append(m).append("(int x, int y) {\n");
+            code.append("        int sum = x * ").append(m).append(" + y - (x / 3) % 7;\n");
+            code.append("        for (int i = 0; i < x; i++) {\n");
+            code.append("            if (i % 2 == 0 && sum > ").append(m).append(") {\n");
+            code.append("                sum += i;\n");
+            code.append("            } else if (i % 3 == 0 || y < i) {\n");
+            code.append("                sum -= i * 2;\n");
+            code.append("            } else {\n");
+            code.append("                total++;\n");
+            code.append("            }\n");
+            code.append("        }\n");
+            code.append("        while (sum > 1000) {\n");
+            code.append("            sum = sum / 2;\n");
+            code.append("        }\n");
+            code.append("        switch (x) {\n");
+            code.append("            case 1:\n");
+            code.append("                System.out.println(\"one \" + name);\n");
+            code.append("                break;\n");
+            code.append("            default:\n");
+            code.append("                System.out.println(\"value \" + sum);\n");
+            code.append("        }\n");
+            code.append("        boolean big = sum > 100 ? true : false;\n");
+            code.append("        return big ? sum : method").append(Math.max(0, m - 1)).append("(x - 1, y);\n");
+            code.append("    }\n\n");
+        }
+        code.append("    public static void main(String[] args) {\n");
+        code.append("        Synthetic s = new Synthetic();\n");
+        code.append("        System.out.println(s.method0(3, 4));\n");
+        code.append("    }\n");
+        code.append("}\n");
+        return code.toString();
+    }
+
+    /** A class of {@code methods} methods whose statements are expressions of about {@code terms} operands each. */
+    static String syntheticExpressions(int methods, int terms) {
+        StringBuilder code = new StringBuilder();
+        code.append("public class Expressions {\n");
+        code.append("    private int total = 0;\n\n");
+        for (int m = 0; m < methods; m++) {
+            code.append("    public String method").append(m).append("(int x, int y, String name) {\n");
+            code.append("        String text = \"start\"");
+            for (int t = 0; t < terms; t++) {
+                code.append(t % 3 == 0 ? " + name" : t % 3 == 1 ? " + \"-" + t + "\"" : " + (x + " + t + ")");
+            }
+            code.append(";\n");
+            code.append("        int value = x");
+            for (int t = 0; t < terms; t++) {
+                code.append(" ").append("+-*%".charAt(t % 4)).append(t % 5 == 0 ? " (y - " + (t + 1) + ")" : " " + (t + 1));
+            }
+            code.append(";\n");
+            code.append("        boolean ok = x > 0 && y < ").append(m).append(" || x == y && !(x >= y) || name.length() != 3;\n");
+            code.append("        total += ok ? value : helper(x, y + 1, text.length() * 2) - this.total;\n");
+            code.append("        return text + value + total;\n");
+            code.append("    }\n\n");
+        }
+        code.append("    private int helper(int a, int b, int c) {\n");
+        code.append("        return a * b + c;\n");
+        code.append("    }\n");
+        code.append("}\n");
+        return code.toString();
+    }
+
+    /** Three methods, each returning a single expression of {@code terms} operands: nested that many levels deep. */
+    static String syntheticLongExpressions(int terms) {
+        StringBuilder code = new StringBuilder();
+        code.append("public class LongExpressions {\n");
+        code.append("    public String concatenation(String name, int x) {\n");
+        code.append("        return \"start\"");
+        for (int t = 0; t < terms; t++) {
+            code.append(t % 3 == 0 ? " + name" : t % 3 == 1 ? " + \"-" + t + "\"" : " + x");
+        }
+        code.append(";\n    }\n\n");
+        code.append("    public int arithmetic(int x, int y) {\n");
+        code.append("        return x");
+        for (int t = 0; t < terms; t++) {
+            code.append(" ").append("+-*%".charAt(t % 4)).append(t % 2 == 0 ? " y" : " " + (t + 1));
+        }
+        code.append(";\n    }\n\n");
+        code.append("    public boolean condition(int x, int y) {\n");
+        code.append("        return x > 0");
+        for (int t = 0; t < terms; t++) {
+            code.append(t % 2 == 0 ? " && y < " : " || x != ").append(t);
+        }
+        code.append(";\n    }\n");
+        code.append("}\n");
+        return code.toString();
+    }
+}
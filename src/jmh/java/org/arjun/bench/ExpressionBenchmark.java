@@ -0,0 +1,71 @@
+package org.arjun.bench;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.arjun.interpreter.JavaLexer;
+import org.arjun.parser.JavaSourceParser;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParserOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-stage parsing of pre-lexed tokens with warm DFAs, with the generated expression rule ({@code antlr})
+ * or with HybridJavaParser's precedence climbing ({@code fast}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExpressionBenchmark {
+    @Param({BenchmarkInputs.SYNTHETIC_EXPRESSIONS, BenchmarkInputs.SAMPLES})
+    public String input;
+
+    @Param({"antlr", "fast"})
+    public String expressions;
+
+    private List<List<Token>> tokenLists;
+    private JavaSourceParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tokenLists = new ArrayList<>();
+        JavaLexer lexer = new JavaLexer(null);
+        for (String source : BenchmarkInputs.load(input)) {
+            lexer.setInputStream(CharStreams.fromString(source));
+            List<Token> tokens = new ArrayList<>();
+            Token token;
+            do {
+                token = lexer.nextToken();
+                tokens.add(token);
+            } while (token.getType() != Token.EOF);
+            tokenLists.add(tokens);
+        }
+        parser = new JavaSourceParser(ParseMode.TWO_STAGE, ParserOptions.defaults().setFastExpressions("fast".equals(expressions)));
+        parse(null);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (List<Token> tokens : tokenLists) {
+            Object tree = parser.parse(new CommonTokenStream(new ListTokenSource(tokens))).getTree();
+            if (blackhole != null) {
+                blackhole.consume(tree);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.arjun.bench;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.arjun.interpreter.JavaParser;
+import org.arjun.interpreter.TranslationContext;
+import org.arjun.interpreter._interpreter_;
+import org.arjun.parser.JavaSourceParser;
+import org.arjun.parser.ParseMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * _interpreter_.visitExpression over every outermost expression of the inputs, with one context per pass as per
+ * file. Read {@code gc.alloc.rate.norm}: apart from the first pass, which sizes the context's expression stack and
+ * caches names, a pass should allocate little more than the translations it returns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExpressionVisitBenchmark {
+    @Param({BenchmarkInputs.SAMPLES, BenchmarkInputs.SYNTHETIC_EXPRESSIONS})
+    public String input;
+
+    private final _interpreter_ interpreter = new _interpreter_();
+    private List<JavaParser.ExpressionContext> expressions;
+
+    @Setup
+    public void setUp() throws IOException {
+        expressions = new ArrayList<>();
+        for (String source : BenchmarkInputs.load(input)) {
+            collect(new JavaSourceParser(ParseMode.TWO_STAGE).parse(CharStreams.fromString(source)).getTree(), expressions);
+        }
+    }
+
+    private static void collect(ParseTree tree, List<JavaParser.ExpressionContext> expressions) {
+        if (tree instanceof JavaParser.ExpressionContext) {
+            expressions.add((JavaParser.ExpressionContext) tree);
+            return;
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            collect(tree.getChild(i), expressions);
+        }
+    }
+
+    @Benchmark
+    public int visit() {
+        TranslationContext tc = new TranslationContext();
+        int length = 0;
+        for (JavaParser.ExpressionContext expression : expressions) {
+            length += interpreter.visitExpression(expression, tc).length();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,95 @@
+package org.arjun.bench;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.arjun.interpreter.JavaLexer;
+import org.arjun.parser.MappedCharStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading source files from disk: {@link CharStreams#fromFileName} against {@link MappedCharStream}. The inputs
+ * are written to a temporary directory first, so the files are in the page cache and the numbers are about
+ * decoding, copying and allocation rather than the disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InputBenchmark {
+    @Param({BenchmarkInputs.SAMPLES, BenchmarkInputs.SYNTHETIC_LARGE})
+    public String input;
+
+    @Param({"charStreams", "mapped"})
+    public String reader;
+
+    private Path directory;
+    private List<Path> files;
+    private JavaLexer lexer;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("input-benchmark");
+        files = new ArrayList<>();
+        for (String source : BenchmarkInputs.load(input)) {
+            Path file = directory.resolve("Source" + files.size() + ".java");
+            Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        lexer = new JavaLexer(null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /** Opens every file and reads each character once. */
+    @Benchmark
+    public long read() throws IOException {
+        long sum = 0;
+        for (Path file : files) {
+            CharStream stream = open(file);
+            for (int c = stream.LA(1); c != CharStream.EOF; c = stream.LA(1)) {
+                sum += c;
+                stream.consume();
+            }
+        }
+        return sum;
+    }
+
+    /** Opens and tokenizes every file with the generated lexer, which also copies out each token's text. */
+    @Benchmark
+    public int tokenize() throws IOException {
+        int tokens = 0;
+        for (Path file : files) {
+            lexer.setInputStream(open(file));
+            for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+                tokens += token.getText().length() > 0 ? 1 : 0;
+            }
+        }
+        return tokens;
+    }
+
+    private CharStream open(Path file) throws IOException {
+        return reader.equals("mapped") ? MappedCharStream.open(file) : CharStreams.fromFileName(file.toString());
+    }
+}
@@ -0,0 +1,51 @@
+package org.arjun.bench;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.interpreter.TranslationContext;
+import org.arjun.interpreter._interpreter_;
+import org.arjun.interpreter.JavaParser;
+import org.arjun.parser.JavaSourceParser;
+import org.arjun.parser.ParseMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** _interpreter_.visit over trees parsed once in setup, so only the translation itself is measured. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InterpreterBenchmark {
+    @Param({BenchmarkInputs.SAMPLES, BenchmarkInputs.SYNTHETIC_SMALL, BenchmarkInputs.SYNTHETIC_LARGE,
+            BenchmarkInputs.SYNTHETIC_LONG_EXPRESSIONS})
+    public String input;
+
+    private final _interpreter_ interpreter = new _interpreter_();
+    private List<JavaParser.CompilationUnitContext> trees;
+
+    @Setup
+    public void setUp() throws IOException {
+        trees = new ArrayList<>();
+        for (String source : BenchmarkInputs.load(input)) {
+            // a fresh parser per tree: the parser reuses its token stream, which the trees must not share
+            trees.add(new JavaSourceParser(ParseMode.TWO_STAGE).parse(CharStreams.fromString(source)).getTree());
+        }
+    }
+
+    @Benchmark
+    public void visit(Blackhole blackhole) {
+        for (JavaParser.CompilationUnitContext tree : trees) {
+            blackhole.consume(interpreter.visit(tree, new TranslationContext()));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.arjun.bench;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.arjun.interpreter.JavaLexer;
+import org.arjun.parser.FastJavaLexer;
+import org.arjun.parser.LexerKind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** CharStreams + JavaLexer or FastJavaLexer: tokenizes every input to EOF. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LexerBenchmark {
+    @Param({BenchmarkInputs.SAMPLES, BenchmarkInputs.SYNTHETIC_SMALL, BenchmarkInputs.SYNTHETIC_LARGE})
+    public String input;
+
+    @Param({"antlr", "fast"})
+    public String lexer;
+
+    private List<String> sources;
+    private JavaLexer antlrLexer;
+    private FastJavaLexer fastLexer;
+
+    @Setup
+    public void setUp() throws IOException {
+        sources = BenchmarkInputs.load(input);
+        if (LexerKind.fromArg(lexer) == LexerKind.FAST) {
+            fastLexer = new FastJavaLexer(null);
+        } else {
+            antlrLexer = new JavaLexer(null);
+        }
+    }
+
+    @Benchmark
+    public int tokenize() {
+        int tokens = 0;
+        for (String source : sources) {
+            TokenSource tokenSource;
+            if (fastLexer != null) {
+                fastLexer.setInputStream(CharStreams.fromString(source));
+                tokenSource = fastLexer;
+            } else {
+                antlrLexer.setInputStream(CharStreams.fromString(source));
+                tokenSource = antlrLexer;
+            }
+            while (tokenSource.nextToken().getType() != Token.EOF) {
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+}
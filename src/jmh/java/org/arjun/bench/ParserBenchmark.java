@@ -0,0 +1,97 @@
+package org.arjun.bench;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.arjun.interpreter.JavaLexer;
+import org.arjun.parser.DfaCache;
+import org.arjun.parser.JavaSourceParser;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParseResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JavaParser.compilationUnit() over pre-lexed tokens, so lexing is not part of the measurement.
+ * {@code warm} parses with whatever the shared DFAs have learned (every input is parsed once in setup);
+ * {@code cold} discards all DFA states before each invocation, as a fresh JVM would see them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParserBenchmark {
+    @Param({BenchmarkInputs.SAMPLES, BenchmarkInputs.SYNTHETIC_SMALL, BenchmarkInputs.SYNTHETIC_LARGE})
+    public String input;
+
+    @Param({"twostage", "ll"})
+    public String parseMode;
+
+    private List<List<Token>> tokenLists;
+    private JavaSourceParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tokenLists = new ArrayList<>();
+        JavaLexer lexer = new JavaLexer(null);
+        for (String source : BenchmarkInputs.load(input)) {
+            lexer.setInputStream(CharStreams.fromString(source));
+            List<Token> tokens = new ArrayList<>();
+            Token token;
+            do {
+                token = lexer.nextToken();
+                tokens.add(token);
+            } while (token.getType() != Token.EOF);
+            tokenLists.add(tokens);
+        }
+        parser = new JavaSourceParser(ParseMode.fromArg(parseMode));
+    }
+
+    @State(Scope.Thread)
+    public static class ColdDfa {
+        @Setup(Level.Invocation)
+        public void clear() {
+            DfaCache.clear();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WarmDfa {
+        @Setup(Level.Trial)
+        public void warm(ParserBenchmark benchmark) {
+            benchmark.parseAll(null);
+        }
+    }
+
+    @Benchmark
+    public void warm(WarmDfa dfa, Blackhole blackhole) {
+        parseAll(blackhole);
+    }
+
+    @Benchmark
+    public void cold(ColdDfa dfa, Blackhole blackhole) {
+        parseAll(blackhole);
+    }
+
+    private void parseAll(Blackhole blackhole) {
+        for (List<Token> tokens : tokenLists) {
+            ParseResult result = parser.parse(new CommonTokenStream(new ListTokenSource(tokens)));
+            if (blackhole != null) {
+                blackhole.consume(result.getTree());
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.arjun.bench;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.arjun.interpreter.JavaParser;
+import org.arjun.interpreter.TranslationContext;
+import org.arjun.parser.JavaSourceParser;
+import org.arjun.parser.ParseMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text of the nodes the interpreter asks for (type names, declarator names, identifiers, primaries and
+ * literals): {@code getText()} against {@link TranslationContext#text}, with one context per pass as per file.
+ * The trees are parsed once, so after the first pass names are served from their tokens; this is the
+ * repeated-lookup case, and {@code gc.alloc.rate.norm} shows what each pass allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TextBenchmark {
+    private static final Set<Integer> RULES = new HashSet<>(Arrays.asList(
+            JavaParser.RULE_typeType, JavaParser.RULE_variableDeclaratorId, JavaParser.RULE_qualifiedName,
+            JavaParser.RULE_identifier, JavaParser.RULE_primary, JavaParser.RULE_literal));
+
+    @Param({BenchmarkInputs.SAMPLES, BenchmarkInputs.SYNTHETIC_LARGE})
+    public String input;
+
+    @Param({"getText", "source"})
+    public String text;
+
+    private List<ParseTree> nodes;
+
+    @Setup
+    public void setUp() throws IOException {
+        nodes = new ArrayList<>();
+        for (String source : BenchmarkInputs.load(input)) {
+            collect(new JavaSourceParser(ParseMode.TWO_STAGE).parse(CharStreams.fromString(source)).getTree(), nodes);
+        }
+    }
+
+    private static void collect(ParseTree tree, List<ParseTree> nodes) {
+        if (tree instanceof ParserRuleContext && RULES.contains(((ParserRuleContext) tree).getRuleIndex())) {
+            nodes.add(tree);
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            collect(tree.getChild(i), nodes);
+        }
+    }
+
+    @Benchmark
+    public int texts() {
+        int length = 0;
+        if (text.equals("source")) {
+            TranslationContext tc = new TranslationContext();
+            for (ParseTree node : nodes) {
+                length += tc.text(node).length();
+            }
+        } else {
+            for (ParseTree node : nodes) {
+                length += node.getText().length();
+            }
+        }
+        return length;
+    }
+}
@@ -2,28 +2,67 @@ package org.arjun;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.arjun.interpreter.JavaLexer;
-import org.arjun.interpreter.JavaParser;
-import org.arjun.interpreter._interpreter_;
+import org.arjun.batch.BatchOptions;
+import org.arjun.batch.BatchSummary;
+import org.arjun.batch.BatchTranslator;
+import org.arjun.batch.TranslationCache;
+import org.arjun.daemon.TranslationDaemon;
+import org.arjun.diagnostics.DiagnosticsReport;
+import org.arjun.diagnostics.FileDiagnostics;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.DfaCache;
+import org.arjun.parser.LexerKind;
+import org.arjun.parser.ParseBudgetExceededException;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParseResult;
+import org.arjun.parser.ParserOptions;
+import org.arjun.parser.WarmUp;
+import org.arjun.stats.FileStats;
+import org.arjun.stats.Phase;
+import org.arjun.stats.StatsReport;
+import org.arjun.stats.TimedWriter;
+import org.arjun.stats.TranslationEvents;
 
-import java.io.File;
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.time.LocalDate;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class Main {
     public static void main(String[] args) throws Exception{
-        if (args.length < 4) {
-            System.out.println("Usage: java Main -inputPath <inputFile> -snippet <javaSnippet> -outputPath <outputFile>");
+        if (args.length < 4 && !Arrays.asList(args).contains("-daemon")) {
+            System.out.println("Usage: java Main -inputPath <inputFile> -snippet <javaSnippet> -outputPath <outputFile> [-slots] [-passes <names>] [-parseMode twostage|sll|ll] [-lexer antlr|fast] [-fastExpressions] [-parseThreads <n>] [-stream] [-maxParseMillis <ms>] [-maxLookahead <tokens>] [-maxTransitions <n>] [-degradedRetry] [-stats] [-statsJson <file>] [-diagnostics <file>] [-maxErrors <n>] [-dfaCache <cacheFile>] [-warmup]");
+            System.out.println("       java Main -inputDir <sourceRoot> -outputDir <outputRoot> [-threads <n>] [-cacheDir <dir>] [-cacheMaxMb <n>] [-slots] [-passes <names>] [-parseMode twostage|sll|ll] [-lexer antlr|fast] [-fastExpressions] [-parseThreads <n>] [-stream] [-maxParseMillis <ms>] [-maxLookahead <tokens>] [-maxTransitions <n>] [-degradedRetry] [-stats] [-statsJson <file>] [-diagnostics <file>] [-maxErrors <n>] [-dfaCache <cacheFile>] [-warmup]");
+            System.out.println("       java Main -daemon [-port <port>] [-outputRoot <dir>] [-threads <n>] [-parseMode twostage|sll|ll] [-lexer antlr|fast] [-fastExpressions] [-parseThreads <n>] [-stream] [-maxParseMillis <ms>] [-maxLookahead <tokens>] [-maxTransitions <n>] [-dfaCache <cacheFile>] [-warmup]");
             return;
         }
 
         String inputPath = null;
         String snippet = null;
         String outputPath = null;
+        String inputDir = null;
+        String outputDir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ParseMode parseMode = ParseMode.TWO_STAGE;
+        ParserOptions parserOptions = ParserOptions.defaults();
+        Path dfaCache = null;
+        boolean warmup = false;
+        Path cacheDir = null;
+        long cacheMaxBytes = TranslationCache.DEFAULT_MAX_BYTES;
+        TranslationOptions options = TranslationOptions.defaults();
+        boolean daemon = false;
+        int port = TranslationDaemon.DEFAULT_PORT;
+        Path outputRoot = Paths.get("");
+        boolean stats = false;
+        Path statsJson = null;
+        Path diagnosticsFile = null;
+        int maxErrors = DiagnosticsReport.DEFAULT_MAX_PER_FILE;
 
         for (int i = 0; i < args.length; i++) {
             switch (args[i]) {
@@ -36,16 +75,147 @@ public class Main {
                 case "-outputPath":
                     outputPath = args[++i];
                     break;
+                case "-inputDir":
+                    inputDir = args[++i];
+                    break;
+                case "-outputDir":
+                    outputDir = args[++i];
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-parseMode":
+                    parseMode = ParseMode.fromArg(args[++i]);
+                    break;
+                case "-lexer":
+                    parserOptions.setLexer(LexerKind.fromArg(args[++i]));
+                    break;
+                case "-fastExpressions":
+                    parserOptions.setFastExpressions(true);
+                    break;
+                case "-parseThreads":
+                    parserOptions.setParseThreads(Integer.parseInt(args[++i]));
+                    break;
+                case "-stream":
+                    parserOptions.setStreaming(true);
+                    break;
+                case "-maxParseMillis":
+                    parserOptions.setMaxParseMillis(Long.parseLong(args[++i]));
+                    break;
+                case "-maxLookahead":
+                    parserOptions.setMaxLookahead(Integer.parseInt(args[++i]));
+                    break;
+                case "-maxTransitions":
+                    parserOptions.setMaxTransitions(Long.parseLong(args[++i]));
+                    break;
+                case "-degradedRetry":
+                    parserOptions.setDegradedRetry(true);
+                    break;
+                case "-dfaCache":
+                    dfaCache = Paths.get(args[++i]);
+                    break;
+                case "-warmup":
+                    warmup = true;
+                    break;
+                case "-cacheDir":
+                    cacheDir = Paths.get(args[++i]);
+                    break;
+                case "-cacheMaxMb":
+                    cacheMaxBytes = Long.parseLong(args[++i]) * 1024 * 1024;
+                    break;
+                case "-slots":
+                    options.setSlots(true);
+                    break;
+                case "-passes":
+                    options.setPasses(Arrays.asList(args[++i].split(",")));
+                    break;
+                case "-stats":
+                    stats = true;
+                    break;
+                case "-statsJson":
+                    statsJson = Paths.get(args[++i]);
+                    break;
+                case "-diagnostics":
+                    diagnosticsFile = Paths.get(args[++i]);
+                    break;
+                case "-maxErrors":
+                    maxErrors = Integer.parseInt(args[++i]);
+                    break;
+                case "-daemon":
+                    daemon = true;
+                    break;
+                case "-port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "-outputRoot":
+                    outputRoot = Paths.get(args[++i]);
+                    break;
                 default:
                     System.out.println("Unknown argument: " + args[i]);
                     return;
             }
         }
-        processJavaCode(inputPath, snippet, outputPath);
+        boolean cacheLoaded = false;
+        if (dfaCache != null) {
+            DfaCache.LoadResult loadResult = DfaCache.load(dfaCache);
+            cacheLoaded = loadResult.isLoaded();
+            System.out.println("DFA cache " + loadResult);
+        }
+        if (warmup && !cacheLoaded) {
+            int parsed = WarmUp.runBuiltInCorpus(parseMode);
+            System.out.println("Warmed up on " + parsed + " built-in samples (" + DfaCache.stateCount() + " DFA states)");
+        }
+        StatsReport report = stats || statsJson != null ? new StatsReport() : null;
+        DiagnosticsReport diagnostics = new DiagnosticsReport(maxErrors);
+        if (daemon) {
+            new TranslationDaemon(port, threads, parseMode, parserOptions, outputRoot).run();
+        } else if (inputDir != null) {
+            if (outputDir == null) {
+                System.out.println("Error: -outputDir must be provided with -inputDir.");
+                return;
+            }
+            TranslationCache cache = cacheDir != null ? new TranslationCache(cacheDir, cacheMaxBytes, parseMode, options) : null;
+            BatchOptions batchOptions = BatchOptions.defaults().setParallelism(threads).setParseMode(parseMode)
+                    .setParserOptions(parserOptions).setTranslationOptions(options)
+                    .setCache(cache).setStats(report).setDiagnostics(diagnostics);
+            BatchSummary summary = new BatchTranslator(Paths.get(inputDir), Paths.get(outputDir), batchOptions).run();
+            System.out.print(summary.format());
+        } else {
+            processJavaCode(inputPath, snippet, outputPath, parseMode, parserOptions, options, report, diagnostics);
+        }
+        if (report != null && !daemon) {
+            if (stats) {
+                System.out.print(report.format());
+            }
+            if (statsJson != null) {
+                report.writeJson(statsJson);
+                System.out.println("Stats written to: " + statsJson);
+            }
+        }
+        if (!daemon) {
+            if (diagnosticsFile != null) {
+                diagnostics.write(diagnosticsFile);
+                System.out.println("Diagnostics written to: " + diagnosticsFile + " (" + diagnostics.summary() + ")");
+            } else if (!diagnostics.isEmpty()) {
+                System.err.print(diagnostics.format());
+            }
+        }
+        if (dfaCache != null) {
+            DfaCache.save(dfaCache);
+            System.out.println("DFA cache saved to: " + dfaCache + " (" + DfaCache.stateCount() + " DFA states)");
+        }
     }
 
-    private static void processJavaCode(String inputPath, String snippet, String outputPath) throws IOException {
+    private static void processJavaCode(String inputPath, String snippet, String outputPath, ParseMode parseMode, ParserOptions parserOptions,
+                                        TranslationOptions options, StatsReport report, DiagnosticsReport diagnostics) throws IOException {
+        String name = inputPath != null ? inputPath : "snippet";
+        FileDiagnostics fileDiagnostics = diagnostics.newFile(name);
         try {
+            FileStats stats = report != null ? new FileStats(name) : null;
+            TranslationEvents.TranslateFile event = TranslationEvents.beginTranslateFile(name, parseMode.name());
+            if (stats != null) {
+                stats.enter(Phase.READ);
+            }
             CharStream codeCharStream;
             if (inputPath != null) {
                 codeCharStream = CharStreams.fromFileName(inputPath);
@@ -55,26 +225,64 @@ public class Main {
                 System.out.println("Error: Either inputPath or snippet must be provided.");
                 return;
             }
-            JavaLexer lexer = new JavaLexer(codeCharStream);
-            CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-            JavaParser parser = new JavaParser(tokenStream);
-            final _interpreter_ interpreter = new _interpreter_();
-            String pythonCode = interpreter.visit(parser.compilationUnit());
-            writeToFile(outputPath, pythonCode);
+            if (stats != null) {
+                stats.exit();
+            }
+            ParseResult parseResult;
+            try {
+                parseResult = translate(new Translator(parseMode, parserOptions, options), codeCharStream, name, outputPath,
+                        options, stats, fileDiagnostics);
+            } catch (ParseBudgetExceededException overBudget) {
+                fileDiagnostics.overBudget(overBudget.getMessage(), parserOptions.isDegradedRetry());
+                if (!parserOptions.isDegradedRetry()) {
+                    throw overBudget;
+                }
+                System.out.println("Parsing " + name + " went over its budget (" + overBudget.getMessage() + "), retrying in degraded mode");
+                if (stats != null) {
+                    stats.exitAll();
+                }
+                codeCharStream.seek(0);
+                parseResult = translate(new Translator(ParseMode.SLL, parserOptions.degraded(), options), codeCharStream, name, outputPath,
+                        options, stats, fileDiagnostics);
+            }
+            if (stats != null || event != null) {
+                long inputBytes = inputPath != null ? Files.size(Paths.get(inputPath)) : snippet.getBytes(StandardCharsets.UTF_8).length;
+                long outputBytes = Files.size(Paths.get(outputPath));
+                TranslationEvents.endTranslateFile(event, inputBytes, outputBytes, parseResult.getStage().name(), parseResult.isFallback());
+                if (stats != null) {
+                    stats.setInputBytes(inputBytes);
+                    stats.setOutputBytes(outputBytes);
+                    report.add(stats);
+                }
+            }
+            System.out.println("Parsed " + (inputPath != null ? inputPath : "snippet") + " with " + parseResult.getStage()
+                    + (parseResult.isFallback() ? " (SLL bailed, fell back to LL)" : "")
+                    + (parseResult.getParallelMembers() > 0 ? " (" + parseResult.getParallelMembers() + " members parsed in parallel)" : ""));
+            if (!fileDiagnostics.getUntranslated().isEmpty()) {
+                System.out.println("Left " + fileDiagnostics.getUntranslated().size() + " members untranslated, as stubs raising NotImplementedError: "
+                        + fileDiagnostics.getUntranslated().stream().map(member -> member.getClassName() + "." + member.getName())
+                        .collect(Collectors.joining(", ")));
+            }
+            System.out.println("Python code written to: " + outputPath);
         } catch (Exception exception) {
-            String prefix = LocalDate.now() + "interpreter_logs";
-            File logFile = Files.createTempFile(prefix,".log").toFile();
-            writeToFile(logFile.getPath(), Arrays.toString(exception.getStackTrace()));
-            System.out.println("Exception occurred! Unable to interpret the java snippet. Find logs at: "+logFile.toPath());
+            fileDiagnostics.fail(exception);
+            System.out.println("Exception occurred! Unable to interpret the java snippet: " + exception);
+        } finally {
+            diagnostics.add(fileDiagnostics);
         }
     }
 
-    private static void writeToFile(String outputPath, String content) {
-        try (FileWriter writer = new FileWriter(outputPath)) {
-            writer.write(content);
-            System.out.println("Python code written to: " + outputPath);
-        } catch (IOException e) {
-            System.err.println("Error writing to file: " + e.getMessage());
+    private static ParseResult translate(Translator translator, CharStream codeCharStream, String name, String outputPath, TranslationOptions options,
+                                         FileStats stats, FileDiagnostics fileDiagnostics) throws IOException {
+        Writer file = new FileWriter(outputPath);
+        if (stats != null || TranslationEvents.isWriteOutputEnabled()) {
+            file = new TimedWriter(file, name, stats);
+        }
+        try (Writer writer = new BufferedWriter(file)) {
+            return translator.translate(codeCharStream, writer, options, stats, fileDiagnostics);
+        } catch (Exception exception) {
+            Files.deleteIfExists(Paths.get(outputPath));
+            throw exception;
         }
     }
 }
@@ -0,0 +1,179 @@
+package org.arjun;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.arjun.diagnostics.FileDiagnostics;
+import org.arjun.interpreter.TranslationContext;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.interpreter._interpreter_;
+import org.arjun.ir.PassManager;
+import org.arjun.ir.PyModule;
+import org.arjun.ir.PyPrinter;
+import org.arjun.parser.JavaSourceParser;
+import org.arjun.parser.ParserOptions;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParseResult;
+import org.arjun.stats.FileStats;
+import org.arjun.stats.Phase;
+import org.arjun.stats.TranslationEvents;
+
+/**
+ * Java to Python pipeline for one thread: lexing, parsing and visiting a source and, when the options name
+ * optimization passes, running them over a Python IR of the output before printing it.
+ * Instances keep their lexer and parser between calls and are not thread-safe; the visitor is shared.
+ */
+public class Translator {
+    /** Stateless and shared by every thread; per-file state lives in a fresh TranslationContext. */
+    private static final _interpreter_ INTERPRETER = new _interpreter_();
+
+    private final JavaSourceParser parser;
+    private final TranslationOptions options;
+
+    public Translator(ParseMode parseMode) {
+        this(parseMode, TranslationOptions.defaults());
+    }
+
+    public Translator(ParseMode parseMode, TranslationOptions options) {
+        this(parseMode, ParserOptions.defaults(), options);
+    }
+
+    public Translator(ParseMode parseMode, ParserOptions parserOptions, TranslationOptions options) {
+        this.parser = new JavaSourceParser(parseMode, parserOptions);
+        this.options = options;
+    }
+
+    public Result translate(CharStream input) {
+        StringBuilder pythonCode = new StringBuilder();
+        ParseResult parseResult = translate(input, pythonCode);
+        return new Result(pythonCode.toString(), parseResult);
+    }
+
+    /** Translates {@code input}, streaming the Python source into {@code out} as it is generated. */
+    public ParseResult translate(CharStream input, Appendable out) {
+        return translate(input, out, options);
+    }
+
+    /** Same as {@link #translate(CharStream, Appendable)} with options other than this translator's own. */
+    public ParseResult translate(CharStream input, Appendable out, TranslationOptions options) {
+        return translate(input, out, options, null);
+    }
+
+    /**
+     * Same as {@link #translate(CharStream, Appendable, TranslationOptions)}, charging lexing, parsing and visiting
+     * to {@code stats} unless it is null. Measured runs lex the whole input before parsing it; streamed sources
+     * are lexed while parsing, so their lexing counts as parsing and their members are parsed while visiting.
+     * The same steps are recorded as {@link TranslationEvents}, and a recording of Lex events also lexes up front.
+     */
+    public ParseResult translate(CharStream input, Appendable out, TranslationOptions options, FileStats stats) {
+        return translate(input, out, options, stats, null);
+    }
+
+    /**
+     * Same as {@link #translate(CharStream, Appendable, TranslationOptions, FileStats)}, reporting lexing and syntax
+     * errors to {@code diagnostics} rather than to the console unless it is null, along with the class members that
+     * were emitted as stubs because they could not be translated.
+     */
+    public ParseResult translate(CharStream input, Appendable out, TranslationOptions options, FileStats stats,
+                                 FileDiagnostics diagnostics) {
+        if (diagnostics == null) {
+            return translateFile(input, out, options, stats, null);
+        }
+        parser.setErrorListener(diagnostics);
+        try {
+            return translateFile(input, out, options, stats, diagnostics);
+        } finally {
+            parser.setErrorListener(null);
+        }
+    }
+
+    private ParseResult translateFile(CharStream input, Appendable out, TranslationOptions options, FileStats stats,
+                                      FileDiagnostics diagnostics) {
+        // __slots__ are worked out from whole classes, so those are never streamed
+        boolean streamed = parser.getOptions().isStreaming() && !options.isSlots();
+        String path = input.getSourceName();
+        CommonTokenStream tokenStream = null;
+        long tokens = -1;
+        if (!streamed) {
+            TranslationEvents.Lex lexEvent = TranslationEvents.beginLex(path, input.size(), parser.getOptions().getLexer().name());
+            if (stats != null || lexEvent != null) {
+                if (stats != null) {
+                    stats.enter(Phase.LEX);
+                }
+                tokenStream = parser.lex(input);
+                tokens = tokenStream.getNumberOfOnChannelTokens();
+                if (stats != null) {
+                    stats.exit();
+                    stats.setTokens(tokens);
+                }
+                TranslationEvents.endLex(lexEvent, tokens);
+            }
+        }
+        if (stats != null) {
+            stats.enter(Phase.PARSE);
+        }
+        TranslationEvents.Parse parseEvent = TranslationEvents.beginParse(path, parser.getMode().name(), streamed);
+        ParseResult parseResult;
+        if (streamed) {
+            parseResult = parser.parseStreamed(input);
+        } else {
+            parseResult = tokenStream != null ? parser.parse(tokenStream) : parser.parse(input);
+        }
+        TranslationEvents.endParse(parseEvent, tokens, parseResult.getStage().name(), parseResult.isFallback(),
+                parseResult.getParallelMembers());
+        if (stats != null) {
+            stats.exit();
+            stats.setNodes(FileStats.countNodes(parseResult.getTree()));
+            stats.enter(Phase.VISIT);
+        }
+        TranslationEvents.Emit emitEvent = TranslationEvents.beginEmit(path, parseResult.getStreamedMembers().size());
+        PassManager passes = options.getPassManager();
+        PyModule module = passes.isEmpty() ? null : new PyModule();
+        TranslationContext tc = module != null ? new TranslationContext(module, options) : new TranslationContext(out, options);
+        parseResult.getStreamedMembers().forEach(tc::streamMembers);
+        INTERPRETER.translate(parseResult.getTree(), tc);
+        TranslationEvents.endEmit(emitEvent);
+        if (diagnostics != null) {
+            tc.getUntranslatedMembers().forEach(diagnostics::untranslated);
+        }
+        if (stats != null) {
+            stats.exit();
+        }
+        if (module != null) {
+            optimize(module, passes, path, out, stats);
+        }
+        return parseResult;
+    }
+
+    private static void optimize(PyModule module, PassManager passes, String path, Appendable out, FileStats stats) {
+        if (stats != null) {
+            stats.enter(Phase.PASSES);
+        }
+        for (PassManager.PassRun run : passes.run(module, path)) {
+            if (stats != null) {
+                stats.addPass(run.getName(), run.getNanos(), run.getChanges());
+            }
+        }
+        PyPrinter.print(module, out);
+        if (stats != null) {
+            stats.exit();
+        }
+    }
+
+    public static class Result {
+        private final String pythonCode;
+        private final ParseResult parseResult;
+
+        Result(String pythonCode, ParseResult parseResult) {
+            this.pythonCode = pythonCode;
+            this.parseResult = parseResult;
+        }
+
+        public String getPythonCode() {
+            return pythonCode;
+        }
+
+        public ParseResult getParseResult() {
+            return parseResult;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.arjun.batch;
+
+import org.arjun.diagnostics.DiagnosticsReport;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParserOptions;
+import org.arjun.stats.StatsReport;
+
+/**
+ * How a {@link BatchTranslator} runs: how many files it translates at once, the options every file is parsed and
+ * translated with, and where it keeps earlier translations, statistics and diagnostics.
+ */
+public class BatchOptions {
+    private int parallelism = 1;
+    private ParseMode parseMode = ParseMode.TWO_STAGE;
+    private ParserOptions parserOptions = ParserOptions.defaults();
+    private TranslationOptions translationOptions = TranslationOptions.defaults();
+    private TranslationCache cache;
+    private StatsReport stats;
+    private DiagnosticsReport diagnostics;
+
+    public BatchOptions() {}
+
+    /** Default options: one thread, two-stage parsing, no cache, statistics or diagnostics. */
+    public static BatchOptions defaults() {
+        return new BatchOptions();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /** Translate up to {@code parallelism} files at once. */
+    public BatchOptions setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, got " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public ParseMode getParseMode() {
+        return parseMode;
+    }
+
+    public BatchOptions setParseMode(ParseMode parseMode) {
+        this.parseMode = parseMode;
+        return this;
+    }
+
+    public ParserOptions getParserOptions() {
+        return parserOptions;
+    }
+
+    public BatchOptions setParserOptions(ParserOptions parserOptions) {
+        this.parserOptions = parserOptions;
+        return this;
+    }
+
+    public TranslationOptions getTranslationOptions() {
+        return translationOptions;
+    }
+
+    public BatchOptions setTranslationOptions(TranslationOptions translationOptions) {
+        this.translationOptions = translationOptions;
+        return this;
+    }
+
+    public TranslationCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Reuse earlier translations of unchanged sources from {@code cache}, which must have been opened with the same
+     * parse mode and translation options; null translates every file.
+     */
+    public BatchOptions setCache(TranslationCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    public StatsReport getStats() {
+        return stats;
+    }
+
+    /** Add a {@link org.arjun.stats.FileStats} row to {@code stats} for every file translated; null keeps none. */
+    public BatchOptions setStats(StatsReport stats) {
+        this.stats = stats;
+        return this;
+    }
+
+    public DiagnosticsReport getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Collect the syntax errors and failures of every file in {@code diagnostics} rather than printing them as they
+     * happen; null prints them.
+     */
+    public BatchOptions setDiagnostics(DiagnosticsReport diagnostics) {
+        this.diagnostics = diagnostics;
+        return this;
+    }
+}
@@ -0,0 +1,213 @@
+package org.arjun.batch;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Counters shared by all workers of a batch run. */
+public class BatchSummary {
+    private final AtomicLong translated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong inputBytes = new AtomicLong();
+    private final AtomicLong outputBytes = new AtomicLong();
+    private final AtomicLong sllParses = new AtomicLong();
+    private final AtomicLong llParses = new AtomicLong();
+    private final AtomicLong llFallbacks = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong untranslatedMembers = new AtomicLong();
+    private final AtomicLong partialFiles = new AtomicLong();
+    private final AtomicLong overBudget = new AtomicLong();
+    private final AtomicLong degraded = new AtomicLong();
+    private volatile boolean cacheEnabled;
+    private volatile int cacheEvictions;
+    private final ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+    private volatile long elapsedNanos;
+
+    public static class Failure {
+        private final Path source;
+        private final Throwable cause;
+
+        Failure(Path source, Throwable cause) {
+            this.source = source;
+            this.cause = cause;
+        }
+
+        public Path getSource() {
+            return source;
+        }
+
+        public Throwable getCause() {
+            return cause;
+        }
+    }
+
+    void recordSuccess(long sourceBytes, long pythonBytes, boolean sll, boolean fallback) {
+        translated.incrementAndGet();
+        inputBytes.addAndGet(sourceBytes);
+        outputBytes.addAndGet(pythonBytes);
+        (sll ? sllParses : llParses).incrementAndGet();
+        if (fallback) llFallbacks.incrementAndGet();
+    }
+
+    void recordCacheHit(long sourceBytes, long pythonBytes) {
+        translated.incrementAndGet();
+        inputBytes.addAndGet(sourceBytes);
+        outputBytes.addAndGet(pythonBytes);
+        cacheHits.incrementAndGet();
+    }
+
+    void recordCacheMiss() {
+        cacheMisses.incrementAndGet();
+    }
+
+    void recordUntranslated(int members) {
+        if (members > 0) {
+            untranslatedMembers.addAndGet(members);
+            partialFiles.incrementAndGet();
+        }
+    }
+
+    void recordOverBudget() {
+        overBudget.incrementAndGet();
+    }
+
+    void recordDegraded() {
+        degraded.incrementAndGet();
+    }
+
+    void recordFailure(Path source, long sourceBytes, Throwable cause) {
+        failed.incrementAndGet();
+        inputBytes.addAndGet(sourceBytes);
+        failures.add(new Failure(source, cause));
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    void setCacheEvictions(int cacheEvictions) {
+        this.cacheEvictions = cacheEvictions;
+    }
+
+    public long getTranslated() {
+        return translated.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getFiles() {
+        return translated.get() + failed.get();
+    }
+
+    public long getInputBytes() {
+        return inputBytes.get();
+    }
+
+    public long getOutputBytes() {
+        return outputBytes.get();
+    }
+
+    public long getSllParses() {
+        return sllParses.get();
+    }
+
+    public long getLlParses() {
+        return llParses.get();
+    }
+
+    public long getLlFallbacks() {
+        return llFallbacks.get();
+    }
+
+    /** Class members emitted as stubs because they could not be translated; only counted with diagnostics on. */
+    public long getUntranslatedMembers() {
+        return untranslatedMembers.get();
+    }
+
+    public long getPartialFiles() {
+        return partialFiles.get();
+    }
+
+    /** Files whose parse was aborted for going over the parse budget. */
+    public long getOverBudget() {
+        return overBudget.get();
+    }
+
+    /** Files over the parse budget that were then translated in degraded mode; included in {@link #getTranslated()}. */
+    public long getDegraded() {
+        return degraded.get();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    public int getCacheEvictions() {
+        return cacheEvictions;
+    }
+
+    public double cacheHitRate() {
+        long lookups = getCacheHits() + getCacheMisses();
+        return lookups == 0 ? 0 : (double) getCacheHits() / lookups;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public List<Failure> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    public double filesPerSecond() {
+        return perSecond(getFiles());
+    }
+
+    public double bytesPerSecond() {
+        return perSecond(getInputBytes());
+    }
+
+    private double perSecond(long count) {
+        return elapsedNanos == 0 ? 0 : count * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    public String format() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("Translated %d of %d files in %.2f s (%d failed)%n",
+                getTranslated(), getFiles(), elapsedNanos / 1_000_000_000.0, getFailed()));
+        result.append(String.format("Throughput: %.1f files/s, %.1f KiB/s (%d bytes in, %d bytes out)%n",
+                filesPerSecond(), bytesPerSecond() / 1024, getInputBytes(), getOutputBytes()));
+        result.append(String.format("Parse stages: %d SLL, %d LL (%d after SLL fallback)%n",
+                getSllParses(), getLlParses(), getLlFallbacks()));
+        if (getUntranslatedMembers() > 0) {
+            result.append(String.format("Untranslated members: %d in %d files, emitted as stubs%n",
+                    getUntranslatedMembers(), getPartialFiles()));
+        }
+        if (getOverBudget() > 0) {
+            result.append(String.format("Over parse budget: %d files (%d translated in degraded mode)%n",
+                    getOverBudget(), getDegraded()));
+        }
+        if (cacheEnabled) {
+            result.append(String.format("Cache: %d hits, %d misses (%.1f%% hit rate), %d entries evicted%n",
+                    getCacheHits(), getCacheMisses(), cacheHitRate() * 100, getCacheEvictions()));
+        }
+        for (Failure failure : failures) {
+            result.append("  FAILED ").append(failure.getSource()).append(": ").append(failure.getCause()).append(System.lineSeparator());
+        }
+        return result.toString();
+    }
+}
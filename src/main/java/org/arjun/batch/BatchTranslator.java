@@ -0,0 +1,236 @@
+package org.arjun.batch;
+
+import org.antlr.v4.runtime.CharStream;
+import org.arjun.Translator;
+import org.arjun.diagnostics.Diagnostic;
+import org.arjun.diagnostics.DiagnosticsReport;
+import org.arjun.diagnostics.FileDiagnostics;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.MappedCharStream;
+import org.arjun.parser.ParseBudgetExceededException;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParseResult;
+import org.arjun.parser.ParserOptions;
+import org.arjun.stats.FileStats;
+import org.arjun.stats.Phase;
+import org.arjun.stats.StatsReport;
+import org.arjun.stats.TimedWriter;
+import org.arjun.stats.TranslationEvents;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Translates every *.java file under a source root into a mirrored tree of *.py files under an
+ * output root, as set up by {@link BatchOptions}. Files are split across a fork/join pool; each worker thread keeps
+ * its own {@link Translator} because the lexer and parser carry mutable state. A file that goes over the parse budget
+ * of the {@link ParserOptions} fails like any other, or is translated again with the
+ * {@link ParserOptions#degraded()} options when those ask for it, so no file holds its worker for long.
+ */
+public class BatchTranslator {
+    private final Path sourceRoot;
+    private final Path outputRoot;
+    private final int parallelism;
+    private final ParseMode parseMode;
+    private final ThreadLocal<Translator> translators;
+    private final ThreadLocal<Translator> degradedTranslators;
+    private final TranslationOptions options;
+    private final TranslationCache cache;
+    private final StatsReport stats;
+    private final DiagnosticsReport diagnostics;
+
+    public BatchTranslator(Path sourceRoot, Path outputRoot, BatchOptions batchOptions) {
+        ParserOptions parserOptions = batchOptions.getParserOptions();
+        TranslationOptions options = batchOptions.getTranslationOptions();
+        this.sourceRoot = sourceRoot;
+        this.outputRoot = outputRoot;
+        this.parallelism = batchOptions.getParallelism();
+        this.parseMode = batchOptions.getParseMode();
+        this.translators = ThreadLocal.withInitial(() -> new Translator(parseMode, parserOptions, options));
+        this.degradedTranslators = parserOptions.isDegradedRetry()
+                ? ThreadLocal.withInitial(() -> new Translator(ParseMode.SLL, parserOptions.degraded(), options)) : null;
+        this.options = options;
+        this.cache = batchOptions.getCache();
+        this.stats = batchOptions.getStats();
+        this.diagnostics = batchOptions.getDiagnostics();
+    }
+
+    public BatchSummary run() throws IOException {
+        List<Path> sources = findSources(sourceRoot);
+        BatchSummary summary = new BatchSummary();
+        summary.setCacheEnabled(cache != null);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new TranslateTask(sources, 0, sources.size(), summary));
+        } finally {
+            pool.shutdown();
+            summary.setElapsedNanos(System.nanoTime() - start);
+        }
+        if (cache != null) {
+            summary.setCacheEvictions(cache.trim());
+        }
+        return summary;
+    }
+
+    public static List<Path> findSources(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(".java"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /** Maps a source file to its place in the output tree, e.g. com/acme/Foo.java to com/acme/Foo.py. */
+    public Path outputPathFor(Path source) {
+        Path relative = sourceRoot.relativize(source);
+        String fileName = relative.getFileName().toString();
+        String pythonName = fileName.substring(0, fileName.length() - ".java".length()) + ".py";
+        return outputRoot.resolve(relative).resolveSibling(pythonName);
+    }
+
+    private void translateFile(Path source, BatchSummary summary) {
+        long sourceBytes = 0;
+        // only files that translate cleanly are cached, so with a cache every file is diagnosed, report or not
+        FileDiagnostics fileDiagnostics = diagnostics != null ? diagnostics.newFile(source.toString())
+                : cache != null ? new FileDiagnostics(source.toString(), Integer.MAX_VALUE) : null;
+        try {
+            FileStats fileStats = stats != null ? new FileStats(source.toString()) : null;
+            TranslationEvents.TranslateFile event = TranslationEvents.beginTranslateFile(source.toString(), parseMode.name());
+            if (fileStats != null) {
+                fileStats.enter(Phase.READ);
+            }
+            // mapped rather than read: lexing an ASCII source then reads the file's pages in place
+            ByteBuffer bytes = MappedCharStream.map(source);
+            sourceBytes = bytes.remaining();
+            Path target = outputPathFor(source);
+            String cacheKey = null;
+            if (cache != null) {
+                cacheKey = cache.key(bytes);
+                long cachedBytes = cache.restore(cacheKey, target);
+                if (cachedBytes >= 0) {
+                    summary.recordCacheHit(sourceBytes, cachedBytes);
+                    TranslationEvents.endTranslateFile(event, sourceBytes, cachedBytes, null, false);
+                    return;
+                }
+                summary.recordCacheMiss();
+            }
+            CharStream input = MappedCharStream.of(bytes, source.toString());
+            if (fileStats != null) {
+                fileStats.exit();
+                fileStats.setInputBytes(sourceBytes);
+            }
+            Files.createDirectories(target.getParent());
+            ParseResult parseResult;
+            try {
+                parseResult = translate(translators.get(), input, source, target, fileStats, fileDiagnostics);
+            } catch (ParseBudgetExceededException overBudget) {
+                summary.recordOverBudget();
+                if (fileDiagnostics != null) {
+                    fileDiagnostics.overBudget(overBudget.getMessage(), degradedTranslators != null);
+                }
+                if (degradedTranslators == null) {
+                    throw overBudget;
+                }
+                if (fileStats != null) {
+                    fileStats.exitAll();
+                }
+                input.seek(0);
+                parseResult = translate(degradedTranslators.get(), input, source, target, fileStats, fileDiagnostics);
+                summary.recordDegraded();
+            }
+            if (cache != null && fileDiagnostics.isEmpty()) {
+                // a hit records nothing, so a file with problems is re-translated to report them again
+                cache.store(cacheKey, target);
+            }
+            long targetBytes = Files.size(target);
+            if (fileStats != null) {
+                fileStats.setOutputBytes(targetBytes);
+                stats.add(fileStats);
+            }
+            TranslationEvents.endTranslateFile(event, sourceBytes, targetBytes, parseResult.getStage().name(), parseResult.isFallback());
+            summary.recordSuccess(sourceBytes, targetBytes, parseResult.getStage() == ParseResult.Stage.SLL, parseResult.isFallback());
+            if (fileDiagnostics != null) {
+                summary.recordUntranslated(fileDiagnostics.getUntranslated().size());
+            }
+        } catch (Exception | StackOverflowError e) {
+            summary.recordFailure(source, sourceBytes, e);
+            if (fileDiagnostics != null) {
+                fileDiagnostics.fail(e);
+            }
+        } finally {
+            if (diagnostics != null) {
+                diagnostics.add(fileDiagnostics);
+            } else if (fileDiagnostics != null) {
+                printSyntaxErrors(fileDiagnostics);
+            }
+        }
+    }
+
+    /** Prints what the parser would have printed had the file not been diagnosed for the cache alone. */
+    private static void printSyntaxErrors(FileDiagnostics fileDiagnostics) {
+        for (Diagnostic diagnostic : fileDiagnostics.getDiagnostics()) {
+            System.err.println("line " + diagnostic.getLine() + ":" + diagnostic.getColumn() + " " + diagnostic.getMessage());
+        }
+    }
+
+    private ParseResult translate(Translator translator, CharStream input, Path source, Path target, FileStats fileStats,
+                                  FileDiagnostics fileDiagnostics) throws IOException {
+        try (Writer writer = newWriter(source, target, fileStats)) {
+            return translator.translate(input, writer, options, fileStats, fileDiagnostics);
+        } catch (Exception | StackOverflowError e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    private static Writer newWriter(Path source, Path target, FileStats fileStats) throws IOException {
+        if (fileStats == null && !TranslationEvents.isWriteOutputEnabled()) {
+            return Files.newBufferedWriter(target, StandardCharsets.UTF_8);
+        }
+        // timed beneath the buffer, so that only whole buffers going out count as writing
+        Writer file = new OutputStreamWriter(Files.newOutputStream(target), StandardCharsets.UTF_8);
+        return new BufferedWriter(new TimedWriter(file, source.toString(), fileStats));
+    }
+
+    private class TranslateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> sources;
+        private final int from;
+        private final int to;
+        private final BatchSummary summary;
+
+        TranslateTask(List<Path> sources, int from, int to, BatchSummary summary) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.summary = summary;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    translateFile(sources.get(from), summary);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TranslateTask(sources, from, middle, summary),
+                    new TranslateTask(sources, middle, to, summary));
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package org.arjun.batch;
+
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.interpreter._interpreter_;
+import org.arjun.parser.DfaCache;
+import org.arjun.parser.ParseMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of translations for batch runs, so that re-running over a mostly unchanged tree skips
+ * lexing, parsing and emitting for every file whose source is unchanged.
+ * <p>
+ * Entries are keyed by a SHA-256 of the source bytes together with a version covering the grammar,
+ * the ANTLR runtime, the translator classes, the parse mode and the translation options; any change
+ * to those simply misses. Only files translated without problems are stored, since a hit reports none.
+ * An entry's modification time is refreshed on every hit, and {@link #trim()} evicts the least
+ * recently used entries once the directory grows past its size bound.
+ */
+public class TranslationCache {
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    private static final int FORMAT_VERSION = 1;
+    private static final String ENTRY_SUFFIX = ".py";
+    /** Packages whose classes decide what is emitted for a tree, as class file name prefixes. */
+    private static final List<String> TRANSLATOR_PACKAGES = Arrays.asList("org/arjun/interpreter/", "org/arjun/ir/");
+    private static final String TRANSLATOR_CLASS = "org/arjun/Translator.class";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final byte[] version;
+
+    public TranslationCache(Path directory, long maxBytes, ParseMode parseMode, TranslationOptions options) throws IOException {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative, got " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.version = version(parseMode, options);
+        Files.createDirectories(directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /** Cache key of a source file's contents, as a hex string. */
+    public String key(byte[] source) {
+        return key(ByteBuffer.wrap(source));
+    }
+
+    /** Same as {@link #key(byte[])} for the bytes between the position and limit of {@code source}, which are left alone. */
+    public String key(ByteBuffer source) {
+        MessageDigest digest = sha256();
+        digest.update(version);
+        digest.update(source.duplicate());
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Makes {@code target} hold the cached translation for {@code key}, leaving it untouched when it already
+     * does. Returns the size of the translation, or -1 when there is no entry.
+     */
+    public long restore(String key, Path target) throws IOException {
+        Path entry = entryFor(key);
+        if (!Files.isRegularFile(entry)) {
+            return -1;
+        }
+        byte[] python;
+        try {
+            python = Files.readAllBytes(entry);
+        } catch (IOException evictedMeanwhile) {
+            return -1;
+        }
+        if (!Files.isRegularFile(target) || Files.size(target) != python.length || !Arrays.equals(Files.readAllBytes(target), python)) {
+            Files.createDirectories(target.getParent());
+            Files.write(target, python);
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException evictedMeanwhile) {
+            // the output is already in place; the entry just loses its recency
+        }
+        return python.length;
+    }
+
+    /** Records the translation just written to {@code output} under {@code key}. */
+    public void store(String key, Path output) {
+        Path entry = entryFor(key);
+        try {
+            Files.createDirectories(entry.getParent());
+            Path tmp = Files.createTempFile(entry.getParent(), key, ".tmp");
+            try {
+                Files.copy(output, tmp, StandardCopyOption.REPLACE_EXISTING);
+                try {
+                    Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            // a cache that cannot be written only costs the next run a re-translation
+        }
+    }
+
+    /** Deletes least recently used entries until the cache fits its size bound; returns how many were deleted. */
+    public int trim() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (!path.getFileName().toString().endsWith(ENTRY_SUFFIX)) {
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    entries.add(new Entry(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    total += attributes.size();
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return 0;
+        }
+        entries.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+        int evicted = 0;
+        for (Entry entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (Files.deleteIfExists(entry.path)) {
+                evicted++;
+            }
+            total -= entry.size;
+        }
+        return evicted;
+    }
+
+    private Path entryFor(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key.substring(2) + ENTRY_SUFFIX);
+    }
+
+    private static byte[] version(ParseMode parseMode, TranslationOptions options) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(("j2p-translation-cache/" + FORMAT_VERSION + "/" + parseMode + "/" + options + "/" + DfaCache.fingerprint()).getBytes(StandardCharsets.UTF_8));
+        for (String classFileName : translatorClasses()) {
+            digest.update(classFileName.getBytes(StandardCharsets.UTF_8));
+            try (InputStream classFile = _interpreter_.class.getResourceAsStream("/" + classFileName)) {
+                if (classFile == null) {
+                    throw new IOException("cannot read " + classFileName + " to version the translation cache");
+                }
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = classFile.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * The class files the cache version covers, sorted: every class of the interpreter and IR packages and the
+     * {@code Translator}, found in the directory or jar they were loaded from, so a new class cannot be missed.
+     */
+    public static List<String> translatorClasses() throws IOException {
+        CodeSource codeSource = _interpreter_.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            throw new IOException("cannot locate the translator classes to version the translation cache");
+        }
+        Path location;
+        try {
+            location = Paths.get(codeSource.getLocation().toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("cannot locate the translator classes at " + codeSource.getLocation(), e);
+        }
+        List<String> classes = new ArrayList<>();
+        if (Files.isDirectory(location)) {
+            for (String prefix : TRANSLATOR_PACKAGES) {
+                Path packageDir = location.resolve(prefix);
+                if (!Files.isDirectory(packageDir)) {
+                    continue;
+                }
+                try (Stream<Path> paths = Files.walk(packageDir)) {
+                    paths.filter(path -> path.getFileName().toString().endsWith(".class"))
+                            .forEach(path -> classes.add(location.relativize(path).toString().replace(File.separatorChar, '/')));
+                }
+            }
+            classes.add(TRANSLATOR_CLASS);
+        } else {
+            try (JarFile jar = new JarFile(location.toFile())) {
+                for (JarEntry entry : Collections.list(jar.entries())) {
+                    String name = entry.getName();
+                    if (name.equals(TRANSLATOR_CLASS) || name.endsWith(".class") && TRANSLATOR_PACKAGES.stream().anyMatch(name::startsWith)) {
+                        classes.add(name);
+                    }
+                }
+            }
+        }
+        Collections.sort(classes);
+        return classes;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+    }
+
+    private static final class Entry {
+        private final Path path;
+        private final long size;
+        private final long lastUsed;
+
+        Entry(Path path, long size, long lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.arjun.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thin client for {@link TranslationDaemon}: forwards its arguments, with the token the daemon left for its user,
+ * and relays the daemon's output.
+ * It loads none of the parser classes, so a call costs little more than a bare JVM start.
+ * <pre>
+ * java -cp j2pbridge.jar org.arjun.daemon.DaemonClient [-port &lt;n&gt;] -inputPath Foo.java [-outputPath Foo.py]
+ * </pre>
+ */
+public class DaemonClient {
+    public static void main(String[] args) throws IOException {
+        int port = TranslationDaemon.DEFAULT_PORT;
+        List<String> forwarded = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "-inputPath":
+                case "-outputPath":
+                    // the daemon has its own working directory
+                    forwarded.add(args[i]);
+                    forwarded.add(Paths.get(args[++i]).toAbsolutePath().toString());
+                    break;
+                default:
+                    forwarded.add(args[i]);
+            }
+        }
+        if (forwarded.isEmpty()) {
+            System.out.println("Usage: java -cp j2pbridge.jar org.arjun.daemon.DaemonClient [-port <n>] (-inputPath <inputFile> | -snippet <javaSnippet>) [-outputPath <outputFile>] [-parseMode twostage|sll|ll] [-slots] [-passes <names>]");
+            System.out.println("       java -cp j2pbridge.jar org.arjun.daemon.DaemonClient [-port <n>] -stop");
+            System.exit(2);
+        }
+        System.exit(send(port, forwarded));
+    }
+
+    private static int send(int port, List<String> args) throws IOException {
+        Path tokenFile = DaemonProtocol.tokenFile(port);
+        String token;
+        try {
+            token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            System.err.println("No translation daemon on port " + port + " (no token at " + tokenFile + "); start one with: java -jar j2pbridge.jar -daemon -port " + port);
+            return 3;
+        }
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        } catch (ConnectException e) {
+            System.err.println("No translation daemon on port " + port + "; start one with: java -jar j2pbridge.jar -daemon -port " + port);
+            return 3;
+        }
+        try (Socket connection = socket;
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()))) {
+            DaemonProtocol.writeString(out, token);
+            out.writeInt(args.size());
+            for (String arg : args) {
+                DaemonProtocol.writeString(out, arg);
+            }
+            out.flush();
+
+            PrintStream stdout = new PrintStream(System.out, false, StandardCharsets.UTF_8.name());
+            while (true) {
+                byte kind = in.readByte();
+                switch (kind) {
+                    case DaemonProtocol.OUTPUT:
+                        stdout.print(DaemonProtocol.readString(in));
+                        break;
+                    case DaemonProtocol.MESSAGE:
+                    case DaemonProtocol.ERROR:
+                        stdout.flush();
+                        System.err.println(DaemonProtocol.readString(in));
+                        break;
+                    case DaemonProtocol.EXIT:
+                        stdout.flush();
+                        return in.readInt();
+                    default:
+                        throw new IOException("unexpected frame " + kind + " from daemon");
+                }
+            }
+        }
+    }
+}
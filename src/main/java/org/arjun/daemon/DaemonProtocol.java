@@ -0,0 +1,118 @@
+package org.arjun.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Wire format between {@link DaemonClient} and {@link TranslationDaemon}.
+ * A request is the daemon's token, read from the {@link #tokenFile(int) token file}, followed by the client's argument
+ * vector: an int count and that many strings. The response is a sequence of frames, each a kind byte followed by its payload, ending with an
+ * {@link #EXIT} frame carrying the status code. Strings are an int byte length plus UTF-8 bytes, so
+ * snippets and output chunks are not limited to the 64K of {@link DataOutputStream#writeUTF}.
+ */
+final class DaemonProtocol {
+    /** A chunk of generated Python, for requests without {@code -outputPath}. */
+    static final byte OUTPUT = 1;
+    /** An informational line; the client prints it on standard error so streamed Python stays clean. */
+    static final byte MESSAGE = 2;
+    /** A line for the client's standard error. */
+    static final byte ERROR = 3;
+    /** Last frame of a response; payload is the exit status. */
+    static final byte EXIT = 4;
+
+    /** Exit status of a request without the daemon's token. */
+    static final int REFUSED = 4;
+    /** Longest token the daemon reads before refusing a request, so strangers cannot make it allocate more. */
+    static final int MAX_TOKEN_BYTES = 256;
+
+    private DaemonProtocol() {}
+
+    /**
+     * Where the daemon on {@code port} keeps the token its clients must send: a file only the user can read, under
+     * {@code ~/.j2pbridge}, so only processes of the user who started the daemon can use it.
+     */
+    static Path tokenFile(int port) {
+        return Paths.get(System.getProperty("user.home"), ".j2pbridge", "daemon-" + port + ".token");
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return readString(in, Integer.MAX_VALUE);
+    }
+
+    /** Reads a string of at most {@code maxBytes} bytes. */
+    static String readString(DataInputStream in, int maxBytes) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxBytes) {
+            throw new IOException("string length " + length + " out of range");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeFrame(DataOutputStream out, byte kind, String payload) throws IOException {
+        out.writeByte(kind);
+        writeString(out, payload);
+    }
+
+    static void writeExit(DataOutputStream out, int status) throws IOException {
+        out.writeByte(EXIT);
+        out.writeInt(status);
+        out.flush();
+    }
+
+    /** Writer that forwards whatever is written to it as {@link #OUTPUT} frames of at most 8K chars. */
+    static final class OutputFrameWriter extends Writer {
+        private final DataOutputStream out;
+        private final StringBuilder buffer = new StringBuilder();
+
+        OutputFrameWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            buffer.append(chars, offset, length);
+            if (buffer.length() >= 8192) {
+                sendBuffer();
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            buffer.append(text, offset, offset + length);
+            if (buffer.length() >= 8192) {
+                sendBuffer();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            sendBuffer();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        private void sendBuffer() throws IOException {
+            if (buffer.length() > 0) {
+                writeFrame(out, OUTPUT, buffer.toString());
+                buffer.setLength(0);
+            }
+        }
+    }
+}
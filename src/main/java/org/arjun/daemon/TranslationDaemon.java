@@ -0,0 +1,302 @@
+package org.arjun.daemon;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.Translator;
+import org.arjun.diagnostics.Diagnostic;
+import org.arjun.diagnostics.DiagnosticsReport;
+import org.arjun.diagnostics.FileDiagnostics;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.interpreter.UntranslatedMember;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParseResult;
+import org.arjun.parser.ParserOptions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Long-running translation server on a loopback socket. The JVM, the generated lexer/parser and their
+ * DFAs stay warm between requests, so a build that translates one file per invocation only pays for the
+ * translation itself. Requests are served by {@code threads} workers, each with its own {@link Translator}.
+ * <p>
+ * A request carries the same arguments as a single-file run of {@code Main}
+ * ({@code -inputPath}/{@code -snippet}, optional {@code -outputPath}, {@code -parseMode} and {@code -slots});
+ * without {@code -outputPath} the Python source is streamed back to the client. {@code -stop} shuts the
+ * daemon down. Paths are resolved by the daemon, so clients send them absolute.
+ * <p>
+ * Any local process can connect to the port, so the daemon only serves requests that start with the random token
+ * it writes to {@link DaemonProtocol#tokenFile(int)} on startup, which only its user can read; and it only writes
+ * {@code .py} files under its output root. Syntax errors and failures go back to the client as error frames.
+ */
+public class TranslationDaemon {
+    public static final int DEFAULT_PORT = 47813;
+    /** How long a client has to send its request after connecting. */
+    private static final int REQUEST_TIMEOUT_MILLIS = 30_000;
+
+    private final int port;
+    private final ParseMode defaultParseMode;
+    private final ParserOptions parserOptions;
+    private final Path outputRoot;
+    private final ExecutorService workers;
+    private final ThreadLocal<Map<ParseMode, Translator>> translators = ThreadLocal.withInitial(() -> new EnumMap<>(ParseMode.class));
+    private byte[] token;
+    private volatile ServerSocket serverSocket;
+
+    /** Daemon that writes the files it is asked to under {@code outputRoot} only. */
+    public TranslationDaemon(int port, int threads, ParseMode defaultParseMode, ParserOptions parserOptions, Path outputRoot)
+            throws IOException {
+        this.port = port;
+        this.defaultParseMode = defaultParseMode;
+        this.parserOptions = parserOptions;
+        this.outputRoot = outputRoot.toRealPath();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "j2p-daemon-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Serves requests until a client sends {@code -stop}. */
+    public void run() throws IOException, InterruptedException {
+        Path tokenFile = DaemonProtocol.tokenFile(port);
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            serverSocket = server;
+            // written once the port is ours, so a daemon that fails to start leaves the running one's token alone
+            token = writeToken(tokenFile);
+            System.out.println("Translation daemon listening on " + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort()
+                    + ", token in " + tokenFile + ", writing under " + outputRoot);
+            while (true) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketException closed) {
+                    if (server.isClosed()) {
+                        break;
+                    }
+                    throw closed;
+                }
+                workers.execute(() -> serve(socket));
+            }
+        } finally {
+            if (token != null) {
+                Files.deleteIfExists(tokenFile);
+            }
+            workers.shutdown();
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+        }
+        System.out.println("Translation daemon stopped");
+    }
+
+    public void stop() throws IOException {
+        ServerSocket server = serverSocket;
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /** A new random token, written to {@code file} through a temporary file created readable by the user only. */
+    private static byte[] writeToken(Path file) throws IOException {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : random) {
+            hex.append(String.format("%02x", b));
+        }
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        Path dir = file.getParent();
+        if (!Files.isDirectory(dir)) {
+            Files.createDirectories(dir, posix ? new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rwx------"))} : new FileAttribute<?>[0]);
+        }
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp", posix ? new FileAttribute<?>[] {
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))} : new FileAttribute<?>[0]);
+        try {
+            Files.write(tmp, hex.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return hex.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void serve(Socket socket) {
+        try (Socket connection = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+            connection.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+            String presented = DaemonProtocol.readString(in, DaemonProtocol.MAX_TOKEN_BYTES);
+            if (!MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8))) {
+                DaemonProtocol.writeFrame(out, DaemonProtocol.ERROR, "Request refused: it does not carry the daemon's token from "
+                        + DaemonProtocol.tokenFile(port));
+                DaemonProtocol.writeExit(out, DaemonProtocol.REFUSED);
+                // closing with the rest of the request unread would reset the connection before the client reads the refusal
+                connection.shutdownOutput();
+                while (in.skip(Long.MAX_VALUE) > 0 || in.read() >= 0) { }
+                return;
+            }
+            String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = DaemonProtocol.readString(in);
+            }
+            connection.setSoTimeout(0);
+            int status;
+            try {
+                status = handle(args, out);
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                DaemonProtocol.writeFrame(out, DaemonProtocol.ERROR, "Invalid request " + Arrays.toString(args) + ": "
+                        + (e.getMessage() != null ? e.getMessage() : e.toString()));
+                status = 2;
+            }
+            DaemonProtocol.writeExit(out, status);
+        } catch (IOException e) {
+            // the client went away or never sent a whole request; nothing left to report to
+        }
+    }
+
+    private int handle(String[] args, DataOutputStream out) throws IOException {
+        String inputPath = null;
+        String snippet = null;
+        String outputPath = null;
+        ParseMode parseMode = defaultParseMode;
+        TranslationOptions options = TranslationOptions.defaults();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-inputPath":
+                    inputPath = args[++i];
+                    break;
+                case "-snippet":
+                    snippet = args[++i];
+                    break;
+                case "-outputPath":
+                    outputPath = args[++i];
+                    break;
+                case "-parseMode":
+                    parseMode = ParseMode.fromArg(args[++i]);
+                    break;
+                case "-slots":
+                    options.setSlots(true);
+                    break;
+                case "-passes":
+                    options.setPasses(Arrays.asList(args[++i].split(",")));
+                    break;
+                case "-stop":
+                    DaemonProtocol.writeFrame(out, DaemonProtocol.MESSAGE, "Stopping translation daemon");
+                    stop();
+                    return 0;
+                default:
+                    DaemonProtocol.writeFrame(out, DaemonProtocol.ERROR, "Unknown argument: " + args[i]);
+                    return 2;
+            }
+        }
+        if (inputPath == null && snippet == null) {
+            DaemonProtocol.writeFrame(out, DaemonProtocol.ERROR, "Error: Either inputPath or snippet must be provided.");
+            return 2;
+        }
+        Path target = null;
+        if (outputPath != null) {
+            target = allowedTarget(outputPath);
+            if (target == null) {
+                DaemonProtocol.writeFrame(out, DaemonProtocol.ERROR, "Refusing to write " + outputPath
+                        + ": the daemon only writes .py files in existing directories under " + outputRoot);
+                return 2;
+            }
+        }
+
+        String name = inputPath != null ? inputPath : "snippet";
+        FileDiagnostics diagnostics = new FileDiagnostics(name, DiagnosticsReport.DEFAULT_MAX_PER_FILE);
+        ParseResult parseResult;
+        try {
+            CharStream codeCharStream = inputPath != null ? CharStreams.fromFileName(inputPath) : CharStreams.fromString(snippet);
+            Translator translator = translators.get().computeIfAbsent(parseMode, mode -> new Translator(mode, parserOptions, TranslationOptions.defaults()));
+            if (target != null) {
+                try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                    parseResult = translator.translate(codeCharStream, writer, options, null, diagnostics);
+                } catch (Exception | StackOverflowError e) {
+                    Files.deleteIfExists(target);
+                    throw e;
+                }
+            } else {
+                Writer writer = new DaemonProtocol.OutputFrameWriter(out);
+                parseResult = translator.translate(codeCharStream, writer, options, null, diagnostics);
+                writer.flush();
+            }
+        } catch (Exception | StackOverflowError e) {
+            diagnostics.fail(e);
+            report(diagnostics, out);
+            return 1;
+        }
+        report(diagnostics, out);
+        DaemonProtocol.writeFrame(out, DaemonProtocol.MESSAGE, "Parsed " + name + " with " + parseResult.getStage()
+                + (parseResult.isFallback() ? " (SLL bailed, fell back to LL)" : "")
+                + (parseResult.getParallelMembers() > 0 ? " (" + parseResult.getParallelMembers() + " members parsed in parallel)" : ""));
+        if (target != null) {
+            DaemonProtocol.writeFrame(out, DaemonProtocol.MESSAGE, "Python code written to: " + target);
+        }
+        return 0;
+    }
+
+    /**
+     * The file to write for {@code outputPath}: a .py file whose directory exists under the output root once links
+     * are followed, and that is not itself a link; null for any other path.
+     */
+    private Path allowedTarget(String outputPath) {
+        Path path = Paths.get(outputPath);
+        Path fileName = path.getFileName();
+        if (!path.isAbsolute() || fileName == null || !fileName.toString().endsWith(".py") || path.getParent() == null) {
+            return null;
+        }
+        Path directory;
+        try {
+            directory = path.getParent().toRealPath();
+        } catch (IOException e) {
+            return null;
+        }
+        Path target = directory.resolve(fileName);
+        return directory.startsWith(outputRoot) && !Files.isSymbolicLink(target) && !Files.isDirectory(target) ? target : null;
+    }
+
+    /** Sends what went wrong translating the file: one error frame per syntax error, and the failure if it failed. */
+    private static void report(FileDiagnostics diagnostics, DataOutputStream out) throws IOException {
+        for (Diagnostic diagnostic : diagnostics.getDiagnostics()) {
+            DaemonProtocol.writeFrame(out, DaemonProtocol.ERROR, diagnostics.getName() + ": " + diagnostic);
+        }
+        if (diagnostics.getDropped() > 0) {
+            DaemonProtocol.writeFrame(out, DaemonProtocol.ERROR, diagnostics.getName() + ": " + diagnostics.getDropped() + " more errors");
+        }
+        if (!diagnostics.getUntranslated().isEmpty()) {
+            DaemonProtocol.writeFrame(out, DaemonProtocol.MESSAGE, "Left " + diagnostics.getUntranslated().size()
+                    + " members untranslated, as stubs raising NotImplementedError: " + diagnostics.getUntranslated().stream()
+                    .map(UntranslatedMember::toString).collect(Collectors.joining(", ")));
+        }
+        if (diagnostics.getFailure() != null) {
+            DaemonProtocol.writeFrame(out, DaemonProtocol.ERROR, "Failed to translate " + diagnostics.getName() + ": "
+                    + diagnostics.getFailure());
+        }
+    }
+}
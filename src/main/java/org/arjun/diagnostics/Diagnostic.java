@@ -0,0 +1,51 @@
+package org.arjun.diagnostics;
+
+import java.util.Locale;
+
+/** One problem found in a source file, at the position ANTLR reports it (line from 1, column from 0). */
+public final class Diagnostic {
+    public enum Kind {
+        /** Characters no token starts with. */
+        LEXICAL,
+        /** Tokens the grammar does not accept there; the parser recovered and carried on. */
+        SYNTAX;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Kind kind;
+    private final int line;
+    private final int column;
+    private final String message;
+
+    public Diagnostic(Kind kind, int line, int column, String message) {
+        this.kind = kind;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /** Same form as ANTLR's console listener, e.g. {@code line 3:4 missing ';' at '}'}. */
+    @Override
+    public String toString() {
+        return "line " + line + ":" + column + " " + message;
+    }
+}
@@ -0,0 +1,203 @@
+package org.arjun.diagnostics;
+
+import org.arjun.interpreter.UntranslatedMember;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link FileDiagnostics} of a run, from any number of worker threads, written out once at the end as
+ * text ({@link #format()}) or JSON ({@link #toJson()}). Only files with problems are kept.
+ */
+public final class DiagnosticsReport {
+    /** Syntax errors stored per file unless the run asks otherwise; the rest are only counted. */
+    public static final int DEFAULT_MAX_PER_FILE = 50;
+
+    private final int maxPerFile;
+    private final AtomicLong files = new AtomicLong();
+    private final ConcurrentLinkedQueue<FileDiagnostics> withProblems = new ConcurrentLinkedQueue<>();
+
+    public DiagnosticsReport() {
+        this(DEFAULT_MAX_PER_FILE);
+    }
+
+    public DiagnosticsReport(int maxPerFile) {
+        if (maxPerFile < 0) {
+            throw new IllegalArgumentException("maxPerFile must not be negative, got " + maxPerFile);
+        }
+        this.maxPerFile = maxPerFile;
+    }
+
+    /** A fresh record for translating {@code name}, to be handed back through {@link #add}. */
+    public FileDiagnostics newFile(String name) {
+        return new FileDiagnostics(name, maxPerFile);
+    }
+
+    public void add(FileDiagnostics file) {
+        files.incrementAndGet();
+        if (!file.isEmpty()) {
+            withProblems.add(file);
+        }
+    }
+
+    /** Files with syntax errors, untranslated members, an aborted parse or a failure, sorted by name. */
+    public List<FileDiagnostics> getFiles() {
+        List<FileDiagnostics> sorted = new ArrayList<>(withProblems);
+        sorted.sort(Comparator.comparing(FileDiagnostics::getName));
+        return sorted;
+    }
+
+    public boolean isEmpty() {
+        return withProblems.isEmpty();
+    }
+
+    public long getErrors() {
+        return withProblems.stream().mapToLong(FileDiagnostics::getErrors).sum();
+    }
+
+    public long getUntranslated() {
+        return withProblems.stream().mapToLong(file -> file.getUntranslated().size()).sum();
+    }
+
+    /** Files whose parse went over its budget, whether or not the degraded retry then translated them. */
+    public long getOverBudget() {
+        return withProblems.stream().filter(file -> file.getOverBudget() != null).count();
+    }
+
+    public long getFailures() {
+        return withProblems.stream().filter(file -> file.getFailure() != null).count();
+    }
+
+    /** One line of totals, e.g. for the console when the report itself goes to a file. */
+    public String summary() {
+        String summary = String.format("%d syntax errors, %d untranslated members and %d failures in %d of %d files",
+                getErrors(), getUntranslated(), getFailures(), withProblems.size(), files.get());
+        long overBudget = getOverBudget();
+        return overBudget == 0 ? summary : summary + ", " + overBudget + " over the parse budget";
+    }
+
+    public String format() {
+        StringBuilder result = new StringBuilder();
+        for (FileDiagnostics file : getFiles()) {
+            result.append(file.getName()).append(':').append(System.lineSeparator());
+            for (Diagnostic diagnostic : file.getDiagnostics()) {
+                result.append("  ").append(diagnostic.getKind().label()).append(' ').append(diagnostic)
+                        .append(System.lineSeparator());
+            }
+            if (file.getDropped() > 0) {
+                result.append("  ... ").append(file.getDropped()).append(" more syntax errors").append(System.lineSeparator());
+            }
+            for (UntranslatedMember member : file.getUntranslated()) {
+                result.append("  untranslated ").append(member).append(System.lineSeparator());
+            }
+            if (file.getOverBudget() != null) {
+                result.append("  over budget: ").append(file.getOverBudget())
+                        .append(file.isDegradedRetry() ? ", retried in degraded mode" : "").append(System.lineSeparator());
+            }
+            if (file.getFailure() != null) {
+                result.append("  failed: ").append(file.getFailure()).append(System.lineSeparator());
+                for (String frame : file.getFailureTrace()) {
+                    result.append("    at ").append(frame).append(System.lineSeparator());
+                }
+            }
+        }
+        result.append(summary()).append(System.lineSeparator());
+        return result.toString();
+    }
+
+    /** Writes the report to {@code path}: JSON when its name ends in .json, text otherwise. */
+    public void write(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(path.getFileName().toString().endsWith(".json") ? toJson() : format());
+        }
+    }
+
+    public String toJson() {
+        List<FileDiagnostics> rows = getFiles();
+        StringBuilder json = new StringBuilder("{\n  \"files\": [");
+        for (int i = 0; i < rows.size(); i++) {
+            FileDiagnostics file = rows.get(i);
+            json.append(i == 0 ? "\n    {" : ",\n    {");
+            json.append("\"name\": ");
+            quote(file.getName(), json);
+            json.append(", \"errors\": ").append(file.getErrors())
+                    .append(", \"dropped\": ").append(file.getDropped())
+                    .append(", \"diagnostics\": [");
+            List<Diagnostic> diagnostics = file.getDiagnostics();
+            for (int j = 0; j < diagnostics.size(); j++) {
+                Diagnostic diagnostic = diagnostics.get(j);
+                json.append(j == 0 ? "\n      {" : ",\n      {");
+                json.append("\"kind\": \"").append(diagnostic.getKind().label())
+                        .append("\", \"line\": ").append(diagnostic.getLine())
+                        .append(", \"column\": ").append(diagnostic.getColumn())
+                        .append(", \"message\": ");
+                quote(diagnostic.getMessage(), json);
+                json.append('}');
+            }
+            json.append(diagnostics.isEmpty() ? "]" : "\n    ]");
+            json.append(", \"untranslated\": [");
+            List<UntranslatedMember> untranslated = file.getUntranslated();
+            for (int j = 0; j < untranslated.size(); j++) {
+                UntranslatedMember member = untranslated.get(j);
+                json.append(j == 0 ? "\n      {" : ",\n      {");
+                json.append("\"class\": ");
+                quote(member.getClassName(), json);
+                json.append(", \"member\": ");
+                quote(member.getName(), json);
+                json.append(", \"line\": ").append(member.getLine()).append(", \"reason\": ");
+                quote(member.getReason(), json);
+                json.append('}');
+            }
+            json.append(untranslated.isEmpty() ? "]" : "\n    ]");
+            if (file.getOverBudget() != null) {
+                json.append(", \"overBudget\": ");
+                quote(file.getOverBudget(), json);
+                json.append(", \"degradedRetry\": ").append(file.isDegradedRetry());
+            }
+            if (file.getFailure() != null) {
+                json.append(", \"failure\": ");
+                quote(file.getFailure(), json);
+                json.append(", \"trace\": [");
+                List<String> trace = file.getFailureTrace();
+                for (int j = 0; j < trace.size(); j++) {
+                    json.append(j == 0 ? "" : ", ");
+                    quote(trace.get(j), json);
+                }
+                json.append(']');
+            }
+            json.append('}');
+        }
+        json.append(rows.isEmpty() ? "],\n" : "\n  ],\n");
+        json.append("  \"aggregate\": {\"files\": ").append(files.get())
+                .append(", \"filesWithProblems\": ").append(rows.size())
+                .append(", \"syntaxErrors\": ").append(getErrors())
+                .append(", \"untranslatedMembers\": ").append(getUntranslated())
+                .append(", \"failures\": ").append(getFailures())
+                .append(", \"overBudget\": ").append(getOverBudget())
+                .append("}\n}\n");
+        return json.toString();
+    }
+
+    private static void quote(String text, StringBuilder json) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,125 @@
+package org.arjun.diagnostics;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.arjun.interpreter.UntranslatedMember;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The problems of translating one file. As an error listener on the lexer and parser it keeps the first
+ * {@code maxStored} syntax errors in memory and only counts the rest. Class members the interpreter emitted as
+ * stubs are all kept, as is why the file went over its parse budget, and a translation that throws is kept as the
+ * file's failure, with the top of its stack trace. Filled in by the one thread translating the file.
+ */
+public final class FileDiagnostics extends BaseErrorListener {
+    /** Stack frames kept of a failure; the interpreter recurses deeply, and the top frames say where it broke. */
+    static final int MAX_FRAMES = 12;
+
+    private final String name;
+    private final int maxStored;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private final List<UntranslatedMember> untranslated = new ArrayList<>();
+    private int errors;
+    private String overBudget;
+    private boolean degradedRetry;
+    private String failure;
+    private List<String> failureTrace = Collections.emptyList();
+
+    public FileDiagnostics(String name, int maxStored) {
+        this.name = name;
+        this.maxStored = maxStored;
+    }
+
+    @Override
+    public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine,
+                            String msg, RecognitionException e) {
+        // FastJavaLexer reports without a recognizer
+        add(new Diagnostic(recognizer instanceof Parser ? Diagnostic.Kind.SYNTAX : Diagnostic.Kind.LEXICAL,
+                line, charPositionInLine, msg));
+    }
+
+    public void add(Diagnostic diagnostic) {
+        errors++;
+        if (diagnostics.size() < maxStored) {
+            diagnostics.add(diagnostic);
+        }
+    }
+
+    public void untranslated(UntranslatedMember member) {
+        untranslated.add(member);
+    }
+
+    /**
+     * Records that parsing the file was aborted for going over its budget, and whether it was then translated again
+     * in degraded mode; if that fails as well, the failure is recorded as usual.
+     */
+    public void overBudget(String reason, boolean degradedRetry) {
+        this.overBudget = reason;
+        this.degradedRetry = degradedRetry;
+    }
+
+    /** Records why translating the file failed; only the first failure is kept. */
+    public void fail(Throwable cause) {
+        if (failure != null) {
+            return;
+        }
+        failure = cause.toString();
+        StackTraceElement[] trace = cause.getStackTrace();
+        List<String> frames = new ArrayList<>();
+        for (int i = 0; i < Math.min(trace.length, MAX_FRAMES); i++) {
+            frames.add(trace[i].toString());
+        }
+        failureTrace = frames;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** The stored syntax errors, in the order they were reported. */
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /** All syntax errors reported, stored or not. */
+    public int getErrors() {
+        return errors;
+    }
+
+    public int getDropped() {
+        return errors - diagnostics.size();
+    }
+
+    /** Class members emitted as stubs, in output order. */
+    public List<UntranslatedMember> getUntranslated() {
+        return untranslated;
+    }
+
+    /** Why parsing the file went over its budget, or null when it did not. */
+    public String getOverBudget() {
+        return overBudget;
+    }
+
+    public boolean isDegradedRetry() {
+        return degradedRetry;
+    }
+
+    /** The exception translating the file ended with, or null when it was translated. */
+    public String getFailure() {
+        return failure;
+    }
+
+    /** Up to {@link #MAX_FRAMES} frames of the failure's stack trace, innermost first. */
+    public List<String> getFailureTrace() {
+        return failureTrace;
+    }
+
+    public boolean isEmpty() {
+        return errors == 0 && untranslated.isEmpty() && overBudget == null && failure == null;
+    }
+}
@@ -0,0 +1,19 @@
+package org.arjun.interpreter;
+
+/**
+ * Members of a class body. Those of the tree are a {@link TreeMembers}; those of a streamed class are not part of
+ * the tree but parsed on demand, so that a huge class can be translated with only the members being emitted in
+ * memory. Every {@link #parse} of those parses the member afresh; the caller drops the subtree as soon as it has
+ * been translated.
+ */
+public interface ClassMembers {
+    int size();
+
+    /**
+     * Rule index of the declaration inside member {@code index} (e.g. {@link JavaParser#RULE_methodDeclaration}),
+     * or -1 for initializer blocks and empty declarations; known without parsing the member again.
+     */
+    int declarationRule(int index);
+
+    JavaParser.ClassBodyDeclarationContext parse(int index);
+}
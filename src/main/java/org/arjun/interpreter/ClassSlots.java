@@ -0,0 +1,177 @@
+package org.arjun.interpreter;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides the {@code __slots__} of a translated class. A class gets slots for the fields it declares
+ * itself; fields of superclasses declared in the same file are left to their own slots. A class is left
+ * without slots when its attributes cannot all be known from its declarations: it assigns
+ * {@code this.x} for an undeclared {@code x}, uses reflection, or has a method named like a field
+ * (a slot and a method of the same name cannot coexist on a Python class).
+ */
+final class ClassSlots {
+    private static final Set<String> REFLECTIVE_METHODS = new HashSet<>(Arrays.asList(
+            "getDeclaredField", "getDeclaredFields", "getField", "getFields", "setAccessible",
+            "getDeclaredMethod", "getDeclaredMethods", "getMethod", "getMethods", "newInstance"));
+    private static final Set<Integer> ASSIGNMENT_OPERATORS = new HashSet<>(Arrays.asList(
+            JavaParser.ASSIGN, JavaParser.ADD_ASSIGN, JavaParser.SUB_ASSIGN, JavaParser.MUL_ASSIGN,
+            JavaParser.DIV_ASSIGN, JavaParser.AND_ASSIGN, JavaParser.OR_ASSIGN, JavaParser.XOR_ASSIGN,
+            JavaParser.MOD_ASSIGN, JavaParser.LSHIFT_ASSIGN, JavaParser.RSHIFT_ASSIGN, JavaParser.URSHIFT_ASSIGN));
+
+    private ClassSlots() {}
+
+    /** The slot names for {@code ctx} in declaration order, or null when the class must keep its __dict__. */
+    static List<String> of(JavaParser.ClassDeclarationContext ctx) {
+        Map<String, JavaParser.ClassDeclarationContext> unitClasses = unitClasses(ctx);
+        if (importsReflection(ctx)) {
+            return null;
+        }
+        Set<String> own = declaredFields(ctx);
+        Set<String> inherited = new HashSet<>();
+        Set<String> visited = new HashSet<>();
+        for (JavaParser.ClassDeclarationContext parent = superclass(ctx, unitClasses);
+             parent != null && visited.add(parent.identifier().getText());
+             parent = superclass(parent, unitClasses)) {
+            inherited.addAll(declaredFields(parent));
+        }
+        Set<String> known = new HashSet<>(own);
+        known.addAll(inherited);
+
+        for (JavaParser.ClassBodyDeclarationContext bodyDecl : ctx.classBody().classBodyDeclaration()) {
+            JavaParser.MemberDeclarationContext member = bodyDecl.memberDeclaration();
+            if (member != null && member.methodDeclaration() != null
+                    && known.contains(member.methodDeclaration().identifier().getText())) {
+                return null;
+            }
+        }
+        if (isDynamic(ctx.classBody(), known)) {
+            return null;
+        }
+        List<String> slots = new ArrayList<>();
+        for (String field : own) {
+            if (!inherited.contains(field)) {
+                slots.add(field);
+            }
+        }
+        return slots;
+    }
+
+    /** Python literal for a slots tuple, e.g. {@code ('x', 'y')} or {@code ('x',)}. */
+    static String tuple(List<String> slots) {
+        StringBuilder tuple = new StringBuilder("(");
+        for (int i = 0; i < slots.size(); i++) {
+            if (i > 0) tuple.append(", ");
+            tuple.append('\'').append(slots.get(i)).append('\'');
+        }
+        if (slots.size() == 1) tuple.append(',');
+        return tuple.append(')').toString();
+    }
+
+    private static Set<String> declaredFields(JavaParser.ClassDeclarationContext ctx) {
+        Set<String> fields = new LinkedHashSet<>();
+        for (JavaParser.ClassBodyDeclarationContext bodyDecl : ctx.classBody().classBodyDeclaration()) {
+            JavaParser.MemberDeclarationContext member = bodyDecl.memberDeclaration();
+            if (member != null && member.fieldDeclaration() != null) {
+                for (JavaParser.VariableDeclaratorContext varDecl : member.fieldDeclaration().variableDeclarators().variableDeclarator()) {
+                    fields.add(varDecl.variableDeclaratorId().getText());
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static JavaParser.ClassDeclarationContext superclass(JavaParser.ClassDeclarationContext ctx,
+                                                                 Map<String, JavaParser.ClassDeclarationContext> unitClasses) {
+        return ctx.EXTENDS() != null ? unitClasses.get(ctx.typeType().getText()) : null;
+    }
+
+    private static Map<String, JavaParser.ClassDeclarationContext> unitClasses(ParserRuleContext ctx) {
+        Map<String, JavaParser.ClassDeclarationContext> classes = new HashMap<>();
+        JavaParser.CompilationUnitContext unit = compilationUnit(ctx);
+        if (unit != null) {
+            for (JavaParser.TypeDeclarationContext typeCtx : unit.typeDeclaration()) {
+                if (typeCtx.classDeclaration() != null) {
+                    classes.put(typeCtx.classDeclaration().identifier().getText(), typeCtx.classDeclaration());
+                }
+            }
+        }
+        return classes;
+    }
+
+    private static JavaParser.CompilationUnitContext compilationUnit(ParserRuleContext ctx) {
+        for (ParserRuleContext node = ctx; node != null; node = node.getParent()) {
+            if (node instanceof JavaParser.CompilationUnitContext) {
+                return (JavaParser.CompilationUnitContext) node;
+            }
+        }
+        return null;
+    }
+
+    private static boolean importsReflection(ParserRuleContext ctx) {
+        JavaParser.CompilationUnitContext unit = compilationUnit(ctx);
+        if (unit == null) {
+            return false;
+        }
+        for (JavaParser.ImportDeclarationContext importCtx : unit.importDeclaration()) {
+            if (importCtx.qualifiedName().getText().startsWith("java.lang.reflect")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDynamic(ParseTree tree, Set<String> known) {
+        Deque<ParseTree> pending = new ArrayDeque<>();
+        pending.push(tree);
+        while (!pending.isEmpty()) {
+            ParseTree node = pending.pop();
+            if (node instanceof JavaParser.MethodCallContext) {
+                JavaParser.MethodCallContext call = (JavaParser.MethodCallContext) node;
+                if (call.identifier() != null && REFLECTIVE_METHODS.contains(call.identifier().getText())) {
+                    return true;
+                }
+            }
+            if (node instanceof JavaParser.ExpressionContext) {
+                JavaParser.ExpressionContext expression = (JavaParser.ExpressionContext) node;
+                boolean assigns = expression.bop != null && ASSIGNMENT_OPERATORS.contains(expression.bop.getType());
+                boolean steps = isStep(expression.prefix) || isStep(expression.postfix);
+                if ((assigns || steps) && !expression.expression().isEmpty()) {
+                    String attribute = selfAttribute(expression.expression(0));
+                    if (attribute != null && !known.contains(attribute)) {
+                        return true;
+                    }
+                }
+            }
+            for (int i = 0; i < node.getChildCount(); i++) {
+                pending.push(node.getChild(i));
+            }
+        }
+        return false;
+    }
+
+    /** {@code x} for a target of the form {@code this.x}, otherwise null. */
+    private static String selfAttribute(JavaParser.ExpressionContext target) {
+        if (target.bop == null || target.bop.getType() != JavaParser.DOT || target.identifier() == null) {
+            return null;
+        }
+        JavaParser.ExpressionContext owner = target.expression(0);
+        return owner.primary() != null && owner.primary().THIS() != null ? target.identifier().getText() : null;
+    }
+
+    private static boolean isStep(Token op) {
+        return op != null && (op.getType() == JavaParser.INC || op.getType() == JavaParser.DEC);
+    }
+}
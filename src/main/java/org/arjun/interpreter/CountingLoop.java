@@ -0,0 +1,315 @@
+package org.arjun.interpreter;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shape of a basic for loop that can be emitted as {@code for i in range(...)}: a single integral
+ * variable declared in the init, compared against a bound with {@code < <= > >=} and stepped by
+ * {@code ++ -- += k -= k} in the matching direction. The body must not assign the variable or
+ * anything the bound reads, because range() evaluates the bound once while Java re-checks it on
+ * every iteration; and if it calls methods, the bound may only read locals and parameters.
+ */
+final class CountingLoop {
+    private static final Set<String> INTEGRAL_TYPES = new HashSet<>(Arrays.asList("int", "long", "short", "byte"));
+    private static final Set<Integer> ASSIGNMENT_OPERATORS = new HashSet<>(Arrays.asList(
+            JavaParser.ASSIGN, JavaParser.ADD_ASSIGN, JavaParser.SUB_ASSIGN, JavaParser.MUL_ASSIGN,
+            JavaParser.DIV_ASSIGN, JavaParser.AND_ASSIGN, JavaParser.OR_ASSIGN, JavaParser.XOR_ASSIGN,
+            JavaParser.MOD_ASSIGN, JavaParser.LSHIFT_ASSIGN, JavaParser.RSHIFT_ASSIGN, JavaParser.URSHIFT_ASSIGN));
+
+    final String variable;
+    final JavaParser.ExpressionContext start;
+    final JavaParser.ExpressionContext bound;
+    /** Step as a positive number; the sign is given by {@link #ascending}. */
+    final long step;
+    final boolean ascending;
+    final boolean inclusive;
+
+    private CountingLoop(String variable, JavaParser.ExpressionContext start, JavaParser.ExpressionContext bound,
+                         long step, boolean ascending, boolean inclusive) {
+        this.variable = variable;
+        this.start = start;
+        this.bound = bound;
+        this.step = step;
+        this.ascending = ascending;
+        this.inclusive = inclusive;
+    }
+
+    /** Returns the loop's shape, or null when it has to stay a while loop. */
+    static CountingLoop match(JavaParser.ForControlContext forCtx, JavaParser.StatementContext body, TranslationContext tc) {
+        // init: exactly one integral variable with an initializer
+        if (forCtx.forInit() == null || forCtx.forInit().localVariableDeclaration() == null) return null;
+        JavaParser.LocalVariableDeclarationContext declaration = forCtx.forInit().localVariableDeclaration();
+        if (declaration.typeType() == null || !INTEGRAL_TYPES.contains(tc.text(declaration.typeType()))) return null;
+        List<JavaParser.VariableDeclaratorContext> declarators = declaration.variableDeclarators().variableDeclarator();
+        if (declarators.size() != 1) return null;
+        JavaParser.VariableDeclaratorContext declarator = declarators.get(0);
+        if (declarator.variableInitializer() == null || declarator.variableInitializer().expression() == null) return null;
+        String variable = tc.text(declarator.variableDeclaratorId());
+        JavaParser.ExpressionContext start = declarator.variableInitializer().expression();
+        if (!isIntegerArithmetic(start, true)) return null;
+
+        // condition: variable compared against the bound
+        JavaParser.ExpressionContext condition = forCtx.expression();
+        if (condition == null || condition.bop == null || condition.expression().size() != 2) return null;
+        if (!isVariable(condition.expression(0), variable)) return null;
+        boolean ascending;
+        boolean inclusive;
+        switch (condition.bop.getType()) {
+            case JavaParser.LT: ascending = true; inclusive = false; break;
+            case JavaParser.LE: ascending = true; inclusive = true; break;
+            case JavaParser.GT: ascending = false; inclusive = false; break;
+            case JavaParser.GE: ascending = false; inclusive = true; break;
+            default: return null;
+        }
+        JavaParser.ExpressionContext bound = condition.expression(1);
+        if (!isIntegerArithmetic(bound, false)) return null;
+
+        // update: a single step towards the bound
+        if (forCtx.forUpdate == null || forCtx.forUpdate.expression().size() != 1) return null;
+        long step = step(forCtx.forUpdate.expression(0), variable);
+        if (step == 0 || (step > 0) != ascending) return null;
+
+        // body: neither the variable nor the bound may change
+        BodyEffects effects = effects(body, tc);
+        if (effects.assigned.contains(variable)) return null;
+        Set<String> boundNames = new HashSet<>();
+        collectNames(bound, boundNames);
+        for (String name : boundNames) {
+            if (effects.assigned.contains(name)) return null;
+        }
+        // a method the body calls can change any field, and any object the bound reads a field of
+        if (effects.callsMethods && !readsOnlyLocals(bound, forCtx, tc)) return null;
+        return new CountingLoop(variable, start, bound, Math.abs(step), ascending, inclusive);
+    }
+
+    /** Signed step of {@code i++ ++i i-- --i i += k i -= k}, or 0 for anything else. */
+    private static long step(JavaParser.ExpressionContext update, String variable) {
+        if (update.expression().size() == 1 && isVariable(update.expression(0), variable)) {
+            Token op = update.postfix != null ? update.postfix : update.prefix;
+            if (op != null && op.getType() == JavaParser.INC) return 1;
+            if (op != null && op.getType() == JavaParser.DEC) return -1;
+            return 0;
+        }
+        if (update.bop == null || update.expression().size() != 2 || !isVariable(update.expression(0), variable)) return 0;
+        long amount = decimalLiteral(update.expression(1));
+        if (amount <= 0) return 0;
+        if (update.bop.getType() == JavaParser.ADD_ASSIGN) return amount;
+        if (update.bop.getType() == JavaParser.SUB_ASSIGN) return -amount;
+        return 0;
+    }
+
+    private static boolean isVariable(JavaParser.ExpressionContext expression, String variable) {
+        return expression.primary() != null && expression.primary().identifier() != null
+                && expression.primary().identifier().getText().equals(variable);
+    }
+
+    /** Value of a plain decimal int literal, or -1. */
+    static long decimalLiteral(JavaParser.ExpressionContext expression) {
+        if (expression.primary() == null || expression.primary().literal() == null) return -1;
+        JavaParser.IntegerLiteralContext literal = expression.primary().literal().integerLiteral();
+        if (literal == null || literal.DECIMAL_LITERAL() == null) return -1;
+        String text = literal.getText().replace("_", "");
+        if (text.endsWith("l") || text.endsWith("L")) text = text.substring(0, text.length() - 1);
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * True for integer arithmetic the translator renders faithfully: integer literals, names, field and
+     * {@code .length} accesses combined with {@code + - * %}. Division is excluded because it is emitted
+     * as Python's float division, which range() rejects.
+     */
+    private static boolean isIntegerArithmetic(JavaParser.ExpressionContext expression, boolean allowCalls) {
+        if (expression.primary() != null) {
+            JavaParser.PrimaryContext primary = expression.primary();
+            if (primary.expression() != null) return isIntegerArithmetic(primary.expression(), allowCalls);
+            if (primary.identifier() != null || primary.THIS() != null) return true;
+            return primary.literal() != null && primary.literal().integerLiteral() != null;
+        }
+        if (expression.bop != null) {
+            switch (expression.bop.getType()) {
+                case JavaParser.ADD:
+                case JavaParser.SUB:
+                case JavaParser.MUL:
+                case JavaParser.MOD:
+                    return expression.expression().size() == 2
+                            && isIntegerArithmetic(expression.expression(0), allowCalls)
+                            && isIntegerArithmetic(expression.expression(1), allowCalls);
+                case JavaParser.DOT:
+                    if (expression.methodCall() != null) {
+                        return allowCalls && isIntegerArithmetic(expression.expression(0), true);
+                    }
+                    return expression.identifier() != null && isIntegerArithmetic(expression.expression(0), allowCalls);
+                default:
+                    return false;
+            }
+        }
+        if (expression.prefix != null && expression.prefix.getType() == JavaParser.SUB) {
+            return decimalLiteral(expression.expression(0)) >= 0;
+        }
+        return allowCalls && expression.methodCall() != null;
+    }
+
+    /**
+     * What {@code body} assigns and whether it calls methods. The one walk over the body also records the effects
+     * of every for loop body nested in it, so matching those loops in turn does not walk their bodies again; the
+     * records are kept in {@code tc} until the outermost loop has been emitted.
+     */
+    private static BodyEffects effects(JavaParser.StatementContext body, TranslationContext tc) {
+        BodyEffects known = tc.loopBodies.get(body);
+        if (known != null) return known;
+        // nodes to visit, and after the nodes of a loop body the effects to close once they are all visited
+        Deque<Object> pending = new ArrayDeque<>();
+        Deque<BodyEffects> open = new ArrayDeque<>();
+        pending.push(body);
+        while (!pending.isEmpty()) {
+            Object item = pending.pop();
+            if (item instanceof BodyEffects) {
+                BodyEffects closed = open.pop();
+                tc.loopBodies.put(closed.body, closed);
+                if (!open.isEmpty()) open.peek().add(closed);
+                continue;
+            }
+            if (!(item instanceof ParserRuleContext)) continue;
+            ParserRuleContext node = (ParserRuleContext) item;
+            if (node == body || isLoopBody(node)) {
+                BodyEffects nested = tc.loopBodies.get(node);
+                if (nested != null) {
+                    open.peek().add(nested);
+                    continue;
+                }
+                BodyEffects effects = new BodyEffects(node);
+                open.push(effects);
+                pending.push(effects);
+            }
+            if (node instanceof JavaParser.MethodCallContext) {
+                open.peek().callsMethods = true;
+            }
+            if (node instanceof JavaParser.ExpressionContext) {
+                JavaParser.ExpressionContext expression = (JavaParser.ExpressionContext) node;
+                boolean assigns = expression.bop != null && ASSIGNMENT_OPERATORS.contains(expression.bop.getType());
+                boolean steps = isStep(expression.prefix) || isStep(expression.postfix);
+                if ((assigns || steps) && !expression.expression().isEmpty()) {
+                    collectNames(expression.expression(0), open.peek().assigned);
+                }
+            }
+            for (int i = 0; i < node.getChildCount(); i++) {
+                pending.push(node.getChild(i));
+            }
+        }
+        return tc.loopBodies.get(body);
+    }
+
+    /**
+     * Whether {@code bound} reads only what no method can change: local variables and parameters of the enclosing
+     * method or lambda, and the {@code length} of arrays held in them.
+     */
+    private static boolean readsOnlyLocals(JavaParser.ExpressionContext bound, ParserRuleContext loop, TranslationContext tc) {
+        Set<String> parameters = parameters(loop);
+        Deque<ParseTree> pending = new ArrayDeque<>();
+        pending.push(bound);
+        while (!pending.isEmpty()) {
+            ParseTree node = pending.pop();
+            if (node instanceof JavaParser.ExpressionContext) {
+                JavaParser.ExpressionContext expression = (JavaParser.ExpressionContext) node;
+                if (expression.bop != null && expression.bop.getType() == JavaParser.DOT) {
+                    if (expression.identifier() == null || !expression.identifier().getText().equals("length")
+                            || expression.expression(0).primary() == null || expression.expression(0).primary().identifier() == null) {
+                        return false;
+                    }
+                    pending.push(expression.expression(0));
+                    continue;
+                }
+            }
+            if (node instanceof JavaParser.PrimaryContext) {
+                JavaParser.PrimaryContext primary = (JavaParser.PrimaryContext) node;
+                if (primary.THIS() != null || primary.SUPER() != null) return false;
+                if (primary.identifier() != null) {
+                    String name = primary.identifier().getText();
+                    if (!tc.localVariables.contains(name) && !parameters.contains(name)) return false;
+                    continue;
+                }
+            }
+            for (int i = 0; i < node.getChildCount(); i++) {
+                pending.push(node.getChild(i));
+            }
+        }
+        return true;
+    }
+
+    /** Parameter names of the methods, constructors and lambdas {@code node} is in, up to its class body. */
+    private static Set<String> parameters(ParserRuleContext node) {
+        Set<String> names = new HashSet<>();
+        for (ParserRuleContext scope = node; scope != null && !(scope instanceof JavaParser.ClassBodyContext); scope = scope.getParent()) {
+            if (scope instanceof JavaParser.LambdaExpressionContext) {
+                collectNames(((JavaParser.LambdaExpressionContext) scope).lambdaParameters(), names);
+                continue;
+            }
+            JavaParser.FormalParametersContext formals = scope.getRuleContext(JavaParser.FormalParametersContext.class, 0);
+            if (formals != null && formals.formalParameterList() != null) {
+                for (JavaParser.FormalParameterContext formal : formals.formalParameterList().formalParameter()) {
+                    names.add(formal.variableDeclaratorId().getText());
+                }
+                if (formals.formalParameterList().lastFormalParameter() != null) {
+                    names.add(formals.formalParameterList().lastFormalParameter().variableDeclaratorId().getText());
+                }
+            }
+        }
+        return names;
+    }
+
+    private static boolean isLoopBody(ParserRuleContext node) {
+        if (!(node instanceof JavaParser.StatementContext) || !(node.getParent() instanceof JavaParser.StatementContext)) {
+            return false;
+        }
+        JavaParser.StatementContext loop = (JavaParser.StatementContext) node.getParent();
+        return loop.FOR() != null && loop.statement(0) == node;
+    }
+
+    private static boolean isStep(Token op) {
+        return op != null && (op.getType() == JavaParser.INC || op.getType() == JavaParser.DEC);
+    }
+
+    private static void collectNames(ParseTree tree, Set<String> names) {
+        Deque<ParseTree> pending = new ArrayDeque<>();
+        pending.push(tree);
+        while (!pending.isEmpty()) {
+            ParseTree node = pending.pop();
+            if (node instanceof JavaParser.IdentifierContext) {
+                names.add(node.getText());
+                continue;
+            }
+            for (int i = 0; i < node.getChildCount(); i++) {
+                pending.push(node.getChild(i));
+            }
+        }
+    }
+
+    /** The names a loop body assigns, and whether it calls any method. */
+    static final class BodyEffects {
+        final ParserRuleContext body;
+        final Set<String> assigned = new HashSet<>();
+        boolean callsMethods;
+
+        BodyEffects(ParserRuleContext body) {
+            this.body = body;
+        }
+
+        void add(BodyEffects nested) {
+            assigned.addAll(nested.assigned);
+            callsMethods |= nested.callsMethods;
+        }
+    }
+}
@@ -10,7 +10,7 @@ import java.util.Iterator;
 import java.util.ArrayList;
 
 @SuppressWarnings({"all", "warnings", "unchecked", "unused", "cast"})
-public class JavaParser extends Parser {
+public class JavaParser extends JavaParserBase {
 	static { RuntimeMetaData.checkVersion("4.9.2", RuntimeMetaData.VERSION); }
 
 	protected static final DFA[] _decisionToDFA;
@@ -8098,6 +8098,10 @@ public class JavaParser extends Parser {
 		ExpressionContext _localctx = new ExpressionContext(_ctx, _parentState);
 		ExpressionContext _prevctx = _localctx;
 		int _startState = 198;
+
+		    ExpressionContext _fastctx = expressionFastPath(_parentctx, _parentState, _p);
+		    if (_fastctx != null) return _fastctx;
+
 		enterRecursionRule(_localctx, 198, RULE_expression, _p);
 		int _la;
 		try {
@@ -0,0 +1,24 @@
+package org.arjun.interpreter;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.TokenStream;
+
+/**
+ * Hand-written superclass of the generated {@link JavaParser}, named by the grammar's {@code superClass} option.
+ * The grammar's {@code @init} action on {@code expression} calls {@link #expressionFastPath} before running the
+ * generated rule, so subclasses can parse expressions their own way without editing generated code.
+ */
+public abstract class JavaParserBase extends Parser {
+    protected JavaParserBase(TokenStream input) {
+        super(input);
+    }
+
+    /**
+     * Parses the expression at the current token without the generated rule. Returns the finished context, already
+     * attached to {@code parent}, or null to run the generated rule; this default always returns null.
+     */
+    protected JavaParser.ExpressionContext expressionFastPath(ParserRuleContext parent, int invokingState, int precedence) {
+        return null;
+    }
+}
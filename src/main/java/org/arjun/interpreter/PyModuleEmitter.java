@@ -0,0 +1,106 @@
+package org.arjun.interpreter;
+
+import org.arjun.ir.PyBlock;
+import org.arjun.ir.PyExpr;
+import org.arjun.ir.PyLine;
+import org.arjun.ir.PyModule;
+import org.arjun.ir.PyStatement;
+import org.arjun.ir.PyStatement.Kind;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Emitter that builds a {@link PyModule} instead of writing text: each line becomes a {@link PyLine}, or a
+ * {@link PyBlock} for the kinds that are blocks, and {@link #indent()} makes the block emitted last the one the
+ * following statements go under. Buffers are lists of statements that {@link #append} moves into the current body.
+ */
+final class PyModuleEmitter extends PythonEmitter {
+    private final List<PyStatement> statements;
+    /** The bodies being emitted into, innermost first. */
+    private final Deque<List<PyStatement>> bodies = new ArrayDeque<>();
+    private long count;
+
+    PyModuleEmitter(PyModule module) {
+        this(module.getBody(), 0);
+    }
+
+    private PyModuleEmitter(List<PyStatement> statements, int indentLevel) {
+        super(null, indentLevel);
+        this.statements = statements;
+        bodies.push(statements);
+    }
+
+    @Override
+    public void indent() {
+        List<PyStatement> body = bodies.peek();
+        PyStatement header = body.isEmpty() ? null : body.get(body.size() - 1);
+        if (!(header instanceof PyBlock)) {
+            throw new IllegalStateException("indent() without a block header before it, after: " + header);
+        }
+        super.indent();
+        bodies.push(((PyBlock) header).getBody());
+    }
+
+    @Override
+    public void dedent() {
+        super.dedent();
+        bodies.pop();
+    }
+
+    /** Number of statements emitted so far. */
+    @Override
+    public long position() {
+        return count;
+    }
+
+    @Override
+    public PythonEmitter line(Kind kind, CharSequence text) {
+        return add(kind.isBlock() ? new PyBlock(kind, getIndentLevel(), text.toString())
+                : new PyLine(kind, getIndentLevel(), text.toString()));
+    }
+
+    @Override
+    public PythonEmitter line(Kind kind, String text, PyExpr value) {
+        return add(new PyLine(kind, getIndentLevel(), text, value, text.length()));
+    }
+
+    @Override
+    public PythonEmitter line(Kind kind, String text, PyExpr value, String tail) {
+        return add(new PyLine(kind, getIndentLevel(), text + tail, value, text.length()));
+    }
+
+    @Override
+    public PythonEmitter blank() {
+        return add(new PyLine(Kind.BLANK, 0, ""));
+    }
+
+    @Override
+    public PythonEmitter newBuffer() {
+        return new PyModuleEmitter(new ArrayList<>(), getIndentLevel());
+    }
+
+    @Override
+    public void clear(int indentLevel) {
+        statements.clear();
+        bodies.clear();
+        bodies.push(statements);
+        count = 0;
+        reset(indentLevel);
+    }
+
+    @Override
+    public void append(PythonEmitter buffer) {
+        List<PyStatement> emitted = ((PyModuleEmitter) buffer).statements;
+        bodies.peek().addAll(emitted);
+        count += buffer.position();
+    }
+
+    private PythonEmitter add(PyStatement statement) {
+        bodies.peek().add(statement);
+        count++;
+        return this;
+    }
+}
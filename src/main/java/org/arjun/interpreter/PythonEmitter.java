@@ -0,0 +1,138 @@
+package org.arjun.interpreter;
+
+import org.arjun.ir.PyExpr;
+import org.arjun.ir.PyStatement.Kind;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Indentation-aware sink for generated Python. Statements are written as whole lines straight into
+ * the underlying {@link Appendable}, so a file's output is produced in one pass without building
+ * and re-copying intermediate strings for every nesting level. The interpreter names the kind of
+ * every statement it emits, and gives the value of those that have one, so {@link PyModuleEmitter}
+ * can build the Python IR from the same calls.
+ */
+public class PythonEmitter {
+    private static final String INDENT = "    ";
+    private static final String[] INDENTS = new String[16];
+
+    static {
+        INDENTS[0] = "";
+        for (int i = 1; i < INDENTS.length; i++) {
+            INDENTS[i] = INDENTS[i - 1] + INDENT;
+        }
+    }
+
+    private final Appendable out;
+    private int indentLevel;
+    private long position;
+
+    public PythonEmitter(Appendable out) {
+        this(out, 0);
+    }
+
+    public PythonEmitter(Appendable out, int indentLevel) {
+        this.out = out;
+        this.indentLevel = indentLevel;
+    }
+
+    public int getIndentLevel() {
+        return indentLevel;
+    }
+
+    /** Starts the body of the block whose header was emitted last. */
+    public void indent() {
+        indentLevel++;
+    }
+
+    public void dedent() {
+        indentLevel--;
+    }
+
+    /** How much was emitted so far; comparing two positions tells whether anything was emitted in between. */
+    public long position() {
+        return position;
+    }
+
+    public String indentation() {
+        return indentation(indentLevel);
+    }
+
+    /** The leading whitespace of a line {@code indentLevel} levels deep. */
+    public static String indentation(int indentLevel) {
+        if (indentLevel < INDENTS.length) {
+            return INDENTS[indentLevel];
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < indentLevel; i++) {
+            sb.append(INDENT);
+        }
+        return sb.toString();
+    }
+
+    /** Writes one statement of kind {@code kind} at the current indentation. */
+    public PythonEmitter line(Kind kind, CharSequence text) {
+        return write(indentation()).write(text).write("\n");
+    }
+
+    /** Writes a statement whose {@code text} ends with what {@code value}, unless it is null, prints. */
+    public PythonEmitter line(Kind kind, String text, PyExpr value) {
+        return line(kind, text);
+    }
+
+    /** Writes a statement whose value is followed by {@code tail}, e.g. a comment. */
+    public PythonEmitter line(Kind kind, String text, PyExpr value, String tail) {
+        return write(indentation()).write(text).write(tail).write("\n");
+    }
+
+    /** Writes an empty line, e.g. between two members. */
+    public PythonEmitter blank() {
+        return write("\n");
+    }
+
+    /**
+     * An empty emitter at the current indentation for output that may be dropped, e.g. a member that might not
+     * translate. What it emits is added here by {@link #append}.
+     */
+    public PythonEmitter newBuffer() {
+        return new PythonEmitter(new StringBuilder(), indentLevel);
+    }
+
+    /** Empties an emitter made by {@link #newBuffer()} to emit into again, starting {@code indentLevel} levels deep. */
+    public void clear(int indentLevel) {
+        ((StringBuilder) out).setLength(0);
+        reset(indentLevel);
+    }
+
+    void reset(int indentLevel) {
+        this.indentLevel = indentLevel;
+        this.position = 0;
+    }
+
+    /** Adds what {@code buffer}, made by {@link #newBuffer()}, has emitted. */
+    public void append(PythonEmitter buffer) {
+        write((StringBuilder) buffer.out);
+    }
+
+    private PythonEmitter write(CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        position += text.length();
+        return this;
+    }
+
+    public void flush() {
+        if (out instanceof Flushable) {
+            try {
+                ((Flushable) out).flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.arjun.interpreter;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.WritableToken;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Text of parse-tree nodes for one translation. {@link ParseTree#getText()} builds a fresh string for every
+ * token of a subtree and concatenates them; here, when the tokens of a node follow each other in the source
+ * without whitespace or comments in between (as in {@code java.util.List<String>} or {@code values[i]}), the
+ * text is cut from the input in one piece. Other nodes fall back to {@code getText()}.
+ * <p>
+ * Names (identifiers and keywords) are interned and stored back into their token, so asking for the same
+ * name again allocates nothing and map lookups with it mostly compare by identity.
+ * <p>
+ * Subtrees are walked from an explicit stack rather than by recursion, since the expression trees of long
+ * operator chains are thousands of levels deep.
+ */
+final class SourceText {
+    private static final int GAP = Integer.MIN_VALUE;
+
+    private final Map<String, String> names = new HashMap<>();
+    private final Deque<ParseTree> pending = new ArrayDeque<>();
+
+    /** Same as {@code tree.getText()}. */
+    String of(ParseTree tree) {
+        if (tree instanceof TerminalNode) {
+            return of(((TerminalNode) tree).getSymbol());
+        }
+        ParserRuleContext ctx = (ParserRuleContext) tree;
+        Token start = ctx.start;
+        CharStream input = start != null ? start.getInputStream() : null;
+        if (input == null || start.getStartIndex() < 0) {
+            return joinTokens(ctx);
+        }
+        int stop = contiguousStop(ctx, start.getStartIndex() - 1);
+        if (stop == GAP) {
+            return joinTokens(ctx);
+        }
+        if (stop < start.getStartIndex()) {
+            return "";
+        }
+        return stop == start.getStopIndex() ? of(start) : input.getText(Interval.of(start.getStartIndex(), stop));
+    }
+
+    private String of(Token token) {
+        int type = token.getType();
+        if (type != JavaParser.IDENTIFIER && (type < JavaParser.ABSTRACT || type > JavaParser.NON_SEALED)) {
+            return token.getText();
+        }
+        String text = token.getText();
+        String name = names.putIfAbsent(text, text);
+        if (name == null) {
+            name = text;
+        }
+        if (token instanceof WritableToken) {
+            ((WritableToken) token).setText(name);
+        }
+        return name;
+    }
+
+    /**
+     * Stop index of the last token under {@code tree}, provided every token starts right after the one
+     * before it, beginning at {@code previousStop + 1}; GAP otherwise, or for tokens not read from the
+     * source such as EOF and those made up by error recovery.
+     */
+    private int contiguousStop(ParseTree tree, int previousStop) {
+        pending.clear();
+        pending.push(tree);
+        while (!pending.isEmpty() && previousStop != GAP) {
+            ParseTree node = pending.pop();
+            if (node instanceof TerminalNode) {
+                Token token = ((TerminalNode) node).getSymbol();
+                boolean next = token.getType() != Token.EOF && token.getTokenIndex() >= 0 && token.getStartIndex() == previousStop + 1;
+                previousStop = next ? token.getStopIndex() : GAP;
+            } else {
+                pushChildren(node);
+            }
+        }
+        return previousStop;
+    }
+
+    /** Same as {@code ctx.getText()}: the text of every token under {@code ctx}, joined. */
+    private String joinTokens(ParserRuleContext ctx) {
+        StringBuilder text = new StringBuilder();
+        pending.clear();
+        pending.push(ctx);
+        while (!pending.isEmpty()) {
+            ParseTree node = pending.pop();
+            if (node instanceof TerminalNode) {
+                text.append(node.getText());
+            } else {
+                pushChildren(node);
+            }
+        }
+        return text.toString();
+    }
+
+    /** Pushes the children of {@code node} so that they are popped first to last. */
+    private void pushChildren(ParseTree node) {
+        for (int i = node.getChildCount() - 1; i >= 0; i--) {
+            pending.push(node.getChild(i));
+        }
+    }
+}
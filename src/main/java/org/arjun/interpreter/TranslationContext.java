@@ -0,0 +1,172 @@
+package org.arjun.interpreter;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeProperty;
+import org.arjun.ir.PyExpr;
+import org.arjun.ir.PyModule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mutable state of a single translation, threaded through every {@link _interpreter_} visit.
+ * One context belongs to one translation on one thread; the interpreter itself holds no state.
+ */
+public class TranslationContext {
+    final TranslationOptions options;
+    PythonEmitter out;
+    Map<String, String> classFields = new HashMap<>();
+    Set<String> localVariables = new HashSet<>();
+
+    private final Deque<Map<String, String>> enclosingClassFields = new ArrayDeque<>();
+    private final Deque<Set<String>> enclosingLocalVariables = new ArrayDeque<>();
+    private final Map<JavaParser.ClassBodyContext, ClassMembers> streamedMembers = new HashMap<>();
+    private final SourceText sourceText = new SourceText();
+    private final List<UntranslatedMember> untranslatedMembers = new ArrayList<>();
+    private final Deque<PythonEmitter> memberBuffers = new ArrayDeque<>();
+    /** Effects of the loop bodies under the for loops being emitted, see {@link CountingLoop}. */
+    ParseTreeProperty<CountingLoop.BodyEffects> loopBodies = new ParseTreeProperty<>();
+    private int loopDepth;
+    /** The stack {@link _interpreter_#visitExpression} translates on, reused from one expression to the next. */
+    final List<_interpreter_.ExpressionFrame> expressionFrames = new ArrayList<>();
+    final List<String> expressionTranslations = new ArrayList<>();
+    int expressionDepth;
+    /**
+     * The IR values of the expressions visited since the last statement began, when building the Python IR; null
+     * otherwise. See {@link _interpreter_#visitExpression}.
+     */
+    final Map<JavaParser.ExpressionContext, PyExpr> values;
+
+    public TranslationContext() {
+        this(new StringBuilder());
+    }
+
+    /** Context whose statements are emitted straight into {@code sink}. */
+    public TranslationContext(Appendable sink) {
+        this(sink, TranslationOptions.defaults());
+    }
+
+    public TranslationContext(Appendable sink, TranslationOptions options) {
+        this.out = new PythonEmitter(sink);
+        this.options = options;
+        this.values = null;
+    }
+
+    /** Context whose statements are added to {@code module} as Python IR, for passes to run over. */
+    public TranslationContext(PyModule module, TranslationOptions options) {
+        this.out = new PyModuleEmitter(module);
+        this.options = options;
+        this.values = new IdentityHashMap<>();
+    }
+
+    /** Translates the members of {@code classBody}, which the tree holds empty, as they come from {@code members}. */
+    public void streamMembers(JavaParser.ClassBodyContext classBody, ClassMembers members) {
+        streamedMembers.put(classBody, members);
+    }
+
+    ClassMembers streamedMembers(JavaParser.ClassBodyContext classBody) {
+        return streamedMembers.get(classBody);
+    }
+
+    /** Same as {@code tree.getText()}, but cut from the source where possible and with names interned. */
+    public String text(ParseTree tree) {
+        return sourceText.of(tree);
+    }
+
+    /** Class members that could not be translated and were emitted as stubs, in output order. */
+    public List<UntranslatedMember> getUntranslatedMembers() {
+        return untranslatedMembers;
+    }
+
+    void untranslated(UntranslatedMember member) {
+        untranslatedMembers.add(member);
+    }
+
+    /** An empty buffer to emit a member into; members nest, e.g. through local classes, so there is one per depth. */
+    PythonEmitter takeMemberBuffer() {
+        PythonEmitter buffer = memberBuffers.poll();
+        if (buffer == null) {
+            return out.newBuffer();
+        }
+        buffer.clear(out.getIndentLevel());
+        return buffer;
+    }
+
+    void returnMemberBuffer(PythonEmitter buffer) {
+        memberBuffers.push(buffer);
+    }
+
+    /** The IR value of {@code expression}, visited for the statement being emitted; null when not building the IR. */
+    PyExpr value(JavaParser.ExpressionContext expression) {
+        return values != null && expression != null ? values.get(expression) : null;
+    }
+
+    /** Runs {@code emit}; when it throws, the class and method scopes it entered and never left are left again. */
+    void runScoped(Runnable emit) {
+        Map<String, String> fields = classFields;
+        Set<String> locals = localVariables;
+        int classDepth = enclosingClassFields.size();
+        int localDepth = enclosingLocalVariables.size();
+        int loops = loopDepth;
+        try {
+            emit.run();
+        } catch (RuntimeException | StackOverflowError e) {
+            while (enclosingClassFields.size() > classDepth) {
+                enclosingClassFields.pop();
+            }
+            while (enclosingLocalVariables.size() > localDepth) {
+                enclosingLocalVariables.pop();
+            }
+            classFields = fields;
+            localVariables = locals;
+            loopDepth = loops;
+            if (loopDepth == 0) {
+                loopBodies = new ParseTreeProperty<>();
+            }
+            throw e;
+        }
+    }
+
+    public TranslationOptions getOptions() {
+        return options;
+    }
+
+    void enterClass() {
+        enclosingClassFields.push(classFields);
+        enclosingLocalVariables.push(localVariables);
+        classFields = new HashMap<>();
+        localVariables = new HashSet<>();
+    }
+
+    void exitClass() {
+        classFields = enclosingClassFields.pop();
+        localVariables = enclosingLocalVariables.pop();
+    }
+
+    void enterLoop() {
+        loopDepth++;
+    }
+
+    /** Leaving the outermost loop drops what was recorded about the bodies in it. */
+    void exitLoop() {
+        if (--loopDepth == 0) {
+            loopBodies = new ParseTreeProperty<>();
+        }
+    }
+
+    void enterMethod() {
+        enclosingLocalVariables.push(localVariables);
+        localVariables = new HashSet<>();
+    }
+
+    void exitMethod() {
+        localVariables = enclosingLocalVariables.pop();
+    }
+}
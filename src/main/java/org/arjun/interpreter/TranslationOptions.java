@@ -0,0 +1,60 @@
+package org.arjun.interpreter;
+
+import org.arjun.ir.PassManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Switches that change the shape of the generated Python. Options are read-only during a translation
+ * and may be shared by any number of threads.
+ */
+public class TranslationOptions {
+    private boolean slots;
+    private List<String> passes = Collections.emptyList();
+    private PassManager passManager = PassManager.named(passes);
+
+    public TranslationOptions() {}
+
+    /** Default options: plain Python classes. */
+    public static TranslationOptions defaults() {
+        return new TranslationOptions();
+    }
+
+    public boolean isSlots() {
+        return slots;
+    }
+
+    /** Emit {@code __slots__} for classes whose attributes are all known from their field declarations. */
+    public TranslationOptions setSlots(boolean slots) {
+        this.slots = slots;
+        return this;
+    }
+
+    /** Names of the optimization passes run over the generated Python, in order; empty by default. */
+    public List<String> getPasses() {
+        return passes;
+    }
+
+    /**
+     * Builds a Python IR of each file and runs the named passes of {@link PassManager} over it before printing it.
+     * Without passes the interpreter writes its output directly.
+     *
+     * @throws IllegalArgumentException when a name is not that of a pass, or is given twice
+     */
+    public TranslationOptions setPasses(List<String> passes) {
+        this.passManager = PassManager.named(passes);
+        this.passes = Collections.unmodifiableList(new ArrayList<>(passes));
+        return this;
+    }
+
+    public PassManager getPassManager() {
+        return passManager;
+    }
+
+    @Override
+    public String toString() {
+        return passes.isEmpty() ? "slots=" + slots : "slots=" + slots + ", passes=" + String.join(",", passes);
+    }
+}
@@ -0,0 +1,32 @@
+package org.arjun.interpreter;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import java.util.List;
+
+/** The members of a class body that was parsed with the rest of the tree; {@link #parse} returns them as they are. */
+final class TreeMembers implements ClassMembers {
+    private final List<JavaParser.ClassBodyDeclarationContext> declarations;
+
+    TreeMembers(JavaParser.ClassBodyContext classBody) {
+        this.declarations = classBody.classBodyDeclaration();
+    }
+
+    @Override
+    public int size() {
+        return declarations.size();
+    }
+
+    @Override
+    public int declarationRule(int index) {
+        // error recovery can leave a member without its declaration
+        JavaParser.MemberDeclarationContext member = declarations.get(index).memberDeclaration();
+        return member != null && member.getChild(0) instanceof ParserRuleContext
+                ? ((ParserRuleContext) member.getChild(0)).getRuleIndex() : -1;
+    }
+
+    @Override
+    public JavaParser.ClassBodyDeclarationContext parse(int index) {
+        return declarations.get(index);
+    }
+}
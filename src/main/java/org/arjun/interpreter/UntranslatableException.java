@@ -0,0 +1,60 @@
+package org.arjun.interpreter;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Thrown when the interpreter fails on a construct, naming the construct and its line. Failures are pinned to the
+ * innermost expression, local declaration or statement around the node being translated, so that a member stub can
+ * say what to rewrite rather than which exception the interpreter ran into.
+ */
+final class UntranslatableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_CONSTRUCT_LENGTH = 60;
+
+    private UntranslatableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /** {@code failure} as an UntranslatableException for the construct around {@code node}, unless it already is one. */
+    static UntranslatableException of(ParserRuleContext node, RuntimeException failure) {
+        if (failure instanceof UntranslatableException) {
+            return (UntranslatableException) failure;
+        }
+        ParserRuleContext construct = construct(node);
+        return new UntranslatableException("cannot translate `" + source(construct) + "` at line "
+                + construct.getStart().getLine(), failure);
+    }
+
+    private static ParserRuleContext construct(ParserRuleContext node) {
+        // not past the member, whose own declaration stands for failures outside its expressions and statements
+        for (ParserRuleContext ctx = node; ctx != null && !(ctx instanceof JavaParser.ClassBodyDeclarationContext); ctx = ctx.getParent()) {
+            if (ctx instanceof JavaParser.ExpressionContext || ctx instanceof JavaParser.LocalVariableDeclarationContext
+                    || ctx instanceof JavaParser.StatementContext) {
+                return ctx;
+            }
+        }
+        return node;
+    }
+
+    /** The source text of {@code ctx} as written, cut at its first line break and shortened to a readable length. */
+    private static String source(ParserRuleContext ctx) {
+        Token start = ctx.getStart();
+        Token stop = ctx.getStop();
+        CharStream input = start.getInputStream();
+        String text = input != null && stop != null && stop.getStopIndex() >= start.getStartIndex()
+                ? input.getText(Interval.of(start.getStartIndex(), stop.getStopIndex()))
+                : ctx.getText();
+        int lineEnd = text.indexOf('\n');
+        boolean cut = lineEnd >= 0 || text.length() > MAX_CONSTRUCT_LENGTH;
+        if (lineEnd >= 0) {
+            text = text.substring(0, lineEnd);
+        }
+        if (text.length() > MAX_CONSTRUCT_LENGTH) {
+            text = text.substring(0, MAX_CONSTRUCT_LENGTH);
+        }
+        return cut ? text.trim() + " ..." : text;
+    }
+}
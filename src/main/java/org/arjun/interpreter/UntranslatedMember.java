@@ -0,0 +1,40 @@
+package org.arjun.interpreter;
+
+/** A class member the interpreter failed on and emitted as a stub, with why it failed. */
+public final class UntranslatedMember {
+    private final String className;
+    private final String name;
+    private final int line;
+    private final String reason;
+
+    public UntranslatedMember(String className, String name, int line, String reason) {
+        this.className = className;
+        this.name = name;
+        this.line = line;
+        this.reason = reason;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /** Method name, the first variable of a field declaration, or __init__ for the constructors. */
+    public String getName() {
+        return name;
+    }
+
+    /** Line the member starts on. */
+    public int getLine() {
+        return line;
+    }
+
+    /** The construct the interpreter failed on and its line, e.g. {@code cannot translate `var n = 1` at line 4}. */
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return className + "." + name + " (line " + line + "): " + reason;
+    }
+}
@@ -1,62 +1,183 @@
 package org.arjun.interpreter;
 
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.arjun.ir.PyExpr;
+import org.arjun.ir.PyStatement.Kind;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
-public class _interpreter_ extends JavaParserBaseVisitor<String>{
-    private int indentLevel = 0;
-    private final Map<String,String> classFields = new HashMap<>();
-    private final Set<String> localVariables = new HashSet<>();
-
+/**
+ * Translates a Java parse tree into Python source.
+ * The interpreter is stateless: everything that changes while a tree is translated lives in the
+ * {@link TranslationContext} passed along every visit, so one instance can serve any number of
+ * translations concurrently.
+ * <p>
+ * Declarations and statements are emitted line by line into the context's {@link PythonEmitter};
+ * expressions are small and are still returned as strings. When the context builds the Python IR,
+ * each expression's IR value is recorded next to its translation, see {@link #visitExpression}.
+ */
+public class _interpreter_ {
     public _interpreter_(){}
 
-    @Override
-    public String visitCompilationUnit(JavaParser.CompilationUnitContext ctx) {
-        StringBuilder result = new StringBuilder();
+    /** Translates a whole tree with a fresh context. */
+    public String visit(ParseTree tree) {
+        return visit(tree, new TranslationContext());
+    }
+
+    /** Translates a whole tree, writing the Python source straight into {@code out}. */
+    public void translate(ParseTree tree, Appendable out) {
+        translate(tree, out, TranslationOptions.defaults());
+    }
+
+    public void translate(ParseTree tree, Appendable out, TranslationOptions options) {
+        translate(tree, new TranslationContext(out, options));
+    }
+
+    /** Translates a whole tree with a context the caller has prepared, e.g. with streamed class members. */
+    public void translate(ParseTree tree, TranslationContext tc) {
+        emit(tree, tc);
+        tc.out.flush();
+    }
+
+    public String visit(ParseTree tree, TranslationContext tc) {
+        if (!(tree instanceof ParserRuleContext)) {
+            // terminals and error nodes carry no translation of their own
+            Objects.requireNonNull(tree, "tree");
+            return null;
+        }
+        ParserRuleContext ctx = (ParserRuleContext) tree;
+        try {
+            return dispatch(ctx, tc);
+        } catch (RuntimeException e) {
+            throw UntranslatableException.of(ctx, e);
+        }
+    }
+
+    private String dispatch(ParserRuleContext ctx, TranslationContext tc) {
+        switch (ctx.getRuleIndex()) {
+            case JavaParser.RULE_compilationUnit:
+            case JavaParser.RULE_classDeclaration:
+            case JavaParser.RULE_interfaceDeclaration:
+            case JavaParser.RULE_interfaceMethodDeclaration:
+            case JavaParser.RULE_methodDeclaration:
+            case JavaParser.RULE_fieldDeclaration:
+            case JavaParser.RULE_block:
+            case JavaParser.RULE_blockStatement:
+            case JavaParser.RULE_statement:
+                return render(ctx, tc);
+            case JavaParser.RULE_packageDeclaration: return visitPackageDeclaration((JavaParser.PackageDeclarationContext) ctx, tc);
+            case JavaParser.RULE_importDeclaration: return visitImportDeclaration((JavaParser.ImportDeclarationContext) ctx, tc);
+            case JavaParser.RULE_formalParameterList: return visitFormalParameterList((JavaParser.FormalParameterListContext) ctx, tc);
+            case JavaParser.RULE_formalParameter: return visitFormalParameter((JavaParser.FormalParameterContext) ctx, tc);
+            case JavaParser.RULE_variableDeclarators: return visitVariableDeclarators((JavaParser.VariableDeclaratorsContext) ctx, tc);
+            case JavaParser.RULE_variableDeclarator: return visitVariableDeclarator((JavaParser.VariableDeclaratorContext) ctx, tc);
+            case JavaParser.RULE_parExpression: return visitParExpression((JavaParser.ParExpressionContext) ctx, tc);
+            case JavaParser.RULE_primary: return visitPrimary((JavaParser.PrimaryContext) ctx, tc);
+            case JavaParser.RULE_literal: return visitLiteral((JavaParser.LiteralContext) ctx, tc);
+            case JavaParser.RULE_typeList: return visitTypeList((JavaParser.TypeListContext) ctx, tc);
+            case JavaParser.RULE_typeType: return visitTypeType((JavaParser.TypeTypeContext) ctx, tc);
+            case JavaParser.RULE_localVariableDeclaration: return visitLocalVariableDeclaration((JavaParser.LocalVariableDeclarationContext) ctx, tc);
+            case JavaParser.RULE_expression: return visitExpression((JavaParser.ExpressionContext) ctx, tc);
+            case JavaParser.RULE_methodCall: return visitMethodCall((JavaParser.MethodCallContext) ctx, tc);
+            case JavaParser.RULE_expressionList: return visitExpressionList((JavaParser.ExpressionListContext) ctx, tc);
+            case JavaParser.RULE_creator: return visitCreator((JavaParser.CreatorContext) ctx, tc);
+            case JavaParser.RULE_arrayCreatorRest: return visitArrayCreatorRest((JavaParser.ArrayCreatorRestContext) ctx, tc);
+            case JavaParser.RULE_arrayInitializer: return visitArrayInitializer((JavaParser.ArrayInitializerContext) ctx, tc);
+            case JavaParser.RULE_createdName: return visitCreatedName((JavaParser.CreatedNameContext) ctx, tc);
+            case JavaParser.RULE_arguments: return visitArguments((JavaParser.ArgumentsContext) ctx, tc);
+            default: return visitChildren(ctx, tc);
+        }
+    }
+
+    /** Rules without a translation of their own yield the translation of their last child. */
+    private String visitChildren(ParserRuleContext ctx, TranslationContext tc) {
+        String result = null;
+        for (int i = 0; i < ctx.getChildCount(); i++) {
+            result = visit(ctx.getChild(i), tc);
+        }
+        return result;
+    }
+
+    /** Emits a declaration or statement into a scratch buffer, for callers that need it as a string. */
+    private String render(ParserRuleContext ctx, TranslationContext tc) {
+        StringBuilder buffer = new StringBuilder();
+        PythonEmitter out = tc.out;
+        tc.out = new PythonEmitter(buffer, out.getIndentLevel());
+        try {
+            emit(ctx, tc);
+        } finally {
+            tc.out = out;
+        }
+        return buffer.toString();
+    }
+
+    public void emit(ParseTree tree, TranslationContext tc) {
+        if (tree instanceof ParserRuleContext) {
+            ParserRuleContext ctx = (ParserRuleContext) tree;
+            switch (ctx.getRuleIndex()) {
+                case JavaParser.RULE_compilationUnit: emitCompilationUnit((JavaParser.CompilationUnitContext) ctx, tc); return;
+                case JavaParser.RULE_classDeclaration: emitClassDeclaration((JavaParser.ClassDeclarationContext) ctx, tc); return;
+                case JavaParser.RULE_interfaceDeclaration: emitInterfaceDeclaration((JavaParser.InterfaceDeclarationContext) ctx, tc); return;
+                case JavaParser.RULE_interfaceMethodDeclaration: emitInterfaceMethodDeclaration((JavaParser.InterfaceMethodDeclarationContext) ctx, tc); return;
+                case JavaParser.RULE_methodDeclaration: emitMethodDeclaration((JavaParser.MethodDeclarationContext) ctx, tc); return;
+                case JavaParser.RULE_fieldDeclaration: emitFieldDeclaration((JavaParser.FieldDeclarationContext) ctx, tc); return;
+                case JavaParser.RULE_block: emitBlock((JavaParser.BlockContext) ctx, tc); return;
+                case JavaParser.RULE_blockStatement: emitBlockStatement((JavaParser.BlockStatementContext) ctx, tc); return;
+                case JavaParser.RULE_statement: emitStatement((JavaParser.StatementContext) ctx, tc); return;
+                default: break;
+            }
+        }
+        String text = visit(tree, tc);
+        tc.out.line(Kind.EXPRESSION, String.valueOf(text));
+    }
+
+    public void emitCompilationUnit(JavaParser.CompilationUnitContext ctx, TranslationContext tc) {
         if (ctx.packageDeclaration() != null) {
-            result.append(visit(ctx.packageDeclaration())).append("\n\n");
+            tc.out.line(Kind.COMMENT, visit(ctx.packageDeclaration(), tc)).blank();
         }
         for (JavaParser.ImportDeclarationContext importCtx : ctx.importDeclaration()) {
-            result.append(visit(importCtx)).append("\n");
+            tc.out.line(Kind.COMMENT, visit(importCtx, tc));
         }
-        result.append("\n");
+        tc.out.blank();
         for (JavaParser.TypeDeclarationContext typeCtx : ctx.typeDeclaration()) {
-            result.append(visit(typeCtx)).append("\n");
+            ParseTree declaration = typeCtx.getChild(typeCtx.getChildCount() - 1);
+            emit(declaration, tc);
+            if (declaration instanceof JavaParser.ClassDeclarationContext
+                    || declaration instanceof JavaParser.InterfaceDeclarationContext) {
+                tc.out.blank();
+            }
         }
-        return result.toString();
     }
 
-    @Override
-    public String visitPackageDeclaration(JavaParser.PackageDeclarationContext ctx) {
-        return "# package " + ctx.qualifiedName().getText();
+    public String visitPackageDeclaration(JavaParser.PackageDeclarationContext ctx, TranslationContext tc) {
+        return "# package " + tc.text(ctx.qualifiedName());
     }
 
-    @Override
-    public String visitImportDeclaration(JavaParser.ImportDeclarationContext ctx) {
-        String importPath = ctx.qualifiedName().getText();
+    public String visitImportDeclaration(JavaParser.ImportDeclarationContext ctx, TranslationContext tc) {
+        String importPath = tc.text(ctx.qualifiedName());
         return "# import " + importPath;
     }
 
-    @Override
-    public String visitFormalParameterList(JavaParser.FormalParameterListContext ctx) {
+    public String visitFormalParameterList(JavaParser.FormalParameterListContext ctx, TranslationContext tc) {
         return ctx.formalParameter().stream()
-                .map(this::visit)
+                .map(child -> visit(child, tc))
                 .collect(Collectors.joining(", "));
     }
 
-    @Override
-    public String visitFormalParameter(JavaParser.FormalParameterContext ctx) {
-        String paramName = ctx.variableDeclaratorId().getText();
-        String paramType = mapJavaTypeToPython(visit(ctx.typeType()));
+    public String visitFormalParameter(JavaParser.FormalParameterContext ctx, TranslationContext tc) {
+        String paramName = tc.text(ctx.variableDeclaratorId());
+        String paramType = mapJavaTypeToPython(visit(ctx.typeType(), tc));
         return paramName + ": " + paramType;
     }
 
-    @Override
-    public String visitVariableDeclarators(JavaParser.VariableDeclaratorsContext ctx) {
+    public String visitVariableDeclarators(JavaParser.VariableDeclaratorsContext ctx, TranslationContext tc) {
         List<String> declarators = ctx.variableDeclarator().stream()
-                .map(this::visit)
+                .map(child -> visit(child, tc))
                 .collect(Collectors.toList());
         if (declarators.size() > 1) {
             return String.join(", ", declarators);
@@ -64,11 +185,10 @@ public class _interpreter_ extends JavaParserBaseVisitor<String>{
         return declarators.get(0);
     }
 
-    @Override
-    public String visitVariableDeclarator(JavaParser.VariableDeclaratorContext ctx) {
-        String varName = ctx.variableDeclaratorId().getText();
+    public String visitVariableDeclarator(JavaParser.VariableDeclaratorContext ctx, TranslationContext tc) {
+        String varName = tc.text(ctx.variableDeclaratorId());
         if (ctx.variableInitializer() != null) {
-            String initializer = visit(ctx.variableInitializer());
+            String initializer = visit(ctx.variableInitializer(), tc);
             return varName.replaceAll("\\[.*\\]", "") + " = " + initializer;
         }
         if (varName.contains("[")) {
@@ -78,187 +198,414 @@ public class _interpreter_ extends JavaParserBaseVisitor<String>{
         return varName + " = None";
     }
 
-    @Override
-    public String visitStatement(JavaParser.StatementContext ctx) {
-        if (ctx.IF() != null) {
-            return visitIfStatement(ctx);
-        }else if (ctx.SWITCH() != null) {
-            return visitSwitchStatement(ctx);
-        } else if (ctx.FOR() != null) {
-            return visitForStatement(ctx);
-        } else if (ctx.WHILE() != null) {
-            return visitWhileStatement(ctx);
-        } else if (ctx.TRY() != null) {
-            return visitTryStatement(ctx);
-        } else if (ctx.DO() != null) {
-            return visitDoWhileStatement(ctx);
-        } else if (ctx.RETURN() != null) {
-            return "return " + (ctx.expression() != null && !ctx.expression().isEmpty() ? visit(ctx.expression(0)) : "");
-        } else if (ctx.BREAK() != null) {
-            return "break";
-        } else if (ctx.CONTINUE() != null) {
-            return "continue";
-        } else if (ctx.statementExpression != null) {
-            return visit(ctx.statementExpression).replaceAll(";$", "") + "\n";
-        } else if (ctx.THROW() != null) {
-            return visitThrowStatement(ctx);
+    public void emitStatement(JavaParser.StatementContext ctx, TranslationContext tc) {
+        try {
+            emitStatementOfKind(ctx, tc);
+        } catch (RuntimeException e) {
+            throw UntranslatableException.of(ctx, e);
+        }
+    }
+
+    private void emitStatementOfKind(JavaParser.StatementContext ctx, TranslationContext tc) {
+        // what kind of statement it is shows in its first child: a keyword, an expression or a block
+        ParseTree first = ctx.getChild(0);
+        int keyword = first instanceof TerminalNode ? ((TerminalNode) first).getSymbol().getType() : Token.INVALID_TYPE;
+        switch (keyword) {
+            case JavaParser.IF: emitIfStatement(ctx, tc); return;
+            case JavaParser.SWITCH: emitSwitchStatement(ctx, tc); return;
+            case JavaParser.FOR: emitForStatement(ctx, tc); return;
+            case JavaParser.WHILE: emitWhileStatement(ctx, tc); return;
+            case JavaParser.TRY: emitTryStatement(ctx, tc); return;
+            case JavaParser.DO: emitDoWhileStatement(ctx, tc); return;
+            case JavaParser.RETURN:
+                JavaParser.ExpressionContext value = ctx.expression(0);
+                if (value == null) {
+                    tc.out.line(Kind.RETURN, "return");
+                } else {
+                    String translation = visit(value, tc);
+                    String text = ("return " + translation).trim();
+                    tc.out.line(Kind.RETURN, text, text.endsWith(translation) ? tc.value(value) : null);
+                }
+                return;
+            case JavaParser.BREAK: tc.out.line(Kind.BREAK, "break"); return;
+            case JavaParser.CONTINUE: tc.out.line(Kind.CONTINUE, "continue"); return;
+            case JavaParser.THROW: tc.out.line(Kind.RAISE, "raise " + visit(ctx.expression(0), tc)); return;
+            case JavaParser.SYNCHRONIZED: emitBlock(ctx.block(), tc); return;
+            case JavaParser.ASSERT:
+            case JavaParser.YIELD:
+            case JavaParser.SEMI:
+                return;
+            default: break;
+        }
+        if (ctx.statementExpression != null) {
+            emitExpressionStatement(ctx.statementExpression, tc);
+        } else if (ctx.blockLabel != null) {
+            emitBlock(ctx.blockLabel, tc);
         } else if (ctx.SEMI() != null) {
-            return "";
+            return;
+        } else {
+            tc.out.line(Kind.EXPRESSION, tc.text(ctx));
         }
-        if (ctx.block() != null)
-            return visit(ctx.block());
-        return indent() + ctx.getText() + "\n";
     }
 
-    @Override
-    public String visitParExpression(JavaParser.ParExpressionContext ctx) {
-        return visit(ctx.expression());
+    /** An assignment, increment or decrement as an assignment with the value it assigns; else an expression statement. */
+    private void emitExpressionStatement(JavaParser.ExpressionContext expression, TranslationContext tc) {
+        String translation = visit(expression, tc);
+        String text = translation.replaceAll(";$", "").trim();
+        // the value is the end of the line only if nothing was cut from it
+        boolean whole = text.length() == translation.length();
+        int bop = expression.bop != null ? expression.bop.getType() : Token.INVALID_TYPE;
+        if (bop == JavaParser.ASSIGN || bop >= JavaParser.ADD_ASSIGN && bop <= JavaParser.URSHIFT_ASSIGN) {
+            tc.out.line(Kind.ASSIGN, text, whole ? tc.value(expression.expression(1)) : null);
+        } else if (isStep(expression.prefix) || isStep(expression.postfix)) {
+            tc.out.line(Kind.ASSIGN, text);
+        } else {
+            tc.out.line(Kind.EXPRESSION, text, whole ? tc.value(expression) : null);
+        }
     }
 
-    @Override
-    public String visitPrimary(JavaParser.PrimaryContext ctx) {
-        if (ctx.expression() != null) return "(" + visit(ctx.expression()) + ")";
-        if (ctx.THIS() != null) return "self";
-        if (ctx.SUPER() != null) return "super()";
-        if (ctx.literal() != null) return visitLiteral(ctx.literal());
-        if (ctx.identifier() != null) return ctx.identifier().getText();
-        if (ctx.typeTypeOrVoid() != null && ctx.CLASS() != null) {
-            return mapJavaTypeToPython(visit(ctx.typeTypeOrVoid())) + ".__class__";
+    public String visitParExpression(JavaParser.ParExpressionContext ctx, TranslationContext tc) {
+        return visit(ctx.expression(), tc);
+    }
+
+    public String visitPrimary(JavaParser.PrimaryContext ctx, TranslationContext tc) {
+        // each alternative shows in the first child, so one look tells them apart
+        ParseTree first = ctx.getChild(0);
+        if (isToken(first, JavaParser.LPAREN) && ctx.getChild(1) instanceof JavaParser.ExpressionContext) {
+            return "(" + visit(ctx.getChild(1), tc) + ")";
+        }
+        if (isToken(first, JavaParser.THIS)) return "self";
+        if (isToken(first, JavaParser.SUPER)) return "super()";
+        if (first instanceof JavaParser.LiteralContext) return visitLiteral((JavaParser.LiteralContext) first, tc);
+        if (first instanceof JavaParser.IdentifierContext) return tc.text(first);
+        if (first instanceof JavaParser.TypeTypeOrVoidContext && ctx.CLASS() != null) {
+            return mapJavaTypeToPython(visit(first, tc)) + ".__class__";
         }
-        return ctx.getText();
+        if (first instanceof JavaParser.NonWildcardTypeArgumentsContext && isToken(ctx.getChild(1), JavaParser.THIS)) {
+            return "self";
+        }
+        return tc.text(ctx);
     }
 
-    @Override
-    public String visitLiteral(JavaParser.LiteralContext ctx) {
-        if (ctx.NULL_LITERAL() != null) return "None";
-        if (ctx.BOOL_LITERAL() != null) return ctx.BOOL_LITERAL().getText().equals("true") ? "True" : "False";
-        if (ctx.integerLiteral() != null) {
-            String text = ctx.getText().toLowerCase();
+    public String visitLiteral(JavaParser.LiteralContext ctx, TranslationContext tc) {
+        ParseTree first = ctx.getChild(0);
+        if (isToken(first, JavaParser.NULL_LITERAL)) return "None";
+        if (isToken(first, JavaParser.BOOL_LITERAL)) return tc.text(first).equals("true") ? "True" : "False";
+        if (first instanceof JavaParser.IntegerLiteralContext) {
+            String text = tc.text(ctx).toLowerCase();
             if (text.endsWith("l")) {
                 text = text.substring(0, text.length() - 1);
             }
             return text;
         }
-        if (ctx.floatLiteral() != null) {
-            String text = ctx.getText().toLowerCase();
+        if (first instanceof JavaParser.FloatLiteralContext) {
+            String text = tc.text(ctx).toLowerCase();
             if (text.endsWith("f") || text.endsWith("d")) {
                 text = text.substring(0, text.length() - 1);
             }
             return text;
         }
-        return ctx.getText();
+        return tc.text(ctx);
     }
 
-    @Override
-    public String visitTypeList(JavaParser.TypeListContext ctx) {
+    public String visitTypeList(JavaParser.TypeListContext ctx, TranslationContext tc) {
         return ctx.typeType().stream()
-                .map(this::visit)
+                .map(child -> visit(child, tc))
                 .collect(Collectors.joining(", "));
     }
 
-    @Override
-    public String visitTypeType(JavaParser.TypeTypeContext ctx) {
-        return ctx.getText();
+    public String visitTypeType(JavaParser.TypeTypeContext ctx, TranslationContext tc) {
+        return tc.text(ctx);
     }
 
-    @Override
-    public String visitFieldDeclaration(JavaParser.FieldDeclarationContext ctx) {
-        StringBuilder result = new StringBuilder();
-        String type = mapJavaTypeToPython(ctx.typeType().getText());
+    public void emitFieldDeclaration(JavaParser.FieldDeclarationContext ctx, TranslationContext tc) {
+        String type = mapJavaTypeToPython(tc.text(ctx.typeType()));
 
         List<JavaParser.VariableDeclaratorContext> declarators = ctx.variableDeclarators().variableDeclarator();
         for (JavaParser.VariableDeclaratorContext varDecl : declarators) {
-            String name = varDecl.variableDeclaratorId().getText();
-            classFields.put(name, type);
-            result.append(indent()).append("self.").append(name).append(" = ");
-
-            if (varDecl.variableInitializer() != null) {
-                result.append(visit(varDecl.variableInitializer()));
-            } else {
-                result.append(getSuitableValue(type));
-            }
-
-            result.append("  # Type: ").append(type).append("\n");
+            String name = tc.text(varDecl.variableDeclaratorId());
+            tc.classFields.put(name, type);
+            JavaParser.VariableInitializerContext initializer = varDecl.variableInitializer();
+            String value = initializer != null ? visit(initializer, tc) : getSuitableValue(type);
+            tc.out.line(Kind.ASSIGN, "self." + name + " = " + value, initializer != null ? tc.value(initializer.expression()) : null,
+                    "  # Type: " + type);
         }
+    }
 
-        return result.toString();
+    /** Registers a field declaration's names and types without emitting anything. */
+    private void collectFieldDeclaration(JavaParser.FieldDeclarationContext ctx, TranslationContext tc) {
+        String type = mapJavaTypeToPython(tc.text(ctx.typeType()));
+        for (JavaParser.VariableDeclaratorContext varDecl : ctx.variableDeclarators().variableDeclarator()) {
+            tc.classFields.put(tc.text(varDecl.variableDeclaratorId()), type);
+        }
     }
 
-    @Override
-    public String visitLocalVariableDeclaration(JavaParser.LocalVariableDeclarationContext ctx) {
+    public String visitLocalVariableDeclaration(JavaParser.LocalVariableDeclarationContext ctx, TranslationContext tc) {
         for (JavaParser.VariableDeclaratorContext varDecl : ctx.variableDeclarators().variableDeclarator()) {
-            localVariables.add(varDecl.variableDeclaratorId().getText());
+            tc.localVariables.add(tc.text(varDecl.variableDeclaratorId()));
         }
-        return visit(ctx.variableDeclarators());
+        return visit(ctx.variableDeclarators(), tc);
     }
 
-    @Override
-    public String visitBlockStatement(JavaParser.BlockStatementContext ctx) {
+    public void emitBlockStatement(JavaParser.BlockStatementContext ctx, TranslationContext tc) {
         if (ctx.localVariableDeclaration() != null) {
-            return visit(ctx.localVariableDeclaration()) + "\n";
+            String translation = visit(ctx.localVariableDeclaration(), tc);
+            String text = translation.trim();
+            // several declarators make one line, which has no one value
+            List<JavaParser.VariableDeclaratorContext> declarators =
+                    ctx.localVariableDeclaration().variableDeclarators().variableDeclarator();
+            JavaParser.VariableInitializerContext initializer = declarators.get(0).variableInitializer();
+            PyExpr value = declarators.size() == 1 && initializer != null && text.length() == translation.length()
+                    ? tc.value(initializer.expression()) : null;
+            tc.out.line(Kind.ASSIGN, text, value);
         } else if (ctx.statement() != null) {
-            return visit(ctx.statement());
+            emitStatement(ctx.statement(), tc);
         }
-        return "";
     }
 
-    @Override
-    public String visitExpression(JavaParser.ExpressionContext ctx) {
+    /**
+     * Translates an expression without recursing into its operands. Frames on an explicit stack translate the
+     * operands first, and each expression then combines their translations. A left-deep chain of binary operators
+     * that translate to {@code left op right}, such as a long concatenation, becomes a single frame. Its
+     * translation is then joined once, instead of every level copying the whole text of the one below. Only the
+     * expressions inside calls, creators and the like are translated by another visit, which works on the same
+     * stack above the frames of the visit that called it.
+     * <p>
+     * The frames and the stack of translations belong to the context and are reused, and operators are told apart
+     * by token type, so visiting an expression allocates no more than its translation.
+     * <p>
+     * When the context builds the Python IR, each expression's IR value is recorded as well, built from the values
+     * of its operands; see {@link #value}. The values are kept until the next statement's expressions are visited.
+     */
+    public String visitExpression(JavaParser.ExpressionContext ctx, TranslationContext tc) {
         if (ctx == null) return "";
+        List<ExpressionFrame> frames = tc.expressionFrames;
+        List<String> translations = tc.expressionTranslations;
+        int bottom = tc.expressionDepth;
+        int firstTranslation = translations.size();
+        if (bottom == 0 && tc.values != null) {
+            tc.values.clear();
+        }
+        try {
+            pushFrame(ctx, tc);
+            while (true) {
+                ExpressionFrame frame = frames.get(tc.expressionDepth - 1);
+                if (frame.next < frame.operands.size()) {
+                    pushFrame(frame.operands.get(frame.next++), tc);
+                    continue;
+                }
+                String translation = frame.separators.isEmpty() ? combineExpression(frame, translations, tc)
+                        : joinChain(frame, translations);
+                if (tc.values != null) {
+                    tc.values.put(frame.ctx, value(frame, translation, tc));
+                }
+                truncate(translations, frame.base);
+                frame.clear();
+                if (--tc.expressionDepth == bottom) {
+                    return translation;
+                }
+                translations.add(translation);
+            }
+        } finally {
+            // a failed visit leaves the stack as its caller had it
+            while (tc.expressionDepth > bottom) {
+                frames.get(--tc.expressionDepth).clear();
+            }
+            truncate(translations, firstTranslation);
+        }
+    }
+
+    private static void pushFrame(JavaParser.ExpressionContext ctx, TranslationContext tc) {
+        List<ExpressionFrame> frames = tc.expressionFrames;
+        if (tc.expressionDepth == frames.size()) {
+            frames.add(new ExpressionFrame());
+        }
+        frames.get(tc.expressionDepth++).reset(ctx, tc.expressionTranslations.size());
+    }
+
+    private static void truncate(List<String> translations, int size) {
+        for (int i = translations.size() - 1; i >= size; i--) {
+            translations.remove(i);
+        }
+    }
+
+    /** An expression on the stack of {@link #visitExpression}, with the operands it needs translated first. */
+    static final class ExpressionFrame {
+        JavaParser.ExpressionContext ctx;
+        /** How many expressions ctx has as children, or 2 for a flattened chain. */
+        int expressions;
+        /** The first child of each kind combineExpression asks about, found in one pass over the children. */
+        JavaParser.PrimaryContext primary;
+        JavaParser.CreatorContext creator;
+        JavaParser.MethodCallContext methodCall;
+        JavaParser.IdentifierContext identifier;
+        boolean hasNew;
+        boolean hasParenthesis;
+        boolean hasBracket;
+        final List<JavaParser.ExpressionContext> operands = new ArrayList<>();
+        /** For a flattened chain, the separator before each operand but the first; empty otherwise. */
+        final List<String> separators = new ArrayList<>();
+        /** Where the translations of the operands start on the stack of translations. */
+        int base;
+        int next;
+
+        void reset(JavaParser.ExpressionContext ctx, int base) {
+            this.ctx = Objects.requireNonNull(ctx, "tree");
+            this.base = base;
+            this.next = 0;
+            String separator = chainSeparator(ctx);
+            if (separator == null) {
+                scanChildren();
+                if (expressions == 2) {
+                    // translated from the source text alone, see combineExpression
+                    operands.clear();
+                } else if (expressions == 0 && primary != null && primary.getChild(1) instanceof JavaParser.ExpressionContext
+                        && isToken(primary.getChild(0), JavaParser.LPAREN)) {
+                    operands.add((JavaParser.ExpressionContext) primary.getChild(1));
+                }
+                return;
+            }
+            // a + b - c + d is ((a + b) - c) + d: walk down the left operands, then put them in source order
+            expressions = 2;
+            JavaParser.ExpressionContext node = ctx;
+            while (separator != null) {
+                operands.add(node.expression(1));
+                separators.add(separator);
+                node = Objects.requireNonNull(node.expression(0), "tree");
+                separator = chainSeparator(node);
+            }
+            operands.add(node);
+            reverse(operands);
+            reverse(separators);
+        }
 
-        if (ctx.ASSIGN() != null) {
-            String left = visit(ctx.expression(0));
-            String right = visit(ctx.expression(1));
-            return left + " = " + right;
-        }
-        if (ctx.ADD_ASSIGN() != null) {
-            String left = visit(ctx.expression(0));
-            String right = visit(ctx.expression(1));
-            return left + " += " + right;
-        }
-
-        if (ctx.expression().size() == 2) {
-            String left = visit(ctx.expression(0));
-            String right = visit(ctx.expression(1));
-            String op = ctx.bop != null ? ctx.bop.getText() : "";
-            switch (op) {
-                case "=":
-                    return left + " = " + right;
-                case "+=":
-                case "-=":
-                case "*=":
-                case "/=":
-                case "%=":
-                case "==":
-                case "!=":
-                case "<":
-                case ">":
-                case "<=":
-                case ">=":
-                case "+":
-                case "-":
-                case "*":
-                case "/":
-                case "%":
-                    return left + " " + op + " " + right;
-                case "||":
-                    return left + " or " + right;
-                case "&&":
-                    return left + " and " + right;
-                default:
-                    return ctx.getText();
+        private void scanChildren() {
+            expressions = 0;
+            for (int i = 0; i < ctx.getChildCount(); i++) {
+                ParseTree child = ctx.getChild(i);
+                if (child instanceof JavaParser.ExpressionContext) {
+                    operands.add((JavaParser.ExpressionContext) child);
+                    expressions++;
+                } else if (child instanceof TerminalNode) {
+                    int type = ((TerminalNode) child).getSymbol().getType();
+                    hasNew |= type == JavaParser.NEW;
+                    hasParenthesis |= type == JavaParser.LPAREN;
+                    hasBracket |= type == JavaParser.LBRACK;
+                } else if (child instanceof JavaParser.PrimaryContext && primary == null) {
+                    primary = (JavaParser.PrimaryContext) child;
+                } else if (child instanceof JavaParser.CreatorContext && creator == null) {
+                    creator = (JavaParser.CreatorContext) child;
+                } else if (child instanceof JavaParser.MethodCallContext && methodCall == null) {
+                    methodCall = (JavaParser.MethodCallContext) child;
+                } else if (child instanceof JavaParser.IdentifierContext && identifier == null) {
+                    identifier = (JavaParser.IdentifierContext) child;
+                }
             }
         }
 
+        void clear() {
+            ctx = null;
+            primary = null;
+            creator = null;
+            methodCall = null;
+            identifier = null;
+            hasNew = false;
+            hasParenthesis = false;
+            hasBracket = false;
+            operands.clear();
+            separators.clear();
+        }
+
+        private static <T> void reverse(List<T> list) {
+            for (int i = 0, j = list.size() - 1; i < j; i++, j--) {
+                list.set(i, list.set(j, list.get(i)));
+            }
+        }
+    }
+
+    /** What goes between the operands of a binary operator translated as {@code left op right}, by token type. */
+    private static final String[] CHAIN_SEPARATORS = new String[JavaParser.VOCABULARY.getMaxTokenType() + 1];
+    /** The IR operator of each separator of a chain that {@link PyExpr.Binary} models. */
+    private static final Map<String, String> ARITHMETIC_OPERATORS = new HashMap<>();
+    /** Longest translation that is given an IR value other than an atom, which also bounds how deep values nest. */
+    private static final int MAX_VALUE_LENGTH = 1000;
+    /** What follows the operand of {@code ++} and {@code --}, by token type. */
+    private static final String[] STEPS = new String[JavaParser.VOCABULARY.getMaxTokenType() + 1];
+
+    static {
+        CHAIN_SEPARATORS[JavaParser.ASSIGN] = " = ";
+        CHAIN_SEPARATORS[JavaParser.ADD_ASSIGN] = " += ";
+        CHAIN_SEPARATORS[JavaParser.SUB_ASSIGN] = " -= ";
+        CHAIN_SEPARATORS[JavaParser.MUL_ASSIGN] = " *= ";
+        CHAIN_SEPARATORS[JavaParser.DIV_ASSIGN] = " /= ";
+        CHAIN_SEPARATORS[JavaParser.MOD_ASSIGN] = " %= ";
+        CHAIN_SEPARATORS[JavaParser.EQUAL] = " == ";
+        CHAIN_SEPARATORS[JavaParser.NOTEQUAL] = " != ";
+        CHAIN_SEPARATORS[JavaParser.LT] = " < ";
+        CHAIN_SEPARATORS[JavaParser.GT] = " > ";
+        CHAIN_SEPARATORS[JavaParser.LE] = " <= ";
+        CHAIN_SEPARATORS[JavaParser.GE] = " >= ";
+        CHAIN_SEPARATORS[JavaParser.ADD] = " + ";
+        CHAIN_SEPARATORS[JavaParser.SUB] = " - ";
+        CHAIN_SEPARATORS[JavaParser.MUL] = " * ";
+        CHAIN_SEPARATORS[JavaParser.DIV] = " / ";
+        CHAIN_SEPARATORS[JavaParser.MOD] = " % ";
+        CHAIN_SEPARATORS[JavaParser.OR] = " or ";
+        CHAIN_SEPARATORS[JavaParser.AND] = " and ";
+        for (String operator : new String[] {"+", "-", "*", "/", "%"}) {
+            ARITHMETIC_OPERATORS.put(" " + operator + " ", operator);
+        }
+        STEPS[JavaParser.INC] = " += 1";
+        STEPS[JavaParser.DEC] = " -= 1";
+    }
+
+    private static boolean isStep(Token operator) {
+        return operator != null && STEPS[operator.getType()] != null;
+    }
+
+    private static boolean isToken(ParseTree node, int type) {
+        return node instanceof TerminalNode && ((TerminalNode) node).getSymbol().getType() == type;
+    }
+
+    /** The separator of a binary expression translated as {@code left op right}, or null. */
+    private static String chainSeparator(JavaParser.ExpressionContext ctx) {
+        return ctx.bop != null ? CHAIN_SEPARATORS[ctx.bop.getType()] : null;
+    }
+
+    private static String joinChain(ExpressionFrame frame, List<String> translations) {
+        int length = 0;
+        for (int i = 0; i < frame.operands.size(); i++) {
+            length += translations.get(frame.base + i).length() + (i > 0 ? frame.separators.get(i - 1).length() : 0);
+        }
+        StringBuilder joined = new StringBuilder(length).append(translations.get(frame.base));
+        for (int i = 1; i < frame.operands.size(); i++) {
+            joined.append(frame.separators.get(i - 1)).append(translations.get(frame.base + i));
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Translates an expression other than a binary chain, given the translations of its operand expressions in
+     * source order (or of the expression inside its parentheses) on top of the stack of translations.
+     */
+    private String combineExpression(ExpressionFrame frame, List<String> translations, TranslationContext tc) {
+        JavaParser.ExpressionContext ctx = frame.ctx;
+        int base = frame.base;
+        int bop = ctx.bop != null ? ctx.bop.getType() : Token.INVALID_TYPE;
+        if (frame.expressions == 2) {
+            // binary operators without a Python counterpart here, and indexing
+            return tc.text(ctx);
+        }
+
         // Handle object creation
-        if (ctx.creator() != null) {
-            return visit(ctx.creator());
+        if (frame.creator != null) {
+            return visit(frame.creator, tc);
         }
 
         // Handle method calls, including System.out.println
-        if (ctx.bop != null && ctx.bop.getText().equals(".") && ctx.methodCall() != null) {
-            String object = visit(ctx.expression(0));
-            String methodCall = visit(ctx.methodCall());
+        if (bop == JavaParser.DOT && frame.methodCall != null) {
+            String object = translations.get(base);
+            String methodCall = visit(frame.methodCall, tc);
             if ("System.out".equals(object)){
                 if(methodCall.startsWith("println")) {
                     return "print" + methodCall.substring(7);
@@ -272,273 +619,422 @@ public class _interpreter_ extends JavaParserBaseVisitor<String>{
         }
 
         // Handle ternary operator
-        if (ctx.bop != null && ctx.bop.getText().equals("?")) {
-            String condition = visit(ctx.expression(0));
-            String trueExpression = visit(ctx.expression(1));
-            String falseExpression = visit(ctx.expression(2));
+        if (bop == JavaParser.QUESTION) {
+            String condition = translations.get(base);
+            String trueExpression = translations.get(base + 1);
+            String falseExpression = translations.get(base + 2);
             return "(" + trueExpression + " if " + condition + " else " + falseExpression + ")";
         }
-        if (ctx.expression().size() == 1) {
-            String expr = visit(ctx.expression(0));
-            if (ctx.postfix != null) {
-                if (ctx.postfix.getText().equals("++")) {
-                    return visit(ctx.expression(0)) + " += 1";
-                } else if (ctx.postfix.getText().equals("--")) {
-                    return visit(ctx.expression(0)) + " -= 1";
-                }
-            } else if (ctx.prefix != null) {
-                if (ctx.prefix.getText().equals("++")) {
-                    return visit(ctx.expression(0)) + " += 1";
-                } else if (ctx.prefix.getText().equals("--")) {
-                    return visit(ctx.expression(0)) + " -= 1";
-                }
+        if (frame.expressions == 1) {
+            String expr = translations.get(base);
+            Token step = ctx.postfix != null ? ctx.postfix : ctx.prefix;
+            if (step != null && STEPS[step.getType()] != null) {
+                return expr + STEPS[step.getType()];
             }
-            if (ctx.bop != null && ctx.bop.getText().equals(".")) {
-                String right = ctx.identifier().getText();
+            if (bop == JavaParser.DOT) {
+                String right = tc.text(frame.identifier);
                 if (right.equals("println")) {
                     return "print";
                 }
                 return expr + "." + right;
             }
-            if (ctx.LBRACK() != null) {
-                return expr + "[" + visit(ctx.expression(1)) + "]";
+            if (frame.hasBracket) {
+                return expr + "[" + visit(ctx.expression(1), tc) + "]";
             }
         }
-        if (ctx.NEW() != null) {
-            return visitCreator(ctx.creator());
+        if (frame.hasNew) {
+            return visitCreator(frame.creator, tc);
         }
 
-        // Handle other expressions
-        if (ctx.expression().size() == 2 && ctx.bop != null) {
-            String left = visit(ctx.expression(0));
-            String right = visit(ctx.expression(1));
-            String operator = ctx.bop.getText();
-            return left + " " + operator + " " + right;
-        }
-
-        else if (ctx.LPAREN() != null && ctx.typeType() != null) {
+        if (frame.hasParenthesis) {
             // This is a cast, which we'll ignore in Python
-            return visit(ctx.expression(0));
+            return translations.get(base);
         }
-        if (ctx.primary() != null && ctx.primary().identifier() != null) {
-            String identifier = ctx.primary().identifier().getText();
-            if (classFields.containsKey(identifier) && !localVariables.contains(identifier)) {
+        JavaParser.PrimaryContext primary = frame.primary;
+        if (primary != null && primary.getChild(0) instanceof JavaParser.IdentifierContext) {
+            String identifier = tc.text(primary.getChild(0));
+            if (tc.classFields.containsKey(identifier) && !tc.localVariables.contains(identifier)) {
                 return "self." + identifier;
             }
-            return visit(ctx.primary());
-        } else if (ctx.primary() != null) {
-            return visitPrimary(ctx.primary());
+            return visit(primary, tc);
+        } else if (primary != null) {
+            // a parenthesized expression arrives translated, anything else is no deeper than the primary
+            return frame.operands.isEmpty() ? visitPrimary(primary, tc) : "(" + translations.get(base) + ")";
+        }
+        return tc.text(ctx);
+    }
+
+    /**
+     * The IR value of a translated expression, built from the values of its operands the way
+     * {@link #combineExpression} or {@link #joinChain} built its translation, so it prints exactly as that.
+     * Arithmetic, integer literals, parentheses, casts and method calls are modelled; anything else, and any value
+     * longer than {@link #MAX_VALUE_LENGTH}, is an atom of its translation.
+     */
+    private static PyExpr value(ExpressionFrame frame, String translation, TranslationContext tc) {
+        if (translation.length() > MAX_VALUE_LENGTH) {
+            return new PyExpr.Atom(translation);
+        }
+        JavaParser.ExpressionContext ctx = frame.ctx;
+        if (!frame.separators.isEmpty()) {
+            PyExpr value = tc.values.get(frame.operands.get(0));
+            for (int i = 1; i < frame.operands.size() && value != null; i++) {
+                String operator = ARITHMETIC_OPERATORS.get(frame.separators.get(i - 1));
+                PyExpr right = tc.values.get(frame.operands.get(i));
+                value = operator != null && right != null ? new PyExpr.Binary(value, operator, right) : null;
+            }
+            return value != null ? value : new PyExpr.Atom(translation);
+        }
+        if (frame.expressions == 2 || frame.creator != null) {
+            return new PyExpr.Atom(translation);
+        }
+        if (ctx.bop != null && ctx.bop.getType() == JavaParser.DOT && frame.methodCall != null) {
+            PyExpr call = call(frame, tc);
+            return call != null ? call : new PyExpr.Atom(translation);
+        }
+        if (frame.expressions == 1 && isToken(ctx.getChild(0), JavaParser.LPAREN)) {
+            // a cast translates as its operand
+            PyExpr operand = tc.values.get(frame.operands.get(0));
+            return operand != null ? operand : new PyExpr.Atom(translation);
+        }
+        if (frame.expressions == 1 && ctx.prefix != null && ctx.prefix.getType() == JavaParser.SUB
+                && translation.startsWith("-")) {
+            PyExpr operand = constant(translation.substring(1));
+            return operand instanceof PyExpr.Constant ? new PyExpr.Negate(operand) : new PyExpr.Atom(translation);
+        }
+        if (frame.expressions == 0 && frame.primary != null) {
+            if (!frame.operands.isEmpty()) {
+                PyExpr inner = tc.values.get(frame.operands.get(0));
+                return inner != null ? new PyExpr.Paren(inner) : new PyExpr.Atom(translation);
+            }
+            return constant(translation);
+        }
+        return new PyExpr.Atom(translation);
+    }
+
+    /** A call as combineExpression translates it, with the values of its arguments; null for print formatting. */
+    private static PyExpr call(ExpressionFrame frame, TranslationContext tc) {
+        JavaParser.MethodCallContext methodCall = frame.methodCall;
+        PyExpr object = tc.values.get(frame.operands.get(0));
+        if (methodCall.identifier() == null || !(object instanceof PyExpr.Atom)) {
+            return null;
+        }
+        String name = tc.text(methodCall.identifier());
+        String callee = ((PyExpr.Atom) object).getText() + "." + name;
+        if (callee.startsWith("System.out.print")) {
+            if (!name.equals("println") && !name.equals("print")) {
+                return null;
+            }
+            callee = "print";
+        }
+        List<PyExpr> arguments = new ArrayList<>();
+        JavaParser.ArgumentsContext args = methodCall.arguments();
+        if (args != null && args.expressionList() != null) {
+            for (JavaParser.ExpressionContext argument : args.expressionList().expression()) {
+                PyExpr value = tc.values.get(argument);
+                if (value == null) {
+                    return null;
+                }
+                arguments.add(value);
+            }
         }
-        return ctx.getText();
+        return new PyExpr.Call(callee, arguments);
     }
 
-    @Override
-    public String visitMethodCall(JavaParser.MethodCallContext ctx) {
+    /** An integer literal as translated: a constant if it is one in decimal that fits in a long, else an atom. */
+    private static PyExpr constant(String translation) {
+        boolean decimal = !translation.isEmpty() && (translation.length() == 1 || translation.charAt(0) != '0');
+        for (int i = 0; i < translation.length() && decimal; i++) {
+            decimal = translation.charAt(i) >= '0' && translation.charAt(i) <= '9';
+        }
+        if (decimal) {
+            try {
+                return new PyExpr.Constant(Long.parseLong(translation));
+            } catch (NumberFormatException tooLarge) {
+                // left as written
+            }
+        }
+        return new PyExpr.Atom(translation);
+    }
+
+    public String visitMethodCall(JavaParser.MethodCallContext ctx, TranslationContext tc) {
         if (ctx == null) return "";
-        String methodName = ctx.identifier().getText();
-        String args = ctx.arguments() != null ? visit(ctx.arguments()) : "";
+        String methodName = tc.text(ctx.identifier());
+        String args = ctx.arguments() != null ? visit(ctx.arguments(), tc) : "";
         return methodName +"("+ args+")";
     }
 
-    @Override
-    public String visitExpressionList(JavaParser.ExpressionListContext ctx) {
-        return ctx.expression().stream()
-                .map(this::visit)
-                .collect(Collectors.joining(", "));
+    public String visitExpressionList(JavaParser.ExpressionListContext ctx, TranslationContext tc) {
+        StringBuilder list = new StringBuilder();
+        String separator = "";
+        for (int i = 0; i < ctx.getChildCount(); i++) {
+            if (ctx.getChild(i) instanceof JavaParser.ExpressionContext) {
+                list.append(separator).append(visit(ctx.getChild(i), tc));
+                separator = ", ";
+            }
+        }
+        return list.toString();
     }
 
-    @Override
-    public String visitCreator(JavaParser.CreatorContext ctx) {
-        String typeName = visit(ctx.createdName());
+    public String visitCreator(JavaParser.CreatorContext ctx, TranslationContext tc) {
+        String typeName = visit(ctx.createdName(), tc);
         if (ctx.classCreatorRest() != null) {
-            String args = visitArguments(ctx.classCreatorRest().arguments());
+            String args = visitArguments(ctx.classCreatorRest().arguments(), tc);
             return typeName + "(" + args + ")";
         } else if (ctx.arrayCreatorRest() != null) {
-            return visitArrayCreatorRest(ctx.arrayCreatorRest());
+            return visitArrayCreatorRest(ctx.arrayCreatorRest(), tc);
         }
         return typeName + "()";
     }
 
-    public String visitArrayCreatorRest(JavaParser.ArrayCreatorRestContext ctx) {
+    public String visitArrayCreatorRest(JavaParser.ArrayCreatorRestContext ctx, TranslationContext tc) {
         if (ctx.arrayInitializer() != null) {
-            return visit(ctx.arrayInitializer());
+            return visit(ctx.arrayInitializer(), tc);
         } else {
             List<String> dimensions = new ArrayList<>();
             for (JavaParser.ExpressionContext expr : ctx.expression()) {
-                dimensions.add(visit(expr));
+                dimensions.add(visit(expr, tc));
             }
             return "[None] * " + String.join(" * ", dimensions);
         }
     }
 
-    @Override
-    public String visitArrayInitializer(JavaParser.ArrayInitializerContext ctx) {
+    public String visitArrayInitializer(JavaParser.ArrayInitializerContext ctx, TranslationContext tc) {
         if (ctx.variableInitializer() == null) {
             return "[]";
         }
         return "[" + ctx.variableInitializer().stream()
-                .map(this::visit)
+                .map(child -> visit(child, tc))
                 .collect(Collectors.joining(", ")) + "]";
     }
 
-    @Override
-    public String visitClassDeclaration(JavaParser.ClassDeclarationContext ctx) {
-        classFields.clear();
-        String className = ctx.identifier().getText();
-        StringBuilder result = new StringBuilder().append("class ").append(className);
+    public void emitClassDeclaration(JavaParser.ClassDeclarationContext ctx, TranslationContext tc) {
+        tc.enterClass();
+        String className = tc.text(ctx.identifier());
+        StringBuilder header = new StringBuilder().append("class ").append(className);
 
         List<String> inheritance = new ArrayList<>();
         if (ctx.EXTENDS() != null) {
-            inheritance.add(ctx.typeType().getText());
+            inheritance.add(tc.text(ctx.typeType()));
         }
         if (ctx.IMPLEMENTS() != null) {
             inheritance.addAll(ctx.typeList().stream().map(ParseTree::getText).collect(Collectors.toList()));
         }
 
         if (!inheritance.isEmpty()) {
-            result.append("(").append(String.join(", ", inheritance)).append(")");
+            header.append("(").append(String.join(", ", inheritance)).append(")");
         }
-        result.append(":\n");
-        List<JavaParser.ConstructorDeclarationContext> constructors = ctx.classBody().classBodyDeclaration().stream()
-                .filter(bodyDecl -> bodyDecl.memberDeclaration() != null && bodyDecl.memberDeclaration().constructorDeclaration() != null)
-                .map(bodyDecl -> bodyDecl.memberDeclaration().constructorDeclaration())
-                .collect(Collectors.toList());
-        boolean hasFields = false;
-        List<String> classFields = new ArrayList<>();
-        // Handle field declarations
-        for (JavaParser.ClassBodyDeclarationContext bodyDecl : ctx.classBody().classBodyDeclaration()) {
-            if (bodyDecl.memberDeclaration() != null && bodyDecl.memberDeclaration().fieldDeclaration() != null) {
-                classFields.add(visitFieldDeclaration(bodyDecl.memberDeclaration().fieldDeclaration()));
-                hasFields = true;
-            }
-        }
-        indentLevel++;
-        if(constructors.isEmpty()){
-            result.append(indent()).append("def __init__(self):\n");
-            indentLevel++;
-            if(!hasFields) result.append(indent()).append("pass\n");
-            else classFields.forEach(i -> result.append(indent()).append(i));
-            indentLevel--;
+        tc.out.line(Kind.CLASS, header.append(":"));
+        tc.out.indent();
+        // slots need the whole class, so classes are never streamed when they are asked for
+        if (tc.options.isSlots()) {
+            List<String> slots = ClassSlots.of(ctx);
+            if (slots != null) {
+                tc.out.line(Kind.ASSIGN, "__slots__ = " + ClassSlots.tuple(slots)).blank();
+            }
+        }
+        ClassMembers streamed = tc.streamedMembers(ctx.classBody());
+        boolean hasMainMethod = emitClassBody(className, streamed != null ? streamed : new TreeMembers(ctx.classBody()), tc);
+        tc.out.dedent();
+
+        if (hasMainMethod) {
+            tc.out.blank().line(Kind.IF, "if __name__ == \"__main__\":");
+            tc.out.indent();
+            tc.out.line(Kind.EXPRESSION, className + ".main([])");
+            tc.out.dedent();
+        }
+        tc.exitClass();
+    }
+
+    /**
+     * Emits the members of a class: __init__ first, then the methods. Returns whether there is a main method.
+     * Each field, method and the __init__ built from the constructors is emitted on its own through
+     * {@link #emitMember}, so one that cannot be translated leaves a stub and the rest of the class intact.
+     * Streamed members are parsed when their turn comes and dropped once emitted.
+     */
+    private boolean emitClassBody(String className, ClassMembers members, TranslationContext tc) {
+        List<Integer> constructorIndexes = new ArrayList<>();
+        List<Integer> fieldIndexes = new ArrayList<>();
+        List<Integer> methodIndexes = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            switch (members.declarationRule(i)) {
+                case JavaParser.RULE_constructorDeclaration: constructorIndexes.add(i); break;
+                case JavaParser.RULE_fieldDeclaration: fieldIndexes.add(i); break;
+                case JavaParser.RULE_methodDeclaration: methodIndexes.add(i); break;
+                default: break;
+            }
+        }
+        if (constructorIndexes.isEmpty()) {
+            tc.out.line(Kind.DEF, "def __init__(self):");
+            tc.out.indent();
+            if (fieldIndexes.isEmpty()) tc.out.line(Kind.PASS, "pass");
+            else fieldIndexes.forEach(i -> emitField(className, members.parse(i).memberDeclaration().fieldDeclaration(), tc));
+            tc.out.dedent();
         } else {
-            result.append(convertConstructors(constructors));
+            fieldIndexes.forEach(i -> collectFieldDeclaration(members.parse(i).memberDeclaration().fieldDeclaration(), tc));
+            List<JavaParser.ConstructorDeclarationContext> constructors = new ArrayList<>();
+            constructorIndexes.forEach(i -> constructors.add(members.parse(i).memberDeclaration().constructorDeclaration()));
+            emitInit(className, constructors, tc);
         }
 
         boolean hasMainMethod = false;
-        // Handle method declarations
-        for (JavaParser.ClassBodyDeclarationContext bodyDecl : ctx.classBody().classBodyDeclaration()) {
-            if (bodyDecl.memberDeclaration() != null && bodyDecl.memberDeclaration().methodDeclaration() != null) {
-                String methodDeclaration = visitMethodDeclaration(bodyDecl.memberDeclaration().methodDeclaration());
-                result.append("\n").append(methodDeclaration);
-                if (methodDeclaration.contains("def main(")) {
-                    hasMainMethod = true;
-                }
+        for (int i : methodIndexes) {
+            JavaParser.MethodDeclarationContext method = members.parse(i).memberDeclaration().methodDeclaration();
+            tc.out.blank();
+            emitMethod(className, method, tc);
+            if (tc.text(method.identifier()).equals("main")) {
+                hasMainMethod = true;
             }
         }
+        return hasMainMethod;
+    }
 
-        indentLevel--;
+    private void emitField(String className, JavaParser.FieldDeclarationContext ctx, TranslationContext tc) {
+        // a stub that raised would break every instance, so the fields are left None instead
+        String name = tc.text(ctx.variableDeclarators().variableDeclarator(0).variableDeclaratorId());
+        emitMember(className, name, ctx, tc, () -> emitFieldDeclaration(ctx, tc), reason -> {
+            for (JavaParser.VariableDeclaratorContext varDecl : ctx.variableDeclarators().variableDeclarator()) {
+                tc.out.line(Kind.ASSIGN, "self." + tc.text(varDecl.variableDeclaratorId()) + " = None  # TODO untranslated: " + reason);
+            }
+        });
+    }
 
-        if (hasMainMethod) {
-            result.append("\n").append("if __name__ == \"__main__\":\n");
-            indentLevel++;
-            result.append(indent()).append(className).append(".main([])\n");
-            indentLevel--;
+    private void emitInit(String className, List<JavaParser.ConstructorDeclarationContext> constructors, TranslationContext tc) {
+        emitMember(className, "__init__", constructors.get(0), tc, () -> emitConstructors(constructors, tc),
+                reason -> emitStub(className, "__init__", false, reason, tc));
+    }
+
+    private void emitMethod(String className, JavaParser.MethodDeclarationContext ctx, TranslationContext tc) {
+        String name = tc.text(ctx.identifier());
+        emitMember(className, name, ctx, tc, () -> emitMethodDeclaration(ctx, tc),
+                reason -> emitStub(className, name, name.equals("main"), reason, tc));
+    }
+
+    /**
+     * Emits one member of class {@code className} through {@code emit}, isolated from the rest of the class: when
+     * that throws, whatever it emitted is dropped, {@code stub} emits a replacement given the reason, and the member
+     * is added to {@link TranslationContext#getUntranslatedMembers()}.
+     */
+    private void emitMember(String className, String member, ParserRuleContext ctx, TranslationContext tc,
+                            Runnable emit, Consumer<String> stub) {
+        PythonEmitter buffer = tc.takeMemberBuffer();
+        PythonEmitter out = tc.out;
+        tc.out = buffer;
+        String reason = null;
+        try {
+            tc.runScoped(emit);
+        } catch (RuntimeException e) {
+            reason = UntranslatableException.of(ctx, e).getMessage();
+        } catch (StackOverflowError e) {
+            reason = "nested too deeply to translate";
+        } finally {
+            tc.out = out;
         }
-        return result.toString();
+        if (reason == null) {
+            tc.out.append(buffer);
+            tc.returnMemberBuffer(buffer);
+            return;
+        }
+        tc.returnMemberBuffer(buffer);
+        tc.untranslated(new UntranslatedMember(className, member, ctx.getStart().getLine(), reason));
+        stub.accept(reason);
     }
 
-    @Override
-    public String visitMethodDeclaration(JavaParser.MethodDeclarationContext ctx) {
-        String name = ctx.identifier().getText();
-        localVariables.clear();
-        StringBuilder output = new StringBuilder(indent());
+    /** Method {@code name} marked as untranslated that raises NotImplementedError, taking any arguments. */
+    private void emitStub(String className, String name, boolean isStatic, String reason, TranslationContext tc) {
+        if (isStatic) {
+            tc.out.line(Kind.DECORATOR, "@staticmethod");
+        }
+        tc.out.line(Kind.DEF, "def " + name + (isStatic ? "(*args, **kwargs):" : "(self, *args, **kwargs):"));
+        tc.out.indent();
+        tc.out.line(Kind.COMMENT, "# TODO untranslated: " + reason);
+        String message = className + "." + name + ": " + reason;
+        tc.out.line(Kind.RAISE, "raise NotImplementedError(\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\")");
+        tc.out.dedent();
+    }
+
+    public void emitMethodDeclaration(JavaParser.MethodDeclarationContext ctx, TranslationContext tc) {
+        String name = tc.text(ctx.identifier());
+        tc.enterMethod();
         if (name.equals("main")) {
-            output.append("@staticmethod\n").append(indent());
+            tc.out.line(Kind.DECORATOR, "@staticmethod");
         }
-        output.append("def ").append(name).append("(");
+        StringBuilder signature = new StringBuilder("def ").append(name).append("(");
         if (!name.equals("main")) {
-            output.append("self");
+            signature.append("self");
             if (ctx.formalParameters().formalParameterList() != null) {
-                output.append(", ");
+                signature.append(", ");
             }
         }
         if (ctx.formalParameters().formalParameterList() != null) {
-            output.append(visit(ctx.formalParameters().formalParameterList()));
+            signature.append(visit(ctx.formalParameters().formalParameterList(), tc));
         }
-        output.append("):\n");
-        indentLevel++;
-        String body = visit(ctx.methodBody());
-        if (body.trim().isEmpty()) {
-            output.append(indent()).append("pass\n");
+        tc.out.line(Kind.DEF, signature.append("):"));
+        tc.out.indent();
+        if (ctx.methodBody().block() != null) {
+            emitBodyOrPass(ctx.methodBody().block(), tc);
         } else {
-            output.append(body);
+            tc.out.line(Kind.PASS, "pass");
         }
-        indentLevel--;
-        return output.toString();
+        tc.out.dedent();
+        tc.exitMethod();
     }
 
-    @Override
-    public String visitBlock(JavaParser.BlockContext ctx) {
-        StringBuilder result = new StringBuilder();
+    public void emitBlock(JavaParser.BlockContext ctx, TranslationContext tc) {
         for (JavaParser.BlockStatementContext stmtCtx : ctx.blockStatement()) {
-            String stmt = visit(stmtCtx);
-            if (!stmt.isEmpty()) {
-                result.append(indent()).append(stmt.trim()).append("\n");
-            }
+            emitBlockStatement(stmtCtx, tc);
         }
-        return result.toString();
     }
 
-    @Override
-    public String visitInterfaceDeclaration(JavaParser.InterfaceDeclarationContext ctx) {
-        String interfaceName = ctx.identifier().getText();
-        StringBuilder result = new StringBuilder("class " + interfaceName + ":\n");
-        indentLevel++;
+    public void emitInterfaceDeclaration(JavaParser.InterfaceDeclarationContext ctx, TranslationContext tc) {
+        String interfaceName = tc.text(ctx.identifier());
+        tc.out.line(Kind.CLASS, "class " + interfaceName + ":");
+        tc.out.indent();
 
         boolean hasMembers = false;
+        if (tc.options.isSlots()) {
+            // keeps implementing classes with slots free of a __dict__
+            tc.out.line(Kind.ASSIGN, "__slots__ = ()");
+            hasMembers = true;
+        }
         for (JavaParser.InterfaceBodyDeclarationContext bodyDecl : ctx.interfaceBody().interfaceBodyDeclaration()) {
             if (bodyDecl.interfaceMemberDeclaration() != null && bodyDecl.interfaceMemberDeclaration().interfaceMethodDeclaration() != null) {
-                result.append(visitInterfaceMethodDeclaration(bodyDecl.interfaceMemberDeclaration().interfaceMethodDeclaration()));
+                emitInterfaceMethodDeclaration(bodyDecl.interfaceMemberDeclaration().interfaceMethodDeclaration(), tc);
                 hasMembers = true;
             }
         }
 
         if (!hasMembers) {
-            result.append(indent()).append("pass\n");
+            tc.out.line(Kind.PASS, "pass");
         }
 
-        indentLevel--;
-        return result.toString();
+        tc.out.dedent();
     }
 
-    @Override
-    public String visitInterfaceMethodDeclaration(JavaParser.InterfaceMethodDeclarationContext ctx) {
+    public void emitInterfaceMethodDeclaration(JavaParser.InterfaceMethodDeclarationContext ctx, TranslationContext tc) {
         String methodName = ctx.interfaceMethodModifier().isEmpty() ?
-                ctx.interfaceCommonBodyDeclaration().identifier().getText() :
-                ctx.interfaceMethodModifier(0).getText();
+                tc.text(ctx.interfaceCommonBodyDeclaration().identifier()) :
+                tc.text(ctx.interfaceMethodModifier(0));
 
-        StringBuilder result = new StringBuilder(indent()).append("def ").append(methodName).append("(self");
+        StringBuilder signature = new StringBuilder("def ").append(methodName).append("(self");
 
         // Handle parameters
         if (ctx.interfaceCommonBodyDeclaration().formalParameters().formalParameterList() != null) {
-            result.append(", ").append(visit(ctx.interfaceCommonBodyDeclaration().formalParameters().formalParameterList()));
+            signature.append(", ").append(visit(ctx.interfaceCommonBodyDeclaration().formalParameters().formalParameterList(), tc));
         }
 
-        result.append("):\n");
-        indentLevel++;
-        result.append(indent()).append("pass\n");
-        indentLevel--;
-        return result.toString();
+        tc.out.line(Kind.DEF, signature.append("):"));
+        tc.out.indent();
+        tc.out.line(Kind.PASS, "pass");
+        tc.out.dedent();
     }
 
-    @Override
-    public String visitCreatedName(JavaParser.CreatedNameContext ctx) {
-        return ctx.identifier(0).getText();
+    public String visitCreatedName(JavaParser.CreatedNameContext ctx, TranslationContext tc) {
+        return tc.text(ctx.identifier(0));
     }
 
-    @Override
-    public String visitArguments(JavaParser.ArgumentsContext ctx) {
+    public String visitArguments(JavaParser.ArgumentsContext ctx, TranslationContext tc) {
         if (ctx.expressionList() != null) {
-            return visit(ctx.expressionList());
+            return visit(ctx.expressionList(), tc);
         }
         return "";
     }
@@ -547,15 +1043,7 @@ public class _interpreter_ extends JavaParserBaseVisitor<String>{
 //    STATIC METHODS
 //    ================================================
 
-    private String indent() {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < indentLevel; i++) {
-            sb.append("    ");
-        }
-        return sb.toString();
-    }
-
-    private String mapJavaTypeToPython(String javaType) {
+    private static String mapJavaTypeToPython(String javaType) {
         if(javaType == null) return "None";
         switch (javaType) {
             case "int": case "long": case "short": case "byte": return "int";
@@ -567,7 +1055,7 @@ public class _interpreter_ extends JavaParserBaseVisitor<String>{
         }
     }
 
-    private String getSuitableValue(String type) {
+    private static String getSuitableValue(String type) {
         if(type == null) return "None";
         switch (type){
             case "int":
@@ -581,204 +1069,205 @@ public class _interpreter_ extends JavaParserBaseVisitor<String>{
         }
     }
 
-    private String visitStatementBody(JavaParser.StatementContext ctx) {
-        return ctx.block() != null ? visitBlock(ctx.block()) : indent() + visit(ctx).trim() + "\n";
+    /** Emits a statement or block as an indented body, falling back to {@code pass} when it produces nothing. */
+    private void emitBodyOrPass(ParserRuleContext body, TranslationContext tc) {
+        long start = tc.out.position();
+        emit(body, tc);
+        if (tc.out.position() == start) {
+            tc.out.line(Kind.PASS, "pass");
+        }
     }
 
-    private String visitTryStatement(JavaParser.StatementContext ctx) {
-        StringBuilder result = new StringBuilder();
-        result.append(indent()).append("try:\n");
-        indentLevel++;
-        result.append(visit(ctx.block()));
-        indentLevel--;
+    private void emitTryStatement(JavaParser.StatementContext ctx, TranslationContext tc) {
+        tc.out.line(Kind.TRY, "try:");
+        tc.out.indent();
+        emitBodyOrPass(ctx.block(), tc);
+        tc.out.dedent();
 
         for (JavaParser.CatchClauseContext catchClause : ctx.catchClause()) {
-            result.append(indent()).append("except ");
-            if (catchClause.catchType() != null && !catchClause.catchType().getText().equals("Exception")) {
+            StringBuilder clause = new StringBuilder("except ");
+            if (catchClause.catchType() != null && !tc.text(catchClause.catchType()).equals("Exception")) {
                 //TODO: unmapped exception types
-//                result.append(visit(catchClause.catchType()));
-                result.append("Exception");
+//                clause.append(visit(catchClause.catchType(), tc));
+                clause.append("Exception");
             } else {
-                result.append("Exception");
+                clause.append("Exception");
             }
-            result.append(" as ").append(catchClause.identifier().getText()).append(":\n");
-            indentLevel++;
-            String catchBlock = visit(catchClause.block());
-            if (catchBlock.trim().isEmpty()) {
-                result.append(indent()).append("pass\n");
-            } else {
-                result.append(catchBlock);
-            }
-            indentLevel--;
+            tc.out.line(Kind.EXCEPT, clause.append(" as ").append(tc.text(catchClause.identifier())).append(":"));
+            tc.out.indent();
+            emitBodyOrPass(catchClause.block(), tc);
+            tc.out.dedent();
         }
 
         if (ctx.finallyBlock() != null) {
-            result.append(indent()).append("finally:\n");
-            indentLevel++;
-            result.append(visit(ctx.finallyBlock().block()));
-            indentLevel--;
+            tc.out.line(Kind.FINALLY, "finally:");
+            tc.out.indent();
+            emitBodyOrPass(ctx.finallyBlock().block(), tc);
+            tc.out.dedent();
         }
-
-        return result.toString();
     }
 
-    private String visitThrowStatement(JavaParser.StatementContext ctx) {
-        return indent() + "raise " + visit(ctx.expression(0)) + "\n";
-    }
-
-    private String visitIfStatement(JavaParser.StatementContext ctx) {
-        StringBuilder result = new StringBuilder();
-        result.append(indent()).append("if ").append(visit(ctx.parExpression())).append(":\n");
-        indentLevel++;
-        String stmt = visitStatementBody(ctx.statement(0));
-        result.append(stmt != null && !stmt.isEmpty() ? stmt : indent()+"pass");
-        indentLevel--;
+    private void emitIfStatement(JavaParser.StatementContext ctx, TranslationContext tc) {
+        tc.out.line(Kind.IF, "if " + visit(ctx.parExpression(), tc) + ":");
+        tc.out.indent();
+        emitBodyOrPass(ctx.statement(0), tc);
+        tc.out.dedent();
 
         JavaParser.StatementContext elseStatement = ctx.statement(1);
         while (elseStatement != null && elseStatement.IF() != null) {
-            result.append(indent()).append("elif ").append(visit(elseStatement.parExpression())).append(":\n");
-            indentLevel++;
-            stmt = visitStatementBody(elseStatement.statement(0));
-            result.append(stmt != null && !stmt.isEmpty() ? stmt : indent()+"pass");
-            indentLevel--;
+            tc.out.line(Kind.ELIF, "elif " + visit(elseStatement.parExpression(), tc) + ":");
+            tc.out.indent();
+            emitBodyOrPass(elseStatement.statement(0), tc);
+            tc.out.dedent();
             elseStatement = elseStatement.statement(1);
         }
 
         if (elseStatement != null) {
-            result.append(indent()).append("else:\n");
-            indentLevel++;
-            stmt = visitStatementBody(elseStatement);
-            result.append(stmt != null && !stmt.isEmpty() ? stmt : indent()+"pass");
-            indentLevel--;
+            tc.out.line(Kind.ELSE, "else:");
+            tc.out.indent();
+            emitBodyOrPass(elseStatement, tc);
+            tc.out.dedent();
         }
-
-        return result.toString();
     }
 
-    private String visitSwitchStatement(JavaParser.StatementContext ctx) {
-        StringBuilder result = new StringBuilder();
-        String switchExpression = visit(ctx.parExpression());
-        result.append(indent()).append("match ").append(switchExpression).append(":\n");
-        indentLevel++;
+    private void emitSwitchStatement(JavaParser.StatementContext ctx, TranslationContext tc) {
+        String switchExpression = visit(ctx.parExpression(), tc);
+        tc.out.line(Kind.MATCH, "match " + switchExpression + ":");
+        tc.out.indent();
 
-        JavaParser.SwitchBlockStatementGroupContext[] caseGroups = ctx.switchBlockStatementGroup().toArray(new JavaParser.SwitchBlockStatementGroupContext[0]);
         boolean hasDefault = false;
 
-        for (JavaParser.SwitchBlockStatementGroupContext caseGroup : caseGroups) {
+        for (JavaParser.SwitchBlockStatementGroupContext caseGroup : ctx.switchBlockStatementGroup()) {
             for (JavaParser.SwitchLabelContext label : caseGroup.switchLabel()) {
                 if (label.CASE() != null) {
-                    result.append(indent()).append("case ").append(visit(label.constantExpression)).append(":\n");
+                    tc.out.line(Kind.CASE, "case " + visit(label.constantExpression, tc) + ":");
                 } else if (label.DEFAULT() != null) {
-                    result.append(indent()).append("case _:\n");
+                    tc.out.line(Kind.CASE, "case _:");
                     hasDefault = true;
                 }
             }
-            indentLevel++;
+            tc.out.indent();
             for (JavaParser.BlockStatementContext blockStatement : caseGroup.blockStatement()) {
-                String stmt = visit(blockStatement);
-                if (!stmt.trim().equals("break")) {  // Skip 'break' statements
-                    result.append(indent()).append(stmt.isEmpty() ? "pass" : stmt.trim()).append("\n");
+                if (blockStatement.statement() != null && blockStatement.statement().BREAK() != null) {
+                    continue;  // Skip 'break' statements
                 }
+                emitBodyOrPass(blockStatement, tc);
             }
-            indentLevel--;
+            tc.out.dedent();
         }
 
         if (!hasDefault) {
-            result.append(indent()).append("case _:\n");
-            indentLevel++;
-            result.append(indent()).append("pass\n");
-            indentLevel--;
+            tc.out.line(Kind.CASE, "case _:");
+            tc.out.indent();
+            tc.out.line(Kind.PASS, "pass");
+            tc.out.dedent();
         }
 
-        indentLevel--;
-        return result.toString();
+        tc.out.dedent();
     }
 
-    private String visitForStatement(JavaParser.StatementContext ctx) {
+    private void emitForStatement(JavaParser.StatementContext ctx, TranslationContext tc) {
         JavaParser.ForControlContext forCtx = ctx.forControl();
         if (forCtx.enhancedForControl() != null) {
-            String var = forCtx.enhancedForControl().variableDeclaratorId().getText();
-            String iterable = visit(forCtx.enhancedForControl().expression());
-            StringBuilder result = new StringBuilder();
-            result.append(indent()).append("for ").append(var).append(" in ").append(iterable).append(":\n");
-            indentLevel++;
-            result.append(visit(ctx.statement(0)));
-            indentLevel--;
-            return result.toString();
+            String var = tc.text(forCtx.enhancedForControl().variableDeclaratorId());
+            String iterable = visit(forCtx.enhancedForControl().expression(), tc);
+            tc.out.line(Kind.FOR, "for " + var + " in " + iterable + ":");
+            tc.out.indent();
+            emitBodyOrPass(ctx.statement(0), tc);
+            tc.out.dedent();
         } else {
-            // Basic for loop - convert to while loop
-            String init = forCtx.forInit() != null ? visit(forCtx.forInit()) : "";
-            String condition = forCtx.expression() != null ? visit(forCtx.expression()) : "True";
-            String update = forCtx.forUpdate != null ? visit(forCtx.forUpdate) : "";
-
-            StringBuilder result = new StringBuilder(init + "\n");
-            result.append(indent()).append("while ").append(condition).append(":\n");
-            indentLevel++;
-            result.append(visit(ctx.statement(0)));
-            result.append(indent()).append(update).append("\n");
-            indentLevel--;
-            return result.toString();
-        }
-    }
-
-    private String visitWhileStatement(JavaParser.StatementContext ctx) {
-        StringBuilder result = new StringBuilder();
-        String condition = visit(ctx.parExpression());
-        result.append(indent()).append("while ").append(condition).append(":\n");
-        indentLevel++;
-
-        JavaParser.StatementContext bodyCtx = ctx.statement(0);
-        if (bodyCtx.block() != null) {
-            String blockContent = visit(bodyCtx.block());
-            if (blockContent.trim().isEmpty()) {
-                result.append(indent()).append("pass\n");
-            } else {
-                result.append(blockContent);
-            }
+            tc.enterLoop();
+            emitBasicForStatement(ctx, forCtx, tc);
+            tc.exitLoop();
+        }
+    }
+
+    private void emitBasicForStatement(JavaParser.StatementContext ctx, JavaParser.ForControlContext forCtx, TranslationContext tc) {
+        CountingLoop countingLoop = CountingLoop.match(forCtx, ctx.statement(0), tc);
+        if (countingLoop != null) {
+            emitRangeLoop(countingLoop, ctx.statement(0), tc);
+            return;
+        }
+        // Any other basic for loop - convert to while loop
+        String init = forCtx.forInit() != null ? visit(forCtx.forInit(), tc) : "";
+        String condition = forCtx.expression() != null ? visit(forCtx.expression(), tc) : "True";
+        String update = forCtx.forUpdate != null ? visit(forCtx.forUpdate, tc) : "";
+
+        if (!init.isEmpty()) {
+            tc.out.line(Kind.ASSIGN, init);
+        }
+        tc.out.line(Kind.WHILE, "while " + condition + ":");
+        tc.out.indent();
+        long start = tc.out.position();
+        emit(ctx.statement(0), tc);
+        if (!update.isEmpty()) {
+            tc.out.line(Kind.ASSIGN, update);
+        } else if (tc.out.position() == start) {
+            tc.out.line(Kind.PASS, "pass");
+        }
+        tc.out.dedent();
+    }
+
+    /** Emits a counting loop as {@code for i in range(start, stop, step)}, leaving out default arguments. */
+    private void emitRangeLoop(CountingLoop loop, JavaParser.StatementContext body, TranslationContext tc) {
+        tc.localVariables.add(loop.variable);
+        String start = visit(loop.start, tc);
+        String stop = visit(loop.bound, tc);
+        if (loop.inclusive) {
+            long literal = CountingLoop.decimalLiteral(loop.bound);
+            String adjust = loop.ascending ? " + 1" : " - 1";
+            stop = literal >= 0 ? String.valueOf(loop.ascending ? literal + 1 : literal - 1) : stop + adjust;
+        }
+        String range;
+        if (loop.ascending && loop.step == 1) {
+            range = start.equals("0") ? stop : start + ", " + stop;
         } else {
-            String stmt = visit(bodyCtx);
-            if (stmt.trim().isEmpty()) {
-                result.append(indent()).append("pass\n");
-            } else {
-                result.append(stmt);
-            }
+            range = start + ", " + stop + ", " + (loop.ascending ? "" : "-") + loop.step;
         }
+        tc.out.line(Kind.FOR, "for " + loop.variable + " in range(" + range + "):");
+        tc.out.indent();
+        emitBodyOrPass(body, tc);
+        tc.out.dedent();
+    }
 
-        indentLevel--;
-        return result.toString();
+    private void emitWhileStatement(JavaParser.StatementContext ctx, TranslationContext tc) {
+        String condition = visit(ctx.parExpression(), tc);
+        tc.out.line(Kind.WHILE, "while " + condition + ":");
+        tc.out.indent();
+        emitBodyOrPass(ctx.statement(0), tc);
+        tc.out.dedent();
     }
 
-    private String visitDoWhileStatement(JavaParser.StatementContext ctx) {
-        StringBuilder result = new StringBuilder("while True:\n");
-        indentLevel++;
-        result.append(visit(ctx.statement(0)));
-        result.append(indent()).append("if not (").append(visit(ctx.parExpression())).append("):\n");
-        indentLevel++;
-        result.append(indent()).append("break\n");
-        indentLevel -= 2;
-        return result.toString();
+    private void emitDoWhileStatement(JavaParser.StatementContext ctx, TranslationContext tc) {
+        tc.out.line(Kind.WHILE, "while True:");
+        tc.out.indent();
+        emit(ctx.statement(0), tc);
+        tc.out.line(Kind.IF, "if not (" + visit(ctx.parExpression(), tc) + "):");
+        tc.out.indent();
+        tc.out.line(Kind.BREAK, "break");
+        tc.out.dedent();
+        tc.out.dedent();
     }
 
-    private String convertConstructors(List<JavaParser.ConstructorDeclarationContext> constructors) {
-        StringBuilder result = new StringBuilder();
-        result.append(indent()).append("def __init__(self");
+    private void emitConstructors(List<JavaParser.ConstructorDeclarationContext> constructors, TranslationContext tc) {
+        StringBuilder signature = new StringBuilder("def __init__(self");
         StringBuilder params = new StringBuilder();
-        for(Map.Entry<String,String> field: classFields.entrySet()){
+        for(Map.Entry<String,String> field: tc.classFields.entrySet()){
             params.append(field.getKey()).append(" = ").append(getSuitableValue(field.getValue()));
             params.append(", ");
         }
-        if(params.length()>0) result.append(", ").append(params, 0, params.length()-2);
-        result.append("):\n");
-        indentLevel++;
+        if(params.length()>0) signature.append(", ").append(params, 0, params.length()-2);
+        tc.out.line(Kind.DEF, signature.append("):"));
+        tc.out.indent();
         for (JavaParser.ConstructorDeclarationContext ctor : constructors) {
-            Map<String,String> ctorParams = getConstructorParams(ctor);
+            Map<String,String> ctorParams = getConstructorParams(ctor, tc);
             if (ctorParams.isEmpty()) {
                 if(params.length() > 0) {
-                    result.append(indent()).append("if all(param is None for param in [").append(params, 0, params.length() - 2).append("]):\n");
-                    indentLevel++;
-                    result.append(indent()).append("self.__init__(None, None)\n");
-                    indentLevel--;
-                }else result.append(visitBlock(ctor.block()));
+                    tc.out.line(Kind.IF, "if all(param is None for param in [" + params.substring(0, params.length() - 2) + "]):");
+                    tc.out.indent();
+                    tc.out.line(Kind.EXPRESSION, "self.__init__(None, None)");
+                    tc.out.dedent();
+                }else emitBlock(ctor.block(), tc);
             } else {
                 if(params.length() == 0){
                     List<String> appendCondition = new ArrayList<>();
@@ -786,31 +1275,30 @@ public class _interpreter_ extends JavaParserBaseVisitor<String>{
                         appendCondition.add("isInstance("+param.getKey()+","+param.getValue()+")");
                     }
                     String combinedResult = String.join(" and ", appendCondition);
-                    result.append(indent()).append("if ").append(combinedResult).append(":\n");
-                    indentLevel++;
-                    result.append(visitBlock(ctor.block()));
+                    tc.out.line(Kind.IF, "if " + combinedResult + ":");
+                    tc.out.indent();
+                    emitBlock(ctor.block(), tc);
                 }
                 else {
                     String condition = ctorParams.keySet().stream().map(param -> param + " is not None").collect(Collectors.joining(" and "));
-                    result.append(indent()).append("elif ").append(condition).append(":\n");
-                    indentLevel++;
+                    tc.out.line(Kind.ELIF, "elif " + condition + ":");
+                    tc.out.indent();
                     for (String param : ctorParams.keySet()) {
-                        result.append(indent()).append("self.").append(param).append(" = ").append(param).append("\n");
+                        tc.out.line(Kind.ASSIGN, "self." + param + " = " + param);
                     }
                 }
-                indentLevel--;
+                tc.out.dedent();
             }
         }
-        indentLevel--;
-        return result.toString();
+        tc.out.dedent();
     }
 
-    private Map<String,String> getConstructorParams(JavaParser.ConstructorDeclarationContext ctor) {
+    private Map<String,String> getConstructorParams(JavaParser.ConstructorDeclarationContext ctor, TranslationContext tc) {
         Map<String,String> params = new HashMap<>();
         if (ctor.formalParameters() != null && ctor.formalParameters().formalParameterList() != null) {
             for (JavaParser.FormalParameterContext param : ctor.formalParameters().formalParameterList().formalParameter()) {
-                String paramName = param.variableDeclaratorId().getText();
-                String type = mapJavaTypeToPython(param.typeType().getText());
+                String paramName = tc.text(param.variableDeclaratorId());
+                String type = mapJavaTypeToPython(tc.text(param.typeType()));
                 params.put(paramName,type);
             }
         }
@@ -0,0 +1,121 @@
+package org.arjun.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates integer arithmetic on constants in returned, assigned and expression-statement values, e.g. a
+ * {@code 60 * 60 * 24} written out for readability in Java. It folds with Python's semantics ({@code %} and
+ * {@code //} round towards negative infinity), never folds {@code /}, which makes a float, and leaves alone anything
+ * that would not fit in a long; Python ints do not overflow, so neither may the folded value.
+ */
+public final class ConstantFolding implements PythonPass {
+    public static final String NAME = "fold";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int run(PyModule module) {
+        int[] folded = new int[1];
+        for (List<PyStatement> body : module.getBodies()) {
+            for (PyStatement statement : body) {
+                PyStatement.Kind kind = statement.getKind();
+                if (kind != PyStatement.Kind.RETURN && kind != PyStatement.Kind.ASSIGN
+                        && kind != PyStatement.Kind.EXPRESSION) {
+                    continue;
+                }
+                PyLine line = (PyLine) statement;
+                PyExpr value = line.getValue();
+                if (value == null) {
+                    continue;
+                }
+                PyExpr result = fold(value, folded);
+                if (result != value) {
+                    line.setValue(result);
+                }
+            }
+        }
+        return folded[0];
+    }
+
+    /** {@code expr} with its constant subexpressions folded; {@code expr} itself when there are none. */
+    static PyExpr fold(PyExpr expr, int[] folded) {
+        if (expr instanceof PyExpr.Binary) {
+            PyExpr.Binary binary = (PyExpr.Binary) expr;
+            PyExpr left = fold(binary.getLeft(), folded);
+            PyExpr right = fold(binary.getRight(), folded);
+            Long value = evaluate(constant(left), binary.getOperator(), constant(right));
+            if (value != null) {
+                folded[0]++;
+                return new PyExpr.Constant(value);
+            }
+            return left == binary.getLeft() && right == binary.getRight() ? expr
+                    : new PyExpr.Binary(left, binary.getOperator(), right);
+        }
+        if (expr instanceof PyExpr.Paren) {
+            PyExpr inner = fold(((PyExpr.Paren) expr).getInner(), folded);
+            // a negative one keeps its parentheses, e.g. as the left operand of *
+            if (inner instanceof PyExpr.Constant && ((PyExpr.Constant) inner).getValue() >= 0) {
+                folded[0]++;
+                return inner;
+            }
+            return inner == ((PyExpr.Paren) expr).getInner() ? expr : new PyExpr.Paren(inner);
+        }
+        if (expr instanceof PyExpr.Negate) {
+            PyExpr operand = fold(((PyExpr.Negate) expr).getOperand(), folded);
+            Long value = constant(operand);
+            if (value != null && value != Long.MIN_VALUE) {
+                folded[0]++;
+                return new PyExpr.Constant(-value);
+            }
+            return operand == ((PyExpr.Negate) expr).getOperand() ? expr : new PyExpr.Negate(operand);
+        }
+        if (expr instanceof PyExpr.Call) {
+            PyExpr.Call call = (PyExpr.Call) expr;
+            List<PyExpr> arguments = new ArrayList<>(call.getArguments().size());
+            boolean changed = false;
+            for (PyExpr argument : call.getArguments()) {
+                PyExpr result = fold(argument, folded);
+                changed |= result != argument;
+                arguments.add(result);
+            }
+            return changed ? new PyExpr.Call(call.getCallee(), arguments) : expr;
+        }
+        return expr;
+    }
+
+    /** The value of a constant, parenthesized or not; null for anything else. */
+    private static Long constant(PyExpr expr) {
+        while (expr instanceof PyExpr.Paren) {
+            expr = ((PyExpr.Paren) expr).getInner();
+        }
+        return expr instanceof PyExpr.Constant ? ((PyExpr.Constant) expr).getValue() : null;
+    }
+
+    private static Long evaluate(Long left, String operator, Long right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        try {
+            switch (operator) {
+                case "+":
+                    return Math.addExact(left, right);
+                case "-":
+                    return Math.subtractExact(left, right);
+                case "*":
+                    return Math.multiplyExact(left, right);
+                case "%":
+                    return right == 0 ? null : Math.floorMod(left, right);
+                case "//":
+                    return right == 0 || left == Long.MIN_VALUE && right == -1 ? null : Math.floorDiv(left, right);
+                default:
+                    return null;
+            }
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+}
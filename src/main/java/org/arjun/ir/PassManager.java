@@ -0,0 +1,104 @@
+package org.arjun.ir;
+
+import org.arjun.stats.TranslationEvents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs {@link PythonPass}es over a module in the order they were given, timing each. Every run is also recorded as a
+ * {@link TranslationEvents.Pass} event. A PassManager holds no per-module state and may be shared by any number of
+ * threads.
+ */
+public final class PassManager {
+    private static final Map<String, PythonPass> BUILT_IN = new LinkedHashMap<>();
+
+    static {
+        for (PythonPass pass : Arrays.asList(new ConstantFolding(), new UnreachableCode())) {
+            BUILT_IN.put(pass.name(), pass);
+        }
+    }
+
+    private final List<PythonPass> passes;
+
+    public PassManager(List<? extends PythonPass> passes) {
+        this.passes = Collections.unmodifiableList(new ArrayList<>(passes));
+    }
+
+    /** The built-in passes named in {@code names}, in that order. */
+    public static PassManager named(List<String> names) {
+        List<PythonPass> passes = new ArrayList<>();
+        for (String name : names) {
+            PythonPass pass = BUILT_IN.get(name);
+            if (pass == null) {
+                throw new IllegalArgumentException("Unknown pass '" + name + "'; the passes are " + String.join(", ", builtInNames()));
+            }
+            if (passes.contains(pass)) {
+                throw new IllegalArgumentException("Pass '" + name + "' is given twice");
+            }
+            passes.add(pass);
+        }
+        return new PassManager(passes);
+    }
+
+    /** Names of the built-in passes. */
+    public static List<String> builtInNames() {
+        return new ArrayList<>(BUILT_IN.keySet());
+    }
+
+    public List<PythonPass> getPasses() {
+        return passes;
+    }
+
+    public boolean isEmpty() {
+        return passes.isEmpty();
+    }
+
+    /** Runs every pass over {@code module}, translated from {@code path}, and returns what each did. */
+    public List<PassRun> run(PyModule module, String path) {
+        List<PassRun> runs = new ArrayList<>(passes.size());
+        for (PythonPass pass : passes) {
+            TranslationEvents.Pass event = TranslationEvents.beginPass(path, pass.name());
+            long start = System.nanoTime();
+            int changes = pass.run(module);
+            runs.add(new PassRun(pass.name(), System.nanoTime() - start, changes));
+            TranslationEvents.endPass(event, changes);
+        }
+        return runs;
+    }
+
+    /** One pass run over one module. */
+    public static final class PassRun {
+        private final String name;
+        private final long nanos;
+        private final int changes;
+
+        PassRun(String name, long nanos, int changes) {
+            this.name = name;
+            this.nanos = nanos;
+            this.changes = changes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /** Rewrites the pass made. */
+        public int getChanges() {
+            return changes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d changes in %.3f ms", name, changes, nanos / 1e6);
+        }
+    }
+}
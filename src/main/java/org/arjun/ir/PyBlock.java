@@ -0,0 +1,31 @@
+package org.arjun.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** A compound statement: a class, def, if, loop, try or match clause, with the statements indented under it. */
+public final class PyBlock extends PyStatement {
+    private final String header;
+    private final List<PyStatement> body = new ArrayList<>();
+
+    public PyBlock(Kind kind, int indent, String header) {
+        super(kind, indent);
+        this.header = header;
+    }
+
+    /** The header line up to and including its colon. */
+    @Override
+    public String getText() {
+        return header;
+    }
+
+    /** The statements under the header, in order; passes edit it in place. */
+    public List<PyStatement> getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return header + " (" + body.size() + " statements)";
+    }
+}
@@ -0,0 +1,162 @@
+package org.arjun.ir;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An expression of the Python IR, built by the interpreter as it translates each expression. Only what the passes
+ * rewrite is modelled: integer constants, unary minus, the arithmetic operators, parentheses and calls. Anything
+ * else (names, attribute chains, subscripts, strings, comparisons, conditional expressions, ...) is an {@link Atom}
+ * holding its translation. Every expression prints exactly as the interpreter translated it.
+ */
+public abstract class PyExpr {
+    PyExpr() {}
+
+    /** Appends the expression's Python text. */
+    public abstract void appendTo(StringBuilder out);
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        appendTo(out);
+        return out.toString();
+    }
+
+    /** An integer literal that fits in a long. */
+    public static final class Constant extends PyExpr {
+        private final long value;
+
+        public Constant(long value) {
+            this.value = value;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out) {
+            out.append(value);
+        }
+    }
+
+    /** Any other expression, kept as its translation. */
+    public static final class Atom extends PyExpr {
+        private final String text;
+
+        public Atom(String text) {
+            this.text = text;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out) {
+            out.append(text);
+        }
+    }
+
+    /** A call with positional arguments; {@code callee} is kept as text. */
+    public static final class Call extends PyExpr {
+        private final String callee;
+        private final List<PyExpr> arguments;
+
+        public Call(String callee, List<PyExpr> arguments) {
+            this.callee = callee;
+            this.arguments = Collections.unmodifiableList(arguments);
+        }
+
+        public String getCallee() {
+            return callee;
+        }
+
+        public List<PyExpr> getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out) {
+            out.append(callee).append('(');
+            for (int i = 0; i < arguments.size(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                arguments.get(i).appendTo(out);
+            }
+            out.append(')');
+        }
+    }
+
+    /** Negation. */
+    public static final class Negate extends PyExpr {
+        private final PyExpr operand;
+
+        public Negate(PyExpr operand) {
+            this.operand = operand;
+        }
+
+        public PyExpr getOperand() {
+            return operand;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out) {
+            out.append('-');
+            operand.appendTo(out);
+        }
+    }
+
+    /** {@code left op right} for one of {@code + - * / // %}. */
+    public static final class Binary extends PyExpr {
+        private final PyExpr left;
+        private final String operator;
+        private final PyExpr right;
+
+        public Binary(PyExpr left, String operator, PyExpr right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        public PyExpr getLeft() {
+            return left;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        public PyExpr getRight() {
+            return right;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out) {
+            left.appendTo(out);
+            out.append(' ').append(operator).append(' ');
+            right.appendTo(out);
+        }
+    }
+
+    /** A parenthesized expression. */
+    public static final class Paren extends PyExpr {
+        private final PyExpr inner;
+
+        public Paren(PyExpr inner) {
+            this.inner = inner;
+        }
+
+        public PyExpr getInner() {
+            return inner;
+        }
+
+        @Override
+        public void appendTo(StringBuilder out) {
+            out.append('(');
+            inner.appendTo(out);
+            out.append(')');
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.arjun.ir;
+
+/**
+ * A simple statement. Returns, assignments and expression statements may have a value: the expression the
+ * interpreter translated after {@code return }, after the {@code =} of the assignment, or the whole line. The value
+ * prints as the part of the line it was emitted as, and a line whose value was not replaced prints as emitted.
+ */
+public final class PyLine extends PyStatement {
+    /** The line as emitted or, once its value is replaced, as it now prints. */
+    private String text;
+    private PyExpr value;
+    /** Where the value ends in the text; what follows it, e.g. a comment, is kept when the value is replaced. */
+    private int valueEnd;
+
+    /** A line without a value. */
+    public PyLine(Kind kind, int indent, String text) {
+        this(kind, indent, text, null, text.length());
+    }
+
+    /** A line whose text has {@code value} printed just before {@code valueEnd}, or that has none if it is null. */
+    public PyLine(Kind kind, int indent, String text, PyExpr value, int valueEnd) {
+        super(kind, indent);
+        this.text = text;
+        this.value = value;
+        this.valueEnd = valueEnd;
+    }
+
+    @Override
+    public String getText() {
+        return text;
+    }
+
+    /** The line's value, or null when it has none or it was not translated as an expression. */
+    public PyExpr getValue() {
+        return value;
+    }
+
+    /** Replaces the value of a line that has one; the line's text follows. */
+    public void setValue(PyExpr replacement) {
+        if (value == null) {
+            throw new IllegalStateException("no expression to replace in: " + text);
+        }
+        int valueStart = valueEnd - value.toString().length();
+        StringBuilder line = new StringBuilder(text.length()).append(text, 0, valueStart);
+        replacement.appendTo(line);
+        int end = line.length();
+        this.text = line.append(text, valueEnd, text.length()).toString();
+        this.value = replacement;
+        this.valueEnd = end;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,28 @@
+package org.arjun.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** A generated Python file: its top-level statements, with the blocks under them. */
+public final class PyModule {
+    private final List<PyStatement> body = new ArrayList<>();
+
+    /** The top-level statements, in order; passes edit it in place. */
+    public List<PyStatement> getBody() {
+        return body;
+    }
+
+    /** The module's body and the body of every block in it, outer ones first. */
+    public List<List<PyStatement>> getBodies() {
+        List<List<PyStatement>> bodies = new ArrayList<>();
+        bodies.add(body);
+        for (int i = 0; i < bodies.size(); i++) {
+            for (PyStatement statement : bodies.get(i)) {
+                if (statement instanceof PyBlock) {
+                    bodies.add(((PyBlock) statement).getBody());
+                }
+            }
+        }
+        return bodies;
+    }
+}
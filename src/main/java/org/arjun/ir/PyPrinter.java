@@ -0,0 +1,51 @@
+package org.arjun.ir;
+
+import org.arjun.interpreter.PythonEmitter;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Writes a {@link PyModule} as Python source. Each statement is printed at the indentation it was emitted at, so an
+ * unchanged module prints exactly as the interpreter emitted it. Blocks are walked from an explicit stack, however
+ * deeply they nest.
+ */
+public final class PyPrinter {
+    private PyPrinter() {}
+
+    /** Writes {@code module} to {@code out} and flushes {@code out} if it can be. */
+    public static void print(PyModule module, Appendable out) {
+        try {
+            Deque<Iterator<PyStatement>> pending = new ArrayDeque<>();
+            pending.push(module.getBody().iterator());
+            while (!pending.isEmpty()) {
+                Iterator<PyStatement> statements = pending.peek();
+                if (!statements.hasNext()) {
+                    pending.pop();
+                    continue;
+                }
+                PyStatement statement = statements.next();
+                out.append(PythonEmitter.indentation(statement.getIndent())).append(statement.getText()).append('\n');
+                if (statement instanceof PyBlock) {
+                    pending.push(((PyBlock) statement).getBody().iterator());
+                }
+            }
+            if (out instanceof Flushable) {
+                ((Flushable) out).flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** {@code module} as Python source. */
+    public static String print(PyModule module) {
+        StringBuilder out = new StringBuilder();
+        print(module, out);
+        return out.toString();
+    }
+}
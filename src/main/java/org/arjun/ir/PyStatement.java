@@ -0,0 +1,50 @@
+package org.arjun.ir;
+
+/**
+ * A statement of the Python IR: one line of generated Python ({@link PyLine}) or a compound statement, its header
+ * line and the statements under it ({@link PyBlock}). The interpreter names the kind of each statement as it emits
+ * it. Every statement keeps the indentation it was emitted at, so printing an unchanged module reproduces the text
+ * the interpreter writes without passes exactly.
+ */
+public abstract class PyStatement {
+    /** What a statement is, as far as the passes care. The kinds from {@link #CLASS} on are blocks. */
+    public enum Kind {
+        BLANK, COMMENT, DECORATOR, PASS, BREAK, CONTINUE, RETURN, RAISE, ASSIGN, EXPRESSION,
+        CLASS, DEF, IF, ELIF, ELSE, WHILE, FOR, TRY, EXCEPT, FINALLY, WITH, MATCH, CASE, BLOCK;
+
+        /** Whether nothing after this statement in the same body can run. */
+        public boolean isTerminator() {
+            return this == RETURN || this == RAISE || this == BREAK || this == CONTINUE;
+        }
+
+        /** Whether the statement does nothing when run. */
+        public boolean isInert() {
+            return this == BLANK || this == COMMENT || this == PASS;
+        }
+
+        /** Whether the statement is a header with a body under it, and so a {@link PyBlock}. */
+        public boolean isBlock() {
+            return compareTo(CLASS) >= 0;
+        }
+    }
+
+    private final Kind kind;
+    private final int indent;
+
+    PyStatement(Kind kind, int indent) {
+        this.kind = kind;
+        this.indent = indent;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** Indentation levels of four spaces the statement's line starts with. */
+    public int getIndent() {
+        return indent;
+    }
+
+    /** The statement's (first) line without its indentation. */
+    public abstract String getText();
+}
@@ -0,0 +1,13 @@
+package org.arjun.ir;
+
+/**
+ * A rewrite over a whole {@link PyModule}, run by a {@link PassManager}. Passes keep no state between modules, so
+ * one instance serves every translating thread.
+ */
+public interface PythonPass {
+    /** The name the pass is enabled by, e.g. on the command line. */
+    String name();
+
+    /** Rewrites {@code module} in place and returns how many rewrites it made. */
+    int run(PyModule module);
+}
@@ -0,0 +1,52 @@
+package org.arjun.ir;
+
+import java.util.List;
+
+/**
+ * Removes statements that can never run: those after a return, raise, break or continue in the same body, and
+ * {@code pass} in a body that has other statements. Blank lines and comments are kept, as they separate and
+ * describe the members that follow.
+ */
+public final class UnreachableCode implements PythonPass {
+    public static final String NAME = "unreachable";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int run(PyModule module) {
+        int removed = 0;
+        for (List<PyStatement> body : module.getBodies()) {
+            removed += removeUnreachable(body);
+        }
+        return removed;
+    }
+
+    private static int removeUnreachable(List<PyStatement> body) {
+        boolean effective = false;
+        for (PyStatement statement : body) {
+            if (!statement.getKind().isInert()) {
+                effective = true;
+                break;
+            }
+        }
+        boolean terminated = false;
+        int kept = 0;
+        for (PyStatement statement : body) {
+            PyStatement.Kind kind = statement.getKind();
+            if (terminated && kind != PyStatement.Kind.BLANK && kind != PyStatement.Kind.COMMENT) {
+                continue;
+            }
+            if (kind == PyStatement.Kind.PASS && effective) {
+                continue;
+            }
+            terminated |= kind.isTerminator();
+            body.set(kept++, statement);
+        }
+        int removed = body.size() - kept;
+        body.subList(kept, body.size()).clear();
+        return removed;
+    }
+}
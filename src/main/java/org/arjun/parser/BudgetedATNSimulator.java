@@ -0,0 +1,112 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.dfa.DFAState;
+import org.arjun.interpreter.JavaParser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The parser's prediction with the limits of {@link ParserOptions#hasBudget()} enforced from inside: every token
+ * of lookahead, through the DFA or the ATN, and every ATN configuration moved over a token is counted, and the
+ * clock is read every so many of them. Going over a limit throws {@link ParseBudgetExceededException} out of
+ * {@code adaptivePredict}, which unwinds the generated rules like any other runtime exception.
+ * <p>
+ * It shares the DFA and context cache of the parser it replaces, so budgeted and unbudgeted parsers learn from
+ * each other. Like its parser it belongs to one thread.
+ */
+final class BudgetedATNSimulator extends ParserATNSimulator {
+    // the clock is read once every this many predictions and lookahead tokens (both masks, so powers of two)
+    private static final int PREDICTIONS_PER_CLOCK = 256;
+    private static final int LOOKAHEAD_PER_CLOCK = 1024;
+
+    private final ParserOptions options;
+    private boolean timed;
+    private long deadline;
+    private long transitions;
+    private int lookahead;
+    private int predictions;
+
+    private BudgetedATNSimulator(JavaParser parser, ParserOptions options) {
+        super(parser, parser.getATN(), parser.getInterpreter().decisionToDFA, parser.getInterpreter().getSharedContextCache());
+        this.options = options;
+    }
+
+    /** Gives {@code parser} a budgeted simulator in the prediction mode of its current one. */
+    static void install(JavaParser parser, ParserOptions options) {
+        BudgetedATNSimulator simulator = new BudgetedATNSimulator(parser, options);
+        simulator.setPredictionMode(parser.getInterpreter().getPredictionMode());
+        parser.setInterpreter(simulator);
+    }
+
+    /** Starts the budget of a new file on {@code parser}; nothing happens unless it was {@link #install}ed. */
+    static void start(JavaParser parser) {
+        if (parser.getInterpreter() instanceof BudgetedATNSimulator) {
+            BudgetedATNSimulator simulator = (BudgetedATNSimulator) parser.getInterpreter();
+            simulator.timed = simulator.options.getMaxParseMillis() > 0;
+            simulator.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(simulator.options.getMaxParseMillis());
+            simulator.transitions = 0;
+        }
+    }
+
+    /** Has {@code worker} parse part of the file {@code owner} is parsing, up to the same deadline. */
+    static void share(JavaParser owner, JavaParser worker) {
+        if (owner.getInterpreter() instanceof BudgetedATNSimulator && worker.getInterpreter() instanceof BudgetedATNSimulator) {
+            BudgetedATNSimulator from = (BudgetedATNSimulator) owner.getInterpreter();
+            BudgetedATNSimulator to = (BudgetedATNSimulator) worker.getInterpreter();
+            to.timed = from.timed;
+            to.deadline = from.deadline;
+            to.transitions = 0;
+        }
+    }
+
+    @Override
+    public int adaptivePredict(TokenStream input, int decision, ParserRuleContext outerContext) {
+        lookahead = 0;
+        if (timed && (++predictions & (PREDICTIONS_PER_CLOCK - 1)) == 0 && System.nanoTime() - deadline > 0) {
+            throw new ParseBudgetExceededException("parsing took longer than " + options.getMaxParseMillis() + " ms",
+                    input.LT(1).getLine());
+        }
+        return super.adaptivePredict(input, decision, outerContext);
+    }
+
+    // called once for every token of lookahead while predicting with the DFA or SLL
+    @Override
+    protected DFAState getExistingTargetState(DFAState previousD, int t) {
+        lookedAhead();
+        return super.getExistingTargetState(previousD, t);
+    }
+
+    // called once for every token of SLL lookahead missing from the DFA, and for every token of full-context lookahead
+    @Override
+    protected ATNConfigSet computeReachSet(ATNConfigSet closure, int t, boolean fullCtx) {
+        if (fullCtx) {
+            lookedAhead();
+        }
+        transitions += closure.size();
+        if (options.getMaxTransitions() > 0 && transitions > options.getMaxTransitions()) {
+            throw exceeded("prediction moved more than " + options.getMaxTransitions() + " ATN configurations");
+        }
+        if (timed && System.nanoTime() - deadline > 0) {
+            throw exceeded("parsing took longer than " + options.getMaxParseMillis() + " ms");
+        }
+        return super.computeReachSet(closure, t, fullCtx);
+    }
+
+    private void lookedAhead() {
+        lookahead++;
+        if (options.getMaxLookahead() > 0 && lookahead > options.getMaxLookahead()) {
+            throw exceeded("a prediction looked more than " + options.getMaxLookahead() + " tokens ahead");
+        }
+        if (timed && (lookahead & (LOOKAHEAD_PER_CLOCK - 1)) == 0 && System.nanoTime() - deadline > 0) {
+            throw exceeded("parsing took longer than " + options.getMaxParseMillis() + " ms");
+        }
+    }
+
+    private ParseBudgetExceededException exceeded(String message) {
+        return new ParseBudgetExceededException(message, _input.get(_startIndex).getLine());
+    }
+}
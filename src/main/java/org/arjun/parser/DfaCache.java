@@ -0,0 +1,794 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RuntimeMetaData;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNConfig;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.ATNSimulator;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.ArrayPredictionContext;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.LexerATNConfig;
+import org.antlr.v4.runtime.atn.LexerAction;
+import org.antlr.v4.runtime.atn.LexerActionExecutor;
+import org.antlr.v4.runtime.atn.LexerActionType;
+import org.antlr.v4.runtime.atn.LexerChannelAction;
+import org.antlr.v4.runtime.atn.LexerCustomAction;
+import org.antlr.v4.runtime.atn.LexerIndexedCustomAction;
+import org.antlr.v4.runtime.atn.LexerModeAction;
+import org.antlr.v4.runtime.atn.LexerMoreAction;
+import org.antlr.v4.runtime.atn.LexerPopModeAction;
+import org.antlr.v4.runtime.atn.LexerPushModeAction;
+import org.antlr.v4.runtime.atn.LexerSkipAction;
+import org.antlr.v4.runtime.atn.LexerTypeAction;
+import org.antlr.v4.runtime.atn.PredictionContext;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.atn.SemanticContext;
+import org.antlr.v4.runtime.atn.SingletonPredictionContext;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+import org.arjun.interpreter.JavaLexer;
+import org.arjun.interpreter.JavaParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persists the DFA states that JavaLexer and JavaParser learn at runtime, so a new JVM can start
+ * with warm prediction caches instead of paying for full ATN simulation on its first files.
+ * <p>
+ * The file is stamped with a fingerprint of the serialized ATNs, rule names and vocabulary (the
+ * same data JavaParser.interp / JavaLexer.interp are generated from) and the ANTLR runtime version;
+ * a cache written for a different grammar is rejected. Loading only fills decisions whose DFA is
+ * still empty, and every state graph is complete before it is published through the volatile
+ * {@link DFA#s0}, so it is safe to load while other threads are already parsing.
+ */
+public final class DfaCache {
+    private static final int MAGIC = 0x4A325044;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int NO_STATE = -1;
+    private static final int ERROR_STATE = -2;
+    private static final int NO_CONTEXT = -1;
+
+    private static final Object LOCK = new Object();
+
+    private DfaCache() {}
+
+    /** Outcome of {@link #load(Path)}. */
+    public static class LoadResult {
+        private final boolean loaded;
+        private final String reason;
+        private final int decisions;
+        private final int states;
+
+        private LoadResult(boolean loaded, String reason, int decisions, int states) {
+            this.loaded = loaded;
+            this.reason = reason;
+            this.decisions = decisions;
+            this.states = states;
+        }
+
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public int getDecisions() {
+            return decisions;
+        }
+
+        public int getStates() {
+            return states;
+        }
+
+        @Override
+        public String toString() {
+            return loaded ? "loaded " + states + " DFA states for " + decisions + " decisions" : "not loaded: " + reason;
+        }
+    }
+
+    public static String fingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, RuntimeMetaData.VERSION);
+            update(digest, Integer.toString(FORMAT_VERSION));
+            update(digest, JavaLexer._serializedATN);
+            update(digest, String.join(",", JavaLexer.ruleNames));
+            update(digest, JavaParser._serializedATN);
+            update(digest, String.join(",", JavaParser.ruleNames));
+            for (int type = 0; type <= JavaParser.VOCABULARY.getMaxTokenType(); type++) {
+                update(digest, JavaParser.VOCABULARY.getLiteralName(type) + "/" + JavaParser.VOCABULARY.getSymbolicName(type));
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /** Number of DFA states currently held by the lexer and parser decisions. */
+    public static int stateCount() {
+        int count = 0;
+        for (DFA dfa : lexerDfas()) count += dfa.states.size();
+        for (DFA dfa : parserDfas()) count += dfa.states.size();
+        return count;
+    }
+
+    /** Discards every learned lexer and parser DFA state, returning the recognizers to a cold start. */
+    public static void clear() {
+        synchronized (LOCK) {
+            lexer().getInterpreter().clearDFA();
+            parser().getInterpreter().clearDFA();
+        }
+    }
+
+    public static void save(Path file) throws IOException {
+        synchronized (LOCK) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream fileOut = Files.newOutputStream(tmp);
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(fileOut)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(fingerprint());
+                    new Writer(out).write(lexerDfas(), parserDfas());
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    public static LoadResult load(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return new LoadResult(false, "no cache at " + file, 0, 0);
+        }
+        synchronized (LOCK) {
+            try (InputStream fileIn = Files.newInputStream(file);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(fileIn)))) {
+                if (in.readInt() != MAGIC) {
+                    return new LoadResult(false, file + " is not a DFA cache", 0, 0);
+                }
+                if (in.readInt() != FORMAT_VERSION) {
+                    return new LoadResult(false, "unsupported cache format", 0, 0);
+                }
+                if (!fingerprint().equals(in.readUTF())) {
+                    return new LoadResult(false, "cache was written for a different grammar or runtime", 0, 0);
+                }
+                return new Reader(in).read(lexerATN(), lexerDfas(), parserATN(), parserDfas());
+            } catch (IOException | RuntimeException e) {
+                // a damaged cache only costs the warm start, never the run
+                return new LoadResult(false, "unreadable cache (" + e + ")", 0, 0);
+            }
+        }
+    }
+
+    // The generated recognizers keep their DFAs in static arrays shared by every instance;
+    // the simulators expose the same arrays.
+    private static JavaLexer lexer() {
+        return new JavaLexer(CharStreams.fromString(""));
+    }
+
+    private static JavaParser parser() {
+        return new JavaParser(new CommonTokenStream(lexer()));
+    }
+
+    private static DFA[] lexerDfas() {
+        return lexer().getInterpreter().decisionToDFA;
+    }
+
+    private static ATN lexerATN() {
+        return lexer().getATN();
+    }
+
+    private static DFA[] parserDfas() {
+        return parser().getInterpreter().decisionToDFA;
+    }
+
+    private static ATN parserATN() {
+        return parser().getATN();
+    }
+
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final Map<PredictionContext, Integer> contextIds = new IdentityHashMap<>();
+        private final List<PredictionContext> contexts = new ArrayList<>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void write(DFA[] lexerDfas, DFA[] parserDfas) throws IOException {
+            List<List<DFAState>> lexerStates = snapshot(lexerDfas);
+            List<List<DFAState>> parserStates = snapshot(parserDfas);
+            collectContexts(lexerStates);
+            collectContexts(parserStates);
+
+            out.writeInt(contexts.size());
+            for (PredictionContext context : contexts) {
+                writeContext(context);
+            }
+            writeDfas(lexerDfas, lexerStates, true);
+            writeDfas(parserDfas, parserStates, false);
+        }
+
+        /** All states reachable from each DFA's start state(s) or registered in its state map. */
+        private List<List<DFAState>> snapshot(DFA[] dfas) {
+            List<List<DFAState>> result = new ArrayList<>(dfas.length);
+            for (DFA dfa : dfas) {
+                Map<DFAState, Boolean> seen = new IdentityHashMap<>();
+                List<DFAState> states = new ArrayList<>();
+                Deque<DFAState> work = new ArrayDeque<>();
+                DFAState s0 = dfa.s0;
+                if (s0 != null) {
+                    if (dfa.isPrecedenceDfa()) {
+                        addTargets(work, edges(s0));
+                    } else {
+                        work.add(s0);
+                    }
+                }
+                synchronized (dfa.states) {
+                    work.addAll(dfa.states.values());
+                }
+                while (!work.isEmpty()) {
+                    DFAState state = work.poll();
+                    if (state == ATNSimulator.ERROR || seen.put(state, Boolean.TRUE) != null) {
+                        continue;
+                    }
+                    states.add(state);
+                    addTargets(work, edges(state));
+                }
+                result.add(states);
+            }
+            return result;
+        }
+
+        private static void addTargets(Deque<DFAState> work, DFAState[] edges) {
+            if (edges == null) {
+                return;
+            }
+            for (DFAState target : edges) {
+                if (target != null) work.add(target);
+            }
+        }
+
+        private void collectContexts(List<List<DFAState>> dfaStates) {
+            for (List<DFAState> states : dfaStates) {
+                for (DFAState state : states) {
+                    for (ATNConfig config : state.configs.configs) {
+                        collectContext(config.context);
+                    }
+                }
+            }
+        }
+
+        // Post-order, so a context is always written after its parents.
+        private void collectContext(PredictionContext context) {
+            if (context == null || contextIds.containsKey(context)) {
+                return;
+            }
+            for (int i = 0; i < context.size(); i++) {
+                collectContext(context.getParent(i));
+            }
+            contextIds.put(context, contexts.size());
+            contexts.add(context);
+        }
+
+        private void writeContext(PredictionContext context) throws IOException {
+            if (context == PredictionContext.EMPTY) {
+                out.writeByte(0);
+            } else if (context instanceof SingletonPredictionContext) {
+                SingletonPredictionContext singleton = (SingletonPredictionContext) context;
+                out.writeByte(1);
+                out.writeInt(contextId(singleton.parent));
+                out.writeInt(singleton.returnState);
+            } else if (context instanceof ArrayPredictionContext) {
+                ArrayPredictionContext array = (ArrayPredictionContext) context;
+                out.writeByte(2);
+                out.writeInt(array.returnStates.length);
+                for (int i = 0; i < array.returnStates.length; i++) {
+                    out.writeInt(contextId(array.parents[i]));
+                    out.writeInt(array.returnStates[i]);
+                }
+            } else {
+                throw new IOException("Unsupported prediction context " + context.getClass().getName());
+            }
+        }
+
+        private int contextId(PredictionContext context) {
+            return context == null ? NO_CONTEXT : contextIds.get(context);
+        }
+
+        private void writeDfas(DFA[] dfas, List<List<DFAState>> dfaStates, boolean lexer) throws IOException {
+            out.writeInt(dfas.length);
+            for (int d = 0; d < dfas.length; d++) {
+                DFA dfa = dfas[d];
+                List<DFAState> states = dfaStates.get(d);
+                Map<DFAState, Integer> ids = new IdentityHashMap<>();
+                for (DFAState state : states) {
+                    ids.put(state, ids.size());
+                }
+
+                out.writeInt(dfa.decision);
+                out.writeBoolean(dfa.isPrecedenceDfa());
+                out.writeInt(states.size());
+                for (DFAState state : states) {
+                    writeState(state, lexer);
+                }
+                for (DFAState state : states) {
+                    writeEdges(edges(state), ids);
+                }
+                DFAState s0 = dfa.s0;
+                if (dfa.isPrecedenceDfa()) {
+                    writeEdges(s0 != null ? edges(s0) : new DFAState[0], ids);
+                } else {
+                    out.writeInt(stateId(s0, ids));
+                }
+            }
+        }
+
+        private void writeState(DFAState state, boolean lexer) throws IOException {
+            ATNConfigSet configs = state.configs;
+            out.writeBoolean(configs.fullCtx);
+            out.writeInt(configs.uniqueAlt);
+            out.writeBoolean(configs.hasSemanticContext);
+            out.writeBoolean(configs.dipsIntoOuterContext);
+
+            out.writeInt(configs.configs.size());
+            for (ATNConfig config : configs.configs) {
+                out.writeInt(config.state.stateNumber);
+                out.writeInt(config.alt);
+                out.writeInt(contextId(config.context));
+                out.writeInt(config.reachesIntoOuterContext);
+                writeSemanticContext(config.semanticContext);
+                if (lexer) {
+                    LexerATNConfig lexerConfig = (LexerATNConfig) config;
+                    out.writeBoolean(lexerConfig.hasPassedThroughNonGreedyDecision());
+                    writeExecutor(lexerConfig.getLexerActionExecutor());
+                }
+            }
+
+            out.writeBoolean(state.isAcceptState);
+            out.writeInt(state.prediction);
+            out.writeBoolean(state.requiresFullContext);
+            writeExecutor(state.lexerActionExecutor);
+            if (state.predicates == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(state.predicates.length);
+                for (DFAState.PredPrediction predicate : state.predicates) {
+                    writeSemanticContext(predicate.pred);
+                    out.writeInt(predicate.alt);
+                }
+            }
+        }
+
+        private void writeSemanticContext(SemanticContext context) throws IOException {
+            if (context == null || context == SemanticContext.NONE) {
+                out.writeByte(0);
+            } else if (context instanceof SemanticContext.Predicate) {
+                SemanticContext.Predicate predicate = (SemanticContext.Predicate) context;
+                out.writeByte(1);
+                out.writeInt(predicate.ruleIndex);
+                out.writeInt(predicate.predIndex);
+                out.writeBoolean(predicate.isCtxDependent);
+            } else if (context instanceof SemanticContext.PrecedencePredicate) {
+                out.writeByte(2);
+                out.writeInt(((SemanticContext.PrecedencePredicate) context).precedence);
+            } else if (context instanceof SemanticContext.AND || context instanceof SemanticContext.OR) {
+                SemanticContext[] operands = context instanceof SemanticContext.AND
+                        ? ((SemanticContext.AND) context).opnds
+                        : ((SemanticContext.OR) context).opnds;
+                out.writeByte(context instanceof SemanticContext.AND ? 3 : 4);
+                out.writeInt(operands.length);
+                for (SemanticContext operand : operands) {
+                    writeSemanticContext(operand);
+                }
+            } else {
+                throw new IOException("Unsupported semantic context " + context.getClass().getName());
+            }
+        }
+
+        private void writeExecutor(LexerActionExecutor executor) throws IOException {
+            if (executor == null) {
+                out.writeInt(-1);
+                return;
+            }
+            LexerAction[] actions = executor.getLexerActions();
+            out.writeInt(actions.length);
+            for (LexerAction action : actions) {
+                if (action instanceof LexerIndexedCustomAction) {
+                    LexerIndexedCustomAction indexed = (LexerIndexedCustomAction) action;
+                    out.writeInt(indexed.getOffset());
+                    writeAction(indexed.getAction());
+                } else {
+                    out.writeInt(-1);
+                    writeAction(action);
+                }
+            }
+        }
+
+        private void writeAction(LexerAction action) throws IOException {
+            out.writeByte(action.getActionType().ordinal());
+            switch (action.getActionType()) {
+                case CHANNEL:
+                    out.writeInt(((LexerChannelAction) action).getChannel());
+                    break;
+                case CUSTOM:
+                    out.writeInt(((LexerCustomAction) action).getRuleIndex());
+                    out.writeInt(((LexerCustomAction) action).getActionIndex());
+                    break;
+                case MODE:
+                    out.writeInt(((LexerModeAction) action).getMode());
+                    break;
+                case PUSH_MODE:
+                    out.writeInt(((LexerPushModeAction) action).getMode());
+                    break;
+                case TYPE:
+                    out.writeInt(((LexerTypeAction) action).getType());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void writeEdges(DFAState[] edges, Map<DFAState, Integer> ids) throws IOException {
+            out.writeInt(edges == null ? -1 : edges.length);
+            if (edges == null) {
+                return;
+            }
+            int present = 0;
+            for (DFAState edge : edges) {
+                if (edge != null) present++;
+            }
+            out.writeInt(present);
+            for (int symbol = 0; symbol < edges.length; symbol++) {
+                if (edges[symbol] != null) {
+                    out.writeInt(symbol);
+                    out.writeInt(stateId(edges[symbol], ids));
+                }
+            }
+        }
+
+        private int stateId(DFAState state, Map<DFAState, Integer> ids) {
+            if (state == null) return NO_STATE;
+            if (state == ATNSimulator.ERROR) return ERROR_STATE;
+            Integer id = ids.get(state);
+            return id != null ? id : NO_STATE;
+        }
+
+        private static DFAState[] edges(DFAState state) {
+            synchronized (state) {
+                return state.edges == null ? null : state.edges.clone();
+            }
+        }
+    }
+
+    /**
+     * A config set whose conflicting alternatives can be restored. They are not written: the simulator derives them
+     * from the configs of a state that stops SLL prediction, and they take part in the state's equality, so states
+     * differing only there would otherwise merge on load.
+     */
+    private static final class RestoredConfigSet extends ATNConfigSet {
+        RestoredConfigSet(boolean fullCtx) {
+            super(fullCtx);
+        }
+
+        void restoreConflictingAlts() {
+            conflictingAlts = PredictionMode.getAlts(PredictionMode.getConflictingAltSubsets(this));
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private PredictionContext[] contexts;
+        private int decisions;
+        private int states;
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        LoadResult read(ATN lexerATN, DFA[] lexerDfas, ATN parserATN, DFA[] parserDfas) throws IOException {
+            contexts = new PredictionContext[in.readInt()];
+            for (int i = 0; i < contexts.length; i++) {
+                contexts[i] = readContext();
+            }
+            List<Runnable> installs = new ArrayList<>();
+            readDfas(lexerATN, lexerDfas, true, installs);
+            readDfas(parserATN, parserDfas, false, installs);
+            // nothing is published until the whole file has been read successfully
+            for (Runnable install : installs) {
+                install.run();
+            }
+            return new LoadResult(true, null, decisions, states);
+        }
+
+        private PredictionContext readContext() throws IOException {
+            switch (in.readByte()) {
+                case 0:
+                    return PredictionContext.EMPTY;
+                case 1: {
+                    PredictionContext parent = context(in.readInt());
+                    return SingletonPredictionContext.create(parent, in.readInt());
+                }
+                case 2: {
+                    int size = in.readInt();
+                    PredictionContext[] parents = new PredictionContext[size];
+                    int[] returnStates = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        parents[i] = context(in.readInt());
+                        returnStates[i] = in.readInt();
+                    }
+                    return new ArrayPredictionContext(parents, returnStates);
+                }
+                default:
+                    throw new IOException("Corrupt DFA cache: unknown context kind");
+            }
+        }
+
+        private PredictionContext context(int id) {
+            return id == NO_CONTEXT ? null : contexts[id];
+        }
+
+        private void readDfas(ATN atn, DFA[] dfas, boolean lexer, List<Runnable> installs) throws IOException {
+            int count = in.readInt();
+            if (count != dfas.length) {
+                throw new IOException("Corrupt DFA cache: expected " + dfas.length + " decisions, found " + count);
+            }
+            LexerATNConfig nonGreedySeed = lexer ? nonGreedySeed(atn) : null;
+            for (int d = 0; d < count; d++) {
+                int decision = in.readInt();
+                boolean precedenceDfa = in.readBoolean();
+                DFAState[] restored = new DFAState[in.readInt()];
+                for (int i = 0; i < restored.length; i++) {
+                    restored[i] = readState(atn, lexer, nonGreedySeed);
+                }
+                for (DFAState state : restored) {
+                    state.edges = readEdges(restored);
+                }
+                DFAState[] precedenceStarts = precedenceDfa ? readEdges(restored) : null;
+                DFAState s0 = precedenceDfa ? null : state(in.readInt(), restored);
+                if (decision < 0 || decision >= dfas.length || dfas[decision].isPrecedenceDfa() != precedenceDfa) {
+                    throw new IOException("Corrupt DFA cache: decision " + decision + " does not match the grammar");
+                }
+                DFA dfa = dfas[decision];
+                installs.add(() -> install(dfa, restored, s0, precedenceStarts));
+            }
+        }
+
+        /** Publishes a restored DFA, but only into a decision that has not learned anything yet. */
+        private void install(DFA dfa, DFAState[] restored, DFAState s0, DFAState[] precedenceStarts) {
+            if (restored.length == 0) {
+                return;
+            }
+            synchronized (dfa.states) {
+                if (!dfa.states.isEmpty()) {
+                    return;
+                }
+                int added = 0;
+                for (DFAState state : restored) {
+                    if (!dfa.states.containsKey(state)) {
+                        state.stateNumber = dfa.states.size();
+                        dfa.states.put(state, state);
+                        added++;
+                    }
+                }
+                if (dfa.isPrecedenceDfa()) {
+                    DFAState start = new DFAState(new ATNConfigSet());
+                    start.edges = precedenceStarts != null ? precedenceStarts : new DFAState[0];
+                    start.isAcceptState = false;
+                    start.requiresFullContext = false;
+                    dfa.s0 = start;
+                } else if (s0 != null) {
+                    dfa.s0 = s0;
+                }
+                decisions++;
+                states += added;
+            }
+        }
+
+        private DFAState readState(ATN atn, boolean lexer, LexerATNConfig nonGreedySeed) throws IOException {
+            boolean fullCtx = in.readBoolean();
+            int uniqueAlt = in.readInt();
+            boolean hasSemanticContext = in.readBoolean();
+            boolean dipsIntoOuterContext = in.readBoolean();
+            RestoredConfigSet configs = new RestoredConfigSet(fullCtx);
+            configs.uniqueAlt = uniqueAlt;
+            configs.hasSemanticContext = hasSemanticContext;
+            configs.dipsIntoOuterContext = dipsIntoOuterContext;
+
+            int configCount = in.readInt();
+            for (int i = 0; i < configCount; i++) {
+                ATNState atnState = atnState(atn, in.readInt());
+                int alt = in.readInt();
+                PredictionContext context = context(in.readInt());
+                int reachesIntoOuterContext = in.readInt();
+                SemanticContext semanticContext = readSemanticContext();
+                ATNConfig config;
+                if (lexer) {
+                    boolean passedThroughNonGreedy = in.readBoolean();
+                    LexerActionExecutor executor = readExecutor();
+                    LexerATNConfig lexerConfig = new LexerATNConfig(atnState, alt, context, executor);
+                    if (passedThroughNonGreedy) {
+                        lexerConfig = passThroughNonGreedy(lexerConfig, nonGreedySeed);
+                    }
+                    config = lexerConfig;
+                } else {
+                    config = new ATNConfig(atnState, alt, context, semanticContext);
+                }
+                config.reachesIntoOuterContext = reachesIntoOuterContext;
+                configs.configs.add(config);
+            }
+            configs.setReadonly(true);
+
+            DFAState state = new DFAState(configs);
+            state.isAcceptState = in.readBoolean();
+            state.prediction = in.readInt();
+            state.requiresFullContext = in.readBoolean();
+            if (state.requiresFullContext) {
+                configs.restoreConflictingAlts();
+            }
+            state.lexerActionExecutor = readExecutor();
+            int predicateCount = in.readInt();
+            if (predicateCount >= 0) {
+                state.predicates = new DFAState.PredPrediction[predicateCount];
+                for (int i = 0; i < predicateCount; i++) {
+                    SemanticContext pred = readSemanticContext();
+                    state.predicates[i] = new DFAState.PredPrediction(pred, in.readInt());
+                }
+            }
+            return state;
+        }
+
+        private static ATNState atnState(ATN atn, int stateNumber) throws IOException {
+            if (stateNumber < 0 || stateNumber >= atn.states.size() || atn.states.get(stateNumber) == null) {
+                throw new IOException("Corrupt DFA cache: unknown ATN state " + stateNumber);
+            }
+            return atn.states.get(stateNumber);
+        }
+
+        // LexerATNConfig only records a pass through a non-greedy decision in its copy
+        // constructor, so the flag is restored by copying through such a decision state.
+        private static LexerATNConfig nonGreedySeed(ATN atn) {
+            for (ATNState state : atn.states) {
+                if (state instanceof DecisionState && ((DecisionState) state).nonGreedy) {
+                    return new LexerATNConfig(state, 0, PredictionContext.EMPTY);
+                }
+            }
+            return null;
+        }
+
+        private static LexerATNConfig passThroughNonGreedy(LexerATNConfig config, LexerATNConfig seed) throws IOException {
+            if (seed == null) {
+                throw new IOException("Corrupt DFA cache: lexer ATN has no non-greedy decision");
+            }
+            LexerATNConfig marked = new LexerATNConfig(new LexerATNConfig(config, seed.state), config.state);
+            marked.reachesIntoOuterContext = config.reachesIntoOuterContext;
+            return marked;
+        }
+
+        private SemanticContext readSemanticContext() throws IOException {
+            byte kind = in.readByte();
+            switch (kind) {
+                case 0:
+                    return SemanticContext.NONE;
+                case 1: {
+                    int ruleIndex = in.readInt();
+                    int predIndex = in.readInt();
+                    return new SemanticContext.Predicate(ruleIndex, predIndex, in.readBoolean());
+                }
+                case 2:
+                    return new SemanticContext.PrecedencePredicate(in.readInt());
+                case 3:
+                case 4: {
+                    boolean and = kind == 3;
+                    int count = in.readInt();
+                    SemanticContext result = null;
+                    for (int i = 0; i < count; i++) {
+                        SemanticContext operand = readSemanticContext();
+                        result = result == null ? operand
+                                : and ? SemanticContext.and(result, operand) : SemanticContext.or(result, operand);
+                    }
+                    return result != null ? result : SemanticContext.NONE;
+                }
+                default:
+                    throw new IOException("Corrupt DFA cache: unknown semantic context kind");
+            }
+        }
+
+        private LexerActionExecutor readExecutor() throws IOException {
+            int count = in.readInt();
+            if (count < 0) return null;
+            LexerAction[] actions = new LexerAction[count];
+            for (int i = 0; i < count; i++) {
+                int offset = in.readInt();
+                LexerAction action = readAction();
+                actions[i] = offset >= 0 ? new LexerIndexedCustomAction(offset, action) : action;
+            }
+            return new LexerActionExecutor(actions);
+        }
+
+        private LexerAction readAction() throws IOException {
+            int ordinal = in.readByte();
+            switch (LexerActionType.values()[ordinal]) {
+                case CHANNEL:
+                    return new LexerChannelAction(in.readInt());
+                case CUSTOM: {
+                    int ruleIndex = in.readInt();
+                    return new LexerCustomAction(ruleIndex, in.readInt());
+                }
+                case MODE:
+                    return new LexerModeAction(in.readInt());
+                case MORE:
+                    return LexerMoreAction.INSTANCE;
+                case POP_MODE:
+                    return LexerPopModeAction.INSTANCE;
+                case PUSH_MODE:
+                    return new LexerPushModeAction(in.readInt());
+                case SKIP:
+                    return LexerSkipAction.INSTANCE;
+                case TYPE:
+                    return new LexerTypeAction(in.readInt());
+                default:
+                    throw new IOException("Corrupt DFA cache: unknown lexer action");
+            }
+        }
+
+        private DFAState[] readEdges(DFAState[] restored) throws IOException {
+            int length = in.readInt();
+            if (length < 0) return null;
+            DFAState[] edges = new DFAState[length];
+            int present = in.readInt();
+            for (int i = 0; i < present; i++) {
+                int symbol = in.readInt();
+                edges[symbol] = state(in.readInt(), restored);
+            }
+            return edges;
+        }
+
+        private static DFAState state(int id, DFAState[] restored) {
+            if (id == ERROR_STATE) return ATNSimulator.ERROR;
+            if (id == NO_STATE) return null;
+            return restored[id];
+        }
+    }
+}
@@ -0,0 +1,682 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+import org.arjun.interpreter.JavaLexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written replacement for the generated {@link JavaLexer}. It produces the same tokens (types,
+ * channels, offsets, line/column) and the same recognition errors, but scans the input directly instead
+ * of simulating the lexer ATN for every character: ASCII characters are classified through a lookup table
+ * and only identifiers with non-ASCII letters take the slow path.
+ * <p>
+ * Matching follows ANTLR's rules: the longest match wins, ties go to the rule defined first, and when no
+ * rule matches, everything up to and including the character where the last candidate failed is skipped
+ * and reported as a token recognition error.
+ */
+public class FastJavaLexer implements TokenSource {
+    private static final int EOF = -1;
+
+    // classes of the first character of a token
+    private static final byte INVALID = 0;
+    private static final byte WS = 1;
+    private static final byte LETTER = 2;
+    private static final byte DIGIT = 3;
+    private static final byte SINGLE = 4;
+    private static final byte OPERATOR = 5;
+    private static final byte QUOTE = 6;
+    private static final byte APOSTROPHE = 7;
+    private static final byte DOT = 8;
+
+    private static final byte[] CHAR_CLASS = new byte[128];
+    private static final int[] SINGLE_TYPE = new int[128];
+    private static final boolean[] LETTER_OR_DIGIT = new boolean[128];
+    // spelled out rather than read from JavaLexer.VOCABULARY, which would load the generated lexer and its ATN
+    private static final String[] KEYWORDS_BY_TYPE = {
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "if", "goto", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp", "super",
+            "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while",
+            "module", "open", "requires", "exports", "opens", "to", "uses", "provides", "with", "transitive",
+            "var", "yield", "record", "sealed", "permits",
+    };
+    private static final String[][] KEYWORDS = new String[128][];
+    private static final int[][] KEYWORD_TYPES = new int[128][];
+
+    static {
+        for (char c : " \t\r\n\f".toCharArray()) CHAR_CLASS[c] = WS;
+        for (int c = 'a'; c <= 'z'; c++) CHAR_CLASS[c] = LETTER;
+        for (int c = 'A'; c <= 'Z'; c++) CHAR_CLASS[c] = LETTER;
+        CHAR_CLASS['$'] = LETTER;
+        CHAR_CLASS['_'] = LETTER;
+        for (int c = '0'; c <= '9'; c++) CHAR_CLASS[c] = DIGIT;
+        for (int c = 0; c < 128; c++) LETTER_OR_DIGIT[c] = CHAR_CLASS[c] == LETTER || CHAR_CLASS[c] == DIGIT;
+        single('(', JavaLexer.LPAREN);
+        single(')', JavaLexer.RPAREN);
+        single('{', JavaLexer.LBRACE);
+        single('}', JavaLexer.RBRACE);
+        single('[', JavaLexer.LBRACK);
+        single(']', JavaLexer.RBRACK);
+        single(';', JavaLexer.SEMI);
+        single(',', JavaLexer.COMMA);
+        single('~', JavaLexer.TILDE);
+        single('?', JavaLexer.QUESTION);
+        single('@', JavaLexer.AT);
+        for (char c : "=><!:&|+-*/^%".toCharArray()) CHAR_CLASS[c] = OPERATOR;
+        CHAR_CLASS['"'] = QUOTE;
+        CHAR_CLASS['\''] = APOSTROPHE;
+        CHAR_CLASS['.'] = DOT;
+
+        // keywords in token type order, so that KEYWORDS_BY_TYPE[i] has type ABSTRACT + i
+        List<List<String>> words = new ArrayList<>();
+        List<List<Integer>> types = new ArrayList<>();
+        for (int i = 0; i < 128; i++) {
+            words.add(new ArrayList<>());
+            types.add(new ArrayList<>());
+        }
+        for (int i = 0; i < KEYWORDS_BY_TYPE.length; i++) {
+            addWord(words, types, KEYWORDS_BY_TYPE[i], JavaLexer.ABSTRACT + i);
+        }
+        addWord(words, types, "true", JavaLexer.BOOL_LITERAL);
+        addWord(words, types, "false", JavaLexer.BOOL_LITERAL);
+        addWord(words, types, "null", JavaLexer.NULL_LITERAL);
+        for (int c = 0; c < 128; c++) {
+            if (!words.get(c).isEmpty()) {
+                KEYWORDS[c] = words.get(c).toArray(new String[0]);
+                KEYWORD_TYPES[c] = types.get(c).stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+    }
+
+    private static void single(char c, int type) {
+        CHAR_CLASS[c] = SINGLE;
+        SINGLE_TYPE[c] = type;
+    }
+
+    private static void addWord(List<List<String>> words, List<List<Integer>> types, String word, int type) {
+        words.get(word.charAt(0)).add(word);
+        types.get(word.charAt(0)).add(type);
+    }
+
+    private CharStream input;
+    private Pair<TokenSource, CharStream> sourcePair;
+    private TokenFactory<?> factory = CommonTokenFactory.DEFAULT;
+    private final List<ANTLRErrorListener> listeners = new ArrayList<>();
+
+    // code points in the input, which is what ANTLR indexes tokens by
+    private int size;
+    // the input is positioned at the start of the token being matched, so offsets from it are lookaheads
+    private int origin;
+
+    private int index;
+    private int line;
+    private int column;
+
+    // result of the last match: token type (or ERROR) and end offset (exclusive), or failure offset for ERROR
+    private static final int ERROR = 0;
+    private int matchType;
+    private int matchEnd;
+
+    public FastJavaLexer(CharStream input) {
+        listeners.add(ConsoleErrorListener.INSTANCE);
+        setInputStream(input);
+    }
+
+    /** Starts lexing {@code input} from its beginning; a null input leaves the lexer empty. */
+    public void setInputStream(CharStream input) {
+        this.input = input;
+        this.sourcePair = new Pair<>(this, input);
+        this.index = 0;
+        this.line = 1;
+        this.column = 0;
+        this.origin = 0;
+        this.size = input != null ? input.size() : 0;
+    }
+
+    /** Continues lexing the current input at {@code index}, a token start found by an earlier pass, without re-reading it. */
+    public void seek(int index, int line, int charPositionInLine) {
+        this.index = index;
+        this.line = line;
+        this.column = charPositionInLine;
+    }
+
+    public void addErrorListener(ANTLRErrorListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeErrorListeners() {
+        listeners.clear();
+    }
+
+    @Override
+    public Token nextToken() {
+        while (true) {
+            if (index >= size) {
+                return factory.create(sourcePair, Token.EOF, null, Token.DEFAULT_CHANNEL, size, size - 1, line, column);
+            }
+            int start = index;
+            int startLine = line;
+            int startColumn = column;
+            origin = start;
+            input.seek(start);
+            match(start);
+            if (matchType == ERROR) {
+                int failedAt = matchEnd;
+                reportError(start, failedAt, startLine, startColumn);
+                advance(Math.min(failedAt + 1, size));
+                continue;
+            }
+            if (matchType == JavaLexer.WS || matchType == JavaLexer.COMMENT || matchType == JavaLexer.TEXT_BLOCK) {
+                advance(matchEnd);
+            } else {
+                // no other token can contain a line break
+                column += matchEnd - start;
+                index = matchEnd;
+            }
+            int channel = matchType == JavaLexer.WS || matchType == JavaLexer.COMMENT || matchType == JavaLexer.LINE_COMMENT
+                    ? Token.HIDDEN_CHANNEL : Token.DEFAULT_CHANNEL;
+            return factory.create(sourcePair, matchType, null, channel, start, matchEnd - 1, startLine, startColumn);
+        }
+    }
+
+    /** The code point at {@code i}, at or after the token start, read from the input in place. */
+    private int la(int i) {
+        return i < size ? input.LA(i - origin + 1) : EOF;
+    }
+
+    private void advance(int to) {
+        for (int i = index; i < to; i++) {
+            if (la(i) == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+        }
+        index = to;
+    }
+
+    private void result(int type, int end) {
+        matchType = type;
+        matchEnd = end;
+    }
+
+    private void match(int p) {
+        int c = la(p);
+        if (c >= 128) {
+            int end = identifierEnd(p);
+            // only a lone high surrogate is not a letter; the character after it is where matching failed
+            if (end > p) result(JavaLexer.IDENTIFIER, end);
+            else result(ERROR, p + 1);
+            return;
+        }
+        switch (CHAR_CLASS[c]) {
+            case WS: {
+                int end = p + 1;
+                while (isWhitespace(la(end))) end++;
+                result(JavaLexer.WS, end);
+                return;
+            }
+            case LETTER:
+                matchWord(p);
+                return;
+            case DIGIT:
+            case DOT:
+                matchNumberOrDot(p);
+                return;
+            case SINGLE:
+                result(SINGLE_TYPE[c], p + 1);
+                return;
+            case OPERATOR:
+                matchOperator(p, c);
+                return;
+            case QUOTE:
+                matchQuote(p);
+                return;
+            case APOSTROPHE:
+                matchQuoted(p, false);
+                return;
+            default:
+                result(ERROR, p);
+        }
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c >= 0 && c < 128 && CHAR_CLASS[c] == WS;
+    }
+
+    // ---- identifiers and keywords
+
+    /** End of {@code Letter LetterOrDigit*} starting at p, or p when p does not start a letter. */
+    private int identifierEnd(int p) {
+        int end = letterEnd(p);
+        if (end == p) return p;
+        while (true) {
+            int c = la(end);
+            if (c >= 0 && c < 128) {
+                if (!LETTER_OR_DIGIT[c]) return end;
+                end++;
+            } else {
+                int next = letterEnd(end);
+                if (next == end) return end;
+                end = next;
+            }
+        }
+    }
+
+    private int letterEnd(int p) {
+        int c = la(p);
+        if (c == EOF) return p;
+        if (c < 128) return CHAR_CLASS[c] == LETTER ? p + 1 : p;
+        if (c < 0xD800 || c > 0xDBFF) return p + 1;
+        // a lone high surrogate is a letter only as the first half of a pair
+        int low = la(p + 1);
+        return low >= 0xDC00 && low <= 0xDFFF ? p + 2 : p;
+    }
+
+    private void matchWord(int p) {
+        int end = identifierEnd(p);
+        int c = la(p);
+        if (c == 'n' && end == p + 3 && regionMatches(p, "non-sealed")) {
+            result(JavaLexer.NON_SEALED, p + 10);
+            return;
+        }
+        String[] keywords = KEYWORDS[c];
+        if (keywords != null) {
+            int length = end - p;
+            for (int k = 0; k < keywords.length; k++) {
+                if (keywords[k].length() == length && regionMatches(p, keywords[k])) {
+                    result(KEYWORD_TYPES[c][k], end);
+                    return;
+                }
+            }
+        }
+        result(JavaLexer.IDENTIFIER, end);
+    }
+
+    private boolean regionMatches(int p, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (la(p + i) != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // ---- numbers
+
+    private void matchNumberOrDot(int p) {
+        int bestType = 0;
+        int bestEnd = p;
+        // candidates in rule order, so that on equal length the earlier rule wins
+        int end = decimalEnd(p);
+        if (end > bestEnd) { bestType = JavaLexer.DECIMAL_LITERAL; bestEnd = end; }
+        end = prefixedEnd(p, 'x', 'X', 16);
+        if (end > bestEnd) { bestType = JavaLexer.HEX_LITERAL; bestEnd = end; }
+        end = octalEnd(p);
+        if (end > bestEnd) { bestType = JavaLexer.OCT_LITERAL; bestEnd = end; }
+        end = prefixedEnd(p, 'b', 'B', 2);
+        if (end > bestEnd) { bestType = JavaLexer.BINARY_LITERAL; bestEnd = end; }
+        end = floatEnd(p);
+        if (end > bestEnd) { bestType = JavaLexer.FLOAT_LITERAL; bestEnd = end; }
+        end = hexFloatEnd(p);
+        if (end > bestEnd) { bestType = JavaLexer.HEX_FLOAT_LITERAL; bestEnd = end; }
+        if (la(p) == '.') {
+            if (la(p + 1) == '.' && la(p + 2) == '.' && p + 3 > bestEnd) {
+                bestType = JavaLexer.ELLIPSIS;
+                bestEnd = p + 3;
+            } else if (p + 1 > bestEnd) {
+                bestType = JavaLexer.DOT;
+                bestEnd = p + 1;
+            }
+        }
+        result(bestType, bestEnd);
+    }
+
+    private static boolean isDigit(int c, int radix) {
+        switch (radix) {
+            case 2: return c == '0' || c == '1';
+            case 8: return c >= '0' && c <= '7';
+            case 10: return c >= '0' && c <= '9';
+            default: return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+        }
+    }
+
+    /** End of {@code D ((D | '_')* D)?} at p for digits D of the radix, or -1. */
+    private int digitsEnd(int p, int radix) {
+        if (!isDigit(la(p), radix)) return -1;
+        int end = p + 1;
+        int i = p + 1;
+        while (true) {
+            int c = la(i);
+            if (isDigit(c, radix)) end = ++i;
+            else if (c == '_') i++;
+            else return end;
+        }
+    }
+
+    private int longSuffix(int end) {
+        int c = la(end);
+        return c == 'l' || c == 'L' ? end + 1 : end;
+    }
+
+    private int floatSuffix(int end) {
+        int c = la(end);
+        return c == 'f' || c == 'F' || c == 'd' || c == 'D' ? end + 1 : end;
+    }
+
+    /** {@code '0' | [1-9] (Digits? | '_'+ Digits)} followed by an optional [lL]. */
+    private int decimalEnd(int p) {
+        int c = la(p);
+        if (c == '0') return longSuffix(p + 1);
+        if (c < '1' || c > '9') return -1;
+        return longSuffix(digitsEnd(p, 10));
+    }
+
+    /** {@code '0' '_'* [0-7] ([0-7_]* [0-7])? [lL]?} */
+    private int octalEnd(int p) {
+        if (la(p) != '0') return -1;
+        int i = p + 1;
+        while (la(i) == '_') i++;
+        int end = digitsEnd(i, 8);
+        return end < 0 ? -1 : longSuffix(end);
+    }
+
+    /** {@code '0' [xX] HexDigits [lL]?} and {@code '0' [bB] BinaryDigits [lL]?} */
+    private int prefixedEnd(int p, char lower, char upper, int radix) {
+        if (la(p) != '0' || (la(p + 1) != lower && la(p + 1) != upper)) return -1;
+        int end = digitsEnd(p + 2, radix);
+        return end < 0 ? -1 : longSuffix(end);
+    }
+
+    /** {@code [eE] [+-]? Digits}, or -1. */
+    private int exponentEnd(int p) {
+        int c = la(p);
+        if (c != 'e' && c != 'E') return -1;
+        int i = p + 1;
+        if (la(i) == '+' || la(i) == '-') i++;
+        return digitsEnd(i, 10);
+    }
+
+    /**
+     * {@code (Digits '.' Digits? | '.' Digits) ExponentPart? [fFdD]?} or
+     * {@code Digits (ExponentPart [fFdD]? | [fFdD])}.
+     */
+    private int floatEnd(int p) {
+        int best = -1;
+        int digits = digitsEnd(p, 10);
+        int fraction = -1;
+        if (digits > 0 && la(digits) == '.') {
+            int more = digitsEnd(digits + 1, 10);
+            fraction = more > 0 ? more : digits + 1;
+        } else if (digits < 0 && la(p) == '.') {
+            fraction = digitsEnd(p + 1, 10);
+        }
+        if (fraction > 0) {
+            int exponent = exponentEnd(fraction);
+            best = floatSuffix(exponent > 0 ? exponent : fraction);
+        }
+        if (digits > 0) {
+            int exponent = exponentEnd(digits);
+            int end = exponent > 0 ? floatSuffix(exponent) : (floatSuffix(digits) > digits ? digits + 1 : -1);
+            best = Math.max(best, end);
+        }
+        return best;
+    }
+
+    /** {@code '0' [xX] (HexDigits '.'? | HexDigits? '.' HexDigits) [pP] [+-]? Digits [fFdD]?} */
+    private int hexFloatEnd(int p) {
+        if (la(p) != '0' || (la(p + 1) != 'x' && la(p + 1) != 'X')) return -1;
+        int best = -1;
+        int digits = digitsEnd(p + 2, 16);
+        if (digits > 0) {
+            best = Math.max(best, binaryExponentEnd(digits));
+            if (la(digits) == '.') {
+                best = Math.max(best, binaryExponentEnd(digits + 1));
+                int fraction = digitsEnd(digits + 1, 16);
+                if (fraction > 0) best = Math.max(best, binaryExponentEnd(fraction));
+            }
+        }
+        if (la(p + 2) == '.') {
+            int fraction = digitsEnd(p + 3, 16);
+            if (fraction > 0) best = Math.max(best, binaryExponentEnd(fraction));
+        }
+        return best;
+    }
+
+    private int binaryExponentEnd(int p) {
+        int c = la(p);
+        if (c != 'p' && c != 'P') return -1;
+        int i = p + 1;
+        if (la(i) == '+' || la(i) == '-') i++;
+        int digits = digitsEnd(i, 10);
+        return digits < 0 ? -1 : floatSuffix(digits);
+    }
+
+    // ---- operators and comments
+
+    private void matchOperator(int p, int c) {
+        int next = la(p + 1);
+        switch (c) {
+            case '=':
+                if (next == '=') result(JavaLexer.EQUAL, p + 2);
+                else result(JavaLexer.ASSIGN, p + 1);
+                return;
+            case '>':
+                if (next == '=') result(JavaLexer.GE, p + 2);
+                else if (next == '>' && la(p + 2) == '=') result(JavaLexer.RSHIFT_ASSIGN, p + 3);
+                else if (next == '>' && la(p + 2) == '>' && la(p + 3) == '=') result(JavaLexer.URSHIFT_ASSIGN, p + 4);
+                else result(JavaLexer.GT, p + 1);
+                return;
+            case '<':
+                if (next == '=') result(JavaLexer.LE, p + 2);
+                else if (next == '<' && la(p + 2) == '=') result(JavaLexer.LSHIFT_ASSIGN, p + 3);
+                else result(JavaLexer.LT, p + 1);
+                return;
+            case '!':
+                if (next == '=') result(JavaLexer.NOTEQUAL, p + 2);
+                else result(JavaLexer.BANG, p + 1);
+                return;
+            case ':':
+                if (next == ':') result(JavaLexer.COLONCOLON, p + 2);
+                else result(JavaLexer.COLON, p + 1);
+                return;
+            case '&':
+                if (next == '&') result(JavaLexer.AND, p + 2);
+                else if (next == '=') result(JavaLexer.AND_ASSIGN, p + 2);
+                else result(JavaLexer.BITAND, p + 1);
+                return;
+            case '|':
+                if (next == '|') result(JavaLexer.OR, p + 2);
+                else if (next == '=') result(JavaLexer.OR_ASSIGN, p + 2);
+                else result(JavaLexer.BITOR, p + 1);
+                return;
+            case '+':
+                if (next == '+') result(JavaLexer.INC, p + 2);
+                else if (next == '=') result(JavaLexer.ADD_ASSIGN, p + 2);
+                else result(JavaLexer.ADD, p + 1);
+                return;
+            case '-':
+                if (next == '-') result(JavaLexer.DEC, p + 2);
+                else if (next == '=') result(JavaLexer.SUB_ASSIGN, p + 2);
+                else if (next == '>') result(JavaLexer.ARROW, p + 2);
+                else result(JavaLexer.SUB, p + 1);
+                return;
+            case '*':
+                if (next == '=') result(JavaLexer.MUL_ASSIGN, p + 2);
+                else result(JavaLexer.MUL, p + 1);
+                return;
+            case '^':
+                if (next == '=') result(JavaLexer.XOR_ASSIGN, p + 2);
+                else result(JavaLexer.CARET, p + 1);
+                return;
+            case '%':
+                if (next == '=') result(JavaLexer.MOD_ASSIGN, p + 2);
+                else result(JavaLexer.MOD, p + 1);
+                return;
+            default: // '/'
+                if (next == '/') {
+                    int end = p + 2;
+                    for (int n = la(end); n != EOF && n != '\r' && n != '\n'; n = la(++end)) { }
+                    result(JavaLexer.LINE_COMMENT, end);
+                } else if (next == '*') {
+                    int close = indexOf("*/", p + 2);
+                    if (close >= 0) result(JavaLexer.COMMENT, close + 2);
+                    else result(JavaLexer.DIV, p + 1);
+                } else if (next == '=') {
+                    result(JavaLexer.DIV_ASSIGN, p + 2);
+                } else {
+                    result(JavaLexer.DIV, p + 1);
+                }
+        }
+    }
+
+    private int indexOf(String needle, int from) {
+        for (int i = from; i + needle.length() <= size; i++) {
+            if (regionMatches(i, needle)) return i;
+        }
+        return -1;
+    }
+
+    // ---- string, text block and char literals
+
+    private void matchQuote(int p) {
+        if (la(p + 1) == '"' && la(p + 2) == '"') {
+            // TEXT_BLOCK: '"""' [ \t]* [\r\n] (. | EscapeSequence)*? '"""', otherwise the empty string ""
+            int i = p + 3;
+            while (la(i) == ' ' || la(i) == '\t') i++;
+            if (la(i) == '\r' || la(i) == '\n') {
+                int close = indexOf("\"\"\"", i + 1);
+                if (close >= 0) {
+                    result(JavaLexer.TEXT_BLOCK, close + 3);
+                    return;
+                }
+            }
+            result(JavaLexer.STRING_LITERAL, p + 2);
+            return;
+        }
+        matchQuoted(p, true);
+    }
+
+    // NFA states of STRING_LITERAL / CHAR_LITERAL bodies, as bits of an int. EscapeSequence is
+    //   '\\' 'u005c'? [btnfr"'\\] | '\\' 'u005c'? ([0-3]? [0-7])? [0-7] | '\\' 'u'+ HexDigit{4}
+    private static final int BODY = 1;             // string: inside the body loop
+    private static final int CHAR_START = 1 << 1;  // char: right after the opening quote
+    private static final int NEED_QUOTE = 1 << 2;  // char: one character read, closing quote expected
+    private static final int ESCAPE = 1 << 3;      // after the backslash
+    private static final int PREFIX_U = 1 << 4;    // 'u005c' prefix: u read
+    private static final int PREFIX_0 = 1 << 5;    // u0
+    private static final int PREFIX_00 = 1 << 6;   // u00
+    private static final int PREFIX_5 = 1 << 7;    // u005
+    private static final int PREFIX_C = 1 << 8;    // u005c complete
+    private static final int OCTAL_1 = 1 << 9;     // exactly one more octal digit
+    private static final int OCTAL_2 = 1 << 10;    // one more [0-7] leading to OCTAL_1
+    private static final int UNICODE_U = 1 << 11;  // 'u'+ read
+    private static final int HEX_1 = 1 << 12;      // hex digits read: 1
+    private static final int HEX_2 = 1 << 13;      // 2
+    private static final int HEX_3 = 1 << 14;      // 3
+
+    /**
+     * Simulates every alternative of a string or char literal at once, like the ATN simulator does,
+     * so that the longest match and the failure offset come out the same.
+     */
+    private void matchQuoted(int p, boolean string) {
+        int escaped = string ? BODY : NEED_QUOTE;
+        int states = string ? BODY : CHAR_START;
+        char quote = string ? '"' : '\'';
+        int acceptEnd = -1;
+        int i = p + 1;
+        for (; states != 0; i++) {
+            int c = la(i);
+            if (c == EOF) break;
+            int next = 0;
+            if ((states & (BODY | CHAR_START)) != 0) {
+                if (c == '\\') next |= ESCAPE;
+                else if (c != quote && c != '\r' && c != '\n') next |= string ? BODY : NEED_QUOTE;
+                else if (c == quote && string) acceptEnd = i + 1;
+            }
+            if ((states & NEED_QUOTE) != 0 && c == '\'') acceptEnd = i + 1;
+            if ((states & (ESCAPE | PREFIX_C)) != 0) {
+                if (c == 'b' || c == 't' || c == 'n' || c == 'f' || c == 'r' || c == '"' || c == '\'' || c == '\\') next |= escaped;
+                if (c >= '0' && c <= '7') next |= escaped | OCTAL_1;
+                if (c >= '0' && c <= '3') next |= OCTAL_2;
+            }
+            if ((states & ESCAPE) != 0 && c == 'u') next |= PREFIX_U | UNICODE_U;
+            if ((states & PREFIX_U) != 0 && c == '0') next |= PREFIX_0;
+            if ((states & PREFIX_0) != 0 && c == '0') next |= PREFIX_00;
+            if ((states & PREFIX_00) != 0 && c == '5') next |= PREFIX_5;
+            if ((states & PREFIX_5) != 0 && c == 'c') next |= PREFIX_C;
+            if ((states & OCTAL_1) != 0 && c >= '0' && c <= '7') next |= escaped;
+            if ((states & OCTAL_2) != 0 && c >= '0' && c <= '7') next |= OCTAL_1;
+            if ((states & UNICODE_U) != 0 && c == 'u') next |= UNICODE_U;
+            boolean hex = isDigit(c, 16);
+            if (hex) {
+                if ((states & UNICODE_U) != 0) next |= HEX_1;
+                if ((states & HEX_1) != 0) next |= HEX_2;
+                if ((states & HEX_2) != 0) next |= HEX_3;
+                if ((states & HEX_3) != 0) next |= escaped;
+            }
+            states = next;
+        }
+        // i is where the last alternatives died (or EOF)
+        if (acceptEnd > 0) result(string ? JavaLexer.STRING_LITERAL : JavaLexer.CHAR_LITERAL, acceptEnd);
+        else result(ERROR, states == 0 ? i - 1 : i);
+    }
+
+    // ---- errors
+
+    private void reportError(int start, int failedAt, int startLine, int startColumn) {
+        String text = input.getText(Interval.of(start, Math.min(failedAt, size - 1)));
+        StringBuilder display = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') display.append("\\n");
+            else if (c == '\t') display.append("\\t");
+            else if (c == '\r') display.append("\\r");
+            else display.append(c);
+        }
+        String message = "token recognition error at: '" + display + "'";
+        for (ANTLRErrorListener listener : listeners) {
+            listener.syntaxError(null, null, startLine, startColumn, message, null);
+        }
+    }
+
+    @Override
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return column;
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return input;
+    }
+
+    @Override
+    public String getSourceName() {
+        return input != null ? input.getSourceName() : CharStream.UNKNOWN_SOURCE_NAME;
+    }
+
+    @Override
+    public void setTokenFactory(TokenFactory<?> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+        return factory;
+    }
+}
@@ -0,0 +1,402 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+import org.arjun.interpreter.JavaParser;
+
+/**
+ * JavaParser whose {@code expression} rule first tries a hand-written precedence-climbing parser.
+ * <p>
+ * The generated rule predicts every operand and every operator through the ATN, which is what makes long
+ * concatenations and arithmetic chains expensive. The fast path covers the everyday subset - names,
+ * literals, {@code this}, parentheses, field accesses, calls, indexing, prefix/postfix/binary operators,
+ * the conditional and assignments - and builds exactly the contexts the generated rule would: same
+ * classes, children, {@code bop}/{@code prefix}/{@code postfix} tokens, start/stop tokens and invoking states.
+ * <p>
+ * Anything else (casts, lambdas, {@code new}, method references, generics, shifts, instanceof, switch
+ * expressions, syntax errors...) makes it rewind and leave the expression to the generated rule. Positions
+ * up to where it gave up are not retried, so a region is scanned at most once by the fast path.
+ */
+public class HybridJavaParser extends JavaParser {
+    // ATN states the generated rules pass as invoking state when they call a sub-rule
+    private static final int EXPRESSION_START = 198;
+    private static final int PREFIX_OPERAND = 1346;
+    private static final int MULTIPLICATIVE_OPERAND = 1372;
+    private static final int ADDITIVE_OPERAND = 1375;
+    private static final int RELATIONAL_OPERAND = 1389;
+    private static final int EQUALITY_OPERAND = 1392;
+    private static final int BITAND_OPERAND = 1395;
+    private static final int CARET_OPERAND = 1398;
+    private static final int BITOR_OPERAND = 1401;
+    private static final int AND_OPERAND = 1404;
+    private static final int OR_OPERAND = 1407;
+    private static final int CONDITIONAL_THEN = 1410;
+    private static final int CONDITIONAL_ELSE = 1412;
+    private static final int ASSIGNMENT_OPERAND = 1416;
+    private static final int INDEX = 1419;
+    private static final int MEMBER_IDENTIFIER = 1424;
+    private static final int MEMBER_CALL = 1425;
+    private static final int PRIMARY = 1326;
+    private static final int CALL = 1327;
+    private static final int PARENTHESIZED = 1504;
+    private static final int PRIMARY_LITERAL = 1509;
+    private static final int PRIMARY_IDENTIFIER = 1510;
+    private static final int INTEGER_LITERAL = 801;
+    private static final int FLOAT_LITERAL_STATE = 802;
+    private static final int CALL_IDENTIFIER = 1318;
+    private static final int CALL_ARGUMENTS = 1323;
+    private static final int ARGUMENT_LIST = 1749;
+    private static final int FIRST_ARGUMENT = 1310;
+    private static final int NEXT_ARGUMENT = 1312;
+
+    /** Token index before which the fast path already gave up once; those expressions stay with the generated rule. */
+    private int declinedBefore = -1;
+    /** Furthest token index the current attempt looked at. */
+    private int reach;
+
+    public HybridJavaParser(TokenStream input) {
+        super(input);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        declinedBefore = -1;
+    }
+
+    @Override
+    protected ExpressionContext expressionFastPath(ParserRuleContext parent, int invokingState, int precedence) {
+        if (!getBuildParseTree() || isTrace() || !getParseListeners().isEmpty() || _errHandler.inErrorRecoveryMode(this)) {
+            return null;
+        }
+        int start = _input.index();
+        if (start < declinedBefore) {
+            return null;
+        }
+        reach = start;
+        ExpressionContext expression = expression(parent, invokingState, precedence);
+        if (expression == null) {
+            _input.seek(start);
+            declinedBefore = reach + 1;
+            return null;
+        }
+        if (parent != null) {
+            parent.addChild(expression);
+        }
+        return expression;
+    }
+
+    // ---- precedence climbing; every method returns null when the input is outside the fast path's subset
+
+    private ExpressionContext expression(ParserRuleContext parent, int invokingState, int precedence) {
+        ExpressionContext left = operand(parent, invokingState);
+        if (left == null) {
+            return null;
+        }
+        while (true) {
+            int type = la(1);
+            int level = binaryLevel(type);
+            if (level > 0) {
+                if ((type == GT || type == LT) && la(2) == type) {
+                    // << >> >>> are pairs of tokens, one level above the relational operators
+                    if (12 < precedence) return left;
+                    return null;
+                }
+                if (level < precedence) return left;
+                ExpressionContext node = extend(left, parent, invokingState);
+                node.bop = consume(node);
+                if (!subExpression(node, operandState(type), level == 2 ? 2 : level + 1)) return null;
+                left = finish(node);
+                continue;
+            }
+            switch (type) {
+                case QUESTION: {
+                    if (3 < precedence) return left;
+                    ExpressionContext node = extend(left, parent, invokingState);
+                    node.bop = consume(node);
+                    if (!subExpression(node, CONDITIONAL_THEN, 0) || la(1) != COLON) return null;
+                    consume(node);
+                    if (!subExpression(node, CONDITIONAL_ELSE, 3)) return null;
+                    left = finish(node);
+                    continue;
+                }
+                case INC:
+                case DEC: {
+                    if (18 < precedence) return left;
+                    ExpressionContext node = extend(left, parent, invokingState);
+                    node.postfix = consume(node);
+                    left = finish(node);
+                    continue;
+                }
+                case LBRACK: {
+                    if (25 < precedence) return left;
+                    if (la(2) == RBRACK) return null; // array type of a method reference
+                    ExpressionContext node = extend(left, parent, invokingState);
+                    consume(node);
+                    if (!subExpression(node, INDEX, 0) || la(1) != RBRACK) return null;
+                    consume(node);
+                    left = finish(node);
+                    continue;
+                }
+                case DOT: {
+                    if (24 < precedence) return left;
+                    if (la(2) != IDENTIFIER) return null; // this, new, super, class, generic invocation
+                    ExpressionContext node = extend(left, parent, invokingState);
+                    node.bop = consume(node);
+                    if (la(2) == LPAREN) {
+                        if (methodCall(node, MEMBER_CALL) == null) return null;
+                    } else {
+                        identifier(node, MEMBER_IDENTIFIER);
+                    }
+                    left = finish(node);
+                    continue;
+                }
+                case RPAREN:
+                case RBRACK:
+                case RBRACE:
+                case SEMI:
+                case COMMA:
+                case COLON:
+                case Token.EOF:
+                    return left;
+                default:
+                    see(1);
+                    return null;
+            }
+        }
+    }
+
+    /** Parses an expression that the generated rule would parse as a call from {@code parent} and attaches it. */
+    private boolean subExpression(ParserRuleContext parent, int invokingState, int precedence) {
+        ExpressionContext expression = expression(parent, invokingState, precedence);
+        if (expression == null) {
+            return false;
+        }
+        parent.addChild(expression);
+        return true;
+    }
+
+    private ExpressionContext operand(ParserRuleContext parent, int invokingState) {
+        ExpressionContext expression = new ExpressionContext(parent, invokingState);
+        expression.start = _input.LT(1);
+        switch (la(1)) {
+            case IDENTIFIER:
+                if (la(2) == LPAREN) {
+                    if (methodCall(expression, CALL) == null) return null;
+                } else {
+                    PrimaryContext primary = primary(expression);
+                    identifier(primary, PRIMARY_IDENTIFIER);
+                    finish(primary);
+                }
+                break;
+            case THIS:
+                if (la(2) == LPAREN) return null; // constructor call
+                finish(terminal(primary(expression)));
+                break;
+            case DECIMAL_LITERAL:
+            case HEX_LITERAL:
+            case OCT_LITERAL:
+            case BINARY_LITERAL:
+            case FLOAT_LITERAL:
+            case HEX_FLOAT_LITERAL:
+            case CHAR_LITERAL:
+            case STRING_LITERAL:
+            case BOOL_LITERAL:
+            case NULL_LITERAL:
+            case TEXT_BLOCK: {
+                PrimaryContext primary = primary(expression);
+                literal(primary);
+                finish(primary);
+                break;
+            }
+            case LPAREN: {
+                PrimaryContext primary = primary(expression);
+                consume(primary);
+                if (!subExpression(primary, PARENTHESIZED, 0) || la(1) != RPAREN) return null;
+                consume(primary);
+                finish(primary);
+                // a parenthesized expression followed by an operand start would be a cast
+                if (!mayFollowParentheses(la(1))) {
+                    see(1);
+                    return null;
+                }
+                break;
+            }
+            case ADD:
+            case SUB:
+            case INC:
+            case DEC:
+            case TILDE:
+            case BANG:
+                expression.prefix = consume(expression);
+                if (!subExpression(expression, PREFIX_OPERAND, 17)) return null;
+                break;
+            default:
+                see(1);
+                return null;
+        }
+        return finish(expression);
+    }
+
+    /**
+     * After {@code (x)} the generated rule only prefers the parenthesized expression over a cast when the next
+     * token cannot start the cast's operand; + and - can do both, and the ambiguity resolves to parentheses.
+     */
+    private static boolean mayFollowParentheses(int type) {
+        switch (type) {
+            case INC:
+            case DEC:
+            case BANG:
+            case TILDE:
+            case LPAREN:
+                return false;
+            default:
+                return binaryLevel(type) > 0 || type == QUESTION || type == LBRACK || type == DOT
+                        || type == RPAREN || type == RBRACK || type == RBRACE || type == SEMI
+                        || type == COMMA || type == COLON || type == Token.EOF;
+        }
+    }
+
+    private MethodCallContext methodCall(ParserRuleContext parent, int invokingState) {
+        MethodCallContext call = new MethodCallContext(parent, invokingState);
+        call.start = _input.LT(1);
+        parent.addChild(call);
+        identifier(call, CALL_IDENTIFIER);
+        ArgumentsContext arguments = new ArgumentsContext(call, CALL_ARGUMENTS);
+        arguments.start = _input.LT(1);
+        call.addChild(arguments);
+        consume(arguments);
+        if (la(1) != RPAREN) {
+            ExpressionListContext list = new ExpressionListContext(arguments, ARGUMENT_LIST);
+            list.start = _input.LT(1);
+            arguments.addChild(list);
+            if (!subExpression(list, FIRST_ARGUMENT, 0)) return null;
+            while (la(1) == COMMA) {
+                consume(list);
+                if (!subExpression(list, NEXT_ARGUMENT, 0)) return null;
+            }
+            finish(list);
+            if (la(1) != RPAREN) {
+                see(1);
+                return null;
+            }
+        }
+        consume(arguments);
+        finish(arguments);
+        return finish(call);
+    }
+
+    private PrimaryContext primary(ExpressionContext expression) {
+        PrimaryContext primary = new PrimaryContext(expression, PRIMARY);
+        primary.start = _input.LT(1);
+        expression.addChild(primary);
+        return primary;
+    }
+
+    private void identifier(ParserRuleContext parent, int invokingState) {
+        IdentifierContext identifier = new IdentifierContext(parent, invokingState);
+        identifier.start = _input.LT(1);
+        parent.addChild(identifier);
+        consume(identifier);
+        finish(identifier);
+    }
+
+    private void literal(PrimaryContext primary) {
+        LiteralContext literal = new LiteralContext(primary, PRIMARY_LITERAL);
+        literal.start = _input.LT(1);
+        primary.addChild(literal);
+        switch (la(1)) {
+            case DECIMAL_LITERAL:
+            case HEX_LITERAL:
+            case OCT_LITERAL:
+            case BINARY_LITERAL:
+                finish(terminal(child(literal, new IntegerLiteralContext(literal, INTEGER_LITERAL))));
+                break;
+            case FLOAT_LITERAL:
+            case HEX_FLOAT_LITERAL:
+                finish(terminal(child(literal, new FloatLiteralContext(literal, FLOAT_LITERAL_STATE))));
+                break;
+            default:
+                consume(literal);
+        }
+        finish(literal);
+    }
+
+    private ParserRuleContext child(ParserRuleContext parent, ParserRuleContext child) {
+        child.start = _input.LT(1);
+        parent.addChild(child);
+        return child;
+    }
+
+    private ParserRuleContext terminal(ParserRuleContext context) {
+        consume(context);
+        return context;
+    }
+
+    /** Left-recursive step: a new context takes the finished {@code left} as its first child. */
+    private ExpressionContext extend(ExpressionContext left, ParserRuleContext parent, int invokingState) {
+        ExpressionContext node = new ExpressionContext(parent, invokingState);
+        left.parent = node;
+        left.invokingState = EXPRESSION_START;
+        node.start = left.start;
+        node.addChild(left);
+        return node;
+    }
+
+    private Token consume(ParserRuleContext context) {
+        Token token = _input.LT(1);
+        see(1);
+        context.addChild(new TerminalNodeImpl(token));
+        _input.consume();
+        return token;
+    }
+
+    private <T extends ParserRuleContext> T finish(T context) {
+        context.stop = _input.LT(-1);
+        return context;
+    }
+
+    private int la(int i) {
+        see(i);
+        return _input.LA(i);
+    }
+
+    private void see(int i) {
+        reach = Math.max(reach, _input.index() + i - 1);
+    }
+
+    private static int binaryLevel(int type) {
+        switch (type) {
+            case MUL: case DIV: case MOD: return 14;
+            case ADD: case SUB: return 13;
+            case LT: case GT: case LE: case GE: return 11;
+            case EQUAL: case NOTEQUAL: return 9;
+            case BITAND: return 8;
+            case CARET: return 7;
+            case BITOR: return 6;
+            case AND: return 5;
+            case OR: return 4;
+            case ASSIGN: case ADD_ASSIGN: case SUB_ASSIGN: case MUL_ASSIGN: case DIV_ASSIGN: case AND_ASSIGN:
+            case OR_ASSIGN: case XOR_ASSIGN: case MOD_ASSIGN: case LSHIFT_ASSIGN: case RSHIFT_ASSIGN: case URSHIFT_ASSIGN:
+                return 2;
+            default: return 0;
+        }
+    }
+
+    private static int operandState(int type) {
+        switch (binaryLevel(type)) {
+            case 14: return MULTIPLICATIVE_OPERAND;
+            case 13: return ADDITIVE_OPERAND;
+            case 11: return RELATIONAL_OPERAND;
+            case 9: return EQUALITY_OPERAND;
+            case 8: return BITAND_OPERAND;
+            case 7: return CARET_OPERAND;
+            case 6: return BITOR_OPERAND;
+            case 5: return AND_OPERAND;
+            case 4: return OR_OPERAND;
+            default: return ASSIGNMENT_OPERAND;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.arjun.interpreter.JavaLexer;
+import org.arjun.interpreter.JavaParser;
+import org.arjun.stats.TranslationEvents;
+
+/**
+ * Builds the compilation unit tree for a Java source.
+ * In {@link ParseMode#TWO_STAGE} the input is first parsed with SLL prediction and a
+ * {@link BailErrorStrategy}; only when that bails is the token stream rewound and parsed
+ * again with full LL prediction and the default error recovery.
+ * <p>
+ * The tokens come from the generated {@link JavaLexer} or, with {@link LexerKind#FAST}, from the
+ * equivalent {@link FastJavaLexer}; with {@link ParserOptions#isFastExpressions()} expressions are
+ * parsed by {@link HybridJavaParser}. With {@link ParserOptions#getParseThreads()} above 1, large files are
+ * first tried member by member on several threads by {@link ParallelMemberParser}. {@link #parseStreamed} leaves
+ * the members of classes out of the tree for {@link StreamingMemberParser} to parse one at a time.
+ * <p>
+ * With {@link ParserOptions#hasBudget()}, every parse call starts a new budget, which also covers the streamed
+ * members parsed until the next call; going over it throws a {@link ParseBudgetExceededException}.
+ * <p>
+ * The lexer and parser are reused between calls, so an instance must not be shared between threads.
+ */
+public class JavaSourceParser {
+    private final ParseMode mode;
+    private final ParserOptions options;
+    private final JavaLexer lexer;
+    private final FastJavaLexer fastLexer;
+    private final JavaParser parser;
+    private final ParallelMemberParser memberParser;
+    private StreamingMemberParser streamingParser;
+    private ANTLRErrorListener errorListener = ConsoleErrorListener.INSTANCE;
+
+    public JavaSourceParser(ParseMode mode) {
+        this(mode, ParserOptions.defaults());
+    }
+
+    public JavaSourceParser(ParseMode mode, ParserOptions options) {
+        this.mode = mode;
+        this.options = options;
+        this.lexer = options.getLexer() == LexerKind.ANTLR ? new JavaLexer(null) : null;
+        this.fastLexer = options.getLexer() == LexerKind.FAST ? new FastJavaLexer(null) : null;
+        this.parser = newParser(options);
+        this.memberParser = options.getParseThreads() > 1 ? new ParallelMemberParser(mode, options, parser) : null;
+    }
+
+    static JavaParser newParser(ParserOptions options) {
+        JavaParser parser = options.isFastExpressions() ? new HybridJavaParser(null) : new JavaParser(null);
+        if (options.hasBudget()) {
+            BudgetedATNSimulator.install(parser, options);
+        }
+        return parser;
+    }
+
+    public ParseMode getMode() {
+        return mode;
+    }
+
+    public ParserOptions getOptions() {
+        return options;
+    }
+
+    /** Reports the lexing and syntax errors of later parses to {@code listener}; null reports them to the console again. */
+    public void setErrorListener(ANTLRErrorListener listener) {
+        errorListener = listener != null ? listener : ConsoleErrorListener.INSTANCE;
+        if (fastLexer != null) {
+            fastLexer.removeErrorListeners();
+            fastLexer.addErrorListener(errorListener);
+        } else {
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(errorListener);
+        }
+    }
+
+    public ParseResult parse(CharStream input) {
+        return parse(tokenStream(input));
+    }
+
+    /** Lexes the whole of {@code input} up front, e.g. to time lexing apart from {@link #parse(CommonTokenStream)}. */
+    public CommonTokenStream lex(CharStream input) {
+        CommonTokenStream tokenStream = tokenStream(input);
+        tokenStream.fill();
+        return tokenStream;
+    }
+
+    private CommonTokenStream tokenStream(CharStream input) {
+        if (fastLexer != null) {
+            fastLexer.setInputStream(input);
+            return new CommonTokenStream(fastLexer);
+        }
+        lexer.setInputStream(input);
+        return new CommonTokenStream(lexer);
+    }
+
+    /**
+     * Like {@link #parse(CharStream)}, but the members of top-level classes are not in the tree: they are parsed
+     * when translated, through {@link ParseResult#getStreamedMembers()}, which stays usable until the next parse.
+     * Sources that cannot be streamed, like those with syntax errors, are parsed whole.
+     */
+    public ParseResult parseStreamed(CharStream input) {
+        if (streamingParser == null) {
+            streamingParser = new StreamingMemberParser(mode, options, parser);
+        }
+        BudgetedATNSimulator.start(parser);
+        ParseResult result = streamingParser.parse(input);
+        if (result != null) {
+            return result;
+        }
+        input.seek(0);
+        return parseTokens(tokenStream(input));
+    }
+
+    /** Parses an already lexed (or lazily lexing) token stream, e.g. one replayed from a token list. */
+    public ParseResult parse(CommonTokenStream tokenStream) {
+        BudgetedATNSimulator.start(parser);
+        return parseTokens(tokenStream);
+    }
+
+    private ParseResult parseTokens(CommonTokenStream tokenStream) {
+        if (memberParser != null) {
+            ParseResult result = memberParser.parse(tokenStream);
+            if (result != null) {
+                return result;
+            }
+        }
+        parser.setTokenStream(tokenStream);
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorListener);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        switch (mode) {
+            case SLL:
+                parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+                return new ParseResult(parser.compilationUnit(), tokenStream, ParseResult.Stage.SLL, false);
+            case LL:
+                parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+                return new ParseResult(parser.compilationUnit(), tokenStream, ParseResult.Stage.LL, false);
+            default:
+                return parseTwoStage(tokenStream);
+        }
+    }
+
+    private ParseResult parseTwoStage(CommonTokenStream tokenStream) {
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            return new ParseResult(parser.compilationUnit(), tokenStream, ParseResult.Stage.SLL, false);
+        } catch (ParseCancellationException sllFailure) {
+            Token offending = parser.getCurrentToken();
+            if (sllFailure.getCause() instanceof RecognitionException
+                    && ((RecognitionException) sllFailure.getCause()).getOffendingToken() != null) {
+                offending = ((RecognitionException) sllFailure.getCause()).getOffendingToken();
+            }
+            TranslationEvents.ParseFallback event = TranslationEvents.beginParseFallback(tokenStream.getSourceName(),
+                    offending.getLine(), offending.getTokenIndex());
+            tokenStream.seek(0);
+            parser.reset();
+            parser.addErrorListener(errorListener);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            ParseResult result = new ParseResult(parser.compilationUnit(), tokenStream, ParseResult.Stage.LL, true);
+            TranslationEvents.endParseFallback(event);
+            return result;
+        }
+    }
+}
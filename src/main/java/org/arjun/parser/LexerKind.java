@@ -0,0 +1,19 @@
+package org.arjun.parser;
+
+public enum LexerKind {
+    /** The ANTLR-generated {@link org.arjun.interpreter.JavaLexer}. */
+    ANTLR,
+    /** The hand-written {@link FastJavaLexer}, producing the same tokens. */
+    FAST;
+
+    public static LexerKind fromArg(String arg) {
+        switch (arg.toLowerCase()) {
+            case "antlr":
+                return ANTLR;
+            case "fast":
+                return FAST;
+            default:
+                throw new IllegalArgumentException("Unknown lexer: " + arg + " (expected antlr or fast)");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link CharStream} reading a memory-mapped UTF-8 source file in place. Sources are nearly always pure
+ * ASCII, where every byte is one code point, so the lexer reads the mapped bytes directly and only token
+ * texts are copied out; a file holding any other byte is decoded up front like
+ * {@link CharStreams#fromFileName(String)} does.
+ * <p>
+ * The mapping lives until the buffer is garbage collected, so the file should not be written meanwhile.
+ * Like {@code CodePointCharStream}, marks are no-ops and an instance belongs to one lexer at a time.
+ */
+public final class MappedCharStream implements CharStream {
+    private static final long NON_ASCII = 0x8080808080808080L;
+
+    private final ByteBuffer bytes;
+    private final int size;
+    private final String sourceName;
+    private int position;
+
+    private MappedCharStream(ByteBuffer bytes, String sourceName) {
+        this.bytes = bytes;
+        this.size = bytes.remaining();
+        this.sourceName = sourceName;
+    }
+
+    /** Maps {@code path} and reads it as UTF-8, with the path as source name. */
+    public static CharStream open(Path path) throws IOException {
+        return of(map(path), path.toString());
+    }
+
+    /** Maps the whole of {@code path} read-only; the buffer stays valid after the file is closed. */
+    public static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Reads UTF-8 {@code bytes} (from its position to its limit, which are left alone) in place when they are
+     * all ASCII, and decodes them otherwise; malformed input is replaced like {@link CharStreams} does.
+     */
+    public static CharStream of(ByteBuffer bytes, String sourceName) {
+        ByteBuffer view = bytes.slice();
+        if (isAscii(view)) {
+            return new MappedCharStream(view, sourceName);
+        }
+        return CharStreams.fromString(StandardCharsets.UTF_8.decode(view).toString(), sourceName);
+    }
+
+    private static boolean isAscii(ByteBuffer bytes) {
+        int size = bytes.remaining();
+        int i = 0;
+        // eight bytes at a time; the byte order does not matter for testing the high bits
+        ByteBuffer words = bytes.duplicate().order(ByteOrder.nativeOrder());
+        for (; i + 8 <= size; i += 8) {
+            if ((words.getLong(i) & NON_ASCII) != 0) {
+                return false;
+            }
+        }
+        for (; i < size; i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void consume() {
+        if (position >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        position++;
+    }
+
+    @Override
+    public int LA(int i) {
+        int offset;
+        if (i > 0) {
+            offset = position + i - 1;
+        } else if (i < 0) {
+            offset = position + i;
+        } else {
+            return 0;
+        }
+        if (offset < 0 || offset >= size) {
+            return IntStream.EOF;
+        }
+        return bytes.get(offset);
+    }
+
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return position;
+    }
+
+    @Override
+    public void seek(int index) {
+        position = index;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName == null || sourceName.isEmpty() ? UNKNOWN_SOURCE_NAME : sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = Math.min(interval.a, size);
+        int length = Math.min(interval.b - interval.a + 1, size - start);
+        if (length <= 0) {
+            return "";
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) bytes.get(start + i);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
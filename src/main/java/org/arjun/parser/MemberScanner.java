@@ -0,0 +1,183 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.Token;
+import org.arjun.interpreter.JavaParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the bodies of top-level classes and the boundaries of the members inside them by brace matching.
+ * Tokens are fed one at a time, so a file can be scanned without keeping its tokens.
+ * <p>
+ * A member ends at a top-level {@code ;}, or at the {@code }} closing its body unless it is a field whose
+ * initializer (an array, lambda or anonymous class) holds the brace. The scan is only a guess: callers
+ * parse every member on its own and check that it ends where the scan said.
+ */
+final class MemberScanner {
+    private final List<ClassBody> bodies = new ArrayList<>();
+    private int position;
+    private int previousType = Token.INVALID_TYPE;
+    private int parens;
+    private boolean classHeader;
+    private int skipDepth;
+    private boolean failed;
+
+    private ClassBody body;
+    private int depth;
+    private int memberParens;
+    private boolean initializer;
+    private int memberFrom;
+    private Token memberFirst;
+
+    /** Scans a whole list of on-channel tokens; null when the braces do not balance. */
+    static List<ClassBody> scan(List<Token> tokens) {
+        MemberScanner scanner = new MemberScanner();
+        for (Token token : tokens) {
+            scanner.feed(token);
+        }
+        return scanner.finish();
+    }
+
+    /** Feeds the next on-channel token; returns false when it belongs to a member of a class body. */
+    boolean feed(Token token) {
+        int type = token.getType();
+        int at = position++;
+        boolean skeleton = failed || (body != null ? !feedMember(token, type, at) : feedTopLevel(token, type, at));
+        previousType = type;
+        return skeleton;
+    }
+
+    /** The class bodies found, in source order; null when the braces did not balance. */
+    List<ClassBody> finish() {
+        return failed || body != null || skipDepth != 0 ? null : bodies;
+    }
+
+    private boolean feedTopLevel(Token token, int type, int at) {
+        if (skipDepth > 0) {
+            if (type == JavaParser.LBRACE) {
+                skipDepth++;
+            } else if (type == JavaParser.RBRACE) {
+                skipDepth--;
+            }
+            return true;
+        }
+        switch (type) {
+            case JavaParser.LPAREN:
+                parens++;
+                break;
+            case JavaParser.RPAREN:
+                parens--;
+                break;
+            case JavaParser.CLASS:
+                classHeader |= parens == 0 && previousType != JavaParser.DOT;
+                break;
+            case JavaParser.LBRACE:
+                if (classHeader && parens == 0) {
+                    body = new ClassBody(at, token);
+                    depth = 0;
+                    memberParens = 0;
+                    initializer = false;
+                    memberFrom = at + 1;
+                    memberFirst = null;
+                } else {
+                    skipDepth = 1;
+                }
+                classHeader &= parens != 0;
+                break;
+            case JavaParser.RBRACE:
+                failed = true;
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    /** Returns true when the token is part of a member, false for the braces of the class body itself. */
+    private boolean feedMember(Token token, int type, int at) {
+        if (type == JavaParser.RBRACE && depth == 0) {
+            failed = memberFirst != null;
+            body.close = at;
+            bodies.add(body);
+            body = null;
+            return false;
+        }
+        if (memberFirst == null) {
+            memberFirst = token;
+        }
+        boolean end = false;
+        switch (type) {
+            case JavaParser.LPAREN:
+                memberParens++;
+                break;
+            case JavaParser.RPAREN:
+                memberParens--;
+                break;
+            case JavaParser.ASSIGN:
+                initializer |= depth == 0 && memberParens == 0;
+                break;
+            case JavaParser.LBRACE:
+                depth++;
+                break;
+            case JavaParser.RBRACE:
+                depth--;
+                end = depth == 0 && memberParens == 0 && !initializer;
+                break;
+            case JavaParser.SEMI:
+                end = depth == 0 && memberParens == 0;
+                break;
+            case Token.EOF:
+                failed = true;
+                break;
+            default:
+                break;
+        }
+        if (end) {
+            body.members.add(new Member(memberFrom, at, memberFirst, token));
+            memberFrom = at + 1;
+            memberFirst = null;
+            initializer = false;
+        }
+        return true;
+    }
+
+    /** Positions (counted in on-channel tokens) of a top-level class body's braces, and its members. */
+    static final class ClassBody {
+        final int open;
+        final Token openToken;
+        int close;
+        final List<Member> members = new ArrayList<>();
+
+        ClassBody(int open, Token openToken) {
+            this.open = open;
+            this.openToken = openToken;
+        }
+
+        /** This body's context in a tree of the file, or null when the scan took something else for a class. */
+        JavaParser.ClassBodyContext in(JavaParser.CompilationUnitContext tree) {
+            for (JavaParser.TypeDeclarationContext type : tree.typeDeclaration()) {
+                JavaParser.ClassDeclarationContext declaration = type.classDeclaration();
+                if (declaration != null && declaration.classBody() != null && declaration.classBody().start == openToken) {
+                    return declaration.classBody();
+                }
+            }
+            return null;
+        }
+    }
+
+    /** First and last position and token of one class member. */
+    static final class Member {
+        final int from;
+        final int to;
+        final Token first;
+        final Token last;
+
+        Member(int from, int to, Token first, Token last) {
+            this.from = from;
+            this.to = to;
+            this.first = first;
+            this.last = last;
+        }
+    }
+}
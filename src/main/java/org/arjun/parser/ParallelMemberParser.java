@@ -0,0 +1,239 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.arjun.interpreter.JavaParser;
+import org.arjun.parser.MemberScanner.ClassBody;
+import org.arjun.parser.MemberScanner.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses the members of large top-level classes on several threads.
+ * <p>
+ * The lexed tokens are pre-scanned by {@link MemberScanner} for the bodies of top-level classes and the
+ * boundaries of the members inside them. The file is then parsed without those members (a "skeleton"
+ * whose class bodies are empty) while contiguous batches of members are parsed with the
+ * {@code classBodyDeclaration} start rule on worker threads. Each member is parsed from a stream that
+ * continues past its end and under a stand-in of the rule stack that leads to it, so prediction makes the
+ * same choices as in a sequential parse. The member trees are attached to the skeleton's class bodies
+ * exactly as the generated {@code classBody} rule attaches them, so {@link org.arjun.interpreter._interpreter_}
+ * sees the same tree as after a sequential parse.
+ * <p>
+ * Every piece is parsed with a {@link BailErrorStrategy} and must consume exactly its own tokens. When the
+ * scan guessed a boundary wrong or the source has a syntax error, {@link #parse} returns null and the
+ * caller parses the file sequentially, which also produces the usual error reports.
+ * <p>
+ * Like {@link JavaSourceParser}, an instance belongs to one thread; its worker threads are daemons
+ * started on the first file large enough to split.
+ */
+final class ParallelMemberParser {
+    // ATN states the generated rules pass as invoking state on the way from compilationUnit to a class member
+    private static final int TYPE_DECLARATION = 262;
+    private static final int CLASS_DECLARATION = 301;
+    private static final int CLASS_BODY = 348;
+    private static final int CLASS_BODY_DECLARATION = 448;
+
+    private final ParseMode mode;
+    private final ParserOptions options;
+    private final JavaParser parser;
+    private final ThreadLocal<JavaParser> workerParsers;
+    private ExecutorService workers;
+
+    /** Uses {@code parser}, the caller's own parser, for the skeleton and for the first batch of members. */
+    ParallelMemberParser(ParseMode mode, ParserOptions options, JavaParser parser) {
+        this.mode = mode;
+        this.options = options;
+        this.parser = parser;
+        this.workerParsers = ThreadLocal.withInitial(() -> JavaSourceParser.newParser(options));
+    }
+
+    /** Parses {@code tokenStream} member by member, or returns null when it must be parsed sequentially. */
+    ParseResult parse(CommonTokenStream tokenStream) {
+        tokenStream.fill();
+        List<Token> tokens = new ArrayList<>(tokenStream.size());
+        for (Token token : tokenStream.getTokens()) {
+            if (token.getChannel() == Token.DEFAULT_CHANNEL || token.getType() == Token.EOF) {
+                tokens.add(token);
+            }
+        }
+        if (tokens.size() < options.getParallelMinTokens()) {
+            return null;
+        }
+        List<ClassBody> bodies = MemberScanner.scan(tokens);
+        if (bodies == null) {
+            return null;
+        }
+        List<Member> members = new ArrayList<>();
+        for (ClassBody body : bodies) {
+            members.addAll(body.members);
+        }
+        if (members.size() < 2) {
+            return null;
+        }
+        TokenSource source = tokenStream.getTokenSource();
+        List<List<Member>> batches = batches(members, Math.min(options.getParseThreads(), members.size()));
+        List<Future<List<JavaParser.ClassBodyDeclarationContext>>> futures = new ArrayList<>();
+        int initialState = parser.getState();
+        ParseResult result = null;
+        try {
+            for (List<Member> batch : batches.subList(1, batches.size())) {
+                futures.add(workers().submit(() -> {
+                    JavaParser worker = workerParsers.get();
+                    BudgetedATNSimulator.share(parser, worker);
+                    return parseMembers(worker, tokens, batch, source);
+                }));
+            }
+            List<JavaParser.ClassBodyDeclarationContext> parsed = new ArrayList<>(members.size());
+            parsed.addAll(parseMembers(parser, tokens, batches.get(0), source));
+            // the skeleton comes last so that the caller's parser is left as a sequential parse leaves it
+            JavaParser.CompilationUnitContext tree = parseSkeleton(tokens, bodies, source, initialState);
+            for (Future<List<JavaParser.ClassBodyDeclarationContext>> future : futures) {
+                parsed.addAll(future.get());
+            }
+            if (attach(tree, bodies, parsed)) {
+                ParseResult.Stage stage = mode == ParseMode.LL ? ParseResult.Stage.LL : ParseResult.Stage.SLL;
+                result = new ParseResult(tree, tokenStream, stage, false, members.size());
+            }
+        } catch (ParseCancellationException e) {
+            // left to the sequential parse
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            if (e.getCause() instanceof ParseBudgetExceededException) {
+                throw (ParseBudgetExceededException) e.getCause();
+            }
+            if (!(e.getCause() instanceof ParseCancellationException)) {
+                throw new IllegalStateException("parsing members failed", e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(false);
+            }
+            if (result == null) {
+                parser.setState(initialState);
+            }
+        }
+        return result;
+    }
+
+    /** The file with the members of every split class body left out. */
+    private JavaParser.CompilationUnitContext parseSkeleton(List<Token> tokens, List<ClassBody> bodies, TokenSource source, int state) {
+        List<Token> skeleton = new ArrayList<>();
+        int next = 0;
+        for (ClassBody body : bodies) {
+            skeleton.addAll(tokens.subList(next, body.open + 1));
+            next = body.close;
+        }
+        skeleton.addAll(tokens.subList(next, tokens.size()));
+        prepare(parser, new TokenListStream(skeleton, source), mode);
+        parser.setState(state);
+        return parser.compilationUnit();
+    }
+
+    private List<JavaParser.ClassBodyDeclarationContext> parseMembers(JavaParser parser, List<Token> tokens, List<Member> members,
+                                                                        TokenSource source) {
+        List<JavaParser.ClassBodyDeclarationContext> parsed = new ArrayList<>(members.size());
+        for (Member member : members) {
+            JavaParser.ClassBodyDeclarationContext declaration =
+                    parseMember(parser, new TokenListStream(tokens.subList(member.from, tokens.size()), source), mode);
+            if (parser.getInputStream().index() != member.to - member.from + 1) {
+                throw new ParseCancellationException("member boundary guessed wrong before " + parser.getCurrentToken());
+            }
+            parsed.add(declaration);
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses one member of a top-level class from {@code stream}. The stream should run on past the member so
+     * that prediction sees the lookahead of a sequential parse, and the member is parsed under a stand-in of
+     * the rule invocations leading to a class body so that full-context prediction sees the same call stack.
+     */
+    static JavaParser.ClassBodyDeclarationContext parseMember(JavaParser parser, TokenStream stream, ParseMode mode) {
+        prepare(parser, stream, mode);
+        ParserRuleContext compilationUnit = new ParserRuleContext();
+        ParserRuleContext typeDeclaration = new ParserRuleContext(compilationUnit, TYPE_DECLARATION);
+        ParserRuleContext classDeclaration = new ParserRuleContext(typeDeclaration, CLASS_DECLARATION);
+        parser.setContext(new ParserRuleContext(classDeclaration, CLASS_BODY));
+        parser.setState(CLASS_BODY_DECLARATION);
+        return parser.classBodyDeclaration();
+    }
+
+    /** Sets {@code parser} up to parse {@code stream} with bail-out error handling. */
+    static void prepare(JavaParser parser, TokenStream stream, ParseMode mode) {
+        parser.setTokenStream(stream);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(mode == ParseMode.LL ? PredictionMode.LL : PredictionMode.SLL);
+    }
+
+    /** Hangs the parsed members, in source order, into the empty class bodies of the skeleton. */
+    private static boolean attach(JavaParser.CompilationUnitContext tree, List<ClassBody> bodies,
+                                  List<JavaParser.ClassBodyDeclarationContext> parsed) {
+        int next = 0;
+        for (ClassBody body : bodies) {
+            JavaParser.ClassBodyContext classBody = body.in(tree);
+            if (classBody == null || classBody.getChildCount() != 2) {
+                return false;
+            }
+            List<JavaParser.ClassBodyDeclarationContext> declarations = parsed.subList(next, next + body.members.size());
+            for (JavaParser.ClassBodyDeclarationContext declaration : declarations) {
+                declaration.parent = classBody;
+            }
+            classBody.children.addAll(1, declarations);
+            next += body.members.size();
+        }
+        return true;
+    }
+
+
+    /** Cuts the members into {@code count} contiguous batches of about the same number of tokens. */
+    private static List<List<Member>> batches(List<Member> members, int count) {
+        long total = 0;
+        for (Member member : members) {
+            total += member.to - member.from + 1;
+        }
+        List<List<Member>> batches = new ArrayList<>(count);
+        List<Member> batch = new ArrayList<>();
+        long done = 0;
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            batch.add(member);
+            done += member.to - member.from + 1;
+            int remainingBatches = count - batches.size() - 1;
+            boolean full = done * count >= total * (batches.size() + 1);
+            if (remainingBatches > 0 && (full || members.size() - i - 1 == remainingBatches)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        batches.add(batch);
+        return batches;
+    }
+
+    private ExecutorService workers() {
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(options.getParseThreads() - 1, runnable -> {
+                Thread thread = new Thread(runnable, "member-parser");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return workers;
+    }
+}
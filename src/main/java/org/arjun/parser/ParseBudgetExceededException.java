@@ -0,0 +1,23 @@
+package org.arjun.parser;
+
+/**
+ * Thrown out of a parse that went over one of the limits set in {@link ParserOptions}. Unlike the
+ * {@link org.antlr.v4.runtime.misc.ParseCancellationException} of a bail-out, it is not answered by parsing the
+ * file again some other way: it goes up to whoever translates the file, which may retry it with
+ * {@link ParserOptions#degraded()} options.
+ */
+public class ParseBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+
+    public ParseBudgetExceededException(String message, int line) {
+        super(message + " at line " + line);
+        this.line = line;
+    }
+
+    /** The line of the token the prediction that went over the budget started at. */
+    public int getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,25 @@
+package org.arjun.parser;
+
+public enum ParseMode {
+    /** SLL prediction with bail-out, re-parsing with full LL only when SLL fails. */
+    TWO_STAGE,
+    /** SLL prediction only, with the default error recovery. */
+    SLL,
+    /** Full LL prediction only, with the default error recovery. */
+    LL;
+
+    public static ParseMode fromArg(String arg) {
+        switch (arg.toLowerCase()) {
+            case "twostage":
+            case "two-stage":
+            case "two_stage":
+                return TWO_STAGE;
+            case "sll":
+                return SLL;
+            case "ll":
+                return LL;
+            default:
+                throw new IllegalArgumentException("Unknown parse mode: " + arg + " (expected twostage, sll or ll)");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.arjun.interpreter.ClassMembers;
+import org.arjun.interpreter.JavaParser;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class ParseResult {
+    /** The prediction stage that produced the tree. */
+    public enum Stage { SLL, LL }
+
+    private final JavaParser.CompilationUnitContext tree;
+    private final CommonTokenStream tokens;
+    private final Stage stage;
+    private final boolean fallback;
+    private final int parallelMembers;
+    private final Map<JavaParser.ClassBodyContext, ClassMembers> streamedMembers;
+
+    ParseResult(JavaParser.CompilationUnitContext tree, CommonTokenStream tokens, Stage stage, boolean fallback) {
+        this(tree, tokens, stage, fallback, 0);
+    }
+
+    ParseResult(JavaParser.CompilationUnitContext tree, CommonTokenStream tokens, Stage stage, boolean fallback, int parallelMembers) {
+        this(tree, tokens, stage, fallback, parallelMembers, Collections.emptyMap());
+    }
+
+    ParseResult(JavaParser.CompilationUnitContext tree, CommonTokenStream tokens, Stage stage, boolean fallback, int parallelMembers,
+                Map<JavaParser.ClassBodyContext, ClassMembers> streamedMembers) {
+        this.tree = tree;
+        this.tokens = tokens;
+        this.stage = stage;
+        this.fallback = fallback;
+        this.parallelMembers = parallelMembers;
+        this.streamedMembers = streamedMembers;
+    }
+
+    public JavaParser.CompilationUnitContext getTree() {
+        return tree;
+    }
+
+    /** The file's tokens; null when the source was streamed, whose tokens are not kept. */
+    public CommonTokenStream getTokens() {
+        return tokens;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    /** True when SLL bailed out and the tree comes from the full LL re-parse. */
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    /** Number of class members that were parsed apart from the rest of the file; 0 after a sequential parse. */
+    public int getParallelMembers() {
+        return parallelMembers;
+    }
+
+    /**
+     * Class bodies the tree holds empty because their members are parsed on demand while translating, see
+     * {@link JavaSourceParser#parseStreamed}. Empty unless the source was streamed.
+     */
+    public Map<JavaParser.ClassBodyContext, ClassMembers> getStreamedMembers() {
+        return streamedMembers;
+    }
+}
@@ -0,0 +1,154 @@
+package org.arjun.parser;
+
+/**
+ * Switches that choose how a source is turned into a parse tree. None of them changes the tree itself (or,
+ * when streaming, the translation of it), only how fast it is built and how much of it is held at once.
+ * Options are read-only while parsing and may be shared by any number of threads.
+ */
+public class ParserOptions {
+    private LexerKind lexer = LexerKind.ANTLR;
+    private boolean fastExpressions;
+    private int parseThreads = 1;
+    private int parallelMinTokens = 20_000;
+    private boolean streaming;
+    private long maxParseMillis;
+    private int maxLookahead;
+    private long maxTransitions;
+    private boolean degradedRetry;
+
+    public ParserOptions() {}
+
+    /** Default options: the generated lexer and parser only. */
+    public static ParserOptions defaults() {
+        return new ParserOptions();
+    }
+
+    public LexerKind getLexer() {
+        return lexer;
+    }
+
+    public ParserOptions setLexer(LexerKind lexer) {
+        this.lexer = lexer;
+        return this;
+    }
+
+    public boolean isFastExpressions() {
+        return fastExpressions;
+    }
+
+    /** Parse expressions with {@link HybridJavaParser}'s precedence climbing where it can. */
+    public ParserOptions setFastExpressions(boolean fastExpressions) {
+        this.fastExpressions = fastExpressions;
+        return this;
+    }
+
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    /** Parse the members of large top-level classes on up to {@code parseThreads} threads; 1 parses sequentially. */
+    public ParserOptions setParseThreads(int parseThreads) {
+        if (parseThreads < 1) {
+            throw new IllegalArgumentException("parseThreads must be at least 1, got " + parseThreads);
+        }
+        this.parseThreads = parseThreads;
+        return this;
+    }
+
+    public int getParallelMinTokens() {
+        return parallelMinTokens;
+    }
+
+    /** Sources with fewer tokens than this are always parsed sequentially, splitting them costs more than it saves. */
+    public ParserOptions setParallelMinTokens(int parallelMinTokens) {
+        this.parallelMinTokens = parallelMinTokens;
+        return this;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /** Translate top-level classes one member at a time, keeping only the members being translated in memory. */
+    public ParserOptions setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    public long getMaxParseMillis() {
+        return maxParseMillis;
+    }
+
+    /**
+     * Aborts parsing a file with a {@link ParseBudgetExceededException} once it has taken longer than this, counted
+     * from the start of the parse and checked while predicting; 0 leaves parsing unlimited.
+     */
+    public ParserOptions setMaxParseMillis(long maxParseMillis) {
+        if (maxParseMillis < 0) {
+            throw new IllegalArgumentException("maxParseMillis must not be negative, got " + maxParseMillis);
+        }
+        this.maxParseMillis = maxParseMillis;
+        return this;
+    }
+
+    public int getMaxLookahead() {
+        return maxLookahead;
+    }
+
+    /** Aborts parsing a file when one prediction looks further ahead than this many tokens; 0 leaves it unlimited. */
+    public ParserOptions setMaxLookahead(int maxLookahead) {
+        if (maxLookahead < 0) {
+            throw new IllegalArgumentException("maxLookahead must not be negative, got " + maxLookahead);
+        }
+        this.maxLookahead = maxLookahead;
+        return this;
+    }
+
+    public long getMaxTransitions() {
+        return maxTransitions;
+    }
+
+    /**
+     * Aborts parsing a file when prediction has moved more than this many ATN configurations over a token, counted
+     * per parsing thread; predictions answered from the DFA cost nothing. 0 leaves it unlimited.
+     */
+    public ParserOptions setMaxTransitions(long maxTransitions) {
+        if (maxTransitions < 0) {
+            throw new IllegalArgumentException("maxTransitions must not be negative, got " + maxTransitions);
+        }
+        this.maxTransitions = maxTransitions;
+        return this;
+    }
+
+    /** True when any of the per-file parse limits is set. */
+    public boolean hasBudget() {
+        return maxParseMillis > 0 || maxLookahead > 0 || maxTransitions > 0;
+    }
+
+    public boolean isDegradedRetry() {
+        return degradedRetry;
+    }
+
+    /** Translate a file that went over its parse budget once more with the {@link #degraded()} options. */
+    public ParserOptions setDegradedRetry(boolean degradedRetry) {
+        this.degradedRetry = degradedRetry;
+        return this;
+    }
+
+    /**
+     * Options for a second attempt at a file that went over its budget, to be parsed in {@link ParseMode#SLL}:
+     * expressions by precedence climbing, where most pathological predictions are, on the calling thread only
+     * and never streamed. The limits stay, so the retry cannot hold its thread any longer than the first try.
+     */
+    public ParserOptions degraded() {
+        return new ParserOptions().setLexer(lexer).setFastExpressions(true)
+                .setMaxParseMillis(maxParseMillis).setMaxLookahead(maxLookahead).setMaxTransitions(maxTransitions);
+    }
+
+    @Override
+    public String toString() {
+        return "lexer=" + lexer + ", fastExpressions=" + fastExpressions + ", parseThreads=" + parseThreads + ", streaming=" + streaming
+                + (hasBudget() ? ", maxParseMillis=" + maxParseMillis + ", maxLookahead=" + maxLookahead + ", maxTransitions=" + maxTransitions : "")
+                + (degradedRetry ? ", degradedRetry" : "");
+    }
+}
@@ -0,0 +1,171 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.WritableToken;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.arjun.interpreter.ClassMembers;
+import org.arjun.interpreter.JavaLexer;
+import org.arjun.interpreter.JavaParser;
+import org.arjun.parser.MemberScanner.ClassBody;
+import org.arjun.parser.MemberScanner.Member;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses a source for streamed translation, see {@link JavaSourceParser#parseStreamed}.
+ * <p>
+ * A first pass lexes the file without keeping its tokens: they go through a {@link MemberScanner}, and only
+ * the skeleton (everything outside the members of top-level classes) and the first and last token of each
+ * member are kept. The skeleton is parsed into a tree whose class bodies are empty. A second pass parses
+ * every member once, to check that it ends where the scan said and to note what it declares, and drops it.
+ * While translating, {@link ClassMembers#parse} lexes and parses a member again from its first character.
+ * <p>
+ * What stays in memory is the source text, the skeleton and two tokens per member, plus whatever members
+ * are being translated. Members are parsed as in {@link ParallelMemberParser}, so the translation is the
+ * one of a sequential parse; anything the scan or the member parses get wrong makes the file be parsed whole.
+ */
+final class StreamingMemberParser {
+    private final ParseMode mode;
+    private final JavaParser parser;
+    private final JavaLexer lexer;
+    private final FastJavaLexer fastLexer;
+    private boolean lexerError;
+
+    /** Uses {@code parser}, the caller's own parser, for the skeleton and the members. */
+    StreamingMemberParser(ParseMode mode, ParserOptions options, JavaParser parser) {
+        this.mode = mode;
+        this.parser = parser;
+        // lexing errors are left to the whole-file parse, which reports them where they occur
+        BaseErrorListener lexerErrors = new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine,
+                                    String msg, RecognitionException e) {
+                lexerError = true;
+            }
+        };
+        if (options.getLexer() == LexerKind.FAST) {
+            this.lexer = null;
+            this.fastLexer = new FastJavaLexer(null);
+            fastLexer.removeErrorListeners();
+            fastLexer.addErrorListener(lexerErrors);
+        } else {
+            this.lexer = new JavaLexer(null);
+            this.fastLexer = null;
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(lexerErrors);
+        }
+    }
+
+    /** Parses {@code input} for streaming, or returns null when it must be parsed whole. */
+    ParseResult parse(CharStream input) {
+        lexerError = false;
+        TokenSource source = lexerAt(input, null);
+        MemberScanner scanner = new MemberScanner();
+        List<Token> skeleton = new ArrayList<>();
+        int index = 0;
+        Token token;
+        do {
+            token = source.nextToken();
+            ((WritableToken) token).setTokenIndex(index++);
+            if ((token.getChannel() == Token.DEFAULT_CHANNEL || token.getType() == Token.EOF) && scanner.feed(token)) {
+                skeleton.add(token);
+            }
+        } while (token.getType() != Token.EOF);
+        List<ClassBody> bodies = scanner.finish();
+        if (lexerError || bodies == null || bodies.isEmpty()) {
+            return null;
+        }
+
+        int initialState = parser.getState();
+        try {
+            ParallelMemberParser.prepare(parser, new TokenListStream(skeleton, source), mode);
+            JavaParser.CompilationUnitContext tree = parser.compilationUnit();
+            int finalState = parser.getState();
+            Map<JavaParser.ClassBodyContext, ClassMembers> streamed = new HashMap<>();
+            for (ClassBody body : bodies) {
+                JavaParser.ClassBodyContext classBody = body.in(tree);
+                if (classBody == null || classBody.getChildCount() != 2) {
+                    parser.setState(initialState);
+                    return null;
+                }
+                streamed.put(classBody, new StreamedMembers(input, body.members));
+            }
+            // leave the parser as parsing the whole file would
+            parser.setState(finalState);
+            ParseResult.Stage stage = mode == ParseMode.LL ? ParseResult.Stage.LL : ParseResult.Stage.SLL;
+            return new ParseResult(tree, null, stage, false, 0, streamed);
+        } catch (ParseCancellationException e) {
+            parser.setState(initialState);
+            return null;
+        }
+    }
+
+    /** The lexer, reading {@code input} from its start or from the start of token {@code first}. */
+    private TokenSource lexerAt(CharStream input, Token first) {
+        if (fastLexer != null) {
+            if (first == null) {
+                fastLexer.setInputStream(input);
+            } else {
+                fastLexer.seek(first.getStartIndex(), first.getLine(), first.getCharPositionInLine());
+            }
+            return fastLexer;
+        }
+        lexer.setInputStream(input);
+        if (first != null) {
+            input.seek(first.getStartIndex());
+            lexer.setLine(first.getLine());
+            lexer.setCharPositionInLine(first.getCharPositionInLine());
+        }
+        return lexer;
+    }
+
+    /** Members of one class body, parsed from the source text whenever they are asked for. */
+    private final class StreamedMembers implements ClassMembers {
+        private final CharStream input;
+        private final List<Member> members;
+        private final int[] declarationRules;
+
+        /** Parses every member once, which throws ParseCancellationException when one does not parse as scanned. */
+        StreamedMembers(CharStream input, List<Member> members) {
+            this.input = input;
+            this.members = members;
+            this.declarationRules = new int[members.size()];
+            for (int i = 0; i < members.size(); i++) {
+                JavaParser.MemberDeclarationContext member = parse(i).memberDeclaration();
+                declarationRules[i] = member != null ? ((ParserRuleContext) member.getChild(0)).getRuleIndex() : -1;
+            }
+        }
+
+        @Override
+        public int size() {
+            return members.size();
+        }
+
+        @Override
+        public int declarationRule(int index) {
+            return declarationRules[index];
+        }
+
+        @Override
+        public JavaParser.ClassBodyDeclarationContext parse(int index) {
+            Member member = members.get(index);
+            // a fresh token stream per member; it lexes on past the member only as far as prediction looks
+            JavaParser.ClassBodyDeclarationContext declaration =
+                    ParallelMemberParser.parseMember(parser, new CommonTokenStream(lexerAt(input, member.first)), mode);
+            if (declaration.stop == null || declaration.stop.getStopIndex() != member.last.getStopIndex()) {
+                throw new ParseCancellationException("member boundary guessed wrong at line " + member.first.getLine());
+            }
+            return declaration;
+        }
+    }
+}
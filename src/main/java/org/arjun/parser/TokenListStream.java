@@ -0,0 +1,147 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.List;
+
+/**
+ * Token stream over a fixed list of on-channel tokens ending with an EOF token, e.g. one member of a class
+ * cut out of an already lexed file.
+ * <p>
+ * Unlike {@link org.antlr.v4.runtime.CommonTokenStream} it never renumbers its tokens, so the same token
+ * objects can be handed to several streams and parsers at once. Stream positions are list positions and
+ * need not match the tokens' own indexes.
+ */
+final class TokenListStream implements TokenStream {
+    private final List<Token> tokens;
+    private final TokenSource source;
+    private int p;
+
+    TokenListStream(List<Token> tokens, TokenSource source) {
+        if (tokens.isEmpty() || tokens.get(tokens.size() - 1).getType() != Token.EOF) {
+            throw new IllegalArgumentException("token list must end with EOF");
+        }
+        this.tokens = tokens;
+        this.source = source;
+    }
+
+    @Override
+    public Token LT(int k) {
+        if (k == 0) {
+            return null;
+        }
+        if (k < 0) {
+            return p + k < 0 ? null : tokens.get(p + k);
+        }
+        return tokens.get(Math.min(p + k - 1, tokens.size() - 1));
+    }
+
+    @Override
+    public int LA(int i) {
+        Token token = LT(i);
+        return token == null ? Token.INVALID_TYPE : token.getType();
+    }
+
+    @Override
+    public void consume() {
+        if (LA(1) == Token.EOF) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        p++;
+    }
+
+    @Override
+    public Token get(int index) {
+        return tokens.get(index);
+    }
+
+    @Override
+    public TokenSource getTokenSource() {
+        return source;
+    }
+
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return p;
+    }
+
+    @Override
+    public void seek(int index) {
+        p = Math.max(0, Math.min(index, tokens.size() - 1));
+    }
+
+    @Override
+    public int size() {
+        return tokens.size();
+    }
+
+    @Override
+    public String getSourceName() {
+        return source.getSourceName();
+    }
+
+    @Override
+    public String getText() {
+        return getText(Interval.of(0, tokens.size() - 1));
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        StringBuilder text = new StringBuilder();
+        for (int i = Math.max(interval.a, 0); i <= interval.b && i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.getType() == Token.EOF) {
+                break;
+            }
+            text.append(token.getText());
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String getText(RuleContext ctx) {
+        return ctx.getText();
+    }
+
+    @Override
+    public String getText(Token start, Token stop) {
+        if (start == null || stop == null) {
+            return "";
+        }
+        return getText(Interval.of(positionOf(start), positionOf(stop)));
+    }
+
+    /** List position of {@code token}, found by its token index since the list is in source order. */
+    private int positionOf(Token token) {
+        if (token.getType() == Token.EOF) {
+            return tokens.size() - 1;
+        }
+        int low = 0;
+        int high = tokens.size() - 2;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int index = tokens.get(middle).getTokenIndex();
+            if (index < token.getTokenIndex()) {
+                low = middle + 1;
+            } else if (index > token.getTokenIndex()) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return low;
+    }
+}
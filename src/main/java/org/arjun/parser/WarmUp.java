@@ -0,0 +1,55 @@
+package org.arjun.parser;
+
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a built-in corpus so the shared lexer/parser DFAs are populated before real work starts.
+ * The corpus is the sample set from src/test/resources/samples, packaged under /warmup by the build.
+ */
+public final class WarmUp {
+    public static final String CORPUS_DIR = "/warmup/";
+    public static final String CORPUS_INDEX = CORPUS_DIR + "index.txt";
+
+    private WarmUp() {}
+
+    public static List<String> corpus() throws IOException {
+        List<String> names = new ArrayList<>();
+        InputStream index = WarmUp.class.getResourceAsStream(CORPUS_INDEX);
+        if (index == null) {
+            return names;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(index, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    names.add(line.trim());
+                }
+            }
+        }
+        return names;
+    }
+
+    /** Parses every file of the built-in corpus and returns how many were parsed. */
+    public static int runBuiltInCorpus(ParseMode mode) throws IOException {
+        JavaSourceParser parser = new JavaSourceParser(mode);
+        int parsed = 0;
+        for (String name : corpus()) {
+            try (InputStream source = WarmUp.class.getResourceAsStream(CORPUS_DIR + name)) {
+                if (source == null) {
+                    continue;
+                }
+                parser.parse(CharStreams.fromStream(source, StandardCharsets.UTF_8));
+                parsed++;
+            }
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,192 @@
+package org.arjun.stats;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measurements of translating one file: wall time, CPU time and allocated bytes per {@link Phase}, plus the
+ * sizes involved. Phases nest: entering one (e.g. {@link Phase#WRITE} while the visitor flushes its output)
+ * pauses the enclosing one, so every moment is charged to exactly one phase.
+ * <p>
+ * CPU time and allocation are those of the calling thread, read through {@link ThreadMXBean}; work done on
+ * other threads (e.g. members parsed by -parseThreads workers) shows only as wall time. A FileStats is
+ * filled in by the one thread translating the file.
+ */
+public final class FileStats {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private static final int WALL = 0;
+    private static final int CPU = 1;
+    private static final int ALLOCATED = 2;
+
+    private final String name;
+    private final long[][] phases = new long[Phase.values().length][3];
+    private final Deque<Phase> active = new ArrayDeque<>();
+    private final long[] mark = new long[3];
+    private long inputBytes;
+    private long tokens;
+    private long nodes;
+    private long outputBytes;
+    private final Map<String, long[]> passes = new LinkedHashMap<>();
+
+    public FileStats(String name) {
+        this.name = name;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if (THREADS instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()) {
+                return (com.sun.management.ThreadMXBean) THREADS;
+            }
+        } catch (LinkageError e) {
+            // not a HotSpot-based JVM: allocation is reported as 0
+        }
+        return null;
+    }
+
+    /** Starts charging to {@code phase} until the matching {@link #exit()}. */
+    public void enter(Phase phase) {
+        charge();
+        active.push(phase);
+    }
+
+    /** Ends the phase entered last and resumes the one it interrupted, if any. */
+    public void exit() {
+        charge();
+        active.pop();
+    }
+
+    /** Ends every phase still entered, e.g. by an attempt that threw before it could exit them. */
+    public void exitAll() {
+        while (!active.isEmpty()) {
+            exit();
+        }
+    }
+
+    private void charge() {
+        long wall = System.nanoTime();
+        long cpu = CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+        long allocated = ALLOCATION != null ? ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+        if (!active.isEmpty()) {
+            add(active.peek(), wall - mark[WALL], cpu - mark[CPU], allocated - mark[ALLOCATED]);
+        }
+        mark[WALL] = wall;
+        mark[CPU] = cpu;
+        mark[ALLOCATED] = allocated;
+    }
+
+    /** Adds a measurement taken elsewhere to {@code phase}. */
+    public void add(Phase phase, long wallNanos, long cpuNanos, long allocatedBytes) {
+        long[] totals = phases[phase.ordinal()];
+        totals[WALL] += wallNanos;
+        totals[CPU] += cpuNanos;
+        totals[ALLOCATED] += allocatedBytes;
+    }
+
+    /** Number of nodes, rules and tokens alike, in {@code tree}. */
+    public static long countNodes(ParseTree tree) {
+        // from an explicit stack: a long chain of binary operators is a tree thousands of levels deep
+        long count = 0;
+        Deque<ParseTree> pending = new ArrayDeque<>();
+        pending.push(tree);
+        while (!pending.isEmpty()) {
+            ParseTree node = pending.pop();
+            count++;
+            for (int i = 0; i < node.getChildCount(); i++) {
+                pending.push(node.getChild(i));
+            }
+        }
+        return count;
+    }
+
+    /** Adds a run of optimization pass {@code pass}; the runs are also part of {@link Phase#PASSES}. */
+    public void addPass(String pass, long nanos, long changes) {
+        long[] totals = passes.computeIfAbsent(pass, name -> new long[2]);
+        totals[0] += nanos;
+        totals[1] += changes;
+    }
+
+    /** Names of the optimization passes run, in the order they first ran. */
+    public List<String> getPasses() {
+        return new ArrayList<>(passes.keySet());
+    }
+
+    public long getPassNanos(String pass) {
+        long[] totals = passes.get(pass);
+        return totals == null ? 0 : totals[0];
+    }
+
+    public long getPassChanges(String pass) {
+        long[] totals = passes.get(pass);
+        return totals == null ? 0 : totals[1];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getWallNanos(Phase phase) {
+        return phases[phase.ordinal()][WALL];
+    }
+
+    public long getCpuNanos(Phase phase) {
+        return phases[phase.ordinal()][CPU];
+    }
+
+    public long getAllocatedBytes(Phase phase) {
+        return phases[phase.ordinal()][ALLOCATED];
+    }
+
+    public long getTotalWallNanos() {
+        long total = 0;
+        for (Phase phase : Phase.values()) {
+            total += getWallNanos(phase);
+        }
+        return total;
+    }
+
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    public void setInputBytes(long inputBytes) {
+        this.inputBytes = inputBytes;
+    }
+
+    /** On-channel tokens including EOF; 0 when the file was not lexed up front (streamed sources). */
+    public long getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(long tokens) {
+        this.tokens = tokens;
+    }
+
+    /** Nodes of the parse tree; for streamed sources, of the tree without the streamed class members. */
+    public long getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(long nodes) {
+        this.nodes = nodes;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public void setOutputBytes(long outputBytes) {
+        this.outputBytes = outputBytes;
+    }
+}
@@ -0,0 +1,24 @@
+package org.arjun.stats;
+
+import java.util.Locale;
+
+/** Steps of translating one file, in pipeline order. */
+public enum Phase {
+    /** Reading (and decoding) the source file into a CharStream. */
+    READ,
+    /** Turning the whole input into tokens before parsing. */
+    LEX,
+    /** Building the parse tree from the tokens. */
+    PARSE,
+    /** Walking the tree and generating Python, not counting the time spent writing it out. */
+    VISIT,
+    /** Building the Python IR, running the optimization passes over it and printing it, when passes are enabled. */
+    PASSES,
+    /** Writing the generated Python to its destination. */
+    WRITE;
+
+    /** Lower-case name, as used in reports. */
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
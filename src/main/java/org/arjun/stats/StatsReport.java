@@ -0,0 +1,165 @@
+package org.arjun.stats;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * The {@link FileStats} of a run, from any number of worker threads, as a human summary ({@link #format()})
+ * or a JSON report ({@link #writeJson(Path)}) with one row per file and, for every measure, the sum and the
+ * 50th, 90th and 99th percentile and maximum over files.
+ */
+public final class StatsReport {
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final ConcurrentLinkedQueue<FileStats> files = new ConcurrentLinkedQueue<>();
+
+    public void add(FileStats stats) {
+        files.add(stats);
+    }
+
+    /** The files added so far, sorted by name. */
+    public List<FileStats> getFiles() {
+        List<FileStats> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(FileStats::getName));
+        return sorted;
+    }
+
+    /** Nearest-rank percentile {@code p} (0 to 100) of ascending {@code sorted}; 0 when it is empty. */
+    public static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    public String format() {
+        List<FileStats> rows = getFiles();
+        long total = sum(rows, FileStats::getTotalWallNanos);
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("%-7s %10s %10s %11s %7s%n", "Phase", "wall ms", "cpu ms", "alloc MiB", "share"));
+        for (Phase phase : Phase.values()) {
+            long wall = sum(rows, stats -> stats.getWallNanos(phase));
+            result.append(String.format("%-7s %10.1f %10.1f %11.1f %6.1f%%%n", phase.label(), wall / 1e6,
+                    sum(rows, stats -> stats.getCpuNanos(phase)) / 1e6,
+                    sum(rows, stats -> stats.getAllocatedBytes(phase)) / (1024.0 * 1024),
+                    total == 0 ? 0 : wall * 100.0 / total));
+        }
+        result.append(String.format("%-7s %10.1f%n", "total", total / 1e6));
+        result.append(String.format("Files: %d, %d tokens, %d parse-tree nodes, %d bytes in, %d bytes out%n",
+                rows.size(), sum(rows, FileStats::getTokens), sum(rows, FileStats::getNodes),
+                sum(rows, FileStats::getInputBytes), sum(rows, FileStats::getOutputBytes)));
+        long[] perFile = sorted(rows, FileStats::getTotalWallNanos);
+        result.append(String.format("Per-file wall time: p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                percentile(perFile, 50) / 1e6, percentile(perFile, 90) / 1e6, percentile(perFile, 99) / 1e6,
+                percentile(perFile, 100) / 1e6));
+        Set<String> passes = new LinkedHashSet<>();
+        rows.forEach(stats -> passes.addAll(stats.getPasses()));
+        for (String pass : passes) {
+            result.append(String.format("Pass %s: %.1f ms, %d changes%n", pass,
+                    sum(rows, stats -> stats.getPassNanos(pass)) / 1e6, sum(rows, stats -> stats.getPassChanges(pass))));
+        }
+        return result.toString();
+    }
+
+    public void writeJson(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    public String toJson() {
+        List<FileStats> rows = getFiles();
+        StringBuilder json = new StringBuilder("{\n  \"files\": [");
+        for (int i = 0; i < rows.size(); i++) {
+            FileStats stats = rows.get(i);
+            json.append(i == 0 ? "\n    {" : ",\n    {");
+            json.append("\"name\": ");
+            quote(stats.getName(), json);
+            json.append(", \"inputBytes\": ").append(stats.getInputBytes())
+                    .append(", \"outputBytes\": ").append(stats.getOutputBytes())
+                    .append(", \"tokens\": ").append(stats.getTokens())
+                    .append(", \"nodes\": ").append(stats.getNodes())
+                    .append(", \"wallNanos\": ").append(stats.getTotalWallNanos())
+                    .append(", \"phases\": {");
+            for (Phase phase : Phase.values()) {
+                json.append(phase.ordinal() == 0 ? "\"" : ", \"").append(phase.label())
+                        .append("\": {\"wallNanos\": ").append(stats.getWallNanos(phase))
+                        .append(", \"cpuNanos\": ").append(stats.getCpuNanos(phase))
+                        .append(", \"allocatedBytes\": ").append(stats.getAllocatedBytes(phase)).append('}');
+            }
+            json.append('}');
+            boolean noPasses = true;
+            for (String pass : stats.getPasses()) {
+                json.append(noPasses ? ", \"passes\": {\"" : ", \"").append(pass)
+                        .append("\": {\"nanos\": ").append(stats.getPassNanos(pass))
+                        .append(", \"changes\": ").append(stats.getPassChanges(pass)).append('}');
+                noPasses = false;
+            }
+            json.append(noPasses ? "}" : "}}");
+        }
+        json.append(rows.isEmpty() ? "],\n" : "\n  ],\n");
+        json.append("  \"aggregate\": {\n    \"files\": ").append(rows.size());
+        distribution(",\n    \"inputBytes\"", rows, FileStats::getInputBytes, json);
+        distribution(",\n    \"outputBytes\"", rows, FileStats::getOutputBytes, json);
+        distribution(",\n    \"tokens\"", rows, FileStats::getTokens, json);
+        distribution(",\n    \"nodes\"", rows, FileStats::getNodes, json);
+        distribution(",\n    \"wallNanos\"", rows, FileStats::getTotalWallNanos, json);
+        json.append(",\n    \"phases\": {");
+        for (Phase phase : Phase.values()) {
+            json.append(phase.ordinal() == 0 ? "\n      \"" : ",\n      \"").append(phase.label()).append("\": {");
+            distribution("\n        \"wallNanos\"", rows, stats -> stats.getWallNanos(phase), json);
+            distribution(",\n        \"cpuNanos\"", rows, stats -> stats.getCpuNanos(phase), json);
+            distribution(",\n        \"allocatedBytes\"", rows, stats -> stats.getAllocatedBytes(phase), json);
+            json.append("\n      }");
+        }
+        json.append("\n    }\n  }\n}\n");
+        return json.toString();
+    }
+
+    /** Appends {@code key: {"sum": ..., "p50": ..., "p90": ..., "p99": ..., "max": ...}} for {@code measure}. */
+    private static void distribution(String key, List<FileStats> rows, ToLongFunction<FileStats> measure, StringBuilder json) {
+        long[] values = sorted(rows, measure);
+        json.append(key).append(": {\"sum\": ").append(Arrays.stream(values).sum());
+        for (double p : PERCENTILES) {
+            json.append(", \"p").append((int) p).append("\": ").append(percentile(values, p));
+        }
+        json.append(", \"max\": ").append(percentile(values, 100)).append('}');
+    }
+
+    private static long[] sorted(List<FileStats> rows, ToLongFunction<FileStats> measure) {
+        long[] values = rows.stream().mapToLong(measure).toArray();
+        Arrays.sort(values);
+        return values;
+    }
+
+    private static long sum(List<FileStats> rows, ToLongFunction<FileStats> measure) {
+        return rows.stream().mapToLong(measure).sum();
+    }
+
+    private static void quote(String text, StringBuilder json) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
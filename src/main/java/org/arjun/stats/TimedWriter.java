@@ -0,0 +1,82 @@
+package org.arjun.stats;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Charges everything its underlying writer does to {@link Phase#WRITE}, and records each write as a
+ * {@link TranslationEvents.WriteOutput} event. Put it beneath the buffering writer, so that it is called once
+ * per buffer rather than once per line.
+ */
+public final class TimedWriter extends Writer {
+    private final Writer out;
+    private final String path;
+    private final FileStats stats;
+
+    public TimedWriter(Writer out, FileStats stats) {
+        this(out, stats.getName(), stats);
+    }
+
+    /** Writer for {@code path}; with {@code stats} null it only records events. */
+    public TimedWriter(Writer out, String path, FileStats stats) {
+        this.out = out;
+        this.path = path;
+        this.stats = stats;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        TranslationEvents.WriteOutput event = TranslationEvents.beginWriteOutput(path, length);
+        enter();
+        try {
+            out.write(buffer, offset, length);
+        } finally {
+            exit();
+            TranslationEvents.endWriteOutput(event);
+        }
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        TranslationEvents.WriteOutput event = TranslationEvents.beginWriteOutput(path, length);
+        enter();
+        try {
+            out.write(text, offset, length);
+        } finally {
+            exit();
+            TranslationEvents.endWriteOutput(event);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        enter();
+        try {
+            out.flush();
+        } finally {
+            exit();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        enter();
+        try {
+            out.close();
+        } finally {
+            exit();
+        }
+    }
+
+    private void enter() {
+        if (stats != null) {
+            stats.enter(Phase.WRITE);
+        }
+    }
+
+    private void exit() {
+        if (stats != null) {
+            stats.exit();
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package org.arjun.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for translating files: {@link TranslateFile} around a whole file, with {@link Lex},
+ * {@link Parse}, {@link ParseFallback}, {@link Emit}, {@link Pass} and {@link WriteOutput} nested inside it. They show up under
+ * "Java to Python" in a recording, e.g. one started with {@code -XX:StartFlightRecording=filename=run.jfr}.
+ * <p>
+ * JFR came to Java 8 with update 262, so the event classes are only ever loaded through the begin and end
+ * methods here, and those do nothing when {@code jdk.jfr} is missing. A local holding an event is then always
+ * null, and callers pass it back without looking at it. The begin methods also return null when the event is
+ * not enabled in any running recording, which is the usual case and costs one check.
+ */
+public final class TranslationEvents {
+    /** Whether this JVM has JDK Flight Recorder at all. */
+    public static final boolean AVAILABLE = available();
+
+    private TranslationEvents() {
+    }
+
+    private static boolean available() {
+        try {
+            Class.forName("jdk.jfr.Event", false, TranslationEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public static TranslateFile beginTranslateFile(String path, String parseMode) {
+        if (!AVAILABLE) {
+            return null;
+        }
+        TranslateFile event = new TranslateFile();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.path = path;
+        event.parseMode = parseMode;
+        event.begin();
+        return event;
+    }
+
+    /** Ends {@code event} with the stage the file was parsed at, null when it came from the cache. */
+    public static void endTranslateFile(TranslateFile event, long inputBytes, long outputBytes, String stage, boolean fallback) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.inputBytes = inputBytes;
+            event.outputBytes = outputBytes;
+            event.stage = stage;
+            event.fallback = fallback;
+            event.cached = stage == null;
+            event.commit();
+        }
+    }
+
+    public static Lex beginLex(String path, long chars, String lexer) {
+        if (!AVAILABLE) {
+            return null;
+        }
+        Lex event = new Lex();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.path = path;
+        event.chars = chars;
+        event.lexer = lexer;
+        event.begin();
+        return event;
+    }
+
+    public static void endLex(Lex event, long tokens) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.tokens = tokens;
+            event.commit();
+        }
+    }
+
+    public static Parse beginParse(String path, String parseMode, boolean streamed) {
+        if (!AVAILABLE) {
+            return null;
+        }
+        Parse event = new Parse();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.path = path;
+        event.parseMode = parseMode;
+        event.streamed = streamed;
+        event.begin();
+        return event;
+    }
+
+    /** Ends {@code event}; {@code tokens} is -1 when the source was lexed while parsing and never counted. */
+    public static void endParse(Parse event, long tokens, String stage, boolean fallback, int parallelMembers) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.tokens = tokens;
+            event.stage = stage;
+            event.fallback = fallback;
+            event.parallelMembers = parallelMembers;
+            event.commit();
+        }
+    }
+
+    public static ParseFallback beginParseFallback(String path, int line, int tokenIndex) {
+        if (!AVAILABLE) {
+            return null;
+        }
+        ParseFallback event = new ParseFallback();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.path = path;
+        event.line = line;
+        event.tokenIndex = tokenIndex;
+        event.begin();
+        return event;
+    }
+
+    public static void endParseFallback(ParseFallback event) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    public static Emit beginEmit(String path, int streamedClasses) {
+        if (!AVAILABLE) {
+            return null;
+        }
+        Emit event = new Emit();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.path = path;
+        event.streamedClasses = streamedClasses;
+        event.begin();
+        return event;
+    }
+
+    public static void endEmit(Emit event) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    public static Pass beginPass(String path, String pass) {
+        if (!AVAILABLE) {
+            return null;
+        }
+        Pass event = new Pass();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.path = path;
+        event.pass = pass;
+        event.begin();
+        return event;
+    }
+
+    public static void endPass(Pass event, int changes) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.changes = changes;
+            event.commit();
+        }
+    }
+
+    /** Whether {@link WriteOutput} events would be recorded now, i.e. whether output is worth wrapping for them. */
+    public static boolean isWriteOutputEnabled() {
+        return AVAILABLE && new WriteOutput().isEnabled();
+    }
+
+    public static WriteOutput beginWriteOutput(String path, long chars) {
+        if (!AVAILABLE) {
+            return null;
+        }
+        WriteOutput event = new WriteOutput();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.path = path;
+        event.chars = chars;
+        event.begin();
+        return event;
+    }
+
+    public static void endWriteOutput(WriteOutput event) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    @Name("org.arjun.TranslateFile")
+    @Label("Translate File")
+    @Description("Reading, translating and writing one Java source file")
+    @Category("Java to Python")
+    @StackTrace(false)
+    public static final class TranslateFile extends Event {
+        @Label("Path")
+        String path;
+        @Label("Input Size")
+        @DataAmount
+        long inputBytes;
+        @Label("Output Size")
+        @DataAmount
+        long outputBytes;
+        @Label("Parse Mode")
+        String parseMode;
+        @Label("Stage")
+        @Description("Prediction mode the tree was finally built with; missing for cache hits")
+        String stage;
+        @Label("SLL Fallback")
+        boolean fallback;
+        @Label("Cached")
+        boolean cached;
+    }
+
+    @Name("org.arjun.Lex")
+    @Label("Lex")
+    @Description("Turning a whole source into tokens before parsing it")
+    @Category("Java to Python")
+    @StackTrace(false)
+    public static final class Lex extends Event {
+        @Label("Path")
+        String path;
+        @Label("Characters")
+        long chars;
+        @Label("Tokens")
+        @Description("On-channel tokens, including EOF")
+        long tokens;
+        @Label("Lexer")
+        String lexer;
+    }
+
+    @Name("org.arjun.Parse")
+    @Label("Parse")
+    @Description("Building the parse tree of a source, including any LL fallback")
+    @Category("Java to Python")
+    @StackTrace(false)
+    public static final class Parse extends Event {
+        @Label("Path")
+        String path;
+        @Label("Parse Mode")
+        String parseMode;
+        @Label("Streamed")
+        @Description("Class members were left out of the tree, to be parsed while emitting")
+        boolean streamed;
+        @Label("Tokens")
+        @Description("On-channel tokens, including EOF; -1 when lexed while parsing")
+        long tokens;
+        @Label("Stage")
+        String stage;
+        @Label("SLL Fallback")
+        boolean fallback;
+        @Label("Parallel Members")
+        int parallelMembers;
+    }
+
+    @Name("org.arjun.ParseFallback")
+    @Label("Parse Fallback")
+    @Description("Parsing a source again with LL prediction after SLL prediction bailed")
+    @Category("Java to Python")
+    @StackTrace(false)
+    public static final class ParseFallback extends Event {
+        @Label("Path")
+        String path;
+        @Label("Line")
+        @Description("Line of the token SLL prediction bailed at")
+        int line;
+        @Label("Token Index")
+        int tokenIndex;
+    }
+
+    @Name("org.arjun.Emit")
+    @Label("Emit")
+    @Description("Walking the parse tree and generating Python, including writing it out")
+    @Category("Java to Python")
+    @StackTrace(false)
+    public static final class Emit extends Event {
+        @Label("Path")
+        String path;
+        @Label("Streamed Classes")
+        @Description("Class bodies whose members were parsed while emitting")
+        int streamedClasses;
+    }
+
+    @Name("org.arjun.Pass")
+    @Label("Pass")
+    @Description("Running one optimization pass over the Python of a file")
+    @Category("Java to Python")
+    @StackTrace(false)
+    public static final class Pass extends Event {
+        @Label("Path")
+        String path;
+        @Label("Pass")
+        String pass;
+        @Label("Changes")
+        @Description("Rewrites the pass made")
+        int changes;
+    }
+
+    @Name("org.arjun.WriteOutput")
+    @Label("Write Output")
+    @Description("Handing a buffer of generated Python to its destination")
+    @Category("Java to Python")
+    @StackTrace(false)
+    public static final class WriteOutput extends Event {
+        @Label("Path")
+        String path;
+        @Label("Characters")
+        long chars;
+    }
+}
@@ -0,0 +1,65 @@
+import org.arjun.batch.BatchOptions;
+import org.arjun.batch.BatchSummary;
+import org.arjun.batch.BatchTranslator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A batch must write what translating each file alone writes, and a file that fails must not stop the others.
+ */
+public class BatchTranslatorTest {
+    @Test
+    public void batchOutputMatchesSingleFiles() throws IOException {
+        Path sources = Files.createTempDirectory("batch");
+        Map<String, String> corpus = TestSources.corpus();
+        for (Map.Entry<String, String> sample : corpus.entrySet()) {
+            Path source = sources.resolve("pkg").resolve(sample.getKey());
+            Files.createDirectories(source.getParent());
+            Files.write(source, sample.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        Path output = Files.createTempDirectory("batch-out");
+        BatchTranslator batch = new BatchTranslator(sources, output, BatchOptions.defaults().setParallelism(4));
+        BatchSummary summary = batch.run();
+
+        assertEquals(corpus.size(), summary.getTranslated(), summary.format());
+        for (Map.Entry<String, String> sample : corpus.entrySet()) {
+            Path target = batch.outputPathFor(sources.resolve("pkg").resolve(sample.getKey()));
+            assertEquals(TestSources.translate(sample.getValue()), read(target), sample.getKey());
+        }
+    }
+
+    @Test
+    public void failedFileDoesNotAbortTheBatch() throws IOException {
+        Path sources = Files.createTempDirectory("batch");
+        Files.createDirectories(sources.resolve("blocked"));
+        Files.write(sources.resolve("A.java"), "class A { int x = 1; }\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(sources.resolve("blocked/B.java"), "class B { int y = 2; }\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(sources.resolve("C.java"), "class C { int z = 3; }\n".getBytes(StandardCharsets.UTF_8));
+        Path output = Files.createTempDirectory("batch-out");
+        // a file where B's package directory would go, so B cannot be written
+        Files.write(output.resolve("blocked"), new byte[0]);
+
+        BatchSummary summary = new BatchTranslator(sources, output, BatchOptions.defaults().setParallelism(2)).run();
+
+        assertEquals(3, summary.getFiles());
+        assertEquals(2, summary.getTranslated());
+        assertEquals(1, summary.getFailed());
+        assertTrue(summary.getFailures().get(0).getSource().endsWith("blocked/B.java"));
+        assertTrue(read(output.resolve("A.py")).contains("x = 1"));
+        assertTrue(read(output.resolve("C.py")).contains("z = 3"));
+        assertFalse(Files.isDirectory(output.resolve("blocked")));
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
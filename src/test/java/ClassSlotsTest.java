@@ -0,0 +1,60 @@
+import org.arjun.interpreter.TranslationOptions;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * With {@code -slots} a class must list exactly the fields it declares itself, and must keep its __dict__ whenever
+ * its attributes cannot all be known from its declarations.
+ */
+public class ClassSlotsTest {
+    @Test
+    public void declaredFieldsBecomeSlots() {
+        String python = slots("class A {\n    int x = 1, y;\n    String name;\n    void f() { this.x = 2; y++; }\n}\n");
+        assertTrue(python.contains("class A:\n    __slots__ = ('x', 'y', 'name')\n"), python);
+        assertTrue(slots("class A {\n    int x;\n}\n").contains("    __slots__ = ('x',)\n"));
+        assertTrue(slots("class A {\n    void f() {}\n}\n").contains("    __slots__ = ()\n"));
+        assertTrue(slots("interface I {\n    void f();\n}\n").contains("    __slots__ = ()\n"));
+        // without -slots nothing changes
+        assertFalse(TestSources.translate("class A {\n    int x;\n}\n").contains("__slots__"));
+    }
+
+    @Test
+    public void superclassFieldsStayInTheSuperclassSlots() {
+        String python = slots("class A {\n    int x;\n}\nclass B extends A {\n    int x;\n    int y;\n}\n"
+                + "class C extends B {\n    int z;\n    void f() { this.x = 1; this.y = 2; }\n}\n");
+        assertTrue(python.contains("class A:\n    __slots__ = ('x',)\n"), python);
+        assertTrue(python.contains("class B(A):\n    __slots__ = ('y',)\n"), python);
+        assertTrue(python.contains("class C(B):\n    __slots__ = ('z',)\n"), python);
+        // a superclass from another file may have a __dict__ of its own; only declared fields are listed
+        assertTrue(slots("class B extends Base {\n    int y;\n}\n").contains("class B(Base):\n    __slots__ = ('y',)\n"));
+    }
+
+    @Test
+    public void classesWithUnknownAttributesKeepTheirDict() {
+        // this.x for an undeclared x, however it is assigned
+        assertEquals(0, count(slots("class A {\n    int x;\n    void f() { this.z = 1; }\n}\n")));
+        assertEquals(0, count(slots("class A {\n    int x;\n    void f() { this.z += 1; }\n}\n")));
+        assertEquals(0, count(slots("class A {\n    int x;\n    void f() { this.z++; }\n}\n")));
+        // a method named like a field, its own or inherited
+        assertEquals(0, count(slots("class A {\n    int size;\n    int size() { return size; }\n}\n")));
+        assertEquals(1, count(slots("class A {\n    int size;\n}\nclass B extends A {\n    int size() { return 1; }\n}\n")));
+        // reflection, imported or called
+        assertEquals(0, count(slots("import java.lang.reflect.Field;\nclass A {\n    int x;\n}\n")));
+        assertEquals(0, count(slots("class A {\n    int x;\n    void f() throws Exception { getClass().getDeclaredField(\"x\"); }\n}\n")));
+        // one dynamic class does not cost the others their slots
+        String python = slots("class A {\n    int x;\n    void f() { this.z = 1; }\n}\nclass B {\n    int y;\n}\n");
+        assertEquals(1, count(python));
+        assertTrue(python.contains("class B:\n    __slots__ = ('y',)\n"), python);
+    }
+
+    private static String slots(String code) {
+        return TestSources.translate(code, TranslationOptions.defaults().setSlots(true));
+    }
+
+    private static int count(String python) {
+        return python.split("__slots__", -1).length - 1;
+    }
+}
@@ -0,0 +1,50 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A counting for loop must become a range() only when range() visits the same values: the body may not change the
+ * loop variable or the bound, whether by assigning it or through a method it calls.
+ */
+public class CountingLoopTest {
+    @Test
+    public void countingLoopsBecomeRanges() {
+        assertEquals("for i in range(n):\n    t += i\n", loop("for (int i = 0; i < n; i++) { t += i; }"));
+        assertEquals("for i in range(10, 0, -1):\n    t += i\n", loop("for (int i = 10; i > 0; i--) { t += i; }"));
+        assertEquals("for i in range(1, n + 1, 3):\n    t += i\n", loop("for (int i = 1; i <= n; i += 3) { t += i; }"));
+        assertEquals("for i in range(n, -1, -2):\n    t += i\n", loop("for (int i = n; i >= 0; i -= 2) { t += i; }"));
+        // nothing the body calls can change a parameter, a local or the length of an array in one
+        assertEquals("for i in range(n):\n    grow()\n", loop("for (int i = 0; i < n; i++) { grow(); }"));
+        assertEquals("for i in range(local):\n    grow()\n", loop("for (int i = 0; i < local; i++) { grow(); }"));
+        assertEquals("for i in range(arr.length):\n    grow()\n", loop("for (int i = 0; i < arr.length; i++) { grow(); }"));
+        // without calls, fields in the bound are only changed by assignments
+        assertEquals("for i in range(node.count):\n    t += i\n", loop("for (int i = 0; i < node.count; i++) { t += i; }"));
+    }
+
+    @Test
+    public void loopsRangeCannotExpressStayWhileLoops() {
+        assertEquals("i = 0\nwhile i < n:\n    i += 2\n    i += 1\n", loop("for (int i = 0; i < n; i++) { i += 2; }"));
+        assertEquals("i = 0\nwhile i < n:\n    n -= 1\n    i += 1\n", loop("for (int i = 0; i < n; i++) { n--; }"));
+        assertEquals("i = 0\nwhile i < n:\n    t += i\n    i -= 1\n", loop("for (int i = 0; i < n; i--) { t += i; }"));
+    }
+
+    @Test
+    public void boundsMethodsCanChangeStayWhileLoops() {
+        assertEquals("i = 0\nwhile i < node.count:\n    node.grow()\n    i += 1\n",
+                loop("for (int i = 0; i < node.count; i++) { node.grow(); }"));
+        assertEquals("i = 0\nwhile i < self.size:\n    grow()\n    i += 1\n", loop("for (int i = 0; i < this.size; i++) { grow(); }"));
+        assertEquals("i = 0\nwhile i < self.size:\n    grow()\n    i += 1\n", loop("for (int i = 0; i < size; i++) { grow(); }"));
+        // grow() can give the field another array
+        assertEquals("i = 0\nwhile i < self.data.length:\n    grow()\n    i += 1\n",
+                loop("for (int i = 0; i < data.length; i++) { grow(); }"));
+    }
+
+    /** The Python for {@code loop} in a method with locals {@code t} and {@code local}, without the method's indentation. */
+    private static String loop(String loop) {
+        String python = TestSources.translate("class A {\n    int size = 3;\n    int[] data;\n"
+                + "    int f(int n, int[] arr, Node node) {\n        int t = 0;\n        int local = 4;\n"
+                + "        " + loop + "\n        return t;\n    }\n}\n");
+        String body = python.substring(python.indexOf("local = 4\n") + "local = 4\n".length(), python.indexOf("        return t"));
+        return body.replaceAll("(?m)^ {8}", "");
+    }
+}
@@ -0,0 +1,77 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.Translator;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParserOptions;
+import org.arjun.stats.FileStats;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Long operator chains must translate on a small thread stack, and nested subexpressions must be translated once.
+ */
+public class DeepExpressionTest {
+    private static final int TERMS = 10_000;
+    private static final long SMALL_STACK = 512 * 1024;
+
+    @Test
+    public void longChainsTranslateOnASmallStack() throws InterruptedException {
+        StringBuilder java = new StringBuilder();
+        StringBuilder python = new StringBuilder();
+        for (int i = 0; i < TERMS; i++) {
+            java.append(i == 0 ? "" : i % 2 == 0 ? " + " : " && ").append("a").append(i);
+            python.append(i == 0 ? "" : i % 2 == 0 ? " + " : " and ").append("a").append(i);
+        }
+        String code = "class A {\n    Object f() {\n        return " + java + ";\n    }\n}\n";
+
+        String translated = onSmallStack(() -> translate(code, false));
+        assertTrue(translated.contains("        return " + python + "\n"), translated.substring(0, 200));
+        assertEquals(translated, onSmallStack(() -> translate(code, true)));
+        // a chain translated from its source text, not from its operands
+        String bitwise = code.replace(" && ", " & ");
+        assertTrue(onSmallStack(() -> translate(bitwise, false)).contains(java.toString().replace(" && ", "&").replace(" + ", "+")));
+        // with -stats the tree is also walked to count its nodes
+        String counted = onSmallStack(() -> {
+            FileStats stats = new FileStats("A.java");
+            new Translator(ParseMode.TWO_STAGE).translate(CharStreams.fromString(code), new StringWriter(),
+                    TranslationOptions.defaults(), stats);
+            return String.valueOf(stats.getNodes());
+        });
+        assertTrue(Long.parseLong(counted) > 2 * TERMS, counted);
+    }
+
+    @Test
+    public void nestedCastsAreTranslatedOnce() {
+        StringBuilder casts = new StringBuilder("x");
+        for (int i = 0; i < 40; i++) {
+            casts.insert(0, "((Object) ").append(")");
+        }
+        String python = translate("class A {\n    Object f(Object x) {\n        return " + casts + ";\n    }\n}\n", false);
+        assertTrue(python.contains("        return " + casts.toString().replace("(Object) ", "") + "\n"), python);
+    }
+
+    private static String onSmallStack(Supplier<String> work) throws InterruptedException {
+        AtomicReference<Object> result = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                result.set(work.get());
+            } catch (Throwable failure) {
+                result.set(failure);
+            }
+        }, "small-stack", SMALL_STACK);
+        thread.start();
+        thread.join();
+        assertTrue(result.get() instanceof String, String.valueOf(result.get()));
+        return (String) result.get();
+    }
+
+    private static String translate(String code, boolean streaming) {
+        return TestSources.translate(code, ParserOptions.defaults().setStreaming(streaming));
+    }
+}
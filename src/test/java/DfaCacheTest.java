@@ -0,0 +1,75 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.interpreter.JavaParser;
+import org.arjun.parser.DfaCache;
+import org.arjun.parser.JavaSourceParser;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.WarmUp;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Saved DFA states must load back into a cold JVM's recognizers, and a cache of another grammar must be left alone.
+ */
+public class DfaCacheTest {
+    @Test
+    public void savedStatesLoadBack() throws IOException {
+        DfaCache.clear();
+        WarmUp.runBuiltInCorpus(ParseMode.TWO_STAGE);
+        int learned = DfaCache.stateCount();
+        assertTrue(learned > 0);
+        List<String> trees = trees();
+        Path file = Files.createTempDirectory("dfa").resolve("dfa.cache");
+        DfaCache.save(file);
+
+        DfaCache.clear();
+        assertEquals(0, DfaCache.stateCount());
+        DfaCache.LoadResult result = DfaCache.load(file);
+        assertTrue(result.isLoaded(), result.toString());
+        assertEquals(learned, DfaCache.stateCount());
+        // the restored states predict exactly as the learned ones did, and are enough for the same inputs
+        assertEquals(trees, trees());
+        assertEquals(learned, DfaCache.stateCount());
+    }
+
+    @Test
+    public void cacheOfAnotherGrammarIsRejected() throws IOException {
+        Path file = Files.createTempDirectory("dfa").resolve("dfa.cache");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(0x4A325044);
+            out.writeInt(1);
+            out.writeUTF("not " + DfaCache.fingerprint());
+        }
+        DfaCache.clear();
+        DfaCache.LoadResult result = DfaCache.load(file);
+        assertFalse(result.isLoaded());
+        assertTrue(result.getReason().contains("different grammar"), result.getReason());
+        assertEquals(0, DfaCache.stateCount());
+
+        Files.write(file, "class A {}".getBytes(StandardCharsets.UTF_8));
+        assertFalse(DfaCache.load(file).isLoaded());
+        assertFalse(DfaCache.load(file.resolveSibling("missing.cache")).isLoaded());
+        assertEquals(0, DfaCache.stateCount());
+    }
+
+    private static List<String> trees() throws IOException {
+        List<String> trees = new ArrayList<>();
+        JavaSourceParser parser = new JavaSourceParser(ParseMode.TWO_STAGE);
+        for (String source : TestSources.corpus().values()) {
+            trees.add(parser.parse(CharStreams.fromString(source)).getTree().toStringTree(Arrays.asList(JavaParser.ruleNames)));
+        }
+        return trees;
+    }
+}
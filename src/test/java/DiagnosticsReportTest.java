@@ -0,0 +1,79 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.Translator;
+import org.arjun.diagnostics.Diagnostic;
+import org.arjun.diagnostics.DiagnosticsReport;
+import org.arjun.diagnostics.FileDiagnostics;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.LexerKind;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParserOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lexing and syntax errors must end up in the file's diagnostics, capped, and the report must add them up.
+ */
+public class DiagnosticsReportTest {
+    private static final String BROKEN = "class A {\n    int x = 1\n    int y = 2\n    int z = 3\n    # int w = 4;\n}\n";
+
+    @Test
+    public void errorsAreCollectedAndCapped() {
+        for (LexerKind lexer : LexerKind.values()) {
+            Translator translator = new Translator(ParseMode.TWO_STAGE, ParserOptions.defaults().setLexer(lexer),
+                    TranslationOptions.defaults());
+            DiagnosticsReport report = new DiagnosticsReport(2);
+            FileDiagnostics file = report.newFile("A.java");
+            translator.translate(CharStreams.fromString(BROKEN), new StringWriter(), TranslationOptions.defaults(), null, file);
+            report.add(file);
+
+            assertEquals(4, file.getErrors(), lexer + ": " + report.format());
+            assertEquals(2, file.getDiagnostics().size());
+            assertEquals(2, file.getDropped());
+            assertNull(file.getFailure());
+            assertTrue(report.format().contains("... 2 more syntax errors"), report.format());
+
+            FileDiagnostics all = new DiagnosticsReport().newFile("A.java");
+            translator.translate(CharStreams.fromString(BROKEN), new StringWriter(), TranslationOptions.defaults(), null, all);
+            assertEquals(4, all.getDiagnostics().size());
+            assertEquals(1L, all.getDiagnostics().stream().filter(d -> d.getKind() == Diagnostic.Kind.LEXICAL && d.getLine() == 5).count(),
+                    lexer.toString());
+        }
+    }
+
+    @Test
+    public void cleanFilesAreOnlyCounted() {
+        Translator translator = new Translator(ParseMode.TWO_STAGE);
+        DiagnosticsReport report = new DiagnosticsReport();
+        FileDiagnostics file = report.newFile("Clean.java");
+        translator.translate(CharStreams.fromString("class Clean { int x = 1; }"), new StringWriter(),
+                TranslationOptions.defaults(), null, file);
+        report.add(file);
+        assertTrue(report.isEmpty());
+        assertTrue(report.toJson().contains("\"aggregate\": {\"files\": 1, \"filesWithProblems\": 0"), report.toJson());
+    }
+
+    @Test
+    public void failuresKeepTheTopOfTheTrace() {
+        DiagnosticsReport report = new DiagnosticsReport();
+        FileDiagnostics file = report.newFile("Deep.java");
+        file.fail(deepFailure(100));
+        file.fail(new IllegalStateException("second"));
+        report.add(file);
+
+        assertEquals("java.lang.IllegalArgumentException: \"quoted\"", file.getFailure());
+        assertEquals(12, file.getFailureTrace().size());
+        assertEquals(1, report.getFailures());
+        String json = report.toJson();
+        assertTrue(json.contains("\"failure\": \"java.lang.IllegalArgumentException: \\\"quoted\\\"\""), json);
+        assertTrue(json.contains("\"syntaxErrors\": 0, \"untranslatedMembers\": 0, \"failures\": 1"), json);
+    }
+
+    private static IllegalArgumentException deepFailure(int depth) {
+        return depth == 0 ? new IllegalArgumentException("\"quoted\"") : deepFailure(depth - 1);
+    }
+}
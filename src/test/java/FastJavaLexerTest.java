@@ -0,0 +1,145 @@
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.arjun.interpreter.JavaLexer;
+import org.arjun.parser.FastJavaLexer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Differential test: FastJavaLexer must produce exactly the tokens and recognition errors of the generated JavaLexer.
+ */
+public class FastJavaLexerTest {
+    private static final String[] FRAGMENTS = {
+            "class", "int", "non-sealed", "non-", "true", "null", "var", "x", "$a_1", "\u00e9", "\uD835\uDC00", "\uD800",
+            "0", "09", "0_7", "1_000L", "0x1F", "0x", "0b101", "1e10", "1.5f", ".5", "1.", "0x1.8p3", "1e", "1_",
+            ">>>=", ">>=", ">>>", "<<=", "...", "..", "::", "->", "--", "&&", "||", "+=", "@", "#", "\u007F", "\\",
+            "\"abc\"", "\"a\\tb\"", "\"\\u0041\"", "\"\\u005c\"", "\"unterminated", "\"\"\"", "\"\"\"\n text\n\"\"\"",
+            "'a'", "'\\n'", "'\\u005c''", "'\\777'", "'\\08'", "''", "'ab'", "'\\s'", "'\\uu0041'",
+            "/* c */", "/*/", "// line", "\n", "\r\n", "\t", " ", "{", "}", "(", ")", ";", ",", "=", "*", "/", "%",
+    };
+    private static final String ALPHABET = "aZ_$09.x\"'\\u05c7eEpPfLl+-*/=<>!&|^%:@#{}();, \t\r\n\u00e9\uD800\uDC00";
+
+    @Test
+    public void samplesLexIdentically() throws IOException {
+        for (String code : TestSources.corpus().values()) {
+            assertSameTokens(code);
+        }
+    }
+
+    @Test
+    public void inputIsReadInPlace() throws IOException {
+        for (String code : TestSources.corpus().values()) {
+            RecordingCharStream input = new RecordingCharStream(CharStreams.fromString(code));
+            FastJavaLexer fast = new FastJavaLexer(input);
+            fast.removeErrorListeners();
+            List<Token> tokens = drain(fast);
+
+            // token texts are read when asked for, so lexing itself copies nothing out of the input
+            assertEquals(Collections.emptyList(), input.getCopies());
+            JavaLexer reference = new JavaLexer(CharStreams.fromString(code));
+            reference.removeErrorListeners();
+            assertEquals(describe(reference.getAllTokens(), reference.nextToken()), describe(tokens, null));
+        }
+    }
+
+    @Test
+    public void fragmentsLexIdentically() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder code = new StringBuilder();
+            int count = 1 + random.nextInt(8);
+            for (int f = 0; f < count; f++) {
+                code.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                if (random.nextInt(3) == 0) code.append(' ');
+            }
+            assertSameTokens(code.toString());
+        }
+    }
+
+    @Test
+    public void randomCharactersLexIdentically() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder code = new StringBuilder();
+            int length = random.nextInt(24);
+            for (int c = 0; c < length; c++) {
+                code.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            assertSameTokens(code.toString());
+        }
+    }
+
+    private static void assertSameTokens(String code) {
+        List<String> expectedErrors = new ArrayList<>();
+        JavaLexer reference = new JavaLexer(CharStreams.fromString(code));
+        reference.removeErrorListeners();
+        reference.addErrorListener(collect(expectedErrors));
+        List<String> actualErrors = new ArrayList<>();
+        FastJavaLexer fast = new FastJavaLexer(CharStreams.fromString(code));
+        fast.removeErrorListeners();
+        fast.addErrorListener(collect(actualErrors));
+
+        List<String> expected = describe(reference.getAllTokens(), reference.nextToken());
+        List<String> actual = describe(drain(fast), null);
+        assertEquals(expected, actual, () -> "tokens of " + escape(code));
+        assertEquals(expectedErrors, actualErrors, () -> "errors of " + escape(code));
+        assertFalse(expected.isEmpty());
+    }
+
+    private static List<Token> drain(FastJavaLexer lexer) {
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.nextToken();
+            tokens.add(token);
+        } while (token.getType() != Token.EOF);
+        return tokens;
+    }
+
+    private static List<String> describe(List<? extends Token> tokens, Token eof) {
+        List<String> described = new ArrayList<>();
+        for (Token token : tokens) {
+            described.add(describe(token));
+        }
+        if (eof != null) {
+            described.add(describe(eof));
+        }
+        return described;
+    }
+
+    private static String describe(Token token) {
+        return token.getType() + "/" + token.getChannel() + " " + token.getStartIndex() + ".." + token.getStopIndex()
+                + " @" + token.getLine() + ":" + token.getCharPositionInLine() + " " + escape(token.getText());
+    }
+
+    private static BaseErrorListener collect(List<String> errors) {
+        return new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int column,
+                                    String msg, RecognitionException e) {
+                errors.add(line + ":" + column + " " + msg);
+            }
+        };
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x20 || c > 0x7E) escaped.append(String.format("\\u%04x", (int) c));
+            else escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,123 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.arjun.interpreter.JavaLexer;
+import org.arjun.interpreter.JavaParser;
+import org.arjun.parser.HybridJavaParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Differential test: HybridJavaParser must build exactly the tree of the generated JavaParser.
+ */
+public class HybridJavaParserTest {
+    private static final String[] OPERANDS = {
+            "a", "b.c", "this.d", "f(x)", "g()", "h(a, b + 1)", "s.t(u).v", "arr[i]", "arr[i + 1][j]", "1", "2L",
+            "0x1F", "1.5", "'c'", "\"str\"", "true", "null", "(a + b)", "(a)", "-a", "!flag", "~bits", "++i", "i--",
+            "(String) o", "new int[3]", "x -> x", "List::of", "o instanceof String", "a << 2", "i >> 1",
+            "c ? d : e", "Foo.class", "super.m()", "this(1)", "(a) + b", "(a) - -b", "m(a < b, c > d)",
+    };
+    private static final String[] OPERATORS = {
+            "+", "-", "*", "/", "%", "<", ">", "<=", ">=", "==", "!=", "&", "^", "|", "&&", "||",
+    };
+    private static final String[] ASSIGNMENTS = {"=", "+=", "-=", "*=", "/=", "%=", "&=", "|=", "^=", "<<=", ">>=", ">>>="};
+
+    @Test
+    public void samplesParseIdentically() throws IOException {
+        for (String code : TestSources.corpus().values()) {
+            assertSameTree(code);
+        }
+    }
+
+    @Test
+    public void randomExpressionsParseIdentically() {
+        Random random = new Random(12);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder body = new StringBuilder();
+            for (int s = 0; s < 5; s++) {
+                body.append("        ").append(random.nextBoolean() ? "x " + pick(random, ASSIGNMENTS) + " " : "")
+                        .append(expression(random, 3)).append(";\n");
+            }
+            body.append("        if (").append(expression(random, 2)).append(") return ").append(expression(random, 2)).append(";\n");
+            body.append("        call(").append(expression(random, 2)).append(", ").append(expression(random, 2)).append(");\n");
+            assertSameTree("class T {\n    void m() {\n" + body + "    }\n}\n");
+        }
+    }
+
+    @Test
+    public void brokenExpressionsParseIdentically() {
+        assertSameTree("class T { void m() { x = a + ; y = (b * c; z = f(a,); w = a ? b; } }");
+        assertSameTree("class T { int x = 1 + 2 * 3 - 4 / 5 % 6; int y = a.b.c(d)[e]++ + --f; }");
+    }
+
+    private static String expression(Random random, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return pick(random, OPERANDS);
+        }
+        switch (random.nextInt(6)) {
+            case 0:
+                return "(" + expression(random, depth - 1) + ")";
+            case 1:
+                return expression(random, depth - 1) + " ? " + expression(random, depth - 1) + " : " + expression(random, depth - 1);
+            case 2:
+                return "f(" + expression(random, depth - 1) + ", " + expression(random, depth - 1) + ")";
+            default:
+                return expression(random, depth - 1) + " " + pick(random, OPERATORS) + " " + expression(random, depth - 1);
+        }
+    }
+
+    private static String pick(Random random, String[] choices) {
+        return choices[random.nextInt(choices.length)];
+    }
+
+    private static void assertSameTree(String code) {
+        JavaParser reference = new JavaParser(new CommonTokenStream(new JavaLexer(CharStreams.fromString(code))));
+        reference.removeErrorListeners();
+        JavaParser hybrid = new HybridJavaParser(new CommonTokenStream(new JavaLexer(CharStreams.fromString(code))));
+        hybrid.removeErrorListeners();
+        assertEquals(describe(reference.compilationUnit()), describe(hybrid.compilationUnit()), code);
+    }
+
+    /** Everything the tree holds: node classes, invoking states, start/stop tokens, labels and terminals. */
+    private static String describe(ParseTree tree) {
+        StringBuilder description = new StringBuilder();
+        describe(tree, description);
+        return description.toString();
+    }
+
+    private static void describe(ParseTree tree, StringBuilder description) {
+        if (tree instanceof TerminalNode) {
+            description.append(' ').append(((TerminalNode) tree).getSymbol().getTokenIndex());
+            return;
+        }
+        ParserRuleContext context = (ParserRuleContext) tree;
+        description.append(" (").append(context.getClass().getSimpleName()).append('@').append(context.invokingState)
+                .append(' ').append(index(context.start)).append("..").append(index(context.stop));
+        if (context instanceof JavaParser.ExpressionContext) {
+            JavaParser.ExpressionContext expression = (JavaParser.ExpressionContext) context;
+            description.append(" bop=").append(index(expression.bop)).append(" prefix=").append(index(expression.prefix))
+                    .append(" postfix=").append(index(expression.postfix));
+        }
+        if (context.exception != null) {
+            description.append(" !").append(context.exception.getClass().getSimpleName());
+        }
+        for (int i = 0; i < context.getChildCount(); i++) {
+            if (context.getChild(i).getParent() != context) {
+                description.append(" <wrong parent>");
+            }
+            describe(context.getChild(i), description);
+        }
+        description.append(')');
+    }
+
+    private static String index(Token token) {
+        return token == null ? "-" : String.valueOf(token.getTokenIndex());
+    }
+}
@@ -0,0 +1,93 @@
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.arjun.interpreter.JavaLexer;
+import org.arjun.parser.MappedCharStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A mapped source file must read, and lex, exactly like the same file read by {@link CharStreams#fromFileName}.
+ */
+public class MappedCharStreamTest {
+    @Test
+    public void samplesReadLikeCharStreams() throws IOException {
+        for (String code : TestSources.corpus().values()) {
+            assertSameStream(code.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void nonAsciiSourcesAreDecoded() throws IOException {
+        assertSameStream("class Caf\u00e9 { String s = \"\u00fcber \uD83D\uDE00\"; }\n".getBytes(StandardCharsets.UTF_8));
+        assertSameStream(new byte[] {'c', 'l', 'a', 's', 's', ' ', 'A', ' ', (byte) 0xC3, '{', '}'});
+        assertSameStream(new byte[0]);
+        // the non-ASCII byte past the last full word of eight
+        assertSameStream("class LongEnoughName {}\u00e9".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void asciiSourcesAreReadInPlace() throws IOException {
+        Path file = write("class A { int x = 1; }".getBytes(StandardCharsets.US_ASCII));
+        try {
+            CharStream mapped = MappedCharStream.open(file);
+            assertTrue(mapped instanceof MappedCharStream);
+            assertEquals(file.toString(), mapped.getSourceName());
+            assertEquals(0, mapped.LA(0));
+            assertEquals(CharStream.EOF, mapped.LA(-1));
+            assertEquals("", mapped.getText(Interval.of(30, 40)));
+            mapped.seek(mapped.size());
+            assertEquals(CharStream.EOF, mapped.LA(1));
+            assertEquals('}', mapped.LA(-1));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertSameStream(byte[] content) throws IOException {
+        Path file = write(content);
+        try {
+            CharStream expected = CharStreams.fromFileName(file.toString());
+            CharStream mapped = MappedCharStream.open(file);
+            assertEquals(expected.size(), mapped.size());
+            assertEquals(expected.toString(), mapped.toString());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.LA(1), mapped.LA(1), "character " + i);
+                expected.consume();
+                mapped.consume();
+            }
+            assertEquals(expected.LA(1), mapped.LA(1));
+            expected.seek(0);
+            mapped.seek(0);
+            assertEquals(describeTokens(expected), describeTokens(mapped));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static String describeTokens(CharStream input) {
+        JavaLexer lexer = new JavaLexer(input);
+        lexer.removeErrorListeners();
+        StringBuilder description = new StringBuilder();
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            description.append(token.getType()).append(' ').append(token.getText()).append(' ')
+                    .append(token.getStartIndex()).append(' ').append(token.getLine()).append(':')
+                    .append(token.getCharPositionInLine()).append('\n');
+        }
+        return description.toString();
+    }
+
+    private static Path write(byte[] content) throws IOException {
+        Path file = Files.createTempFile("mapped", ".java");
+        Files.write(file, content);
+        return file;
+    }
+}
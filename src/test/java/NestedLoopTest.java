@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * What an outer for loop's body assigns is worked out once for the loops nested in it as well; each loop must still
+ * see exactly the assignments of its own body.
+ */
+public class NestedLoopTest {
+    @Test
+    public void nestedBodiesKeepTheirOwnAssignments() {
+        String python = TestSources.translate("class A {\n    int limit = 10;\n    int f(int n, int m) {\n        int total = 0;\n"
+                + "        for (int i = 0; i < n; i++) {\n"
+                + "            for (int j = 0; j < m; j++) {\n                n--;\n"
+                + "                for (int k = 10; k >= 0; k -= 2) {\n                    total += k;\n                }\n"
+                + "            }\n"
+                + "        }\n"
+                + "        for (int i = 0; i < limit; i++) {\n"
+                + "            for (int j = 0; j < i; j++) {\n                bump();\n            }\n"
+                + "        }\n"
+                + "        return total;\n    }\n    void bump() { limit++; }\n}\n");
+        // n is assigned two loops down, limit by a method called one loop down
+        assertTrue(python.contains("        i = 0\n        while i < n:\n            for j in range(m):\n"
+                + "                n -= 1\n                for k in range(10, -1, -2):\n"), python);
+        assertTrue(python.contains("        while i < self.limit:\n            for j in range(i):\n"), python);
+    }
+
+    @Test
+    public void deeplyNestedLoopsBecomeRanges() {
+        int depth = 150;
+        StringBuilder code = new StringBuilder("class A {\n    int f(int n) {\n        int t = 0;\n");
+        for (int i = 0; i < depth; i++) {
+            code.append("for (int i").append(i).append(" = 0; i").append(i).append(" < n; i").append(i).append("++) {\n");
+            code.append("t += i").append(i).append(" * 2;\n");
+        }
+        for (int i = 0; i < depth; i++) {
+            code.append("}\n");
+        }
+        String python = TestSources.translate(code.append("        return t;\n    }\n}\n").toString());
+        assertEquals(depth, python.split("in range\\(n\\):", -1).length - 1, python);
+    }
+}
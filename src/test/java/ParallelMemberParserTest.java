@@ -0,0 +1,106 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.arjun.Translator;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParserOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parsing the members of a class on several threads must give the tree, and so the Python code, of a sequential parse.
+ */
+public class ParallelMemberParserTest {
+    private static final String MEMBERS =
+            "    private int count = 0;\n"
+            + "    int[] table = {1, 2, 3}, other = {4};\n"
+            + "    Runnable task = new Runnable() { public void run() { count++; } };\n"
+            + "    java.util.function.Function<Integer, Integer> twice = x -> { return x * 2; };\n"
+            + "    static { System.out.println(\"loaded\"); }\n"
+            + "    { count = 1; }\n"
+            + "    ;\n"
+            + "    @SuppressWarnings({\"unchecked\", \"rawtypes\"}) public <T> T cast(Object o) { return (T) o; }\n"
+            + "    public Sample(int start) { this.count = start; }\n"
+            + "    static class Inner { int value; int get() { return value; } }\n"
+            + "    enum Color { RED, GREEN; Color next() { return values()[(ordinal() + 1) % 2]; } }\n"
+            + "    interface Shape { double area(); }\n"
+            + "    public int sum(int[] values) {\n"
+            + "        int total = 0;\n"
+            + "        for (int i = 0; i < values.length; i++) { total += values[i]; }\n"
+            + "        return total > 10 ? total : -total;\n"
+            + "    }\n";
+
+    @Test
+    public void samplesParseAsSequentially() throws IOException {
+        for (String code : TestSources.corpus().values()) {
+            assertSameResult(code, ParseMode.TWO_STAGE);
+        }
+    }
+
+    @Test
+    public void largeClassIsParsedMemberByMember() {
+        StringBuilder code = new StringBuilder("package demo;\n\nimport java.util.List;\n\npublic class Sample {\n");
+        for (int i = 0; i < 40; i++) {
+            code.append(MEMBERS.replace("count", "count" + i).replace("sum(", "sum" + i + "(")
+                    .replace("Inner", "Inner" + i).replace("Color", "Color" + i).replace("Shape", "Shape" + i));
+        }
+        code.append("}\n\ninterface Helper { void help(); }\n\nclass Second {\n").append(MEMBERS.replace("Sample", "Second")).append("}\n");
+        for (ParseMode mode : ParseMode.values()) {
+            assertTrue(assertSameResult(code.toString(), mode) > 100, "members parsed in parallel with " + mode);
+        }
+    }
+
+    @Test
+    public void brokenClassesFallBackToSequential() {
+        assertEquals(0, assertSameResult("class A { int x = ; void m() { } void n() { } }", ParseMode.TWO_STAGE));
+        assertEquals(0, assertSameResult("class A { void m() { } } }", ParseMode.TWO_STAGE));
+        assertEquals(0, assertSameResult("class A { void m() { } void n() {", ParseMode.TWO_STAGE));
+    }
+
+    /** Returns how many members were parsed in parallel. */
+    private static int assertSameResult(String code, ParseMode mode) {
+        Translator.Result sequential = new Translator(mode).translate(CharStreams.fromString(code));
+        ParserOptions parallelOptions = ParserOptions.defaults().setParseThreads(3).setParallelMinTokens(0);
+        Translator.Result parallel = new Translator(mode, parallelOptions, TranslationOptions.defaults())
+                .translate(CharStreams.fromString(code));
+        assertEquals(describe(sequential.getParseResult().getTree()), describe(parallel.getParseResult().getTree()), code);
+        assertEquals(sequential.getPythonCode(), parallel.getPythonCode(), code);
+        assertEquals(sequential.getParseResult().getStage(), parallel.getParseResult().getStage(), code);
+        return parallel.getParseResult().getParallelMembers();
+    }
+
+    /** Node classes, invoking states, start/stop tokens and terminals of a tree. */
+    private static String describe(ParseTree tree) {
+        StringBuilder description = new StringBuilder();
+        describe(tree, description);
+        return description.toString();
+    }
+
+    private static void describe(ParseTree tree, StringBuilder description) {
+        if (tree instanceof TerminalNode) {
+            description.append(' ').append(((TerminalNode) tree).getSymbol().getTokenIndex());
+            return;
+        }
+        ParserRuleContext context = (ParserRuleContext) tree;
+        description.append(" (").append(context.getClass().getSimpleName()).append('@').append(context.invokingState)
+                .append(' ').append(index(context.start)).append("..").append(index(context.stop));
+        for (int i = 0; i < context.getChildCount(); i++) {
+            if (context.getChild(i).getParent() != context) {
+                description.append(" <wrong parent>");
+            }
+            describe(context.getChild(i), description);
+        }
+        description.append(')');
+    }
+
+    private static String index(Token token) {
+        return token == null ? "-" : String.valueOf(token.getTokenIndex());
+    }
+}
@@ -0,0 +1,127 @@
+import org.arjun.batch.BatchOptions;
+import org.arjun.batch.BatchSummary;
+import org.arjun.batch.BatchTranslator;
+import org.arjun.diagnostics.DiagnosticsReport;
+import org.arjun.diagnostics.FileDiagnostics;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.DfaCache;
+import org.arjun.parser.LexerKind;
+import org.arjun.parser.ParseBudgetExceededException;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParserOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A file over the parse budget must be aborted from inside the parser, and the degraded retry must still translate it.
+ */
+public class ParseBudgetTest {
+    // telling the declaration from an expression statement takes SLL prediction through the whole chain of names
+    private static final String FIELD_CHAIN = fieldChain(200);
+
+    @Test
+    public void lookaheadLimitAbortsTheParse() {
+        ParserOptions limited = ParserOptions.defaults().setMaxLookahead(50);
+        ParseBudgetExceededException overBudget = assertThrows(ParseBudgetExceededException.class,
+                () -> TestSources.translate(FIELD_CHAIN, limited));
+        assertEquals(3, overBudget.getLine());
+        assertTrue(overBudget.getMessage().contains("more than 50 tokens ahead"), overBudget.getMessage());
+
+        // a member parsed on a worker thread goes over the same budget
+        ParserOptions parallel = ParserOptions.defaults().setMaxLookahead(50).setParseThreads(2).setParallelMinTokens(0);
+        String twoMembers = FIELD_CHAIN.replace("class A {\n", "class A {\n    int x = 1;\n");
+        assertThrows(ParseBudgetExceededException.class, () -> TestSources.translate(twoMembers, parallel));
+
+        assertTrue(TestSources.translate(FIELD_CHAIN).contains("return x"));
+    }
+
+    @Test
+    public void timeLimitAbortsTheParse() {
+        StringBuilder statements = new StringBuilder("class A {\n    void f(int a) {\n");
+        for (int i = 0; i < 20_000; i++) {
+            statements.append("        a = a * ").append(i).append(" + f(a, ").append(i).append(");\n");
+        }
+        String source = statements.append("    }\n}\n").toString();
+        ParserOptions limited = ParserOptions.defaults().setMaxParseMillis(1);
+        assertThrows(ParseBudgetExceededException.class, () -> TestSources.translate(source, limited));
+    }
+
+    @Test
+    public void transitionLimitAbortsTheParse() {
+        // predictions the DFA already answers cost nothing, so start cold
+        DfaCache.clear();
+        ParserOptions limited = ParserOptions.defaults().setMaxTransitions(1);
+        ParseBudgetExceededException overBudget = assertThrows(ParseBudgetExceededException.class,
+                () -> TestSources.translate(FIELD_CHAIN, limited));
+        assertTrue(overBudget.getMessage().contains("more than 1 ATN configurations"), overBudget.getMessage());
+
+        DfaCache.clear();
+        assertTrue(TestSources.translate(FIELD_CHAIN, ParserOptions.defaults().setMaxTransitions(10_000_000)).contains("return x"));
+    }
+
+    @Test
+    public void degradedOptionsKeepTheLimits() {
+        ParserOptions options = ParserOptions.defaults().setLexer(LexerKind.FAST).setParseThreads(4).setStreaming(true)
+                .setMaxParseMillis(100).setMaxLookahead(50).setMaxTransitions(1000).setDegradedRetry(true);
+        ParserOptions degraded = options.degraded();
+        assertEquals(LexerKind.FAST, degraded.getLexer());
+        assertTrue(degraded.isFastExpressions());
+        assertEquals(1, degraded.getParseThreads());
+        assertFalse(degraded.isStreaming());
+        assertFalse(degraded.isDegradedRetry());
+        assertEquals(100, degraded.getMaxParseMillis());
+        assertEquals(50, degraded.getMaxLookahead());
+        assertEquals(1000, degraded.getMaxTransitions());
+        // the degraded parse gets past the lookahead limit the first try went over
+        assertEquals(TestSources.translate(FIELD_CHAIN),
+                TestSources.translate(FIELD_CHAIN, ParseMode.SLL, ParserOptions.defaults().setMaxLookahead(50).degraded(),
+                        TranslationOptions.defaults()));
+    }
+
+    @Test
+    public void degradedRetryTranslatesTheFile() throws IOException {
+        Path sources = Files.createTempDirectory("budget");
+        Files.write(sources.resolve("Chain.java"), FIELD_CHAIN.getBytes(StandardCharsets.UTF_8));
+        Files.write(sources.resolve("Plain.java"), "class Plain { int x = 1; }\n".getBytes(StandardCharsets.UTF_8));
+
+        for (boolean retry : new boolean[] {false, true}) {
+            Path output = Files.createTempDirectory("budget-out");
+            ParserOptions options = ParserOptions.defaults().setMaxLookahead(50).setDegradedRetry(retry);
+            DiagnosticsReport diagnostics = new DiagnosticsReport();
+            BatchSummary summary = new BatchTranslator(sources, output,
+                    BatchOptions.defaults().setParallelism(2).setParserOptions(options).setDiagnostics(diagnostics)).run();
+
+            assertEquals(1L, summary.getOverBudget());
+            assertEquals(retry ? 2L : 1L, summary.getTranslated(), summary.format());
+            assertEquals(retry ? 1L : 0L, summary.getDegraded());
+            FileDiagnostics chain = diagnostics.getFiles().get(0);
+            assertTrue(chain.getName().endsWith("Chain.java"), chain.getName());
+            assertTrue(chain.getOverBudget().contains("at line 3"), chain.getOverBudget());
+            assertEquals(retry, chain.isDegradedRetry());
+            assertEquals(retry ? 0L : 1L, diagnostics.getFailures());
+            if (retry) {
+                String python = new String(Files.readAllBytes(output.resolve("Chain.py")), StandardCharsets.UTF_8);
+                assertEquals(TestSources.translate(FIELD_CHAIN), python);
+            } else {
+                assertFalse(Files.exists(output.resolve("Chain.py")));
+            }
+        }
+    }
+
+    private static String fieldChain(int names) {
+        StringBuilder chain = new StringBuilder("a0");
+        for (int i = 1; i < names; i++) {
+            chain.append(".a").append(i);
+        }
+        return "class A {\n    Object f(Object a0) {\n        Object x = " + chain + ";\n        return x;\n    }\n}\n";
+    }
+}
@@ -0,0 +1,76 @@
+import org.arjun.diagnostics.DiagnosticsReport;
+import org.arjun.diagnostics.FileDiagnostics;
+import org.arjun.interpreter.UntranslatedMember;
+import org.arjun.parser.ParserOptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A member the interpreter fails on must become a stub naming the construct it failed on, without changing how the
+ * rest of the class translates.
+ */
+public class PartialTranslationTest {
+    // the interpreter does not handle creators of primitive arrays or var declarations yet
+    private static final String FAILING_FIELD = "    int[] table = new int[] {1};\n";
+    private static final String FAILING_METHOD = "    void fill() {\n        int local = 2;\n        if (local > 1) {\n"
+            + "            var xs = local;\n        }\n    }\n";
+    private static final String GOOD = "    int count = 1;\n"
+            + "    int twice(int x) {\n        int local = x * 2;\n        return local + count;\n    }\n";
+
+    @Test
+    public void failingMembersBecomeStubs() {
+        String python = translate("class A {\n" + FAILING_FIELD + GOOD + FAILING_METHOD + "}\n", false, null);
+        assertTrue(python.contains("        self.table = None  # TODO untranslated: cannot translate `new int[] {1}` at line 2\n"), python);
+        assertTrue(python.contains("    def fill(self, *args, **kwargs):\n"
+                + "        # TODO untranslated: cannot translate `var xs = local` at line 11\n"
+                + "        raise NotImplementedError(\"A.fill: cannot translate `var xs = local` at line 11\")\n"), python);
+        // nothing of the failed method's body is left behind
+        assertFalse(python.contains("local = 2"), python);
+    }
+
+    @Test
+    public void reasonsNameTheInnermostConstruct() {
+        String python = translate("class A {\n    int f(int n) {\n        String s = \"a\" + new int[] {n,\n"
+                + "                n + 1}.length;\n        return n;\n    }\n}\n", false, null);
+        // the creator inside the declaration, up to its first line break
+        assertTrue(python.contains("        raise NotImplementedError(\"A.f: cannot translate `new int[] {n, ...` at line 3\")\n"), python);
+        // quotes in the construct are escaped for the Python string
+        python = translate("class A {\n    void f() {\n        var s = \"a\\\\b\";\n    }\n}\n", false, null);
+        assertTrue(python.contains("        raise NotImplementedError(\"A.f: cannot translate `var s = \\\"a\\\\\\\\b\\\"` at line 3\")\n"), python);
+    }
+
+    @Test
+    public void otherMembersAreUnaffected() {
+        String expected = translate("class A {\n" + GOOD + "}\n", false, null);
+        for (boolean streaming : new boolean[] {false, true}) {
+            String python = translate("class A {\n" + FAILING_METHOD + GOOD + FAILING_METHOD.replace("fill", "refill") + "}\n", streaming, null);
+            String withoutStubs = python.replaceAll("\n    def \\w+\\(self, \\*args, \\*\\*kwargs\\):\n        # TODO untranslated: [^\n]*\n        raise [^\n]*\n", "");
+            assertEquals(expected, withoutStubs, "streaming " + streaming);
+        }
+    }
+
+    @Test
+    public void untranslatedMembersAreReported() {
+        DiagnosticsReport report = new DiagnosticsReport();
+        FileDiagnostics file = report.newFile("A.java");
+        translate("class A {\n" + FAILING_FIELD + GOOD + FAILING_METHOD + "}\n"
+                + "class B {\n    public B() { int[] xs = new int[] {1}; }\n}\n", false, file);
+        report.add(file);
+
+        List<UntranslatedMember> untranslated = file.getUntranslated();
+        assertEquals(3, untranslated.size(), report.format());
+        assertEquals("A.table (line 2): cannot translate `new int[] {1}` at line 2", untranslated.get(0).toString());
+        assertEquals("A.fill (line 8): cannot translate `var xs = local` at line 11", untranslated.get(1).toString());
+        assertEquals("B.__init__ (line 16): cannot translate `new int[] {1}` at line 16", untranslated.get(2).toString());
+        assertTrue(report.toJson().contains("\"untranslatedMembers\": 3"), report.toJson());
+    }
+
+    private static String translate(String code, boolean streaming, FileDiagnostics diagnostics) {
+        return TestSources.translate(code, ParserOptions.defaults().setStreaming(streaming), diagnostics);
+    }
+}
@@ -0,0 +1,75 @@
+import org.arjun.interpreter.PythonEmitter;
+import org.arjun.ir.PyStatement;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every emitted line must start at the indentation of the block it is in, however deep, and blocks left empty must get a pass.
+ */
+public class PythonEmitterTest {
+    @Test
+    public void linesAreIndentedByLevel() {
+        StringBuilder out = new StringBuilder();
+        PythonEmitter emitter = new PythonEmitter(out, 1);
+        emitter.line(PyStatement.Kind.IF, "if a:");
+        emitter.indent();
+        emitter.line(PyStatement.Kind.ASSIGN, "b = 1");
+        emitter.dedent();
+        emitter.line(PyStatement.Kind.ASSIGN, "c = 2");
+        assertEquals("    if a:\n        b = 1\n    c = 2\n", out.toString());
+        assertEquals(out.length(), emitter.position());
+
+        // past the precomputed indentations
+        for (int level : new int[] {15, 16, 40}) {
+            StringBuilder deep = new StringBuilder();
+            new PythonEmitter(deep, level).line(PyStatement.Kind.EXPRESSION, "x");
+            assertEquals(level * 4 + 2, deep.length());
+            assertEquals("x", deep.toString().trim());
+            assertEquals(PythonEmitter.indentation(level), deep.substring(0, level * 4));
+        }
+    }
+
+    @Test
+    public void statementsAreIndentedInTheirBlock() {
+        String code = "class A {\n    int x = 1, y = 2;\n    void f(int n) {\n        while (n > 0)\n            n--;\n"
+                + "        if (n == 0) {\n        } else {\n            n = 1;\n        }\n    }\n}\n";
+        String expected = "\n"
+                + "class A:\n"
+                + "    def __init__(self):\n"
+                + "        self.x = 1  # Type: int\n"
+                + "        self.y = 2  # Type: int\n"
+                + "\n"
+                + "    def f(self, n: int):\n"
+                + "        while n > 0:\n"
+                + "            n -= 1\n"
+                + "        if n == 0:\n"
+                + "            pass\n"
+                + "        else:\n"
+                + "            n = 1\n"
+                + "\n";
+        assertEquals(expected, TestSources.translate(code));
+    }
+
+    @Test
+    public void deeplyNestedBlocksKeepTheirIndentation() {
+        int depth = 20;
+        StringBuilder code = new StringBuilder("class A {\n    void f(int n) {\n");
+        for (int i = 0; i < depth; i++) {
+            code.append("if (n > ").append(i).append(") {\n");
+        }
+        code.append("n = 0;\n");
+        for (int i = 0; i < depth; i++) {
+            code.append("}\n");
+        }
+        code.append("    }\n}\n");
+
+        String python = TestSources.translate(code.toString());
+        for (int i = 0; i < depth; i++) {
+            String header = PythonEmitter.indentation(2 + i) + "if n > " + i + ":\n";
+            assertTrue(python.contains(header), header);
+        }
+        assertTrue(python.contains(PythonEmitter.indentation(2 + depth) + "n = 0\n"), python);
+    }
+}
@@ -0,0 +1,171 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.Translator;
+import org.arjun.interpreter.TranslationContext;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.interpreter._interpreter_;
+import org.arjun.ir.PassManager;
+import org.arjun.ir.PyBlock;
+import org.arjun.ir.PyExpr;
+import org.arjun.ir.PyLine;
+import org.arjun.ir.PyModule;
+import org.arjun.ir.PyPrinter;
+import org.arjun.ir.PyStatement;
+import org.arjun.parser.ParseMode;
+import org.arjun.stats.FileStats;
+import org.arjun.stats.Phase;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Python IR the interpreter builds must print exactly what it writes without passes, and each pass must only
+ * make the rewrites it is for.
+ */
+public class PythonPassesTest {
+    @Test
+    public void samplesPrintBackUnchanged() throws IOException {
+        for (Map.Entry<String, String> sample : TestSources.corpus().entrySet()) {
+            assertEquals(TestSources.translate(sample.getValue()), PyPrinter.print(module(sample.getValue())), sample.getKey());
+        }
+    }
+
+    @Test
+    public void statementsAreBuiltWithTheirKindsAndValues() {
+        PyModule module = module("class A {\n    int size = 2 * 3;\n    int f(int n) {\n        if (n > 0) {\n"
+                + "            return n + 1;\n        }\n        n += 4;\n        foo.bar(n, 5);\n        return -7;\n    }\n}\n");
+        assertEquals(Arrays.asList(PyStatement.Kind.BLANK, PyStatement.Kind.CLASS, PyStatement.Kind.BLANK), kinds(module.getBody()));
+        PyBlock type = (PyBlock) module.getBody().get(1);
+        assertEquals("class A:", type.getText());
+        assertEquals(Arrays.asList(PyStatement.Kind.DEF, PyStatement.Kind.BLANK, PyStatement.Kind.DEF), kinds(type.getBody()));
+
+        PyLine field = (PyLine) ((PyBlock) type.getBody().get(0)).getBody().get(0);
+        assertEquals("self.size = 2 * 3  # Type: int", field.getText());
+        assertInstanceOf(PyExpr.Binary.class, field.getValue());
+
+        // the method was emitted into a member buffer of its own before it was added to the class
+        PyBlock method = (PyBlock) type.getBody().get(2);
+        assertEquals(1, method.getIndent());
+        assertEquals(Arrays.asList(PyStatement.Kind.IF, PyStatement.Kind.ASSIGN, PyStatement.Kind.EXPRESSION,
+                PyStatement.Kind.RETURN), kinds(method.getBody()));
+        PyLine inner = (PyLine) ((PyBlock) method.getBody().get(0)).getBody().get(0);
+        assertEquals(PyStatement.Kind.RETURN, inner.getKind());
+        assertEquals(3, inner.getIndent());
+        PyExpr.Binary sum = (PyExpr.Binary) inner.getValue();
+        assertEquals("n", ((PyExpr.Atom) sum.getLeft()).getText());
+        assertEquals(1, ((PyExpr.Constant) sum.getRight()).getValue());
+        assertEquals(4, ((PyExpr.Constant) ((PyLine) method.getBody().get(1)).getValue()).getValue());
+        PyExpr.Call call = (PyExpr.Call) ((PyLine) method.getBody().get(2)).getValue();
+        assertEquals("foo.bar", call.getCallee());
+        assertEquals(2, call.getArguments().size());
+        assertInstanceOf(PyExpr.Negate.class, ((PyLine) method.getBody().get(3)).getValue());
+    }
+
+    @Test
+    public void valuesOnlyModelWhatPrintsBackAsTranslated() {
+        PyModule module = module("class A {\n    void f(int n) {\n        int hex = 0x10 + 1;\n        int big = 99999999999999999999 + 1;\n"
+                + "        String s = \"1 + 2\";\n        int a = 1, b = 2 + 3;\n        System.out.printf(\"%d\", 1 + 1);\n    }\n}\n");
+        List<PyStatement> body = ((PyBlock) ((PyBlock) module.getBody().get(1)).getBody().get(2)).getBody();
+        PyExpr.Binary hex = (PyExpr.Binary) ((PyLine) body.get(0)).getValue();
+        assertEquals("0x10", ((PyExpr.Atom) hex.getLeft()).getText());
+        assertInstanceOf(PyExpr.Atom.class, ((PyExpr.Binary) ((PyLine) body.get(1)).getValue()).getLeft());
+        assertEquals("\"1 + 2\"", ((PyExpr.Atom) ((PyLine) body.get(2)).getValue()).getText());
+        assertNull(((PyLine) body.get(3)).getValue());
+        assertInstanceOf(PyExpr.Atom.class, ((PyLine) body.get(4)).getValue());
+    }
+
+    @Test
+    public void constantsAreFolded() {
+        String code = "class A {\n    int f(int n) {\n        int day = 60 * 60 * 24;\n        n += (2 + 3) * 4;\n"
+                + "        int m = n - 2 + 3;\n        int r = -7 % 3;\n        System.out.println(n * (4 - 6));\n"
+                + "        return n / (1 + 1);\n    }\n}\n";
+        String python = translate(code, "fold");
+        assertTrue(python.contains("        day = 86400\n        n += 20\n        m = n - 2 + 3\n        r = 2\n"
+                + "        print(n * (-2))\n        return n / 2\n"), python);
+        assertEquals(translate(code).replace("60 * 60 * 24", "86400"), translate(code.replace("60 * 60 * 24", "86400")));
+
+        String overflow = "class A {\n    long f() {\n        long big = 9223372036854775807L + 1;\n        return big;\n    }\n}\n";
+        assertEquals(translate(overflow), translate(overflow, "fold"));
+
+        // the comment after a field's value stays, and so does what was not translated as arithmetic
+        String fields = "class A {\n    static final long DAY = 24 * 60 * 60 * 1000L;\n    int mask = 0xFF + 1;\n"
+                + "    String s = \"2 * 3\";\n}\n";
+        assertEquals(translate(fields).replace("24 * 60 * 60 * 1000", "86400000"), translate(fields, "fold"));
+    }
+
+    @Test
+    public void membersThatFailKeepTheirStubsUnderPasses() {
+        String code = "class A {\n    int f() {\n        int[] xs = new int[] {1};\n        return 2 * 3;\n    }\n"
+                + "    int g() {\n        return 2 * 3;\n    }\n}\n";
+        String python = translate(code, "fold");
+        assertEquals(translate(code).replace("return 2 * 3", "return 6"), python);
+        assertTrue(python.contains("raise NotImplementedError(\"A.f: "), python);
+    }
+
+    @Test
+    public void unreachableStatementsAreRemoved() {
+        String code = "class A {\n    int f(int n) {\n        while (n > 0) {\n            n--;\n            continue;\n"
+                + "            n++;\n        }\n        return n;\n        n = 2;\n    }\n    int g() { return 1; }\n}\n";
+        String python = translate(code, "unreachable");
+        assertEquals(translate(code.replace("            n++;\n", "").replace("        n = 2;\n", "")), python);
+        assertTrue(python.contains("        return n\n\n    def g(self):"), python);
+
+        // each case of a match is a body of its own
+        String cases = "class A {\n    int f(int n) {\n        switch (n) {\n            case 1:\n                return 1;\n"
+                + "            default:\n                return 2;\n        }\n    }\n}\n";
+        assertEquals(translate(cases), translate(cases, "unreachable"));
+    }
+
+    @Test
+    public void passesAreTimedAndChosenByName() {
+        String code = "class A {\n    int f() {\n        return 2 * 3;\n        int x = 1;\n    }\n}\n";
+        FileStats stats = new FileStats("A.java");
+        StringWriter python = new StringWriter();
+        new Translator(ParseMode.TWO_STAGE).translate(CharStreams.fromString(code), python,
+                TranslationOptions.defaults().setPasses(Arrays.asList("unreachable", "fold")), stats);
+        assertTrue(python.toString().contains("        return 6\n"), python.toString());
+        assertFalse(python.toString().contains("x = 1"), python.toString());
+        assertEquals(Arrays.asList("unreachable", "fold"), stats.getPasses());
+        assertEquals(1, stats.getPassChanges("fold"));
+        assertEquals(1, stats.getPassChanges("unreachable"));
+        assertTrue(stats.getWallNanos(Phase.PASSES) >= stats.getPassNanos("fold") + stats.getPassNanos("unreachable"));
+
+        assertThrows(IllegalArgumentException.class, () -> TranslationOptions.defaults().setPasses(Arrays.asList("inline")));
+        assertThrows(IllegalArgumentException.class, () -> PassManager.named(Arrays.asList("fold", "fold")));
+        assertEquals("slots=false", TranslationOptions.defaults().toString());
+        assertEquals("slots=false, passes=fold", TranslationOptions.defaults().setPasses(Arrays.asList("fold")).toString());
+    }
+
+    /** The IR the interpreter builds for {@code code}, before any pass runs over it. */
+    private static PyModule module(String code) {
+        Translator.Result result = new Translator(ParseMode.TWO_STAGE).translate(CharStreams.fromString(code));
+        PyModule module = new PyModule();
+        new _interpreter_().translate(result.getParseResult().getTree(), new TranslationContext(module, TranslationOptions.defaults()));
+        return module;
+    }
+
+    private static List<PyStatement.Kind> kinds(List<PyStatement> body) {
+        List<PyStatement.Kind> kinds = new ArrayList<>();
+        for (PyStatement statement : body) {
+            kinds.add(statement.getKind());
+        }
+        return kinds;
+    }
+
+    private static String translate(String code, String... passes) {
+        return TestSources.translate(code, TranslationOptions.defaults().setPasses(passes.length == 0
+                ? Collections.emptyList() : Arrays.asList(passes)));
+    }
+}
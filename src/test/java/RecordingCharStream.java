@@ -0,0 +1,69 @@
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link CharStream} that records every text copied out of the stream it wraps.
+ */
+final class RecordingCharStream implements CharStream {
+    private final CharStream source;
+    private final List<String> copies = new ArrayList<>();
+
+    RecordingCharStream(CharStream source) {
+        this.source = source;
+    }
+
+    /** The texts {@link #getText} returned so far, in order. */
+    List<String> getCopies() {
+        return copies;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        String text = source.getText(interval);
+        copies.add(text);
+        return text;
+    }
+
+    @Override
+    public void consume() {
+        source.consume();
+    }
+
+    @Override
+    public int LA(int i) {
+        return source.LA(i);
+    }
+
+    @Override
+    public int mark() {
+        return source.mark();
+    }
+
+    @Override
+    public void release(int marker) {
+        source.release(marker);
+    }
+
+    @Override
+    public int index() {
+        return source.index();
+    }
+
+    @Override
+    public void seek(int index) {
+        source.seek(index);
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    @Override
+    public String getSourceName() {
+        return source.getSourceName();
+    }
+}
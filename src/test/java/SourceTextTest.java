@@ -0,0 +1,122 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.arjun.interpreter.JavaParser;
+import org.arjun.interpreter.TranslationContext;
+import org.arjun.parser.JavaSourceParser;
+import org.arjun.parser.ParseMode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Text cut from the source must be the text {@link ParseTree#getText()} concatenates, for every node.
+ */
+public class SourceTextTest {
+    @Test
+    public void samplesHaveTheSameText() throws IOException {
+        for (String code : TestSources.corpus().values()) {
+            assertSameText(code);
+        }
+    }
+
+    @Test
+    public void adjacentTokensAreCutInOnePiece() {
+        RecordingCharStream input = new RecordingCharStream(
+                CharStreams.fromString("class A { java.util.List<String> m = values[i]; int n = a + b; }"));
+        ParseTree tree = new JavaSourceParser(ParseMode.TWO_STAGE).parse(input).getTree();
+        TranslationContext tc = new TranslationContext();
+        for (String text : new String[] {"java.util.List<String>", "values[i]"}) {
+            ParseTree node = find(tree, text);
+            input.getCopies().clear();
+            assertEquals(text, tc.text(node));
+            assertEquals(Collections.singletonList(text), input.getCopies());
+        }
+        // whitespace between the tokens: joined token by token, as getText() does
+        ParseTree sum = find(tree, "a+b");
+        input.getCopies().clear();
+        assertEquals("a+b", tc.text(sum));
+        assertEquals(Arrays.asList("a", "+", "b"), input.getCopies());
+    }
+
+    @Test
+    public void fragmentsHaveTheSameText() {
+        assertSameText("class A { java.util.Map<String, int[]> m = new java.util.HashMap<>(); /* c */ int[]/**/x[]; }");
+        assertSameText("class A { void m() { a.b(c)[d] = \"x y\" + 'z' /* c */ + e; for(;;) {} } }");
+        assertSameText("class A { String s = \"caf\u00e9 \uD83D\uDE00\"; int \u00e9t\u00e9 = 1; }");
+        assertSameText("class A { int x = ; void m( { } }");
+        assertSameText("class A { void m() { int y = 1 }");
+        assertSameText("");
+    }
+
+    @Test
+    public void namesAreInterned() {
+        TranslationContext tc = new TranslationContext();
+        ParseTree tree = new JavaSourceParser(ParseMode.TWO_STAGE)
+                .parse(CharStreams.fromString("class A { int count; void m() { count = count + 1; } }")).getTree();
+        List<String> names = new ArrayList<>();
+        collectNames(tree, "count", tc, names);
+        assertEquals(3, names.size());
+        for (String name : names) {
+            assertSame(names.get(0), name);
+        }
+    }
+
+    @Test
+    public void namesAreCopiedOnce() {
+        RecordingCharStream input = new RecordingCharStream(CharStreams.fromString("class A { void m() { count = count + 1; } }"));
+        ParseTree tree = new JavaSourceParser(ParseMode.TWO_STAGE).parse(input).getTree();
+        TranslationContext tc = new TranslationContext();
+        ParseTree name = find(tree, "count");
+        input.getCopies().clear();
+        assertEquals("count", tc.text(name));
+        assertEquals("count", tc.text(name));
+        // the interned name is stored in the token, so the second time nothing is read from the input
+        assertEquals(Collections.singletonList("count"), input.getCopies());
+    }
+
+    /** The first node, in document order, whose getText() is {@code text}. */
+    private static ParseTree find(ParseTree tree, String text) {
+        if (tree.getText().equals(text)) {
+            return tree;
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            ParseTree found = find(tree.getChild(i), text);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private static void collectNames(ParseTree tree, String name, TranslationContext tc, List<String> names) {
+        if (tree instanceof TerminalNode && ((TerminalNode) tree).getSymbol().getType() == JavaParser.IDENTIFIER
+                && tree.getText().equals(name)) {
+            names.add(tc.text(tree));
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            collectNames(tree.getChild(i), name, tc, names);
+        }
+    }
+
+    private static void assertSameText(String code) {
+        ParseTree tree = new JavaSourceParser(ParseMode.TWO_STAGE).parse(CharStreams.fromString(code)).getTree();
+        assertSameText(tree, new TranslationContext(), code);
+    }
+
+    private static void assertSameText(ParseTree tree, TranslationContext tc, String code) {
+        String expected = tree.getText();
+        assertEquals(expected, tc.text(tree), code);
+        assertEquals(expected, tc.text(tree), code);
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            assertSameText(tree.getChild(i), tc, code);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.Translator;
+import org.arjun.batch.BatchOptions;
+import org.arjun.batch.BatchSummary;
+import org.arjun.batch.BatchTranslator;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParserOptions;
+import org.arjun.stats.FileStats;
+import org.arjun.stats.Phase;
+import org.arjun.stats.StatsReport;
+import org.arjun.stats.TimedWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measured translations must produce the same Python, and the report must add up what was measured.
+ */
+public class StatsReportTest {
+    private static final String CODE = "class A {\n    int x = 1;\n    int twice() { return x * 2; }\n}\n";
+
+    @Test
+    public void measuredTranslationIsUnchanged() throws IOException {
+        for (boolean streaming : new boolean[] {false, true}) {
+            ParserOptions parserOptions = ParserOptions.defaults().setStreaming(streaming);
+            Translator translator = new Translator(ParseMode.TWO_STAGE, parserOptions, TranslationOptions.defaults());
+            String expected = TestSources.translate(CODE, parserOptions);
+
+            FileStats stats = new FileStats("A.java");
+            StringWriter python = new StringWriter();
+            try (Writer writer = new TimedWriter(python, stats)) {
+                translator.translate(CharStreams.fromString(CODE), writer, TranslationOptions.defaults(), stats);
+            }
+            assertEquals(expected, python.toString());
+            assertTrue(stats.getNodes() > 5, "nodes " + stats.getNodes());
+            assertTrue(stats.getWallNanos(Phase.PARSE) > 0);
+            assertTrue(stats.getWallNanos(Phase.VISIT) > 0);
+            assertTrue(stats.getWallNanos(Phase.WRITE) > 0);
+            assertEquals(streaming ? 0 : 21, stats.getTokens());
+        }
+    }
+
+    @Test
+    public void batchMeasuresEveryFile() throws IOException {
+        Path sources = TestSources.corpusDirectory();
+        Path output = Files.createTempDirectory("stats-out");
+        StatsReport report = new StatsReport();
+        BatchTranslator batch = new BatchTranslator(sources, output, BatchOptions.defaults().setParallelism(2).setStats(report));
+        BatchSummary summary = batch.run();
+
+        List<Path> files = BatchTranslator.findSources(sources);
+        assertEquals(files.size(), report.getFiles().size(), summary.format());
+        for (Path source : files) {
+            FileStats stats = report.getFiles().stream().filter(row -> row.getName().equals(source.toString())).findFirst()
+                    .orElseThrow(() -> new AssertionError("no stats for " + source));
+            assertEquals(Files.size(source), stats.getInputBytes());
+            assertEquals(Files.size(batch.outputPathFor(source)), stats.getOutputBytes());
+            assertTrue(stats.getTokens() > 0 && stats.getNodes() > stats.getTokens(), source.toString());
+            for (Phase phase : Phase.values()) {
+                // without passes nothing is timed as a pass
+                assertEquals(phase != Phase.PASSES, stats.getWallNanos(phase) > 0, source + " " + phase);
+            }
+        }
+
+        Path json = Files.createTempFile("stats", ".json");
+        report.writeJson(json);
+        String written = new String(Files.readAllBytes(json), StandardCharsets.UTF_8);
+        assertEquals(report.toJson(), written);
+        assertTrue(written.contains("\"aggregate\": {\n    \"files\": " + files.size() + ",\n"), written);
+    }
+
+    @Test
+    public void percentilesUseNearestRank() {
+        long[] values = {10, 20, 30, 40, 50, 60, 70, 80, 90, 100};
+        assertEquals(50, StatsReport.percentile(values, 50));
+        assertEquals(90, StatsReport.percentile(values, 90));
+        assertEquals(100, StatsReport.percentile(values, 99));
+        assertEquals(100, StatsReport.percentile(values, 100));
+        assertEquals(10, StatsReport.percentile(values, 0));
+        assertEquals(0, StatsReport.percentile(new long[0], 50));
+    }
+
+    @Test
+    public void reportAddsUpFiles() {
+        StatsReport report = new StatsReport();
+        for (int i = 1; i <= 4; i++) {
+            FileStats stats = new FileStats("File" + i + ".java");
+            stats.add(Phase.LEX, i * 1000, i * 500, i * 100);
+            stats.add(Phase.VISIT, i * 3000, i * 1500, i * 300);
+            stats.setTokens(i * 10);
+            report.add(stats);
+        }
+        String json = report.toJson();
+        assertTrue(json.contains("\"tokens\": {\"sum\": 100, \"p50\": 20, \"p90\": 40, \"p99\": 40, \"max\": 40}"), json);
+        assertTrue(json.contains("\"wallNanos\": {\"sum\": 40000, \"p50\": 8000, \"p90\": 16000, \"p99\": 16000, \"max\": 16000}"), json);
+        assertTrue(json.contains("{\"name\": \"File3.java\""), json);
+        assertTrue(report.format().contains("Files: 4, 100 tokens"), report.format());
+    }
+}
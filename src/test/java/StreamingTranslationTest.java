@@ -0,0 +1,90 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.Translator;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.LexerKind;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParseResult;
+import org.arjun.parser.ParserOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Translating the members of a class one at a time must give the Python code of translating the whole tree.
+ */
+public class StreamingTranslationTest {
+    private static final String MEMBERS =
+            "    public int sum(int[] values) {\n"
+            + "        int total = 0;\n"
+            + "        for (int i = 0; i < values.length; i++) { total += values[i]; }\n"
+            + "        return total > 10 ? total : -total;\n"
+            + "    }\n"
+            + "    private int count = 0;\n"
+            + "    int[] table = {1, 2, 3}, other = {4};\n"
+            + "    java.util.function.Function<Integer, Integer> twice = x -> { return x * 2; };\n"
+            + "    static { System.out.println(\"loaded\"); }\n"
+            + "    ;\n"
+            + "    static class Inner { int value; int get() { return value; } }\n"
+            + "    public String describe() { return \"count \" + count; }\n";
+
+    @Test
+    public void samplesTranslateAsWhole() throws IOException {
+        for (String code : TestSources.corpus().values()) {
+            assertSameTranslation(code, ParseMode.TWO_STAGE);
+        }
+    }
+
+    @Test
+    public void largeClassIsTranslatedMemberByMember() {
+        StringBuilder withoutConstructor = new StringBuilder("package demo;\n\npublic class Sample {\n");
+        StringBuilder withConstructor = new StringBuilder("package demo;\n\npublic class Sample {\n");
+        for (int i = 0; i < 30; i++) {
+            String members = MEMBERS.replace("count", "count" + i).replace("sum(", "sum" + i + "(")
+                    .replace("describe(", "describe" + i + "(").replace("Inner", "Inner" + i);
+            withoutConstructor.append(members);
+            withConstructor.append(members);
+        }
+        withConstructor.append("    public Sample(int start) { this.count0 = start; }\n")
+                .append("    public Sample() { this(1); }\n");
+        String main = "    public static void main(String[] args) { System.out.println(new Sample().describe0()); }\n"
+                + "}\n\ninterface Helper { void help(); }\n\nclass Second { int x = 1; int get() { return x; } }\n";
+        withoutConstructor.append(main);
+        withConstructor.append(main);
+        for (ParseMode mode : ParseMode.values()) {
+            assertTrue(assertSameTranslation(withoutConstructor.toString(), mode) > 0, "streamed with " + mode);
+            assertTrue(assertSameTranslation(withConstructor.toString(), mode) > 0, "streamed with " + mode);
+        }
+    }
+
+    @Test
+    public void brokenClassesAreTranslatedWhole() {
+        assertEquals(0, assertSameTranslation("class A { int x = ; void m() { } void n() { } }", ParseMode.TWO_STAGE));
+        assertEquals(0, assertSameTranslation("class A { void m() { } } }", ParseMode.TWO_STAGE));
+        assertEquals(0, assertSameTranslation("class A { void m() { } void n() {", ParseMode.TWO_STAGE));
+        assertEquals(0, assertSameTranslation("class A { String s = \"unterminated; }", ParseMode.TWO_STAGE));
+    }
+
+    /** Returns how many class bodies were streamed. */
+    private static int assertSameTranslation(String code, ParseMode mode) {
+        int streamed = -1;
+        for (LexerKind lexer : LexerKind.values()) {
+            ParserOptions wholeOptions = ParserOptions.defaults().setLexer(lexer);
+            Translator.Result whole = new Translator(mode, wholeOptions, TranslationOptions.defaults())
+                    .translate(CharStreams.fromString(code));
+            ParserOptions streamingOptions = ParserOptions.defaults().setLexer(lexer).setStreaming(true);
+            Translator.Result streaming = new Translator(mode, streamingOptions, TranslationOptions.defaults())
+                    .translate(CharStreams.fromString(code));
+            assertEquals(whole.getPythonCode(), streaming.getPythonCode(), code);
+            ParseResult result = streaming.getParseResult();
+            if (!result.getStreamedMembers().isEmpty()) {
+                assertNull(result.getTokens());
+            }
+            streamed = result.getStreamedMembers().size();
+        }
+        return streamed;
+    }
+}
@@ -0,0 +1,67 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.Translator;
+import org.arjun.diagnostics.FileDiagnostics;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParserOptions;
+import org.arjun.parser.WarmUp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What the tests share: the sources of the built-in sample corpus, and translating a source in one call.
+ */
+final class TestSources {
+    private TestSources() {}
+
+    /** The samples of {@link WarmUp#corpus()}, by file name, in corpus order. */
+    static Map<String, String> corpus() throws IOException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (String name : WarmUp.corpus()) {
+            try (InputStream source = TestSources.class.getResourceAsStream(WarmUp.CORPUS_DIR + name)) {
+                sources.put(name, CharStreams.fromStream(source, StandardCharsets.UTF_8).toString());
+            }
+        }
+        return sources;
+    }
+
+    /** A new temporary directory holding the samples of {@link #corpus()} as source files. */
+    static Path corpusDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("corpus");
+        for (Map.Entry<String, String> sample : corpus().entrySet()) {
+            Files.write(directory.resolve(sample.getKey()), sample.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        return directory;
+    }
+
+    static String translate(String code) {
+        return translate(code, ParseMode.TWO_STAGE, ParserOptions.defaults(), TranslationOptions.defaults());
+    }
+
+    static String translate(String code, TranslationOptions options) {
+        return translate(code, ParseMode.TWO_STAGE, ParserOptions.defaults(), options);
+    }
+
+    static String translate(String code, ParserOptions parserOptions) {
+        return translate(code, ParseMode.TWO_STAGE, parserOptions, TranslationOptions.defaults());
+    }
+
+    /** Translates {@code code}, collecting its syntax errors and untranslated members into {@code diagnostics}. */
+    static String translate(String code, ParserOptions parserOptions, FileDiagnostics diagnostics) {
+        StringWriter python = new StringWriter();
+        new Translator(ParseMode.TWO_STAGE, parserOptions, TranslationOptions.defaults())
+                .translate(CharStreams.fromString(code), python, TranslationOptions.defaults(), null, diagnostics);
+        return python.toString();
+    }
+
+    static String translate(String code, ParseMode mode, ParserOptions parserOptions, TranslationOptions options) {
+        return new Translator(mode, parserOptions, options).translate(CharStreams.fromString(code)).getPythonCode();
+    }
+}
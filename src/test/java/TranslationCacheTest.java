@@ -0,0 +1,149 @@
+import org.arjun.batch.BatchOptions;
+import org.arjun.batch.BatchSummary;
+import org.arjun.batch.BatchTranslator;
+import org.arjun.batch.TranslationCache;
+import org.arjun.diagnostics.DiagnosticsReport;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.ParseMode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unchanged sources must be restored from the cache, and any change to a source, the options or the translator must miss.
+ */
+public class TranslationCacheTest {
+    @Test
+    public void unchangedSourcesHitTheCache() throws IOException {
+        Path sources = TestSources.corpusDirectory();
+        Path cacheDir = Files.createTempDirectory("cache");
+        Path first = Files.createTempDirectory("cache-out");
+        DiagnosticsReport diagnostics = new DiagnosticsReport();
+        BatchSummary cold = run(sources, first, cache(cacheDir, ParseMode.TWO_STAGE, TranslationOptions.defaults()), diagnostics);
+        assertEquals(0, cold.getCacheHits());
+        assertEquals(cold.getFiles(), cold.getCacheMisses());
+
+        // the samples with syntax errors or stubs are not cached
+        Path second = Files.createTempDirectory("cache-out");
+        BatchSummary warm = run(sources, second, cache(cacheDir, ParseMode.TWO_STAGE, TranslationOptions.defaults()));
+        assertEquals(warm.getFiles() - diagnostics.getFiles().size(), warm.getCacheHits(), warm.format());
+        assertEquals(diagnostics.getFiles().size(), warm.getCacheMisses());
+        assertEquals(outputs(first), outputs(second));
+    }
+
+    @Test
+    public void changesMissTheCache() throws IOException {
+        Path sources = TestSources.corpusDirectory();
+        Path cacheDir = Files.createTempDirectory("cache");
+        Path output = Files.createTempDirectory("cache-out");
+        DiagnosticsReport diagnostics = new DiagnosticsReport();
+        BatchSummary cold = run(sources, output, cache(cacheDir, ParseMode.TWO_STAGE, TranslationOptions.defaults()), diagnostics);
+        long uncached = diagnostics.getFiles().size();
+
+        Path changed = BatchTranslator.findSources(sources).stream()
+                .filter(source -> diagnostics.getFiles().stream().noneMatch(file -> file.getName().equals(source.toString())))
+                .findFirst().get();
+        Files.write(changed, "class Changed { int x = 1; }\n".getBytes(StandardCharsets.UTF_8));
+        BatchSummary edited = run(sources, output, cache(cacheDir, ParseMode.TWO_STAGE, TranslationOptions.defaults()));
+        assertEquals(1 + uncached, edited.getCacheMisses());
+        assertEquals(cold.getFiles() - 1 - uncached, edited.getCacheHits());
+        assertTrue(new String(Files.readAllBytes(new BatchTranslator(sources, output, BatchOptions.defaults()).outputPathFor(changed)),
+                StandardCharsets.UTF_8).contains("class Changed"));
+
+        // other options or another parse mode make other translations
+        TranslationOptions withSlots = TranslationOptions.defaults().setSlots(true);
+        BatchSummary slots = run(sources, output, cache(cacheDir, ParseMode.TWO_STAGE, withSlots), withSlots);
+        assertEquals(0, slots.getCacheHits());
+        byte[] source = "class A {}".getBytes(StandardCharsets.UTF_8);
+        assertNotEquals(cache(cacheDir, ParseMode.TWO_STAGE, TranslationOptions.defaults()).key(source),
+                cache(cacheDir, ParseMode.LL, TranslationOptions.defaults()).key(source));
+        assertEquals(cache(cacheDir, ParseMode.TWO_STAGE, TranslationOptions.defaults()).key(source),
+                cache(cacheDir, ParseMode.TWO_STAGE, TranslationOptions.defaults()).key(source));
+    }
+
+    @Test
+    public void filesWithProblemsAreDiagnosedOnEveryRun() throws IOException {
+        Path sources = Files.createTempDirectory("cache-src");
+        Files.write(sources.resolve("Clean.java"), "class Clean { int x = 1; }\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(sources.resolve("Broken.java"), "class Broken { int x = ; }\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(sources.resolve("Partial.java"), "class Partial {\n    void f() {\n        int[] xs = new int[] {1};\n    }\n}\n"
+                .getBytes(StandardCharsets.UTF_8));
+        Path cacheDir = Files.createTempDirectory("cache");
+
+        DiagnosticsReport cold = new DiagnosticsReport();
+        run(sources, Files.createTempDirectory("cache-out"), cache(cacheDir, ParseMode.TWO_STAGE, TranslationOptions.defaults()), cold);
+        assertEquals(2, cold.getFiles().size(), cold.format());
+        DiagnosticsReport warm = new DiagnosticsReport();
+        BatchSummary summary = run(sources, Files.createTempDirectory("cache-out"),
+                cache(cacheDir, ParseMode.TWO_STAGE, TranslationOptions.defaults()), warm);
+        assertEquals(cold.format(), warm.format());
+        assertEquals(1, summary.getCacheHits());
+        assertEquals(1, summary.getUntranslatedMembers());
+    }
+
+    @Test
+    public void versionCoversEveryTranslatorClass() throws IOException {
+        List<String> classes = TranslationCache.translatorClasses();
+        for (String name : new String[] {"org/arjun/Translator.class", "org/arjun/interpreter/_interpreter_.class",
+                "org/arjun/interpreter/SourceText.class", "org/arjun/interpreter/TranslationContext.class",
+                "org/arjun/interpreter/TranslationOptions.class", "org/arjun/interpreter/ClassMembers.class",
+                "org/arjun/ir/PyPrinter.class", "org/arjun/ir/PyExpr.class", "org/arjun/ir/PassManager.class"}) {
+            assertTrue(classes.contains(name), name + " in " + classes);
+        }
+        for (String name : classes) {
+            assertTrue(name.equals("org/arjun/Translator.class") || name.startsWith("org/arjun/interpreter/")
+                    || name.startsWith("org/arjun/ir/"), name);
+        }
+    }
+
+    @Test
+    public void trimEvictsLeastRecentlyUsedEntries() throws IOException {
+        Path sources = TestSources.corpusDirectory();
+        Path cacheDir = Files.createTempDirectory("cache");
+        DiagnosticsReport diagnostics = new DiagnosticsReport();
+        BatchSummary summary = run(sources, Files.createTempDirectory("cache-out"),
+                new TranslationCache(cacheDir, 0, ParseMode.TWO_STAGE, TranslationOptions.defaults()), diagnostics);
+        assertEquals(summary.getFiles() - diagnostics.getFiles().size(), summary.getCacheEvictions());
+        BatchSummary again = run(sources, Files.createTempDirectory("cache-out"), cache(cacheDir, ParseMode.TWO_STAGE, TranslationOptions.defaults()));
+        assertEquals(0, again.getCacheHits());
+    }
+
+    private static TranslationCache cache(Path directory, ParseMode mode, TranslationOptions options) throws IOException {
+        return new TranslationCache(directory, TranslationCache.DEFAULT_MAX_BYTES, mode, options);
+    }
+
+    private static BatchSummary run(Path sources, Path output, TranslationCache cache) throws IOException {
+        return run(sources, output, cache, TranslationOptions.defaults());
+    }
+
+    private static BatchSummary run(Path sources, Path output, TranslationCache cache, TranslationOptions options) throws IOException {
+        return new BatchTranslator(sources, output, BatchOptions.defaults().setParallelism(2).setCache(cache)
+                .setTranslationOptions(options)).run();
+    }
+
+    private static BatchSummary run(Path sources, Path output, TranslationCache cache, DiagnosticsReport diagnostics) throws IOException {
+        return new BatchTranslator(sources, output, BatchOptions.defaults().setParallelism(2).setCache(cache)
+                .setDiagnostics(diagnostics)).run();
+    }
+
+    private static Map<String, String> outputs(Path output) throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(output)) {
+            for (Path file : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                files.put(output.relativize(file).toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+        return files;
+    }
+}
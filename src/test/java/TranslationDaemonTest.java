@@ -0,0 +1,237 @@
+import org.arjun.daemon.TranslationDaemon;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParserOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The daemon must serve only requests carrying its token, write only under its output root, report syntax errors
+ * and failures to the client as error frames, and shut down on {@code -stop}.
+ */
+public class TranslationDaemonTest {
+    private static final byte OUTPUT = 1;
+    private static final byte MESSAGE = 2;
+    private static final byte ERROR = 3;
+    private static final byte EXIT = 4;
+
+    private static final String CODE = "class A {\n    int f(int n) {\n        return n * 2;\n    }\n}\n";
+
+    @Test
+    public void translatesOverTheProtocol() throws Exception {
+        try (Daemon daemon = new Daemon()) {
+            Response response = daemon.send(daemon.token(), "-snippet", CODE);
+            assertEquals(0, response.status, response.toString());
+            assertEquals(TestSources.translate(CODE), response.output.toString());
+            assertTrue(response.errors.isEmpty(), response.toString());
+            assertTrue(response.messages.get(0).startsWith("Parsed snippet with "), response.toString());
+
+            Path source = daemon.root.resolve("A.java");
+            Files.write(source, CODE.getBytes(StandardCharsets.UTF_8));
+            Path target = daemon.root.resolve("out").resolve("A.py");
+            Files.createDirectories(target.getParent());
+            response = daemon.send(daemon.token(), "-inputPath", source.toString(), "-outputPath", target.toString());
+            assertEquals(0, response.status, response.toString());
+            assertEquals(0, response.output.length());
+            assertEquals(TestSources.translate(CODE), new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+
+            response = daemon.send(daemon.token(), "-snippet", CODE, "-parseMode", "fastest");
+            assertEquals(2, response.status);
+            assertTrue(response.errors.get(0).startsWith("Invalid request"), response.toString());
+        }
+    }
+
+    @Test
+    public void requestsWithoutTheTokenAreRefused() throws Exception {
+        try (Daemon daemon = new Daemon()) {
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(daemon.tokenFile())));
+            }
+            for (String token : new String[] {"", "not the token", daemon.token() + "0"}) {
+                Response response = daemon.send(token, "-snippet", CODE);
+                assertEquals(4, response.status, response.toString());
+                assertEquals(0, response.output.length());
+                assertTrue(response.errors.get(0).startsWith("Request refused"), response.toString());
+            }
+            // a refused client cannot stop the daemon either
+            assertEquals(4, daemon.send("", "-stop").status);
+            assertEquals(0, daemon.send(daemon.token(), "-snippet", CODE).status);
+        }
+    }
+
+    @Test
+    public void outputOutsideTheRootIsRefused() throws Exception {
+        try (Daemon daemon = new Daemon()) {
+            Path elsewhere = Files.createTempDirectory("daemon-elsewhere");
+            Path inside = daemon.root.resolve("A.py");
+            List<String> refused = Arrays.asList(elsewhere.resolve("A.py").toString(),
+                    daemon.root.resolve("..").resolve(elsewhere.getFileName()).resolve("A.py").toString(),
+                    daemon.root.resolve("A.sh").toString(),
+                    daemon.root.resolve("missing").resolve("A.py").toString(),
+                    "A.py");
+            for (String outputPath : refused) {
+                Response response = daemon.send(daemon.token(), "-snippet", CODE, "-outputPath", outputPath);
+                assertEquals(2, response.status, outputPath);
+                assertTrue(response.errors.get(0).startsWith("Refusing to write"), response.toString());
+            }
+            try (Stream<Path> written = Files.list(elsewhere)) {
+                assertEquals(0, written.count());
+            }
+            Files.createSymbolicLink(inside, elsewhere.resolve("B.py"));
+            assertEquals(2, daemon.send(daemon.token(), "-snippet", CODE, "-outputPath", inside.toString()).status);
+            assertFalse(Files.exists(elsewhere.resolve("B.py")));
+        }
+    }
+
+    @Test
+    public void syntaxErrorsAndFailuresComeBackAsErrorFrames() throws Exception {
+        try (Daemon daemon = new Daemon()) {
+            String broken = "class A {\n    int x = ;\n    void m() {\n        int y = 1\n    }\n}\n";
+            Response response = daemon.send(daemon.token(), "-snippet", broken);
+            assertEquals(0, response.status, response.toString());
+            assertTrue(response.errors.size() >= 2, response.toString());
+            assertTrue(response.errors.get(0).startsWith("snippet: line 2:"), response.toString());
+            assertTrue(response.errors.get(response.errors.size() - 1).startsWith("snippet: line 5:4 missing ';'"), response.toString());
+
+            Path missing = daemon.root.resolve("Missing.java");
+            response = daemon.send(daemon.token(), "-inputPath", missing.toString());
+            assertEquals(1, response.status, response.toString());
+            assertEquals(1, response.errors.size(), response.toString());
+            assertTrue(response.errors.get(0).startsWith("Failed to translate " + missing + ": java.nio.file.NoSuchFileException"),
+                    response.toString());
+        }
+    }
+
+    @Test
+    public void stopShutsTheDaemonDown() throws Exception {
+        try (Daemon daemon = new Daemon()) {
+            Response response = daemon.send(daemon.token(), "-stop");
+            assertEquals(0, response.status);
+            assertEquals(Arrays.asList("Stopping translation daemon"), response.messages);
+            daemon.thread.join(10_000);
+            assertFalse(daemon.thread.isAlive());
+            assertFalse(Files.exists(daemon.tokenFile()));
+            try (Socket ignored = new Socket(InetAddress.getLoopbackAddress(), daemon.port)) {
+                throw new AssertionError("daemon still accepts connections");
+            } catch (IOException expected) {
+                // nothing listens any more
+            }
+        }
+    }
+
+    /** A daemon on a free port, with its token file in a home directory of its own. */
+    private static final class Daemon implements AutoCloseable {
+        final Path home = Files.createTempDirectory("daemon-home");
+        final Path root = Files.createTempDirectory("daemon-root").toRealPath();
+        final int port;
+        final TranslationDaemon daemon;
+        final Thread thread;
+        private final String userHome = System.getProperty("user.home");
+
+        Daemon() throws Exception {
+            try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                port = probe.getLocalPort();
+            }
+            System.setProperty("user.home", home.toString());
+            daemon = new TranslationDaemon(port, 2, ParseMode.TWO_STAGE, ParserOptions.defaults(), root);
+            thread = new Thread(() -> {
+                try {
+                    daemon.run();
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            thread.start();
+            // the token file appears once the daemon listens
+            for (int i = 0; i < 1000 && !Files.exists(tokenFile()); i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(Files.exists(tokenFile()), "daemon did not start");
+        }
+
+        Path tokenFile() {
+            return home.resolve(".j2pbridge").resolve("daemon-" + port + ".token");
+        }
+
+        String token() throws IOException {
+            return new String(Files.readAllBytes(tokenFile()), StandardCharsets.UTF_8);
+        }
+
+        Response send(String token, String... args) throws IOException {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                 DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                writeString(out, token);
+                out.writeInt(args.length);
+                for (String arg : args) {
+                    writeString(out, arg);
+                }
+                out.flush();
+                Response response = new Response();
+                while (true) {
+                    byte kind = in.readByte();
+                    if (kind == EXIT) {
+                        response.status = in.readInt();
+                        return response;
+                    }
+                    byte[] payload = new byte[in.readInt()];
+                    in.readFully(payload);
+                    String text = new String(payload, StandardCharsets.UTF_8);
+                    if (kind == OUTPUT) {
+                        response.output.append(text);
+                    } else if (kind == MESSAGE) {
+                        response.messages.add(text);
+                    } else if (kind == ERROR) {
+                        response.errors.add(text);
+                    } else {
+                        throw new IOException("unexpected frame " + kind);
+                    }
+                }
+            }
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public void close() throws Exception {
+            daemon.stop();
+            thread.join(10_000);
+            System.setProperty("user.home", userHome);
+        }
+    }
+
+    private static final class Response {
+        final StringBuilder output = new StringBuilder();
+        final List<String> messages = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        int status = -1;
+
+        @Override
+        public String toString() {
+            return "status " + status + ", messages " + messages + ", errors " + errors;
+        }
+    }
+}
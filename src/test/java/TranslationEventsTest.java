@@ -0,0 +1,68 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.arjun.batch.BatchOptions;
+import org.arjun.batch.BatchSummary;
+import org.arjun.batch.BatchTranslator;
+import org.arjun.stats.TranslationEvents;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A batch run under a recording must leave one event of every kind per file, with the file's path on it.
+ */
+public class TranslationEventsTest {
+    private static final String[] EVENTS = {"TranslateFile", "Lex", "Parse", "ParseFallback", "Emit", "WriteOutput"};
+
+    @Test
+    public void batchRunIsRecorded() throws IOException {
+        assertTrue(TranslationEvents.AVAILABLE);
+        Path sources = Files.createTempDirectory("events");
+        Files.write(sources.resolve("Good.java"), "class Good {\n    int x = 1;\n}\n".getBytes(StandardCharsets.UTF_8));
+        // the missing semicolon makes SLL prediction bail, so this one is parsed again with LL
+        Files.write(sources.resolve("Broken.java"), "class Broken {\n    String s = \"x\"\n}\n".getBytes(StandardCharsets.UTF_8));
+
+        Path dump = Files.createTempFile("events", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : EVENTS) {
+                recording.enable("org.arjun." + name);
+            }
+            recording.start();
+            BatchSummary summary = new BatchTranslator(sources, Files.createTempDirectory("events-out"), BatchOptions.defaults()).run();
+            recording.stop();
+            recording.dump(dump);
+            assertEquals(2, summary.getTranslated());
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+        for (String name : EVENTS) {
+            long expected = name.equals("ParseFallback") ? 1 : 2;
+            assertEquals(expected, count(events, "org.arjun." + name), name);
+        }
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("org.arjun.ParseFallback")) {
+                assertTrue(event.getString("path").endsWith("Broken.java"), event.getString("path"));
+                assertEquals(3, event.getInt("line"));
+            }
+            if (event.getEventType().getName().equals("org.arjun.Lex")) {
+                assertTrue(event.getLong("tokens") > 5);
+            }
+            if (event.getEventType().getName().equals("org.arjun.TranslateFile")) {
+                assertTrue(event.getLong("outputBytes") > 0);
+                assertEquals(event.getString("path").endsWith("Broken.java"), event.getBoolean("fallback"));
+            }
+        }
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).count();
+    }
+}
@@ -0,0 +1,59 @@
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.arjun.interpreter.JavaParser;
+import org.arjun.interpreter.TranslationOptions;
+import org.arjun.parser.JavaSourceParser;
+import org.arjun.parser.ParseMode;
+import org.arjun.parser.ParseResult;
+import org.arjun.parser.ParserOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parsing with SLL first must build the tree full LL builds, whether SLL succeeds or bails out and LL re-parses.
+ */
+public class TwoStageParseTest {
+    private static final String BROKEN = "class A {\n    int x = ;\n    void m() {\n        int y = 1\n        x = y;\n    }\n}\n";
+
+    @Test
+    public void samplesParseToTheLlTree() throws IOException {
+        int sllOnly = 0;
+        for (Map.Entry<String, String> sample : TestSources.corpus().entrySet()) {
+            ParseResult twoStage = parse(sample.getValue(), ParseMode.TWO_STAGE);
+            // a sample SLL cannot decide is re-parsed, never reported as SLL with a different tree
+            assertEquals(twoStage.getStage() == ParseResult.Stage.LL, twoStage.isFallback(), sample.getKey());
+            assertEquals(tree(parse(sample.getValue(), ParseMode.LL)), tree(twoStage), sample.getKey());
+            if (!twoStage.isFallback()) {
+                sllOnly++;
+            }
+        }
+        assertTrue(sllOnly > 0);
+    }
+
+    @Test
+    public void bailOutFallsBackToTheLlTree() {
+        ParseResult twoStage = parse(BROKEN, ParseMode.TWO_STAGE);
+        assertEquals(ParseResult.Stage.LL, twoStage.getStage());
+        assertTrue(twoStage.isFallback());
+        assertEquals(tree(parse(BROKEN, ParseMode.LL)), tree(twoStage));
+        assertEquals(TestSources.translate(BROKEN, ParseMode.LL, ParserOptions.defaults(), TranslationOptions.defaults()),
+                TestSources.translate(BROKEN));
+    }
+
+    private static ParseResult parse(String code, ParseMode mode) {
+        JavaSourceParser parser = new JavaSourceParser(mode);
+        // the syntax errors are expected; keep them off the console
+        parser.setErrorListener(new BaseErrorListener());
+        return parser.parse(CharStreams.fromString(code));
+    }
+
+    private static String tree(ParseResult result) {
+        return result.getTree().toStringTree(Arrays.asList(JavaParser.ruleNames));
+    }
+}